@@ -0,0 +1,198 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoderFactory;
+import com.liuhanling.bluetooth.frame.FrameDecoders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分帧解码基准，每秒帧数
+ * <p>
+ * 数据流按 {@link Constants#RECEIVE_BUFFER_SIZE} 分块输入，与接收任务一致，帧回调只消费切片不复制。
+ * density 为负载中需要特殊处理的字节比例：crlf 为 \n，cobs 为 0x00，slip 为 0xC0/0xDB；
+ * delimiter、fixed、length 不受负载内容影响。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+    private static final byte CR = 0x0D;
+    private static final byte SLIP_END = (byte) 0xC0;
+    private static final byte SLIP_ESC = (byte) 0xDB;
+
+    @Param({"crlf", "delimiter", "fixed", "length", "cobs", "slip"})
+    public String decoder;
+
+    @Param({"16", "128", "1024"})
+    public int frameSize;
+
+    @Param({"0", "0.05", "0.25"})
+    public double density;
+
+    private byte[] mStream;
+    private FrameDecoder mDecoder;
+
+    @Setup
+    public void setUp() {
+        FrameDecoderFactory factory;
+        switch (decoder) {
+            case "crlf":
+                factory = FrameDecoders.crlf();
+                mStream = Streams.crlf(frameSize, density);
+                break;
+            case "delimiter":
+                factory = FrameDecoders.delimiter(CR);
+                mStream = delimiter(Streams.payloads(frameSize, density));
+                break;
+            case "fixed":
+                factory = FrameDecoders.fixedLength(frameSize);
+                mStream = concat(Streams.payloads(frameSize, density));
+                break;
+            case "length":
+                factory = FrameDecoders.lengthField(2, ByteOrder.BIG_ENDIAN);
+                mStream = lengthField(Streams.payloads(frameSize, density));
+                break;
+            case "cobs":
+                factory = FrameDecoders.cobs();
+                mStream = cobs(Streams.payloads(frameSize, density, (byte) 0x00));
+                break;
+            case "slip":
+                factory = FrameDecoders.slip();
+                mStream = slip(Streams.payloads(frameSize, density, SLIP_END, SLIP_ESC));
+                break;
+            default:
+                throw new IllegalArgumentException("decoder: " + decoder);
+        }
+        mDecoder = factory.create();
+        final int[] frames = new int[1];
+        decode(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                // crlf 丢弃负载中的 \n，帧长可能小于 frameSize
+                if (length > frameSize || length < frameSize && !"crlf".equals(decoder)) {
+                    throw new IllegalStateException(decoder + " frame length: " + length);
+                }
+                frames[0]++;
+            }
+        });
+        if (frames[0] != Streams.FRAMES) {
+            throw new IllegalStateException(decoder + " frames: " + frames[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void decode(final Blackhole blackhole) {
+        decode(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                blackhole.consume(buffer);
+                blackhole.consume(length);
+            }
+        });
+    }
+
+    private void decode(FrameDecoder.FrameListener listener) {
+        byte[] stream = mStream;
+        for (int offset = 0; offset < stream.length; offset += Constants.RECEIVE_BUFFER_SIZE) {
+            mDecoder.decode(stream, offset, Math.min(Constants.RECEIVE_BUFFER_SIZE, stream.length - offset), listener);
+        }
+    }
+
+    private static byte[] concat(byte[][] payloads) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            stream.write(payload, 0, payload.length);
+        }
+        return stream.toByteArray();
+    }
+
+    private static byte[] delimiter(byte[][] payloads) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            stream.write(payload, 0, payload.length);
+            stream.write(CR);
+        }
+        return stream.toByteArray();
+    }
+
+    private static byte[] lengthField(byte[][] payloads) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            stream.write(payload.length >> 8);
+            stream.write(payload.length);
+            stream.write(payload, 0, payload.length);
+        }
+        return stream.toByteArray();
+    }
+
+    private static byte[] cobs(byte[][] payloads) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        byte[] block = new byte[255];
+        for (byte[] payload : payloads) {
+            int length = 0;
+            for (byte b : payload) {
+                if (b == 0) {
+                    stream.write(length + 1);
+                    stream.write(block, 0, length);
+                    length = 0;
+                    continue;
+                }
+                block[length++] = b;
+                if (length == 254) {
+                    stream.write(255);
+                    stream.write(block, 0, length);
+                    length = 0;
+                }
+            }
+            stream.write(length + 1);
+            stream.write(block, 0, length);
+            stream.write(0);
+        }
+        return stream.toByteArray();
+    }
+
+    private static byte[] slip(byte[][] payloads) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            for (byte b : payload) {
+                if (b == SLIP_END) {
+                    stream.write(SLIP_ESC);
+                    stream.write(0xDC);
+                } else if (b == SLIP_ESC) {
+                    stream.write(SLIP_ESC);
+                    stream.write(0xDD);
+                } else {
+                    stream.write(b);
+                }
+            }
+            stream.write(SLIP_END);
+        }
+        return stream.toByteArray();
+    }
+}
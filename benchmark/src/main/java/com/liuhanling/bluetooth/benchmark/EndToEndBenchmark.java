@@ -0,0 +1,214 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.DelimiterFrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+import com.liuhanling.bluetooth.service.IoScheduler;
+import com.liuhanling.bluetooth.transport.TcpTransportFactory;
+import com.liuhanling.bluetooth.transport.Transport;
+import com.liuhanling.bluetooth.transport.TransportServer;
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端基准，经本地回环 TCP 走完连接、发送队列、分帧接收的路径
+ * <p>
+ * 对端为回显服务：按 \r 分帧，每帧经自己的发送队列原样写回。
+ * roundTrip 为每秒往返帧数：本端一次入队 FRAMES 帧，读取并分帧直到收齐回显；
+ * connect 为新建连接到收到第一帧回显的时间。
+ * BluetoothService 依赖 Android 类，不在本模块编译，这里直接组合它的收发任务所用的传输、发送队列和分帧。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final byte[] CR_LF = {0x0D, 0x0A};
+
+    @Param({"16", "128", "1024"})
+    public int frameSize;
+
+    private final IoScheduler mScheduler = new IoScheduler(IoScheduler.DEFAULT_MAX_THREADS);
+    private byte[][] mPayloads;
+    private TcpTransportFactory mFactory;
+    private TransportServer mServer;
+    private volatile boolean isRunning = true;
+
+    private Transport mClient;
+    private WriteQueue mClientQueue;
+    private final byte[] mBuffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
+    private final FrameDecoder mDecoder = new DelimiterFrameDecoder();
+    private final Counter mCounter = new Counter();
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayloads = Streams.payloads(frameSize, 0);
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        mFactory = new TcpTransportFactory(port);
+        mServer = mFactory.listen();
+        mScheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        });
+        mClient = openClient();
+        mClientQueue = new WriteQueue(mClient.getOutputStream(), Streams.FRAMES, WriteQueue.DEFAULT_MTU, OverflowPolicy.BLOCK);
+        mClientQueue.start(mScheduler);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        isRunning = false;
+        mClientQueue.close();
+        mClient.close();
+        mServer.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(Streams.FRAMES)
+    public int roundTrip() throws IOException {
+        for (byte[] payload : mPayloads) {
+            mClientQueue.offer(new ByteBuffer[]{ByteBuffer.wrap(payload), ByteBuffer.wrap(CR_LF)}, null, null);
+        }
+        mCounter.mFrames = 0;
+        InputStream input = mClient.getInputStream();
+        while (mCounter.mFrames < Streams.FRAMES) {
+            int length = input.read(mBuffer, 0, mBuffer.length);
+            if (length < 0) {
+                throw new IOException("Connection closed");
+            }
+            mDecoder.decode(mBuffer, 0, length, mCounter);
+        }
+        return mCounter.mFrames;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int connect() throws IOException {
+        Transport client = openClient();
+        try {
+            WriteQueue queue = new WriteQueue(client.getOutputStream());
+            queue.start(mScheduler);
+            queue.offer(new ByteBuffer[]{ByteBuffer.wrap(mPayloads[0]), ByteBuffer.wrap(CR_LF)}, null, null);
+            FrameDecoder decoder = new DelimiterFrameDecoder();
+            Counter counter = new Counter();
+            InputStream input = client.getInputStream();
+            byte[] buffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
+            while (counter.mFrames == 0) {
+                int length = input.read(buffer, 0, buffer.length);
+                if (length < 0) {
+                    throw new IOException("Connection closed");
+                }
+                decoder.decode(buffer, 0, length, counter);
+            }
+            queue.close();
+            return counter.mFrames;
+        } finally {
+            client.close();
+        }
+    }
+
+    private Transport openClient() throws IOException {
+        Transport client = mFactory.createTransport(null);
+        client.connect();
+        return client;
+    }
+
+    /**
+     * 对端：每个连接一个回显任务
+     */
+    private void acceptLoop() {
+        while (isRunning) {
+            final Transport transport;
+            try {
+                transport = mServer.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mScheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    echo(transport);
+                }
+            });
+        }
+    }
+
+    private void echo(Transport transport) {
+        WriteQueue queue = null;
+        try {
+            InputStream input = transport.getInputStream();
+            final WriteQueue echoQueue = new WriteQueue(transport.getOutputStream(), Streams.FRAMES, WriteQueue.DEFAULT_MTU, OverflowPolicy.BLOCK);
+            echoQueue.start(mScheduler);
+            queue = echoQueue;
+            FrameDecoder decoder = new DelimiterFrameDecoder();
+            FrameDecoder.FrameListener listener = new FrameDecoder.FrameListener() {
+                @Override
+                public void onFrame(byte[] buffer, int offset, int length) {
+                    byte[] frame = Arrays.copyOfRange(buffer, offset, offset + length);
+                    echoQueue.offer(new ByteBuffer[]{ByteBuffer.wrap(frame), ByteBuffer.wrap(CR_LF)}, null, null);
+                }
+            };
+            byte[] buffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
+            int length;
+            while ((length = input.read(buffer, 0, buffer.length)) >= 0) {
+                decoder.decode(buffer, 0, length, listener);
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        } finally {
+            if (queue != null) {
+                queue.close();
+            }
+            try {
+                transport.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * 统计收到的帧数
+     */
+    private static class Counter implements FrameDecoder.FrameListener {
+
+        int mFrames;
+
+        @Override
+        public void onFrame(byte[] buffer, int offset, int length) {
+            mFrames++;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+import com.liuhanling.bluetooth.frame.DelimiterFrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接收帧交付基准，每秒帧数，配合 -prof gc 比较每帧分配
+ * <p>
+ * 分帧相同，只比较交付给监听的方式：
+ * copyString 为原 MESSAGE_READ 路径，每帧复制新数组并解码字符串；
+ * pooled 为池化模式，帧数组从 {@link ByteArrayPool} 取，监听只读字节后释放；
+ * pooledString 为池化模式下监听需要字符串时的开销。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+
+    private static final String ADDRESS = "00:11:22:33:44:55";
+
+    @Param({"16", "128", "1024"})
+    public int frameSize;
+
+    @Param({"0", "0.05", "0.25"})
+    public double density;
+
+    private byte[] mStream;
+    private final FrameDecoder mDecoder = new DelimiterFrameDecoder();
+    private final ByteArrayPool mPool = new ByteArrayPool();
+    private final Charset mCharset = Charset.defaultCharset();
+
+    @Setup
+    public void setUp() {
+        mStream = Streams.crlf(frameSize, density);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void copyString(final Blackhole blackhole) {
+        decode(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                byte[] data = Arrays.copyOfRange(buffer, offset, offset + length);
+                blackhole.consume(data);
+                blackhole.consume(new String(data, mCharset));
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void pooled(final Blackhole blackhole) {
+        decode(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                BluetoothFrame frame = BluetoothFrame.obtain(mPool, mCharset, ADDRESS, buffer, offset, length);
+                blackhole.consume(frame.array());
+                blackhole.consume(frame.length());
+                frame.release();
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void pooledString(final Blackhole blackhole) {
+        decode(new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                BluetoothFrame frame = BluetoothFrame.obtain(mPool, mCharset, ADDRESS, buffer, offset, length);
+                blackhole.consume(frame.getString());
+                frame.release();
+            }
+        });
+    }
+
+    private void decode(FrameDecoder.FrameListener listener) {
+        byte[] stream = mStream;
+        for (int offset = 0; offset < stream.length; offset += Constants.RECEIVE_BUFFER_SIZE) {
+            mDecoder.decode(stream, offset, Math.min(Constants.RECEIVE_BUFFER_SIZE, stream.length - offset), listener);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.frame.DelimiterFrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+import com.liuhanling.bluetooth.metrics.LatencyHistogram;
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接统计开销基准，每帧纳秒
+ * <p>
+ * receive 为接收任务每帧的统计路径：会话计数，统计开启时再记帧间隔和总帧数，按 \r 分帧，
+ * baseline 为去掉统计判空的同一路径；enabled=false 时只多一次判空。
+ * write 为发送队列入队到写出，统计开启时记录写延时。
+ * percentiles 为快照读取一个直方图的 p50 和 p99，single 为原来逐个读取各复制一次桶计数。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final byte[] CR_LF = {0x0D, 0x0A};
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public long receive(Path path) {
+        path.mDecoder.decode(path.mStream, 0, path.mStream.length, path.mReceiver);
+        return path.mReceiver.mFrames.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public long baseline(Baseline baseline) {
+        baseline.mDecoder.decode(baseline.mStream, 0, baseline.mStream.length, baseline.mReceiver);
+        return baseline.mFrames.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public long write(Path path) {
+        for (byte[] payload : path.mPayloads) {
+            path.mQueue.offer(new ByteBuffer[]{ByteBuffer.wrap(payload), ByteBuffer.wrap(CR_LF)}, null, null);
+        }
+        return path.mQueue.getWrittenBytes();
+    }
+
+    @Benchmark
+    public long[] percentiles(Histogram histogram) {
+        return histogram.mHistogram.getPercentiles(50, 99);
+    }
+
+    @Benchmark
+    public long single(Histogram histogram) {
+        return histogram.mHistogram.getPercentile(50) + histogram.mHistogram.getPercentile(99);
+    }
+
+    /**
+     * 收发路径，统计开启与关闭
+     */
+    @State(Scope.Thread)
+    public static class Path {
+
+        @Param({"false", "true"})
+        public boolean enabled;
+
+        private byte[] mStream;
+        private byte[][] mPayloads;
+        private final FrameDecoder mDecoder = new DelimiterFrameDecoder();
+        private final Receiver mReceiver = new Receiver();
+        private WriteQueue mQueue;
+
+        @Setup
+        public void setUp() {
+            mStream = Streams.crlf(16, 0);
+            mPayloads = Streams.payloads(16, 0);
+            mReceiver.mMetrics = enabled ? new Metrics() : null;
+            mQueue = new WriteQueue(Streams.NULL_OUTPUT, Streams.FRAMES, WriteQueue.DEFAULT_MTU, OverflowPolicy.FAIL_FAST);
+            mQueue.setLatencyHistogram(enabled ? new LatencyHistogram() : null);
+            // 入队后在调用线程立即写出
+            mQueue.start(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 不含统计的接收路径
+     */
+    @State(Scope.Thread)
+    public static class Baseline {
+
+        private final byte[] mStream = Streams.crlf(16, 0);
+        private final FrameDecoder mDecoder = new DelimiterFrameDecoder();
+        private final FrameDecoder.FrameListener mReceiver = new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                if (length > 0) {
+                    mFrames.incrementAndGet();
+                }
+            }
+        };
+        private final AtomicLong mFrames = new AtomicLong();
+    }
+
+    /**
+     * 有 10000 个记录的直方图
+     */
+    @State(Scope.Thread)
+    public static class Histogram {
+
+        private final LatencyHistogram mHistogram = new LatencyHistogram();
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(1);
+            for (int i = 0; i < 10000; i++) {
+                mHistogram.record(random.nextInt(100000));
+            }
+        }
+    }
+
+    /**
+     * 与接收任务相同的统计对象
+     */
+    private static class Metrics {
+
+        final AtomicLong mReadFrames = new AtomicLong();
+        final LatencyHistogram mFrameInterval = new LatencyHistogram();
+    }
+
+    /**
+     * 与接收任务 onFrame 相同的统计路径
+     */
+    private static class Receiver implements FrameDecoder.FrameListener {
+
+        final AtomicLong mFrames = new AtomicLong();
+        volatile Metrics mMetrics;
+        private long mLastFrameTime;
+
+        @Override
+        public void onFrame(byte[] buffer, int offset, int length) {
+            if (length <= 0) {
+                return;
+            }
+            mFrames.incrementAndGet();
+            Metrics metrics = mMetrics;
+            if (metrics != null) {
+                long now = System.nanoTime();
+                if (mLastFrameTime != 0) {
+                    metrics.mFrameInterval.record((now - mLastFrameTime) / 1000);
+                }
+                mLastFrameTime = now;
+                metrics.mReadFrames.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.BluetoothParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 广播数据解析基准，每秒条数
+ * <p>
+ * legacy 为原解析（{@link LegacyParser}），parse 为当前的单遍解析，nameOnly 为只读名称的访问者接口。
+ * 记录包含标志、名称、16 位 UUID 列表和厂商数据，uuids 为 16 位 UUID 个数，
+ * 不足 62 字节（广播包加扫描响应）时补 0。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final int RECORD_LENGTH = 62;
+
+    @Param({"0", "4", "12"})
+    public int uuids;
+
+    private byte[][] mRecords;
+
+    @Setup
+    public void setUp() {
+        mRecords = records(uuids);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void legacy(Blackhole blackhole) {
+        for (byte[] record : mRecords) {
+            LegacyParser.BluetoothData data = LegacyParser.parseBluetoothName(record);
+            blackhole.consume(data.getName());
+            blackhole.consume(data.getUuids());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void parse(Blackhole blackhole) {
+        for (byte[] record : mRecords) {
+            BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+            blackhole.consume(data.getName());
+            blackhole.consume(data.getUuids());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void nameOnly(Blackhole blackhole) {
+        for (byte[] record : mRecords) {
+            blackhole.consume(BluetoothParser.parseName(record));
+        }
+    }
+
+    /**
+     * 生成广播记录，末尾补 0 到固定长度
+     */
+    static byte[][] records(int uuids) {
+        Random random = new Random(0x5EED);
+        byte[][] records = new byte[Streams.FRAMES][];
+        for (int i = 0; i < records.length; i++) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(RECORD_LENGTH);
+            stream.write(2);
+            stream.write(BluetoothParser.TYPE_FLAGS);
+            stream.write(0x06);
+            byte[] name = ("Printer-" + i).getBytes(Charset.forName("UTF-8"));
+            stream.write(name.length + 1);
+            stream.write(BluetoothParser.TYPE_NAME_COMPLETE);
+            stream.write(name, 0, name.length);
+            if (uuids > 0) {
+                stream.write(uuids * 2 + 1);
+                stream.write(BluetoothParser.TYPE_UUID16_COMPLETE);
+                for (int j = 0; j < uuids; j++) {
+                    stream.write(random.nextInt(256));
+                    stream.write(0x18);
+                }
+            }
+            stream.write(5);
+            stream.write(BluetoothParser.TYPE_MANUFACTURER_DATA);
+            stream.write(0x4C);
+            stream.write(0x00);
+            stream.write(random.nextInt(256));
+            stream.write(random.nextInt(256));
+            byte[] record = new byte[Math.max(RECORD_LENGTH, stream.size())];
+            System.arraycopy(stream.toByteArray(), 0, record, 0, stream.size());
+            records[i] = record;
+        }
+        return records;
+    }
+}
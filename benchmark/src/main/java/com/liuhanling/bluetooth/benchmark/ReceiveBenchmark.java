@@ -0,0 +1,99 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.DelimiterFrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接收循环基准，每秒帧数
+ * <p>
+ * byteLoop 为原接收线程的实现：逐字节 read()，装箱到 ArrayList&lt;Integer&gt;，遇 \r 复制；
+ * bulkDecode 为当前接收任务：批量 read(byte[])，{@link DelimiterFrameDecoder} 分帧，非池化模式复制回传。
+ * density 为负载中 \n 的比例，\n 会打断零拷贝切片。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiveBenchmark {
+
+    @Param({"16", "128", "1024"})
+    public int frameSize;
+
+    @Param({"0", "0.05", "0.25"})
+    public double density;
+
+    private byte[] mStream;
+    private final byte[] mBuffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
+    private final FrameDecoder mDecoder = new DelimiterFrameDecoder();
+
+    @Setup
+    public void setUp() {
+        mStream = Streams.crlf(frameSize, density);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void byteLoop(Blackhole blackhole) throws IOException {
+        InputStream input = new ByteArrayInputStream(mStream);
+        ArrayList<Integer> array = new ArrayList<>();
+        byte[] buffer;
+        int data;
+        while ((data = input.read()) >= 0) {
+            if (data == 0x0A) {
+                // do nothing
+            } else if (data == 0x0D) {
+                buffer = new byte[array.size()];
+                for (int i = 0; i < array.size(); i++) {
+                    buffer[i] = array.get(i).byteValue();
+                }
+                blackhole.consume(buffer);
+                array = new ArrayList<>();
+            } else {
+                array.add(data);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void bulkDecode(final Blackhole blackhole) throws IOException {
+        InputStream input = new ByteArrayInputStream(mStream);
+        FrameDecoder.FrameListener listener = new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                blackhole.consume(Arrays.copyOfRange(buffer, offset, offset + length));
+            }
+        };
+        int length;
+        while ((length = input.read(mBuffer, 0, mBuffer.length)) >= 0) {
+            mDecoder.decode(mBuffer, 0, length, listener);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.StringEncoder;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字符串发送基准，每秒条数
+ * <p>
+ * concat 为原 send(String, true)：字符串拼接 \r\n 后 getBytes() 直接写出；
+ * encodeQueue 为当前实现：{@link StringEncoder} 编码到发送队列的池化数组，经 {@link WriteQueue} 合并写出。
+ * 使用默认字符集，Android 上为 UTF-8，需以 -Dfile.encoding=UTF-8 运行；nonAscii 时每 8 个字符有一个汉字。
+ * 发送任务在一批数据入队后于调用线程中执行，模拟发送线程落后于调用方时的合并，不含线程切换开销。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendBenchmark {
+
+    private static final byte[] CR_LF = {0x0D, 0x0A};
+    @Param({"16", "128", "1024"})
+    public int frameSize;
+
+    @Param({"false", "true"})
+    public boolean nonAscii;
+
+    private String[] mMessages;
+    private final OutputStream mOutputStream = Streams.NULL_OUTPUT;
+    private final ByteArrayPool mPool = new ByteArrayPool();
+    private final StringEncoder mEncoder = new StringEncoder(Charset.defaultCharset(), mPool);
+    private WriteQueue mQueue;
+    private Runnable mWriteTask;
+
+    @Setup
+    public void setUp() {
+        byte[][] payloads = Streams.payloads(frameSize, 0);
+        mMessages = new String[payloads.length];
+        for (int i = 0; i < payloads.length; i++) {
+            char[] chars = new String(payloads[i], Charset.forName("US-ASCII")).toCharArray();
+            if (nonAscii) {
+                for (int j = 0; j < chars.length; j += 8) {
+                    chars[j] = '\u4e2d';
+                }
+            }
+            mMessages[i] = new String(chars);
+        }
+        mQueue = new WriteQueue(mOutputStream, Streams.FRAMES, WriteQueue.DEFAULT_MTU, OverflowPolicy.FAIL_FAST);
+        mQueue.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mWriteTask = command;
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        mQueue.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void concat() throws IOException {
+        for (String message : mMessages) {
+            String data = message;
+            data += "\r\n";
+            mOutputStream.write(data.getBytes());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Streams.FRAMES)
+    public void encodeQueue() {
+        for (String message : mMessages) {
+            mQueue.offer(message, CR_LF, mEncoder, null);
+        }
+        Runnable task = mWriteTask;
+        mWriteTask = null;
+        task.run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.liuhanling.bluetooth.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * 基准测试数据
+ * <p>
+ * 负载为可打印字符，按 density 比例替换为特殊字节（分隔符、转义字符等），
+ * 用于模拟不同分隔符密度的数据流。固定种子，每次运行数据相同。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+final class Streams {
+
+    /** 每次调用处理的帧数 */
+    static final int FRAMES = 1024;
+
+    private static final long SEED = 0x5EED;
+
+    private Streams() {
+    }
+
+    /**
+     * 生成负载
+     *
+     * @param size     每帧字节数
+     * @param density  特殊字节比例，0 ~ 1
+     * @param specials 特殊字节
+     * @return FRAMES 帧负载
+     */
+    static byte[][] payloads(int size, double density, byte... specials) {
+        Random random = new Random(SEED);
+        byte[][] payloads = new byte[FRAMES][size];
+        for (byte[] payload : payloads) {
+            for (int i = 0; i < size; i++) {
+                if (specials.length > 0 && random.nextDouble() < density) {
+                    payload[i] = specials[random.nextInt(specials.length)];
+                } else {
+                    payload[i] = (byte) (0x20 + random.nextInt(0x5F));
+                }
+            }
+        }
+        return payloads;
+    }
+
+    /**
+     * 原接收线程的 CRLF 数据流：负载中的 \n 被丢弃，\r\n 结尾
+     *
+     * @param size    每帧负载字节数
+     * @param density 负载中 \n 的比例
+     * @return
+     */
+    static byte[] crlf(int size, double density) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(FRAMES * (size + 2));
+        for (byte[] payload : payloads(size, density, (byte) 0x0A)) {
+            stream.write(payload, 0, payload.length);
+            stream.write(0x0D);
+            stream.write(0x0A);
+        }
+        return stream.toByteArray();
+    }
+
+    /**
+     * 丢弃写出数据的输出流
+     */
+    static final OutputStream NULL_OUTPUT = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+}
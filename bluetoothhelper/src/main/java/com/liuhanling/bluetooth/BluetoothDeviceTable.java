@@ -0,0 +1,246 @@
+package com.liuhanling.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+
+import com.liuhanling.bluetooth.listener.BluetoothDeviceListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 扫描设备表，按地址去重，可在多个扫描线程并发写入
+ * <p>
+ * 超时设备由时间轮淘汰，刷新广播不调整时间轮，到期时按最后广播时间决定淘汰或顺延。
+ * 经典蓝牙一轮发现约 12 秒，同一设备两次被发现的间隔可能超过 BLE 的超时时间，
+ * 因此经典蓝牙发现的设备按单独的超时时间淘汰。
+ * 时间由调用方传入，便于在 JVM 中用合成事件驱动。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothDeviceTable {
+
+    public static final long DEFAULT_UPDATE_INTERVAL = 1000;
+    public static final long DEFAULT_TTL = 10000;
+    /** 不少于两轮经典蓝牙发现 */
+    public static final long DEFAULT_CLASSIC_TTL = 30000;
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    /** 时间轮精度 */
+    public static final long EXPIRE_TICK = 500;
+    private static final int EXPIRE_SLOTS = 64;
+
+    private final ConcurrentHashMap<String, BluetoothScanDevice> mDevices = new ConcurrentHashMap<>();
+    private final TimerWheel<BluetoothScanDevice> mWheel = new TimerWheel<>(EXPIRE_TICK, EXPIRE_SLOTS);
+    private final AtomicInteger mVersion = new AtomicInteger();
+    private volatile Snapshot mSnapshot = new Snapshot(0, Collections.<BluetoothScanDevice>emptyList());
+    private volatile long mUpdateInterval = DEFAULT_UPDATE_INTERVAL;
+    private volatile long mTtl = DEFAULT_TTL;
+    private volatile long mClassicTtl = DEFAULT_CLASSIC_TTL;
+    private volatile int mMaxSize = DEFAULT_MAX_SIZE;
+    private volatile BluetoothDeviceListener mListener;
+
+    public void setListener(BluetoothDeviceListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 设置更新通知间隔，同一设备在间隔内多次广播只通知一次
+     *
+     * @param interval 毫秒
+     */
+    public void setUpdateInterval(long interval) {
+        mUpdateInterval = interval;
+    }
+
+    /**
+     * 设置超时时间，超时未广播的设备在 {@link #expire(long)} 时移除
+     *
+     * @param ttl 毫秒
+     */
+    public void setTtl(long ttl) {
+        mTtl = ttl;
+    }
+
+    /**
+     * 设置经典蓝牙发现的设备的超时时间，应不少于两轮发现
+     *
+     * @param ttl 毫秒
+     */
+    public void setClassicTtl(long ttl) {
+        mClassicTtl = ttl;
+    }
+
+    /**
+     * 设置最大设备数，表满时淘汰最久未广播的设备
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        }
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 记录一次 BLE 广播
+     *
+     * @param address
+     * @param device
+     * @param rssi    没有时为 {@link BluetoothScanDevice#NO_RSSI}
+     * @param record  可为 null
+     * @param now     毫秒
+     * @return
+     */
+    public BluetoothScanDevice update(String address, BluetoothDevice device, int rssi, byte[] record, long now) {
+        return update(address, device, rssi, record, false, now);
+    }
+
+    /**
+     * 记录一次广播或经典蓝牙发现
+     *
+     * @param address
+     * @param device
+     * @param rssi    没有时为 {@link BluetoothScanDevice#NO_RSSI}
+     * @param record  可为 null
+     * @param classic 是否经典蓝牙发现
+     * @param now     毫秒
+     * @return
+     */
+    public BluetoothScanDevice update(String address, BluetoothDevice device, int rssi, byte[] record,
+                                      boolean classic, long now) {
+        BluetoothScanDevice scanDevice = mDevices.get(address);
+        boolean isNew = false;
+        if (scanDevice == null) {
+            BluetoothScanDevice created = new BluetoothScanDevice(address, device, now);
+            scanDevice = mDevices.putIfAbsent(address, created);
+            if (scanDevice == null) {
+                scanDevice = created;
+                isNew = true;
+                mVersion.incrementAndGet();
+                mWheel.schedule(created, now, now + (classic ? mClassicTtl : mTtl));
+                while (mDevices.size() > mMaxSize && evictStalest(created)) {
+                    // 淘汰到容量以内
+                }
+            }
+        }
+        boolean isUpdated = scanDevice.update(device, rssi, record, classic, now, mUpdateInterval);
+        BluetoothDeviceListener listener = mListener;
+        if (listener != null) {
+            if (isNew) {
+                listener.onDeviceFound(scanDevice);
+            } else if (isUpdated) {
+                listener.onDeviceUpdated(scanDevice);
+            }
+        }
+        return scanDevice;
+    }
+
+    /**
+     * 推进时间轮，移除超时未广播的设备，按 {@link #EXPIRE_TICK} 左右的间隔调用
+     *
+     * @param now
+     */
+    public void expire(long now) {
+        mWheel.advance(now, mExpirer);
+    }
+
+    private final TimerWheel.Expirer<BluetoothScanDevice> mExpirer = new TimerWheel.Expirer<BluetoothScanDevice>() {
+        @Override
+        public long onExpire(BluetoothScanDevice device, long now) {
+            if (mDevices.get(device.getAddress()) != device) {
+                return -1;
+            }
+            long deadline = device.getLastSeen() + mTtl;
+            if (device.isClassic()) {
+                deadline = Math.max(deadline, device.getLastClassicSeen() + mClassicTtl);
+            }
+            if (deadline > now) {
+                return deadline;
+            }
+            remove(device);
+            return -1;
+        }
+    };
+
+    /**
+     * 淘汰最久未广播的设备，只在表满时遍历
+     *
+     * @param keep 不淘汰的设备
+     * @return 是否淘汰
+     */
+    private boolean evictStalest(BluetoothScanDevice keep) {
+        BluetoothScanDevice stalest = null;
+        for (BluetoothScanDevice device : mDevices.values()) {
+            if (device != keep && (stalest == null || device.getLastSeen() < stalest.getLastSeen())) {
+                stalest = device;
+            }
+        }
+        return stalest != null && remove(stalest);
+    }
+
+    private boolean remove(BluetoothScanDevice device) {
+        if (!mDevices.remove(device.getAddress(), device)) {
+            return false;
+        }
+        mVersion.incrementAndGet();
+        BluetoothDeviceListener listener = mListener;
+        if (listener != null) {
+            listener.onDeviceLost(device);
+        }
+        return true;
+    }
+
+    public BluetoothScanDevice get(String address) {
+        return mDevices.get(address);
+    }
+
+    /**
+     * 当前设备，只读快照，设备增减后首次读取时重建，其余时候返回同一列表
+     *
+     * @return
+     */
+    public List<BluetoothScanDevice> getDevices() {
+        int version = mVersion.get();
+        Snapshot snapshot = mSnapshot;
+        if (snapshot.version != version) {
+            snapshot = new Snapshot(version, Collections.unmodifiableList(new ArrayList<>(mDevices.values())));
+            mSnapshot = snapshot;
+        }
+        return snapshot.devices;
+    }
+
+    /**
+     * 设备增减版本，每次增减加一
+     *
+     * @return
+     */
+    public int getVersion() {
+        return mVersion.get();
+    }
+
+    public int size() {
+        return mDevices.size();
+    }
+
+    public void clear() {
+        mDevices.clear();
+        mWheel.clear();
+        mVersion.incrementAndGet();
+    }
+
+    private static class Snapshot {
+
+        private final int version;
+        private final List<BluetoothScanDevice> devices;
+
+        Snapshot(int version, List<BluetoothScanDevice> devices) {
+            this.version = version;
+            this.devices = devices;
+        }
+    }
+}
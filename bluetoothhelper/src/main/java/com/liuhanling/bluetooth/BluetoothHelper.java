@@ -4,22 +4,77 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.widget.Toast;
 
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
 import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+import com.liuhanling.bluetooth.frame.FrameDecoderFactory;
+import com.liuhanling.bluetooth.frame.FrameDecoders;
+import com.liuhanling.bluetooth.listener.BluetoothBatchListener;
 import com.liuhanling.bluetooth.listener.BluetoothConnectListener;
+import com.liuhanling.bluetooth.listener.BluetoothDeviceListener;
+import com.liuhanling.bluetooth.listener.BluetoothFrameListener;
+import com.liuhanling.bluetooth.listener.BluetoothMetricsListener;
 import com.liuhanling.bluetooth.listener.BluetoothReceiveListener;
+import com.liuhanling.bluetooth.listener.BluetoothScanFailureListener;
 import com.liuhanling.bluetooth.listener.BluetoothServiceListener;
+import com.liuhanling.bluetooth.listener.BluetoothSessionListener;
+import com.liuhanling.bluetooth.listener.BluetoothWritabilityListener;
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+import com.liuhanling.bluetooth.profile.DeviceProfile;
+import com.liuhanling.bluetooth.profile.DeviceProfileStore;
+import com.liuhanling.bluetooth.request.RequestCorrelator;
+import com.liuhanling.bluetooth.request.RequestPipeline;
+import com.liuhanling.bluetooth.request.ResponseFuture;
+import com.liuhanling.bluetooth.transport.RfcommTransportFactory;
+import com.liuhanling.bluetooth.transport.TransportFactory;
+import com.liuhanling.bluetooth.write.CreditParser;
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.StringEncoder;
+import com.liuhanling.bluetooth.write.WriteQueue;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class BluetoothHelper {
 
+    private static final byte[] LF_CR = {0x0A, 0x0D};
+    private static final byte[] CR_LF = {0x0D, 0x0A};
+    private static final ByteBuffer LF_CR_SEGMENT = ByteBuffer.wrap(LF_CR);
+    /** 连接线程等待主线程暂停扫描的上限，毫秒 */
+    private static final long SCAN_PAUSE_TIMEOUT = 500;
+
+    /**
+     * 在读线程直接回调接收监听，见 {@link #setReceiveExecutor(Executor)}
+     */
+    public static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
     private Context mAppContext;
     private BluetoothAdapter mBluetoothAdapter;
     private BluetoothService mBluetoothService;
@@ -27,16 +82,51 @@ public class BluetoothHelper {
 
     private BluetoothConnectListener mConnectListener;
     private BluetoothServiceListener mServiceListener;
-    private BluetoothReceiveListener mReceiveListener;
+    private volatile BluetoothReceiveListener mReceiveListener;
+    private volatile BluetoothFrameListener mFrameListener;
+    private volatile BluetoothBatchListener mBatchListener;
+    private volatile BluetoothSessionListener mSessionListener;
+    private BluetoothDeviceListener mDeviceListener;
+    private BluetoothScanFailureListener mScanFailureListener;
+    private BluetoothScanConfig mScanConfig;
+    private boolean isMetricsEnabled = false;
+    private volatile BluetoothMetricsListener mMetricsListener;
+    private long mMetricsPeriod;
+    private ReceiveDispatcher mReceiveDispatcher;
+    private TransportFactory mTransportFactory;
+    private final Map<String, FrameDecoderFactory> mSessionDecoders = new HashMap<>();
+    private boolean isMultiConnection = false;
+    private int mMaxConnections = BluetoothService.DEFAULT_MAX_CONNECTIONS;
+    private FrameDecoderFactory mFrameDecoderFactory = FrameDecoders.crlf();
+    private int mWriteCapacity = WriteQueue.DEFAULT_CAPACITY;
+    private int mWriteMtu = WriteQueue.DEFAULT_MTU;
+    private OverflowPolicy mOverflowPolicy = OverflowPolicy.FAIL_FAST;
+    private int mLowWatermark = WriteQueue.DEFAULT_LOW_WATERMARK;
+    private int mHighWatermark = WriteQueue.DEFAULT_HIGH_WATERMARK;
+    private BluetoothWritabilityListener mWritabilityListener;
+    private CreditParser mCreditParser;
+    private int mInitialCredits;
+    private final ByteArrayPool mBufferPool = new ByteArrayPool();
+    private boolean isFramePooling = false;
+    private int mRequestWindow = RequestPipeline.DEFAULT_WINDOW;
+    private long mRequestTimeout = RequestPipeline.DEFAULT_TIMEOUT;
+    private RequestCorrelator mRequestCorrelator;
+    private volatile StringEncoder mStringEncoder = new StringEncoder(Charset.defaultCharset(), mBufferPool);
 
     private String mDeviceName;
     private String mDeviceAddr;
 
-    private int mConnectionCount = 0;
     private boolean isConnected = false;
     private boolean isConnecting = false;
     private boolean isAutoConnect = false;
     private boolean isAndroid = false;
+    private ReconnectPolicy mReconnectPolicy = new ReconnectPolicy();
+    private final Map<String, ReconnectPolicy> mReconnects = new HashMap<>();
+    private final Map<String, Runnable> mReconnectTasks = new HashMap<>();
+    private volatile DeviceProfileStore mProfileStore;
+    private final ThreadPoolExecutor mProfileExecutor = newProfileExecutor();
+    private String[][] mBondedDevices;
+    private boolean isBondReceiverRegistered = false;
 
     @SuppressLint("StaticFieldLeak")
     private static class SingletonHolder {
@@ -67,6 +157,18 @@ public class BluetoothHelper {
         mReceiveListener = receiveListener;
     }
 
+    public void setFrameListener(BluetoothFrameListener frameListener) {
+        mFrameListener = frameListener;
+    }
+
+    public void setBatchListener(BluetoothBatchListener batchListener) {
+        mBatchListener = batchListener;
+    }
+
+    public void setSessionListener(BluetoothSessionListener sessionListener) {
+        mSessionListener = sessionListener;
+    }
+
     public String getDeviceName() {
         return mDeviceName;
     }
@@ -97,6 +199,9 @@ public class BluetoothHelper {
 
     public void setAutoConnect(boolean autoConnect) {
         isAutoConnect = autoConnect;
+        if (!autoConnect) {
+            cancelReconnect();
+        }
     }
 
     private boolean isAndroid() {
@@ -155,9 +260,26 @@ public class BluetoothHelper {
      */
     public void close() {
         setReceiveListener(null);
+        setFrameListener(null);
         setServiceListener(null);
         disconnect();
         disableBluetooth();
+        synchronized (this) {
+            if (isBondReceiverRegistered) {
+                isBondReceiverRegistered = false;
+                mAppContext.unregisterReceiver(mBondReceiver);
+            }
+            mBondedDevices = null;
+        }
+        final DeviceProfileStore store = mProfileStore;
+        if (store != null) {
+            mProfileExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    store.close();
+                }
+            });
+        }
     }
 
     /**
@@ -208,14 +330,97 @@ public class BluetoothHelper {
             mBluetoothScanner = new BluetoothScanner(mAppContext);
         }
         mBluetoothScanner.setScanListener(listener);
+        mBluetoothScanner.setDeviceListener(mDeviceListener);
+        mBluetoothScanner.setScanFailureListener(mScanFailureListener);
+        mBluetoothScanner.setScanConfig(mScanConfig);
         mBluetoothScanner.scan(time);
     }
 
+    /**
+     * 扫描蓝牙
+     *
+     * @param time
+     * @param config   扫描模式、批量上报和过滤条件
+     * @param listener
+     */
+    public void scan(long time, BluetoothScanConfig config, BluetoothScanner.ScanListener listener) {
+        mScanConfig = config;
+        scan(time, listener);
+    }
+
+    /**
+     * 持续扫描，设备变化经 {@link #setDeviceListener(BluetoothDeviceListener)} 回调
+     *
+     * @param config 可为 null
+     */
+    public void startScan(BluetoothScanConfig config) {
+        if (mBluetoothScanner == null) {
+            mBluetoothScanner = new BluetoothScanner(mAppContext);
+        }
+        mScanConfig = config;
+        mBluetoothScanner.setDeviceListener(mDeviceListener);
+        mBluetoothScanner.setScanFailureListener(mScanFailureListener);
+        mBluetoothScanner.setScanConfig(config);
+        mBluetoothScanner.startScan();
+    }
+
+    /**
+     * 间歇扫描，扫描和空闲窗口按新设备发现速率自适应
+     *
+     * @param config    可为 null
+     * @param scheduler
+     */
+    public void startScan(BluetoothScanConfig config, ScanScheduler scheduler) {
+        if (mBluetoothScanner == null) {
+            mBluetoothScanner = new BluetoothScanner(mAppContext);
+        }
+        mScanConfig = config;
+        mBluetoothScanner.setDeviceListener(mDeviceListener);
+        mBluetoothScanner.setScanFailureListener(mScanFailureListener);
+        mBluetoothScanner.setScanConfig(config);
+        mBluetoothScanner.startScan(scheduler);
+    }
+
+    /**
+     * 停止持续扫描
+     */
+    public void stopScan() {
+        if (mBluetoothScanner != null) {
+            mBluetoothScanner.stopScan();
+        }
+    }
+
+    /**
+     * 设置扫描设备监听，回调发现、信号更新和丢失
+     *
+     * @param listener
+     */
+    public void setDeviceListener(BluetoothDeviceListener listener) {
+        mDeviceListener = listener;
+        if (mBluetoothScanner != null) {
+            mBluetoothScanner.setDeviceListener(listener);
+        }
+    }
+
+    /**
+     * 设置 BLE 扫描失败监听
+     *
+     * @param listener
+     */
+    public void setScanFailureListener(BluetoothScanFailureListener listener) {
+        mScanFailureListener = listener;
+        if (mBluetoothScanner != null) {
+            mBluetoothScanner.setScanFailureListener(listener);
+        }
+    }
+
     /**
      * 清空蓝牙监听
      */
     public void clear() {
         setConnectListener(null);
+        mDeviceListener = null;
+        mScanFailureListener = null;
         if (mBluetoothScanner != null) {
             mBluetoothScanner.clear();
             mBluetoothScanner = null;
@@ -277,6 +482,405 @@ public class BluetoothHelper {
         startService(isAndroid);
     }
 
+    /**
+     * 设置接收分帧方式，默认丢弃\n按\r分包，下次连接生效
+     *
+     * @param factory {@link FrameDecoders}
+     */
+    public void setFrameDecoder(FrameDecoderFactory factory) {
+        mFrameDecoderFactory = factory != null ? factory : FrameDecoders.crlf();
+        if (isServiceAvailable()) {
+            mBluetoothService.setFrameDecoderFactory(mFrameDecoderFactory);
+        }
+    }
+
+    /**
+     * 设置单个设备的接收分帧方式，下次连接该设备时生效
+     *
+     * @param address
+     * @param factory 为 null 时使用默认分帧方式
+     */
+    public void setFrameDecoder(final String address, FrameDecoderFactory factory) {
+        applyFrameDecoder(address, factory);
+        final DeviceProfileStore store = mProfileStore;
+        if (store != null) {
+            final String framing = FrameDecoders.toSpec(factory);
+            mProfileExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    DeviceProfile profile = store.get(address);
+                    if (profile != null || framing != null) {
+                        store.put((profile != null ? profile : new DeviceProfile(address)).setFraming(framing));
+                    }
+                }
+            });
+        }
+    }
+
+    private void applyFrameDecoder(String address, FrameDecoderFactory factory) {
+        if (factory != null) {
+            mSessionDecoders.put(address, factory);
+        } else {
+            mSessionDecoders.remove(address);
+        }
+        if (isServiceAvailable()) {
+            mBluetoothService.setFrameDecoderFactory(address, factory);
+        }
+    }
+
+    /**
+     * 设置设备档案存储，连接成功后记录设备名称、UUID、分帧方式和连接统计，再次连接时恢复 UUID 和分帧方式
+     * <p>
+     * 档案的读写都在后台线程执行，不占用主线程
+     *
+     * @param store 为 null 时不记录，如 new DeviceProfileStore(new File(context.getFilesDir(), "bluetooth.profiles"))
+     */
+    public void setProfileStore(DeviceProfileStore store) {
+        mProfileStore = store;
+    }
+
+    /**
+     * 获取设备档案，首次调用时读文件，不要在主线程调用
+     *
+     * @param address
+     * @return 未设置存储或没有记录时为 null
+     */
+    public DeviceProfile getProfile(String address) {
+        DeviceProfileStore store = mProfileStore;
+        return store != null ? store.get(address) : null;
+    }
+
+    /**
+     * 连接前恢复设备档案中的 UUID 和分帧方式，已手动设置的不覆盖
+     *
+     * @param address
+     * @param profile 后台线程读出的档案
+     */
+    private void restoreProfile(String address, DeviceProfile profile) {
+        if (profile == null) {
+            return;
+        }
+        if (profile.getUuid() != null && RfcommTransportFactory.getLastUuid(address) == null) {
+            RfcommTransportFactory.setLastUuid(address, profile.getUuid());
+        }
+        if (!mSessionDecoders.containsKey(address)) {
+            FrameDecoderFactory factory = FrameDecoders.parse(profile.getFraming());
+            if (factory != null) {
+                applyFrameDecoder(address, factory);
+            }
+        }
+    }
+
+    /**
+     * 连接成功后更新设备档案
+     *
+     * @param name
+     * @param address
+     */
+    private void saveProfile(final String name, final String address) {
+        final DeviceProfileStore store = mProfileStore;
+        if (store == null || address == null) {
+            return;
+        }
+        final UUID uuid = RfcommTransportFactory.getLastUuid(address);
+        BluetoothSession session = getSession(address);
+        final long duration = session != null ? session.getConnectDuration() : -1;
+        final long time = System.currentTimeMillis();
+        mProfileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                DeviceProfile profile = store.get(address);
+                if (profile == null) {
+                    profile = new DeviceProfile(address);
+                }
+                if (name != null) {
+                    profile.setName(name);
+                }
+                if (uuid != null) {
+                    profile.setUuid(uuid);
+                }
+                store.put(profile.onConnected(time, duration));
+            }
+        });
+    }
+
+    /**
+     * 连接失败后更新设备档案
+     *
+     * @param address
+     */
+    private void saveProfileFailure(final String address) {
+        final DeviceProfileStore store = mProfileStore;
+        if (store == null || address == null) {
+            return;
+        }
+        mProfileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                DeviceProfile profile = store.get(address);
+                if (profile != null) {
+                    store.put(profile.onConnectFailed());
+                }
+            }
+        });
+    }
+
+    /**
+     * 设备档案读写线程，单线程按提交顺序执行，空闲后回收
+     *
+     * @return
+     */
+    private static ThreadPoolExecutor newProfileExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BluetoothProfile");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 多连接模式，同时连接多个设备，按地址收发，见 {@link BluetoothSessionListener}
+     *
+     * @param multiConnection
+     * @param maxConnections  最大连接数，RFCOMM 一般不超过 7 个
+     */
+    public void setMultiConnection(boolean multiConnection, int maxConnections) {
+        isMultiConnection = multiConnection;
+        mMaxConnections = maxConnections;
+        if (isServiceAvailable()) {
+            mBluetoothService.setMultiConnection(multiConnection, maxConnections);
+        }
+    }
+
+    /**
+     * 获取会话
+     *
+     * @param address
+     * @return 未连接时为 null
+     */
+    public BluetoothSession getSession(String address) {
+        return isServiceAvailable() ? mBluetoothService.getSession(address) : null;
+    }
+
+    /**
+     * 获取所有会话
+     *
+     * @return
+     */
+    public List<BluetoothSession> getSessions() {
+        return isServiceAvailable() ? mBluetoothService.getSessions() : Collections.<BluetoothSession>emptyList();
+    }
+
+    /**
+     * 设置发送队列，下次连接生效
+     *
+     * @param capacity 队列容量
+     * @param mtu      合并写出的最大长度
+     * @param policy   队列满时的处理方式
+     */
+    public void setWriteQueue(int capacity, int mtu, OverflowPolicy policy) {
+        mWriteCapacity = capacity;
+        mWriteMtu = mtu;
+        mOverflowPolicy = policy;
+        if (isServiceAvailable()) {
+            mBluetoothService.setWriteQueue(capacity, mtu, policy);
+        }
+    }
+
+    /**
+     * 设置发送水位，下次连接生效
+     *
+     * @param low  待发送字节数降到该值以下时恢复可写
+     * @param high 待发送字节数超过该值时不可写
+     */
+    public void setWriteWatermarks(int low, int high) {
+        mLowWatermark = low;
+        mHighWatermark = high;
+        if (isServiceAvailable()) {
+            mBluetoothService.setWriteWatermarks(low, high);
+        }
+    }
+
+    /**
+     * 设置可写状态监听，在发送线程或调用发送的线程回调，不能阻塞
+     *
+     * @param listener
+     */
+    public void setWritabilityListener(BluetoothWritabilityListener listener) {
+        mWritabilityListener = listener;
+        if (isServiceAvailable()) {
+            mBluetoothService.setWritabilityListener(listener);
+        }
+    }
+
+    /**
+     * 设置信用模式，每发出一个数据包消耗一个信用，信用用完时暂停发送，下次连接生效
+     *
+     * @param parser         识别对端授予信用的控制帧，为 null 时关闭信用模式
+     * @param initialCredits 连接后的初始信用
+     */
+    public void setCreditMode(CreditParser parser, int initialCredits) {
+        mCreditParser = parser;
+        mInitialCredits = initialCredits;
+        if (isServiceAvailable()) {
+            mBluetoothService.setCreditMode(parser, initialCredits);
+        }
+    }
+
+    /**
+     * 最近连接的设备是否可写，不可写时应暂停发送
+     *
+     * @return 未连接时为 false
+     */
+    public boolean isWritable() {
+        BluetoothSession session = isServiceAvailable() ? mBluetoothService.getSession() : null;
+        return session != null && session.isWritable();
+    }
+
+    /**
+     * 设置字符串收发使用的字符集，默认为系统字符集
+     *
+     * @param charset
+     */
+    public void setCharset(Charset charset) {
+        mStringEncoder = new StringEncoder(charset != null ? charset : Charset.defaultCharset(), mBufferPool);
+        if (isServiceAvailable()) {
+            mBluetoothService.setCharset(getCharset());
+        }
+    }
+
+    /**
+     * 接收帧池化，开启后数据帧缓冲从池中分配，{@link BluetoothFrameListener} 用完须释放
+     *
+     * @param pooling
+     */
+    public void setFramePooling(boolean pooling) {
+        isFramePooling = pooling;
+        if (isServiceAvailable()) {
+            mBluetoothService.setFramePool(pooling ? mBufferPool : null);
+        }
+    }
+
+    /**
+     * 设置请求应答，窗口和匹配方式下次连接生效
+     *
+     * @param window     在途请求数上限
+     * @param timeout    默认超时，毫秒
+     * @param correlator 为 null 时按发送顺序匹配应答
+     */
+    public void setRequestConfig(int window, long timeout, RequestCorrelator correlator) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout: " + timeout);
+        }
+        mRequestWindow = window;
+        mRequestTimeout = timeout;
+        mRequestCorrelator = correlator;
+        if (isServiceAvailable()) {
+            mBluetoothService.setRequestConfig(window, correlator);
+        }
+    }
+
+    /**
+     * 获取字符串收发使用的字符集
+     *
+     * @return
+     */
+    public Charset getCharset() {
+        return mStringEncoder.getCharset();
+    }
+
+    /**
+     * 设置接收监听的回调线程
+     * <p>
+     * 默认 null，经主线程 Handler 逐帧回调；传入执行器时在执行器中回调，积压的相邻数据帧合并后交给
+     * {@link BluetoothBatchListener}；传入 {@link #DIRECT_EXECUTOR} 时在读线程直接回调，监听不能阻塞。
+     *
+     * @param executor
+     */
+    public void setReceiveExecutor(Executor executor) {
+        mReceiveDispatcher = executor != null
+                ? new ReceiveDispatcher(executor, mReceiver, executor == DIRECT_EXECUTOR) : null;
+        if (isServiceAvailable()) {
+            mBluetoothService.setReceiveDispatcher(mReceiveDispatcher);
+        }
+    }
+
+    /**
+     * 设置传输方式，默认蓝牙 RFCOMM，下次监听或连接生效
+     * <p>
+     * 可传入 {@link com.liuhanling.bluetooth.transport.PipedTransportFactory} 或
+     * {@link com.liuhanling.bluetooth.transport.TcpTransportFactory} 在无蓝牙环境下调试收发流程。
+     *
+     * @param factory 为 null 时使用蓝牙 RFCOMM
+     */
+    public void setTransportFactory(TransportFactory factory) {
+        mTransportFactory = factory;
+        if (isServiceAvailable()) {
+            mBluetoothService.setTransportFactory(factory);
+        }
+    }
+
+    /**
+     * 开关连接统计，关闭时收发路径不做统计
+     *
+     * @param enabled
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        isMetricsEnabled = enabled;
+        if (isServiceAvailable()) {
+            mBluetoothService.setMetricsEnabled(enabled);
+        }
+    }
+
+    /**
+     * 获取连接统计快照，速率按上次快照以来计算
+     *
+     * @return 未开启或服务未启动时为 null
+     */
+    public BluetoothMetrics.Snapshot getMetrics() {
+        return isServiceAvailable() ? mBluetoothService.getMetricsSnapshot() : null;
+    }
+
+    /**
+     * 定时回调连接统计，会开启统计
+     *
+     * @param listener 为 null 时停止回调
+     * @param period   毫秒
+     */
+    public void setMetricsListener(BluetoothMetricsListener listener, long period) {
+        mMetricsListener = listener;
+        mMetricsPeriod = period;
+        mHandler.removeCallbacks(mMetricsRunnable);
+        if (listener != null) {
+            setMetricsEnabled(true);
+            mHandler.postDelayed(mMetricsRunnable, period);
+        }
+    }
+
+    /**
+     * 统计定时回调
+     */
+    private final Runnable mMetricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            BluetoothMetricsListener listener = mMetricsListener;
+            if (listener == null) {
+                return;
+            }
+            BluetoothMetrics.Snapshot snapshot = getMetrics();
+            if (snapshot != null) {
+                listener.onMetrics(snapshot);
+            }
+            mHandler.postDelayed(this, mMetricsPeriod);
+        }
+    };
+
     /**
      * 开始蓝牙服务
      *
@@ -285,6 +889,22 @@ public class BluetoothHelper {
     public void startService(boolean isAndroid) {
         if (mBluetoothService == null) {
             mBluetoothService = new BluetoothService(mHandler);
+            mBluetoothService.setFrameDecoderFactory(mFrameDecoderFactory);
+            mBluetoothService.setWriteQueue(mWriteCapacity, mWriteMtu, mOverflowPolicy);
+            mBluetoothService.setWriteWatermarks(mLowWatermark, mHighWatermark);
+            mBluetoothService.setWritabilityListener(mWritabilityListener);
+            mBluetoothService.setCreditMode(mCreditParser, mInitialCredits);
+            mBluetoothService.setFramePool(isFramePooling ? mBufferPool : null);
+            mBluetoothService.setRequestConfig(mRequestWindow, mRequestCorrelator);
+            mBluetoothService.setCharset(getCharset());
+            mBluetoothService.setTransportFactory(mTransportFactory);
+            mBluetoothService.setMetricsEnabled(isMetricsEnabled);
+            mBluetoothService.setReceiveDispatcher(mReceiveDispatcher);
+            mBluetoothService.setConnectHook(mConnectHook);
+            mBluetoothService.setMultiConnection(isMultiConnection, mMaxConnections);
+            for (Map.Entry<String, FrameDecoderFactory> entry : mSessionDecoders.entrySet()) {
+                mBluetoothService.setFrameDecoderFactory(entry.getKey(), entry.getValue());
+            }
         }
         if (isServiceStopped()) {
             setAndroid(isAndroid);
@@ -318,15 +938,34 @@ public class BluetoothHelper {
     }
 
     /**
-     * 连接蓝牙设备
+     * 连接蓝牙设备，设置了档案存储时先在后台读出档案，再回到主线程恢复档案并连接
      *
      * @param address
      */
-    public void connect(String address) {
-        if (isServiceAvailable()) {
-            BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(address);
-            mBluetoothService.connect(device);
+    public void connect(final String address) {
+        if (!isServiceAvailable()) {
+            return;
+        }
+        final DeviceProfileStore store = mProfileStore;
+        if (store == null) {
+            mBluetoothService.connect(address);
+            return;
         }
+        mProfileExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DeviceProfile profile = store.get(address);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isServiceAvailable()) {
+                            restoreProfile(address, profile);
+                            mBluetoothService.connect(address);
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -344,16 +983,22 @@ public class BluetoothHelper {
      * @param CRLF
      */
     public void send(byte[] data, boolean CRLF) {
-        if (isServiceConnected()) {
-            if (CRLF) {
-                byte[] buffer = new byte[data.length + 2];
-                System.arraycopy(data, 0, buffer, 0, data.length);
-                buffer[buffer.length - 2] = 0x0A;
-                buffer[buffer.length - 1] = 0x0D;
-                mBluetoothService.write(buffer);
-            } else {
-                mBluetoothService.write(data);
-            }
+        send(data, CRLF, null);
+    }
+
+    /**
+     * 发送数据，CRLF 作为独立分段写出，不复制 data
+     *
+     * @param data
+     * @param CRLF
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(byte[] data, boolean CRLF, BluetoothWriteListener listener) {
+        ByteBuffer payload = ByteBuffer.wrap(data);
+        if (CRLF) {
+            write(new ByteBuffer[]{payload, LF_CR_SEGMENT}, null, listener);
+        } else {
+            write(new ByteBuffer[]{payload}, null, listener);
         }
     }
 
@@ -364,11 +1009,147 @@ public class BluetoothHelper {
      * @param CRLF
      */
     public void send(String data, boolean CRLF) {
-        if (isServiceConnected()) {
-            if (CRLF) {
-                data += "\r\n";
+        send(data, CRLF, null);
+    }
+
+    /**
+     * 发送数据，按 {@link #setCharset(Charset)} 编码到池化缓冲
+     *
+     * @param data
+     * @param CRLF
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(String data, boolean CRLF, BluetoothWriteListener listener) {
+        if (!isServiceConnected()) {
+            notifyNotConnected(listener);
+            return;
+        }
+        mBluetoothService.write(null, data, CRLF ? CR_LF : null, mStringEncoder, listener);
+    }
+
+    /**
+     * 发送数据，发送前不可修改 data
+     *
+     * @param data
+     */
+    public void send(ByteBuffer data) {
+        send(data, null);
+    }
+
+    /**
+     * 发送数据，发送前不可修改 data
+     *
+     * @param data
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(ByteBuffer data, BluetoothWriteListener listener) {
+        write(new ByteBuffer[]{data}, null, listener);
+    }
+
+    /**
+     * 分段发送，如 [包头][数据][校验]，各分段依次写出，不做拼接
+     *
+     * @param segments 发送前不可修改
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(ByteBuffer[] segments, BluetoothWriteListener listener) {
+        write(segments, null, listener);
+    }
+
+    /**
+     * 发送数据到指定设备
+     *
+     * @param address
+     * @param data
+     * @param CRLF
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(String address, byte[] data, boolean CRLF, BluetoothWriteListener listener) {
+        ByteBuffer payload = ByteBuffer.wrap(data);
+        if (CRLF) {
+            write(address, new ByteBuffer[]{payload, LF_CR_SEGMENT}, null, listener);
+        } else {
+            write(address, new ByteBuffer[]{payload}, null, listener);
+        }
+    }
+
+    /**
+     * 发送数据到指定设备
+     *
+     * @param address
+     * @param data
+     * @param CRLF
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(String address, String data, boolean CRLF, BluetoothWriteListener listener) {
+        if (!isServiceConnected()) {
+            notifyNotConnected(listener);
+            return;
+        }
+        mBluetoothService.write(address, data, CRLF ? CR_LF : null, mStringEncoder, listener);
+    }
+
+    /**
+     * 分段发送到指定设备
+     *
+     * @param address
+     * @param segments 发送前不可修改
+     * @param listener 发送结果，在发送线程回调
+     */
+    public void send(String address, ByteBuffer[] segments, BluetoothWriteListener listener) {
+        write(address, segments, null, listener);
+    }
+
+    /**
+     * 发请求，不等应答即返回，应答帧不再回调接收监听
+     *
+     * @param data
+     * @param CRLF
+     * @return 应答结果，可 {@link ResponseFuture#setListener} 异步回调，主线程不要阻塞等待
+     */
+    public ResponseFuture request(byte[] data, boolean CRLF) {
+        return request(null, data, CRLF);
+    }
+
+    /**
+     * 发请求到指定设备
+     *
+     * @param address 为 null 时发到最近连接的设备
+     * @param data
+     * @param CRLF
+     * @return 应答结果
+     */
+    public ResponseFuture request(String address, byte[] data, boolean CRLF) {
+        if (!isServiceConnected()) {
+            return RequestPipeline.failed(new IOException("Not connected"));
+        }
+        ByteBuffer payload = ByteBuffer.wrap(data);
+        ByteBuffer[] segments = CRLF ? new ByteBuffer[]{payload, LF_CR_SEGMENT} : new ByteBuffer[]{payload};
+        return address != null
+                ? mBluetoothService.request(address, data, segments, mRequestTimeout)
+                : mBluetoothService.request(data, segments, mRequestTimeout);
+    }
+
+    private void write(ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        write(null, segments, recycler, listener);
+    }
+
+    private void write(String address, ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        if (!isServiceConnected()) {
+            if (recycler != null) {
+                recycler.release(segments[0].array());
             }
-            mBluetoothService.write(data.getBytes());
+            notifyNotConnected(listener);
+        } else if (address != null) {
+            mBluetoothService.write(address, segments, recycler, listener);
+        } else {
+            mBluetoothService.write(segments, recycler, listener);
+        }
+    }
+
+    private void notifyNotConnected(BluetoothWriteListener listener) {
+        if (listener != null) {
+            listener.onWriteFailure(new IOException("Not connected"));
         }
     }
 
@@ -399,12 +1180,13 @@ public class BluetoothHelper {
                     }
                     break;
                 case BluetoothState.MESSAGE_READ:
+                    if (msg.obj instanceof BluetoothFrame) {
+                        onReceiveFrame((BluetoothFrame) msg.obj);
+                        break;
+                    }
                     byte[] data = (byte[]) msg.obj;
                     if (data != null && data.length > 0) {
-                        String message = new String(data);
-                        if (mReceiveListener != null) {
-                            mReceiveListener.onReceiveMessage(data, message);
-                        }
+                        onReceiveFrame(BluetoothFrame.wrap(getCharset(), mDeviceAddr, data));
                     }
                     break;
                 case BluetoothState.MESSAGE_WRITE:
@@ -415,8 +1197,26 @@ public class BluetoothHelper {
                     if (mConnectListener != null) {
                         mConnectListener.onConnected(mDeviceName, mDeviceAddr);
                     }
+                    if (mSessionListener != null) {
+                        mSessionListener.onSessionConnected(mDeviceName, mDeviceAddr);
+                    }
                     setConnected(true);
                     setAutoConnect(true);
+                    onReconnected(mDeviceAddr);
+                    saveProfile(mDeviceName, mDeviceAddr);
+                    break;
+                case BluetoothState.MESSAGE_DISCONNECTED:
+                    if (mSessionListener != null) {
+                        mSessionListener.onSessionDisconnected((String) msg.obj);
+                    }
+                    scheduleReconnect((String) msg.obj, true);
+                    break;
+                case BluetoothState.MESSAGE_CONNECT_FAILED:
+                    if (mSessionListener != null) {
+                        mSessionListener.onSessionFailed((String) msg.obj);
+                    }
+                    saveProfileFailure((String) msg.obj);
+                    scheduleReconnect((String) msg.obj, false);
                     break;
                 case BluetoothState.MESSAGE_TOAST:
                     showMsg((String) msg.obj);
@@ -426,53 +1226,228 @@ public class BluetoothHelper {
     };
 
     /**
-     * 自动连接服务监听
+     * 分发数据帧，帧的所有权交给帧监听，没有帧监听时直接释放
+     *
+     * @param frame
+     */
+    private void onReceiveFrame(BluetoothFrame frame) {
+        onReceiveMessage(frame);
+        BluetoothFrameListener frameListener = mFrameListener;
+        BluetoothBatchListener batchListener = mBatchListener;
+        if (frameListener != null) {
+            frameListener.onReceiveFrame(frame);
+        } else if (batchListener != null) {
+            batchListener.onReceiveBatch(Collections.singletonList(frame));
+        } else {
+            frame.release();
+        }
+    }
+
+    /**
+     * 回调字节数组形式的接收监听
+     *
+     * @param frame
+     */
+    private void onReceiveMessage(BluetoothFrame frame) {
+        BluetoothReceiveListener receiveListener = mReceiveListener;
+        BluetoothSessionListener sessionListener = mSessionListener;
+        if (receiveListener == null && sessionListener == null) {
+            return;
+        }
+        byte[] data = frame.toByteArray();
+        if (receiveListener != null) {
+            receiveListener.onReceiveMessage(data, frame.getString());
+        }
+        if (sessionListener != null) {
+            sessionListener.onSessionMessage(frame.getAddress(), data, frame.getString());
+        }
+    }
+
+    /**
+     * 接收分发回调，在 {@link #setReceiveExecutor(Executor)} 指定的线程执行
      */
-    private BluetoothConnectListener mAutoConnectionListener = new BluetoothConnectListener() {
+    private final ReceiveDispatcher.Receiver mReceiver = new ReceiveDispatcher.Receiver() {
         @Override
-        public void onConnected(String name, String address) {
-            showMsg("蓝牙连接成功！");
-            mConnectionCount = 0;
-            mHandler.removeCallbacks(mRunnable);
+        public void onReceiveFrame(BluetoothFrame frame) {
+            BluetoothHelper.this.onReceiveFrame(frame);
         }
 
         @Override
-        public void onDisconnected() {
-            showMsg("蓝牙连接断开！");
-            if (isBluetoothEnabled() && isAutoConnect()) {
-                mHandler.postDelayed(mRunnable, 3000);
+        public void onReceiveBatch(List<BluetoothFrame> frames) {
+            BluetoothBatchListener batchListener = mBatchListener;
+            if (batchListener == null || mFrameListener != null) {
+                for (int i = 0; i < frames.size(); i++) {
+                    BluetoothHelper.this.onReceiveFrame(frames.get(i));
+                }
+                return;
             }
+            for (int i = 0; i < frames.size(); i++) {
+                onReceiveMessage(frames.get(i));
+            }
+            batchListener.onReceiveBatch(frames);
         }
+    };
 
+    /**
+     * 连接期间暂停扫描，连接结束后恢复
+     * <p>
+     * 扫描器只在主线程使用，连接线程等主线程暂停扫描后再开始连接，主线程繁忙时最多等 {@link #SCAN_PAUSE_TIMEOUT}。
+     */
+    private final BluetoothService.ConnectHook mConnectHook = new BluetoothService.ConnectHook() {
         @Override
-        public void onConnectionFailed() {
-            if (isBluetoothEnabled() && isAutoConnect()) {
-                mHandler.postDelayed(mRunnable, 5000);
-            } else {
-                showMsg("蓝牙连接失败！");
+        public void onConnectStart(String address) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                mPauseScanRunnable.run();
+                return;
+            }
+            final CountDownLatch paused = new CountDownLatch(1);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mPauseScanRunnable.run();
+                    paused.countDown();
+                }
+            });
+            try {
+                paused.await(SCAN_PAUSE_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onConnectEnd(String address) {
+            mHandler.post(mResumeScanRunnable);
+        }
+    };
+
+    private final Runnable mPauseScanRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mBluetoothScanner != null) {
+                mBluetoothScanner.pause();
+            }
+        }
+    };
+
+    private final Runnable mResumeScanRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mBluetoothScanner != null) {
+                mBluetoothScanner.resume();
             }
         }
     };
 
     /**
-     * 自动连接服务操作
+     * 设置断线重连策略，各设备按该配置独立退避
+     *
+     * @param policy 为 null 时使用默认策略
      */
-    private Runnable mRunnable = new Runnable() {
+    public void setReconnectPolicy(ReconnectPolicy policy) {
+        mReconnectPolicy = policy != null ? policy : new ReconnectPolicy();
+        cancelReconnect();
+        mReconnects.clear();
+    }
+
+    /**
+     * 获取设备的重连状态
+     *
+     * @param address
+     * @return 未连接过时为 null
+     */
+    public ReconnectPolicy getReconnectState(String address) {
+        return mReconnects.get(address);
+    }
+
+    /**
+     * 设备已连接，停止重连
+     *
+     * @param address
+     */
+    private void onReconnected(String address) {
+        if (address == null) {
+            return;
+        }
+        ReconnectPolicy policy = mReconnects.get(address);
+        if (policy == null) {
+            policy = mReconnectPolicy.copy();
+            mReconnects.put(address, policy);
+        }
+        policy.onConnected();
+        Runnable task = mReconnectTasks.remove(address);
+        if (task != null) {
+            mHandler.removeCallbacks(task);
+        }
+    }
+
+    /**
+     * 断开或重连失败后按策略安排下次重连
+     *
+     * @param address
+     * @param lost    是否连接断开，否则为重连失败
+     */
+    private void scheduleReconnect(final String address, boolean lost) {
+        ReconnectPolicy policy = address != null ? mReconnects.get(address) : null;
+        if (policy == null || !isAutoConnect() || !isBluetoothEnabled()) {
+            return;
+        }
+        if (!lost && !policy.isReconnecting()) {
+            return;
+        }
+        long delay = lost ? policy.onDisconnected() : policy.onConnectFailed();
+        if (delay == ReconnectPolicy.STOP) {
+            showMsg("蓝牙连接失败！请尝试手动连接！");
+            return;
+        }
+        Runnable task = mReconnectTasks.get(address);
+        if (task == null) {
+            task = new ReconnectTask(address);
+            mReconnectTasks.put(address, task);
+        }
+        mHandler.removeCallbacks(task);
+        mHandler.postDelayed(task, delay);
+    }
+
+    /**
+     * 取消所有待执行的重连
+     */
+    private void cancelReconnect() {
+        for (Runnable task : mReconnectTasks.values()) {
+            mHandler.removeCallbacks(task);
+        }
+        mReconnectTasks.clear();
+        for (ReconnectPolicy policy : mReconnects.values()) {
+            policy.reset();
+        }
+    }
+
+    /**
+     * 重连任务，只重新发起连接，不重启服务
+     */
+    private class ReconnectTask implements Runnable {
+
+        private final String mAddress;
+
+        ReconnectTask(String address) {
+            this.mAddress = address;
+        }
+
         @Override
         public void run() {
-            mConnectionCount++;
-            if (mConnectionCount <= 3) {
-                showMsg("尝试重新连接蓝牙[" + mConnectionCount + "/3]...");
-                stopService();
-                restartService();
-                connect(getDeviceAddr());
-            } else {
-                mConnectionCount = 0;
-                showMsg("蓝牙连接失败！请尝试手动连接！");
-                disconnect();
+            ReconnectPolicy policy = mReconnects.get(mAddress);
+            if (policy == null || !isAutoConnect() || !isServiceAvailable() || isServiceStopped()) {
+                return;
+            }
+            if (!policy.onAttempt()) {
+                // 熔断中，等熔断结束再试，不算一次失败
+                mHandler.postDelayed(this, policy.getOpenRemaining());
+                return;
             }
+            showMsg("尝试重新连接蓝牙[" + policy.getAttempts() + "]...");
+            mBluetoothService.connect(mAddress);
         }
-    };
+    }
 
     /**
      * 消息提示
@@ -493,34 +1468,65 @@ public class BluetoothHelper {
     }
 
     /**
-     * 获取绑定设备名称
+     * 获取绑定设备名称，结果缓存到绑定关系变化
      *
      * @return
      */
     public String[] getBondedDevicesName() {
-        int index = 0;
-        Set<BluetoothDevice> devices = getBondedDevices();
-        String[] names = new String[devices.size()];
-        for (BluetoothDevice device : devices) {
-            names[index] = device.getName();
-            index++;
-        }
-        return names;
+        return loadBondedDevices()[0].clone();
     }
 
     /**
-     * 获取绑定设备地址
+     * 获取绑定设备地址，与 {@link #getBondedDevicesName()} 顺序一致
      *
      * @return
      */
     public String[] getBondedDevicesAddr() {
+        return loadBondedDevices()[1].clone();
+    }
+
+    /**
+     * 读取绑定设备的名称和地址，已 {@link #init(Context)} 时缓存，绑定关系、名称或蓝牙开关变化时清除
+     *
+     * @return
+     */
+    private synchronized String[][] loadBondedDevices() {
+        if (mBondedDevices != null) {
+            return mBondedDevices;
+        }
+        if (!isBondReceiverRegistered && mAppContext != null) {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
+            filter.addAction(BluetoothDevice.ACTION_NAME_CHANGED);
+            filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+            mAppContext.registerReceiver(mBondReceiver, filter);
+            isBondReceiverRegistered = true;
+        }
         int index = 0;
         Set<BluetoothDevice> devices = getBondedDevices();
+        String[] names = new String[devices.size()];
         String[] address = new String[devices.size()];
         for (BluetoothDevice device : devices) {
+            names[index] = device.getName();
             address[index] = device.getAddress();
             index++;
         }
-        return address;
+        String[][] bonded = {names, address};
+        if (isBondReceiverRegistered) {
+            mBondedDevices = bonded;
+        }
+        return bonded;
     }
-}
\ No newline at end of file
+
+    /**
+     * 绑定设备变化，清除缓存
+     */
+    private final BroadcastReceiver mBondReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            synchronized (BluetoothHelper.this) {
+                mBondedDevices = null;
+            }
+        }
+    };
+}
@@ -0,0 +1,329 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.metrics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接统计，计数器和直方图均无锁，关闭时服务不持有本对象，收发路径只多一次判空
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothMetrics {
+
+    final AtomicLong mConnects = new AtomicLong();
+    final AtomicLong mReconnects = new AtomicLong();
+    final AtomicLong mConnectFailures = new AtomicLong();
+    final AtomicLong mDisconnects = new AtomicLong();
+    final AtomicLong mReadBytes = new AtomicLong();
+    final AtomicLong mReadFrames = new AtomicLong();
+    final AtomicLong mClosedWrittenBytes = new AtomicLong();
+
+    /** 建立连接耗时，不含准备，毫秒 */
+    final LatencyHistogram mConnectTime = new LatencyHistogram();
+    /** 连接准备耗时，毫秒 */
+    final LatencyHistogram mPrepareTime = new LatencyHistogram();
+    /** 开始连接到首字节的耗时，毫秒 */
+    final LatencyHistogram mFirstByteTime = new LatencyHistogram();
+    /** 帧到达间隔，微秒 */
+    final LatencyHistogram mFrameInterval = new LatencyHistogram();
+    /** 入队到写出的延时，微秒 */
+    final LatencyHistogram mWriteLatency = new LatencyHistogram();
+
+    private final Set<String> mConnected = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final long mStartTime = System.nanoTime();
+    private long mLastTime = mStartTime;
+    private long mLastReadBytes;
+    private long mLastReadFrames;
+    private long mLastWrittenBytes;
+
+    /**
+     * 连接成功
+     *
+     * @param address
+     * @param session
+     */
+    void onConnected(String address, BluetoothSession session) {
+        mConnects.incrementAndGet();
+        if (!mConnected.add(address)) {
+            mReconnects.incrementAndGet();
+        }
+        if (session.mConnectDuration >= 0) {
+            mPrepareTime.record(session.mPrepareTime);
+            mConnectTime.record(session.mConnectDuration);
+        }
+    }
+
+    public LatencyHistogram getConnectTime() {
+        return mConnectTime;
+    }
+
+    public LatencyHistogram getPrepareTime() {
+        return mPrepareTime;
+    }
+
+    public LatencyHistogram getFirstByteTime() {
+        return mFirstByteTime;
+    }
+
+    public LatencyHistogram getFrameInterval() {
+        return mFrameInterval;
+    }
+
+    public LatencyHistogram getWriteLatency() {
+        return mWriteLatency;
+    }
+
+    /**
+     * 生成快照，速率按上次快照以来计算
+     *
+     * @param sessions 当前会话
+     * @return
+     */
+    synchronized Snapshot snapshot(List<BluetoothSession> sessions) {
+        long now = System.nanoTime();
+        long writtenBytes = mClosedWrittenBytes.get();
+        int pendingWrites = 0;
+        for (BluetoothSession session : sessions) {
+            writtenBytes += session.getWrittenBytes();
+            pendingWrites += session.getPendingWrites();
+        }
+        long readBytes = mReadBytes.get();
+        long readFrames = mReadFrames.get();
+        double seconds = Math.max(now - mLastTime, 1) / 1e9;
+        Snapshot snapshot = new Snapshot(this, sessions.size(), pendingWrites, readBytes, readFrames, writtenBytes,
+                (readBytes - mLastReadBytes) / seconds, (readFrames - mLastReadFrames) / seconds,
+                (writtenBytes - mLastWrittenBytes) / seconds, (now - mStartTime) / 1000000);
+        mLastTime = now;
+        mLastReadBytes = readBytes;
+        mLastReadFrames = readFrames;
+        mLastWrittenBytes = writtenBytes;
+        return snapshot;
+    }
+
+    /**
+     * 统计快照
+     */
+    public static class Snapshot {
+
+        private final long mUptime;
+        private final int mSessions;
+        private final int mPendingWrites;
+        private final long mConnects;
+        private final long mReconnects;
+        private final long mConnectFailures;
+        private final long mDisconnects;
+        private final long mReadBytes;
+        private final long mReadFrames;
+        private final long mWrittenBytes;
+        private final double mReadBytesRate;
+        private final double mReadFramesRate;
+        private final double mWrittenBytesRate;
+        private final long mConnectTimeP50;
+        private final long mConnectTimeP99;
+        private final long mPrepareTimeP50;
+        private final long mFirstByteTimeP50;
+        private final long mFirstByteTimeP99;
+        private final long mFrameIntervalP50;
+        private final long mFrameIntervalP99;
+        private final long mWriteLatencyP50;
+        private final long mWriteLatencyP99;
+        private final long mWriteLatencyMax;
+
+        Snapshot(BluetoothMetrics metrics, int sessions, int pendingWrites, long readBytes, long readFrames, long writtenBytes,
+                 double readBytesRate, double readFramesRate, double writtenBytesRate, long uptime) {
+            this.mUptime = uptime;
+            this.mSessions = sessions;
+            this.mPendingWrites = pendingWrites;
+            this.mConnects = metrics.mConnects.get();
+            this.mReconnects = metrics.mReconnects.get();
+            this.mConnectFailures = metrics.mConnectFailures.get();
+            this.mDisconnects = metrics.mDisconnects.get();
+            this.mReadBytes = readBytes;
+            this.mReadFrames = readFrames;
+            this.mWrittenBytes = writtenBytes;
+            this.mReadBytesRate = readBytesRate;
+            this.mReadFramesRate = readFramesRate;
+            this.mWrittenBytesRate = writtenBytesRate;
+            long[] connectTime = metrics.mConnectTime.getPercentiles(50, 99);
+            long[] firstByteTime = metrics.mFirstByteTime.getPercentiles(50, 99);
+            long[] frameInterval = metrics.mFrameInterval.getPercentiles(50, 99);
+            long[] writeLatency = metrics.mWriteLatency.getPercentiles(50, 99);
+            this.mConnectTimeP50 = connectTime[0];
+            this.mConnectTimeP99 = connectTime[1];
+            this.mPrepareTimeP50 = metrics.mPrepareTime.getPercentile(50);
+            this.mFirstByteTimeP50 = firstByteTime[0];
+            this.mFirstByteTimeP99 = firstByteTime[1];
+            this.mFrameIntervalP50 = frameInterval[0];
+            this.mFrameIntervalP99 = frameInterval[1];
+            this.mWriteLatencyP50 = writeLatency[0];
+            this.mWriteLatencyP99 = writeLatency[1];
+            this.mWriteLatencyMax = metrics.mWriteLatency.getMax();
+        }
+
+        /**
+         * 开启统计以来的时间，毫秒
+         *
+         * @return
+         */
+        public long getUptime() {
+            return mUptime;
+        }
+
+        public int getSessions() {
+            return mSessions;
+        }
+
+        /**
+         * 发送队列中待发送的数据包数
+         *
+         * @return
+         */
+        public int getPendingWrites() {
+            return mPendingWrites;
+        }
+
+        public long getConnects() {
+            return mConnects;
+        }
+
+        /**
+         * 同一设备再次连接的次数
+         *
+         * @return
+         */
+        public long getReconnects() {
+            return mReconnects;
+        }
+
+        public long getConnectFailures() {
+            return mConnectFailures;
+        }
+
+        public long getDisconnects() {
+            return mDisconnects;
+        }
+
+        public long getReadBytes() {
+            return mReadBytes;
+        }
+
+        public long getReadFrames() {
+            return mReadFrames;
+        }
+
+        public long getWrittenBytes() {
+            return mWrittenBytes;
+        }
+
+        /**
+         * 接收速率，字节/秒
+         *
+         * @return
+         */
+        public double getReadBytesRate() {
+            return mReadBytesRate;
+        }
+
+        /**
+         * 接收速率，帧/秒
+         *
+         * @return
+         */
+        public double getReadFramesRate() {
+            return mReadFramesRate;
+        }
+
+        /**
+         * 发送速率，字节/秒
+         *
+         * @return
+         */
+        public double getWrittenBytesRate() {
+            return mWrittenBytesRate;
+        }
+
+        /**
+         * 建立连接耗时中位数，毫秒
+         *
+         * @return
+         */
+        public long getConnectTimeP50() {
+            return mConnectTimeP50;
+        }
+
+        public long getConnectTimeP99() {
+            return mConnectTimeP99;
+        }
+
+        /**
+         * 连接准备耗时中位数，毫秒
+         *
+         * @return
+         */
+        public long getPrepareTimeP50() {
+            return mPrepareTimeP50;
+        }
+
+        /**
+         * 开始连接到首字节耗时中位数，毫秒
+         *
+         * @return
+         */
+        public long getFirstByteTimeP50() {
+            return mFirstByteTimeP50;
+        }
+
+        public long getFirstByteTimeP99() {
+            return mFirstByteTimeP99;
+        }
+
+        /**
+         * 帧到达间隔中位数，微秒
+         *
+         * @return
+         */
+        public long getFrameIntervalP50() {
+            return mFrameIntervalP50;
+        }
+
+        public long getFrameIntervalP99() {
+            return mFrameIntervalP99;
+        }
+
+        /**
+         * 写延时中位数，微秒
+         *
+         * @return
+         */
+        public long getWriteLatencyP50() {
+            return mWriteLatencyP50;
+        }
+
+        public long getWriteLatencyP99() {
+            return mWriteLatencyP99;
+        }
+
+        public long getWriteLatencyMax() {
+            return mWriteLatencyMax;
+        }
+
+        @Override
+        public String toString() {
+            return "BluetoothMetrics{sessions=" + mSessions + ", pending=" + mPendingWrites
+                    + ", connects=" + mConnects + ", reconnects=" + mReconnects + ", failures=" + mConnectFailures
+                    + ", disconnects=" + mDisconnects + ", read=" + Math.round(mReadBytesRate) + "B/s "
+                    + Math.round(mReadFramesRate) + "f/s, write=" + Math.round(mWrittenBytesRate) + "B/s"
+                    + ", prepare p50=" + mPrepareTimeP50 + "ms"
+                    + ", connect p50/p99=" + mConnectTimeP50 + "/" + mConnectTimeP99 + "ms"
+                    + ", first byte p50/p99=" + mFirstByteTimeP50 + "/" + mFirstByteTimeP99 + "ms"
+                    + ", frame p50/p99=" + mFrameIntervalP50 + "/" + mFrameIntervalP99 + "us"
+                    + ", write p50/p99/max=" + mWriteLatencyP50 + "/" + mWriteLatencyP99 + "/" + mWriteLatencyMax + "us}";
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.BluetoothParser.BluetoothData;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 广播解析缓存，按记录内容的 64 位哈希加长度索引，命中时逐字节校验，LRU 淘汰
+ * <p>
+ * 同一信标反复广播相同内容时直接返回上次解析结果，返回的 {@link BluetoothData} 在调用方之间共享，
+ * 其 UUID 列表只读。淘汰基于访问顺序的 {@link LinkedHashMap}，由一把锁保护。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothParseCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final int mMaxSize;
+    private final LinkedHashMap<Long, CacheEntry> mEntries;
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private volatile boolean isEnabled = true;
+
+    public BluetoothParseCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public BluetoothParseCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        }
+        this.mMaxSize = maxSize;
+        this.mEntries = new LinkedHashMap<Long, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+    }
+
+    /**
+     * 解析广播记录，关闭缓存时等同 {@link BluetoothParser#parseBluetoothName(byte[])}
+     *
+     * @param record 调用返回后可修改
+     * @return 开启缓存时 UUID 列表只读
+     */
+    public BluetoothData parse(byte[] record) {
+        if (record == null || !isEnabled) {
+            return BluetoothParser.parseBluetoothName(record);
+        }
+        Long key = hash(record);
+        synchronized (mEntries) {
+            CacheEntry entry = mEntries.get(key);
+            if (entry != null && Arrays.equals(entry.record, record)) {
+                mHitCount.incrementAndGet();
+                return entry.data;
+            }
+        }
+        mMissCount.incrementAndGet();
+        byte[] copy = record.clone();
+        BluetoothData data = BluetoothParser.parseBluetoothName(copy).toShared();
+        synchronized (mEntries) {
+            mEntries.put(key, new CacheEntry(copy, data));
+        }
+        return data;
+    }
+
+    /**
+     * 开关缓存，关闭时清空
+     *
+     * @param enabled
+     */
+    public void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    public int size() {
+        synchronized (mEntries) {
+            return mEntries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * 清空缓存和统计
+     */
+    public void clear() {
+        synchronized (mEntries) {
+            mEntries.clear();
+        }
+        mHitCount.set(0);
+        mMissCount.set(0);
+    }
+
+    /**
+     * FNV-1a 64 位哈希，混入长度
+     */
+    long hash(byte[] record) {
+        long hash = 0xCBF29CE484222325L ^ record.length;
+        for (byte b : record) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static class CacheEntry {
+
+        private final byte[] record;
+        private final BluetoothData data;
+
+        CacheEntry(byte[] record, BluetoothData data) {
+            this.record = record;
+            this.data = data;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.liuhanling.bluetooth;
 
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>Title: </p>
@@ -17,70 +22,457 @@ import java.util.UUID;
  */
 public class BluetoothParser {
 
+    public static final int TYPE_FLAGS = 0x01;
+    public static final int TYPE_UUID16_PARTIAL = 0x02;
+    public static final int TYPE_UUID16_COMPLETE = 0x03;
+    public static final int TYPE_UUID32_PARTIAL = 0x04;
+    public static final int TYPE_UUID32_COMPLETE = 0x05;
+    public static final int TYPE_UUID128_PARTIAL = 0x06;
+    public static final int TYPE_UUID128_COMPLETE = 0x07;
+    public static final int TYPE_NAME_SHORT = 0x08;
+    public static final int TYPE_NAME_COMPLETE = 0x09;
+    public static final int TYPE_TX_POWER = 0x0A;
+    public static final int TYPE_SERVICE_DATA16 = 0x16;
+    public static final int TYPE_APPEARANCE = 0x19;
+    public static final int TYPE_SERVICE_DATA32 = 0x20;
+    public static final int TYPE_SERVICE_DATA128 = 0x21;
+    public static final int TYPE_MANUFACTURER_DATA = 0xFF;
+
+    /** 蓝牙基础 UUID 00000000-0000-1000-8000-00805F9B34FB */
+    private static final long BASE_UUID_MSB = 0x0000000000001000L;
+    private static final long BASE_UUID_LSB = 0x800000805F9B34FBL;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** 扩展广播最大长度 */
+    public static final int MAX_RECORD_LENGTH = 1650;
+
+    private static final AtomicLong sParseErrors = new AtomicLong();
+
+    /** 16 位 UUID 缓存，按低 8 位直接映射，并发下最多重复创建 */
+    private static final UUID[] UUID16_CACHE = new UUID[256];
+
+    /**
+     * 广播记录遍历
+     */
+    public interface RecordVisitor {
+
+        /**
+         * 一个 AD 结构
+         *
+         * @param type   AD 类型
+         * @param data   原始记录，不可修改
+         * @param offset 数据起始，不含长度和类型字节
+         * @param length 数据长度
+         * @return false 停止遍历
+         */
+        boolean onRecord(int type, byte[] data, int offset, int length);
+    }
+
+    /**
+     * 单次遍历广播记录，不分配对象，不抛异常
+     * <p>
+     * 每个结构至少前进 2 字节，耗时与记录长度成正比，超过 {@link #MAX_RECORD_LENGTH} 的部分不解析；
+     * 长度越界的结构及其后的数据被忽略，计入 {@link #getParseErrors()}。
+     *
+     * @param record
+     * @param visitor
+     */
+    public static void parse(byte[] record, RecordVisitor visitor) {
+        if (record == null) {
+            return;
+        }
+        int end = record.length;
+        if (end > MAX_RECORD_LENGTH) {
+            end = MAX_RECORD_LENGTH;
+            sParseErrors.incrementAndGet();
+        }
+        int index = 0;
+        while (index < end) {
+            int len = record[index] & 0xFF;
+            if (len == 0) {
+                break;
+            }
+            if (index + 1 + len > end) {
+                sParseErrors.incrementAndGet();
+                break;
+            }
+            if (!visitor.onRecord(record[index + 1] & 0xFF, record, index + 2, len - 1)) {
+                break;
+            }
+            index += 1 + len;
+        }
+    }
+
+    /**
+     * 解析错误次数，包括越界、截断和长度不符的结构
+     *
+     * @return
+     */
+    public static long getParseErrors() {
+        return sParseErrors.get();
+    }
+
+    /**
+     * 清零解析错误次数
+     */
+    public static void resetParseErrors() {
+        sParseErrors.set(0);
+    }
+
     public static BluetoothData parseBluetoothName(byte[] record) {
         if (record == null) {
             return null;
         }
+        DataVisitor visitor = new DataVisitor();
+        parse(record, visitor);
+        return new BluetoothData(record, visitor.uuids != null ? visitor.uuids : new ArrayList<UUID>(0),
+                visitor.sections != null ? Arrays.copyOf(visitor.sections, visitor.count) : null);
+    }
+
+    /**
+     * 读取完整名称
+     *
+     * @param record
+     * @return 无名称时为 null
+     */
+    public static String parseName(byte[] record) {
+        final String[] name = new String[1];
+        parse(record, new RecordVisitor() {
+            @Override
+            public boolean onRecord(int type, byte[] data, int offset, int length) {
+                if (type != TYPE_NAME_COMPLETE) {
+                    return true;
+                }
+                name[0] = new String(data, offset, length, UTF_8);
+                return false;
+            }
+        });
+        return name[0];
+    }
+
+    /**
+     * 读取 16 位 UUID，小端
+     *
+     * @param data
+     * @param offset
+     * @return
+     */
+    public static UUID uuid16(byte[] data, int offset) {
+        return uuid16((data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8);
+    }
 
-        String name = null;
-        List<UUID> uuids = new ArrayList<>();
+    /**
+     * 16 位 UUID 按蓝牙基础 UUID 展开
+     *
+     * @param value
+     * @return
+     */
+    public static UUID uuid16(int value) {
+        value &= 0xFFFF;
+        int slot = value & 0xFF;
+        UUID uuid = UUID16_CACHE[slot];
+        if (uuid != null && (int) (uuid.getMostSignificantBits() >>> 32) == value) {
+            return uuid;
+        }
+        uuid = new UUID(BASE_UUID_MSB | (long) value << 32, BASE_UUID_LSB);
+        UUID16_CACHE[slot] = uuid;
+        return uuid;
+    }
 
-        ByteBuffer buffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
-        while (buffer.remaining() > 2) {
-            byte len = buffer.get();
-            if (len == 0) break;
+    /**
+     * 读取 32 位 UUID，小端
+     *
+     * @param data
+     * @param offset
+     * @return
+     */
+    public static UUID uuid32(byte[] data, int offset) {
+        long value = (data[offset] & 0xFFL) | (data[offset + 1] & 0xFFL) << 8
+                | (data[offset + 2] & 0xFFL) << 16 | (data[offset + 3] & 0xFFL) << 24;
+        return new UUID(BASE_UUID_MSB | value << 32, BASE_UUID_LSB);
+    }
+
+    /**
+     * 读取 128 位 UUID，小端
+     *
+     * @param data
+     * @param offset
+     * @return
+     */
+    public static UUID uuid128(byte[] data, int offset) {
+        return new UUID(readLong(data, offset + 8), readLong(data, offset));
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = value << 8 | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 只建 UUID 列表，其他结构记录 (类型, 偏移, 长度) 留待按需解码
+     */
+    private static class DataVisitor implements RecordVisitor {
+
+        private List<UUID> uuids;
+        private int[] sections;
+        private int count;
 
-            byte type = buffer.get();
+        @Override
+        public boolean onRecord(int type, byte[] data, int offset, int length) {
             switch (type) {
-                case 0x02: // Partial list of 16-bit UUIDs
-                case 0x03: // Complete list of 16-bit UUIDs
-                    while (len >= 2) {
-                        uuids.add(UUID.fromString(String.format("%08x-0000-1000-8000-00805f9b34fb", buffer.getShort())));
-                        len -= 2;
+                case TYPE_UUID16_PARTIAL:
+                case TYPE_UUID16_COMPLETE:
+                    for (int i = 0; i + 2 <= length; i += 2) {
+                        uuids().add(uuid16(data, offset + i));
                     }
+                    checkLength(length, 2);
                     break;
-                case 0x06: // Partial list of 128-bit UUIDs
-                case 0x07: // Complete list of 128-bit UUIDs
-                    while (len >= 16) {
-                        long lsb = buffer.getLong();
-                        long msb = buffer.getLong();
-                        uuids.add(new UUID(msb, lsb));
-                        len -= 16;
+                case TYPE_UUID32_PARTIAL:
+                case TYPE_UUID32_COMPLETE:
+                    for (int i = 0; i + 4 <= length; i += 4) {
+                        uuids().add(uuid32(data, offset + i));
                     }
+                    checkLength(length, 4);
                     break;
-                case 0x09:
-                    byte[] nameBytes = new byte[len - 1];
-                    buffer.get(nameBytes);
-                    try {
-                        name = new String(nameBytes, "utf-8");
-                    } catch (UnsupportedEncodingException e) {
-                        e.printStackTrace();
+                case TYPE_UUID128_PARTIAL:
+                case TYPE_UUID128_COMPLETE:
+                    for (int i = 0; i + 16 <= length; i += 16) {
+                        uuids().add(uuid128(data, offset + i));
                     }
+                    checkLength(length, 16);
                     break;
-                default:
-                    buffer.position(buffer.position() + len - 1);
+                case TYPE_FLAGS:
+                case TYPE_NAME_SHORT:
+                case TYPE_NAME_COMPLETE:
+                case TYPE_TX_POWER:
+                case TYPE_SERVICE_DATA16:
+                case TYPE_APPEARANCE:
+                case TYPE_SERVICE_DATA32:
+                case TYPE_SERVICE_DATA128:
+                case TYPE_MANUFACTURER_DATA:
+                    if (sections == null) {
+                        sections = new int[3 * 4];
+                    } else if (count == sections.length) {
+                        sections = Arrays.copyOf(sections, count * 2);
+                    }
+                    sections[count++] = type;
+                    sections[count++] = offset;
+                    sections[count++] = length;
                     break;
             }
+            return true;
+        }
+
+        private void checkLength(int length, int size) {
+            if (length % size != 0) {
+                sParseErrors.incrementAndGet();
+            }
+        }
+
+        private List<UUID> uuids() {
+            if (uuids == null) {
+                uuids = new ArrayList<>(4);
+            }
+            return uuids;
         }
-        return new BluetoothData(uuids, name);
     }
 
+    /**
+     * 广播数据，除 UUID 外各结构在首次读取时解码，字节数据为原始记录的只读切片
+     */
     public static class BluetoothData {
 
+        private final byte[] record;
+        private final int[] sections;
         private List<UUID> uuids;
-        private String name;
+        private volatile String name;
+        private volatile Map<Integer, ByteBuffer> manufacturerData;
+        private volatile Map<UUID, ByteBuffer> serviceData;
 
-        public BluetoothData(List<UUID> uuids, String name){
-            this.uuids = uuids;
+        public BluetoothData(List<UUID> uuids, String name) {
+            this(null, uuids, null);
             this.name = name;
         }
 
-        public List<UUID> getUuids(){
+        BluetoothData(byte[] record, List<UUID> uuids, int[] sections) {
+            this.record = record;
+            this.uuids = uuids;
+            this.sections = sections;
+        }
+
+        public List<UUID> getUuids() {
             return this.uuids;
         }
 
-        public String getName(){
-            return this.name;
+        /**
+         * 同一记录、UUID 列表只读的副本，用于在调用方之间共享
+         *
+         * @return
+         */
+        BluetoothData toShared() {
+            return new BluetoothData(record, Collections.unmodifiableList(uuids), sections);
+        }
+
+        /**
+         * 完整名称，没有时取缩写名称
+         *
+         * @return
+         */
+        public String getName() {
+            String value = name;
+            if (value == null) {
+                int index = find(TYPE_NAME_COMPLETE);
+                if (index < 0) {
+                    index = find(TYPE_NAME_SHORT);
+                }
+                if (index >= 0) {
+                    value = new String(record, sections[index + 1], sections[index + 2], UTF_8);
+                    name = value;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * 广播标志
+         *
+         * @return 没有时为 -1
+         */
+        public int getFlags() {
+            int index = find(TYPE_FLAGS);
+            return index >= 0 && sections[index + 2] >= 1 ? record[sections[index + 1]] & 0xFF : -1;
+        }
+
+        /**
+         * 发射功率，dBm
+         *
+         * @return 没有时为 {@link Integer#MIN_VALUE}
+         */
+        public int getTxPowerLevel() {
+            int index = find(TYPE_TX_POWER);
+            return index >= 0 && sections[index + 2] >= 1 ? record[sections[index + 1]] : Integer.MIN_VALUE;
+        }
+
+        /**
+         * 外观
+         *
+         * @return 没有时为 -1
+         */
+        public int getAppearance() {
+            int index = find(TYPE_APPEARANCE);
+            if (index < 0 || sections[index + 2] < 2) {
+                return -1;
+            }
+            int offset = sections[index + 1];
+            return (record[offset] & 0xFF) | (record[offset + 1] & 0xFF) << 8;
+        }
+
+        /**
+         * 厂商数据，按公司 ID 索引，不含公司 ID，缓冲为共享只读切片，按绝对位置读取
+         *
+         * @return
+         */
+        public Map<Integer, ByteBuffer> getManufacturerData() {
+            Map<Integer, ByteBuffer> value = manufacturerData;
+            if (value == null) {
+                value = new LinkedHashMap<>();
+                for (int i = 0; sections != null && i < sections.length; i += 3) {
+                    if (sections[i] != TYPE_MANUFACTURER_DATA) {
+                        continue;
+                    }
+                    if (sections[i + 2] < 2) {
+                        sParseErrors.incrementAndGet();
+                        continue;
+                    }
+                    int offset = sections[i + 1];
+                    int companyId = (record[offset] & 0xFF) | (record[offset + 1] & 0xFF) << 8;
+                    value.put(companyId, slice(offset + 2, sections[i + 2] - 2));
+                }
+                value = Collections.unmodifiableMap(value);
+                manufacturerData = value;
+            }
+            return value;
+        }
+
+        /**
+         * 厂商数据
+         *
+         * @param companyId
+         * @return 没有时为 null
+         */
+        public ByteBuffer getManufacturerData(int companyId) {
+            ByteBuffer buffer = getManufacturerData().get(companyId);
+            return buffer != null ? buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN) : null;
+        }
+
+        /**
+         * 服务数据，按服务 UUID 索引，不含 UUID，缓冲为共享只读切片，按绝对位置读取
+         *
+         * @return
+         */
+        public Map<UUID, ByteBuffer> getServiceData() {
+            Map<UUID, ByteBuffer> value = serviceData;
+            if (value == null) {
+                value = new LinkedHashMap<>();
+                for (int i = 0; sections != null && i < sections.length; i += 3) {
+                    int offset = sections[i + 1];
+                    int length = sections[i + 2];
+                    switch (sections[i]) {
+                        case TYPE_SERVICE_DATA16:
+                            if (length >= 2) {
+                                value.put(uuid16(record, offset), slice(offset + 2, length - 2));
+                            } else {
+                                sParseErrors.incrementAndGet();
+                            }
+                            break;
+                        case TYPE_SERVICE_DATA32:
+                            if (length >= 4) {
+                                value.put(uuid32(record, offset), slice(offset + 4, length - 4));
+                            } else {
+                                sParseErrors.incrementAndGet();
+                            }
+                            break;
+                        case TYPE_SERVICE_DATA128:
+                            if (length >= 16) {
+                                value.put(uuid128(record, offset), slice(offset + 16, length - 16));
+                            } else {
+                                sParseErrors.incrementAndGet();
+                            }
+                            break;
+                    }
+                }
+                value = Collections.unmodifiableMap(value);
+                serviceData = value;
+            }
+            return value;
+        }
+
+        /**
+         * 服务数据
+         *
+         * @param uuid
+         * @return 没有时为 null
+         */
+        public ByteBuffer getServiceData(UUID uuid) {
+            ByteBuffer buffer = getServiceData().get(uuid);
+            return buffer != null ? buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN) : null;
+        }
+
+        private int find(int type) {
+            for (int i = 0; sections != null && i < sections.length; i += 3) {
+                if (sections[i] == type) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private ByteBuffer slice(int offset, int length) {
+            return ByteBuffer.wrap(record, offset, length).slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
         }
     }
 }
@@ -0,0 +1,261 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.BluetoothParser.BluetoothData;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 扫描配置，BLE 扫描模式、批量上报延时和过滤条件
+ * <p>
+ * 过滤条件之间为或，条件内各项为且。Android 5.0 以上交给系统硬件过滤，
+ * 同时可用 {@link BluetoothParser} 在软件中再过滤一次，经典蓝牙发现的设备只能按名称和地址过滤。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothScanConfig {
+
+    /** 与 ScanSettings 取值一致 */
+    public static final int SCAN_MODE_OPPORTUNISTIC = -1; // Android 6.0 以上，以下版本按低功耗扫描
+    public static final int SCAN_MODE_LOW_POWER = 0;
+    public static final int SCAN_MODE_BALANCED = 1;
+    public static final int SCAN_MODE_LOW_LATENCY = 2;
+
+    private int mScanMode = SCAN_MODE_LOW_POWER;
+    private long mReportDelay = 0;
+    private boolean isClassicDiscovery = true;
+    private boolean isSoftwareFilter = true;
+    private final List<Filter> mFilters = new ArrayList<>();
+
+    /**
+     * 扫描模式
+     *
+     * @param scanMode {@link #SCAN_MODE_LOW_POWER} 等
+     * @return
+     */
+    public BluetoothScanConfig setScanMode(int scanMode) {
+        this.mScanMode = scanMode;
+        return this;
+    }
+
+    /**
+     * 批量上报延时，大于 0 时系统积攒结果后经 onBatchScanResults 一次上报
+     *
+     * @param reportDelay 毫秒
+     * @return
+     */
+    public BluetoothScanConfig setReportDelay(long reportDelay) {
+        this.mReportDelay = reportDelay;
+        return this;
+    }
+
+    /**
+     * 是否同时进行经典蓝牙发现，默认是
+     *
+     * @param classicDiscovery
+     * @return
+     */
+    public BluetoothScanConfig setClassicDiscovery(boolean classicDiscovery) {
+        this.isClassicDiscovery = classicDiscovery;
+        return this;
+    }
+
+    /**
+     * 是否在软件中再过滤，默认是，部分机型硬件过滤不生效
+     *
+     * @param softwareFilter
+     * @return
+     */
+    public BluetoothScanConfig setSoftwareFilter(boolean softwareFilter) {
+        this.isSoftwareFilter = softwareFilter;
+        return this;
+    }
+
+    public BluetoothScanConfig addFilter(Filter filter) {
+        this.mFilters.add(filter);
+        return this;
+    }
+
+    public int getScanMode() {
+        return mScanMode;
+    }
+
+    public long getReportDelay() {
+        return mReportDelay;
+    }
+
+    public boolean isClassicDiscovery() {
+        return isClassicDiscovery;
+    }
+
+    public boolean isSoftwareFilter() {
+        return isSoftwareFilter;
+    }
+
+    public List<Filter> getFilters() {
+        return Collections.unmodifiableList(mFilters);
+    }
+
+    /**
+     * 是否需要软件过滤
+     *
+     * @return
+     */
+    public boolean hasSoftwareFilter() {
+        return isSoftwareFilter && !mFilters.isEmpty();
+    }
+
+    /**
+     * 软件过滤
+     *
+     * @param name    可为 null
+     * @param address
+     * @param data    广播数据，经典蓝牙发现时为 null
+     * @return 无过滤条件或关闭软件过滤时为 true
+     */
+    public boolean matches(String name, String address, BluetoothData data) {
+        if (!hasSoftwareFilter()) {
+            return true;
+        }
+        for (Filter filter : mFilters) {
+            if (filter.matches(name, address, data)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 过滤条件，未设置的项不参与匹配
+     */
+    public static class Filter {
+
+        private String mName;
+        private String mAddress;
+        private UUID mServiceUuid;
+        private int mManufacturerId = -1;
+        private byte[] mManufacturerData;
+        private byte[] mManufacturerMask;
+
+        public Filter setName(String name) {
+            this.mName = name;
+            return this;
+        }
+
+        public Filter setAddress(String address) {
+            this.mAddress = address;
+            return this;
+        }
+
+        public Filter setServiceUuid(UUID serviceUuid) {
+            this.mServiceUuid = serviceUuid;
+            return this;
+        }
+
+        /**
+         * 厂商数据前缀匹配
+         *
+         * @param manufacturerId 公司 ID
+         * @param data           可为 null，只匹配公司 ID
+         * @param mask           可为 null，为 1 的位参与匹配，不为 null 时 data 也不能为 null
+         * @return
+         */
+        public Filter setManufacturerData(int manufacturerId, byte[] data, byte[] mask) {
+            if (manufacturerId < 0 || manufacturerId > 0xFFFF) {
+                throw new IllegalArgumentException("manufacturerId: " + manufacturerId);
+            }
+            if (data == null && mask != null) {
+                throw new IllegalArgumentException("mask without data");
+            }
+            if (data != null && mask != null && mask.length != data.length) {
+                throw new IllegalArgumentException("mask length: " + mask.length + ", data length: " + data.length);
+            }
+            this.mManufacturerId = manufacturerId;
+            this.mManufacturerData = data;
+            this.mManufacturerMask = mask;
+            return this;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getAddress() {
+            return mAddress;
+        }
+
+        public UUID getServiceUuid() {
+            return mServiceUuid;
+        }
+
+        public int getManufacturerId() {
+            return mManufacturerId;
+        }
+
+        public byte[] getManufacturerData() {
+            return mManufacturerData;
+        }
+
+        public byte[] getManufacturerMask() {
+            return mManufacturerMask;
+        }
+
+        /**
+         * 是否需要广播数据才能匹配
+         *
+         * @return
+         */
+        public boolean needsRecord() {
+            return mServiceUuid != null || mManufacturerId >= 0;
+        }
+
+        public boolean matches(String name, String address, BluetoothData data) {
+            if (mAddress != null && !mAddress.equalsIgnoreCase(address)) {
+                return false;
+            }
+            if (mName != null) {
+                String advertised = data != null && data.getName() != null ? data.getName() : name;
+                if (!mName.equals(advertised)) {
+                    return false;
+                }
+            }
+            if (!needsRecord()) {
+                return true;
+            }
+            if (data == null) {
+                return false;
+            }
+            if (mServiceUuid != null && !data.getUuids().contains(mServiceUuid)
+                    && !data.getServiceData().containsKey(mServiceUuid)) {
+                return false;
+            }
+            if (mManufacturerId >= 0) {
+                ByteBuffer buffer = data.getManufacturerData(mManufacturerId);
+                if (buffer == null || !matchesData(buffer)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesData(ByteBuffer buffer) {
+            if (mManufacturerData == null) {
+                return true;
+            }
+            if (buffer.remaining() < mManufacturerData.length) {
+                return false;
+            }
+            for (int i = 0; i < mManufacturerData.length; i++) {
+                int mask = mManufacturerMask != null ? mManufacturerMask[i] : 0xFF;
+                if (((buffer.get(buffer.position() + i) ^ mManufacturerData[i]) & mask) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
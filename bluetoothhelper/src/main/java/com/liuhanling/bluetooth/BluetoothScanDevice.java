@@ -0,0 +1,149 @@
+package com.liuhanling.bluetooth;
+
+import android.bluetooth.BluetoothDevice;
+
+/**
+ * 扫描到的设备，记录最近信号、平均信号和广播次数
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothScanDevice {
+
+    /** 无信号强度 */
+    public static final int NO_RSSI = Integer.MIN_VALUE;
+
+    /** 平均信号强度的平滑系数 */
+    private static final double RSSI_ALPHA = 0.25;
+
+    private final String mAddress;
+    private final long mFirstSeen;
+    private volatile BluetoothDevice mDevice;
+    private volatile byte[] mScanRecord;
+    private volatile int mRssi = NO_RSSI;
+    private volatile double mAverageRssi = NO_RSSI;
+    private volatile long mLastSeen;
+    private volatile long mLastClassicSeen;
+    private volatile boolean isClassic = false;
+    private volatile long mCount;
+    private long mLastNotified;
+
+    BluetoothScanDevice(String address, BluetoothDevice device, long now) {
+        this.mAddress = address;
+        this.mDevice = device;
+        this.mFirstSeen = now;
+        this.mLastSeen = now;
+        this.mLastNotified = now;
+    }
+
+    /**
+     * 记录一次广播
+     *
+     * @param device
+     * @param rssi     {@link #NO_RSSI} 时不计入平均
+     * @param record   为 null 时保留上次的广播数据
+     * @param classic  是否经典蓝牙发现
+     * @param now
+     * @param interval 更新通知间隔
+     * @return 是否需要通知更新
+     */
+    synchronized boolean update(BluetoothDevice device, int rssi, byte[] record, boolean classic, long now, long interval) {
+        if (device != null) {
+            mDevice = device;
+        }
+        if (record != null) {
+            mScanRecord = record;
+        }
+        if (rssi != NO_RSSI) {
+            mAverageRssi = mAverageRssi == NO_RSSI ? rssi : mAverageRssi + RSSI_ALPHA * (rssi - mAverageRssi);
+            mRssi = rssi;
+        }
+        mLastSeen = now;
+        if (classic) {
+            mLastClassicSeen = now;
+            isClassic = true;
+        }
+        mCount++;
+        if (now - mLastNotified >= interval) {
+            mLastNotified = now;
+            return true;
+        }
+        return false;
+    }
+
+    public String getAddress() {
+        return mAddress;
+    }
+
+    /**
+     * 系统设备，JVM 中测试时可能为 null
+     *
+     * @return
+     */
+    public BluetoothDevice getDevice() {
+        return mDevice;
+    }
+
+    /**
+     * 最近一次广播数据
+     *
+     * @return
+     */
+    public byte[] getScanRecord() {
+        return mScanRecord;
+    }
+
+    /**
+     * 最近一次信号强度
+     *
+     * @return 没有时为 {@link #NO_RSSI}
+     */
+    public int getRssi() {
+        return mRssi;
+    }
+
+    /**
+     * 平均信号强度，指数滑动平均
+     *
+     * @return 没有时为 {@link #NO_RSSI}
+     */
+    public int getAverageRssi() {
+        double average = mAverageRssi;
+        return average == NO_RSSI ? NO_RSSI : (int) Math.round(average);
+    }
+
+    public long getFirstSeen() {
+        return mFirstSeen;
+    }
+
+    public long getLastSeen() {
+        return mLastSeen;
+    }
+
+    /**
+     * 最近一次被经典蓝牙发现的时间
+     *
+     * @return 未被经典蓝牙发现时无意义，见 {@link #isClassic()}
+     */
+    public long getLastClassicSeen() {
+        return mLastClassicSeen;
+    }
+
+    /**
+     * 是否被经典蓝牙发现过
+     *
+     * @return
+     */
+    public boolean isClassic() {
+        return isClassic;
+    }
+
+    /**
+     * 广播次数
+     *
+     * @return
+     */
+    public long getCount() {
+        return mCount;
+    }
+}
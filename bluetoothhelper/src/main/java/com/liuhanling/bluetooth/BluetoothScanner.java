@@ -2,20 +2,29 @@ package com.liuhanling.bluetooth;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.annotation.TargetApi;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Build;
 import android.os.Handler;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+
+import com.liuhanling.bluetooth.BluetoothParser.BluetoothData;
+
+import com.liuhanling.bluetooth.listener.BluetoothDeviceListener;
+import com.liuhanling.bluetooth.listener.BluetoothScanFailureListener;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
 
 /**
  * 蓝牙扫描类
@@ -29,10 +38,22 @@ public class BluetoothScanner {
     private BluetoothLeScanner mScanner;
     private ScanCallback mScanCallback;
     private Handler mHandler = new Handler();
-    private Set<BluetoothDevice> mDeviceSet = new HashSet<>();
+    private final BluetoothDeviceTable mDeviceTable = new BluetoothDeviceTable();
+    private volatile BluetoothDeviceListener mDeviceListener;
+    private volatile BluetoothScanFailureListener mScanFailureListener;
+    private boolean isContinuous = false;
+    private boolean isClassicActive = false;
+    private boolean isRegistered = false;
+    private int mPauseCount = 0;
+    private boolean isResumeRegister = false;
+    private boolean isResumeClassic = false;
+    private ScanScheduler mScheduler;
+    private volatile BluetoothScanConfig mScanConfig = new BluetoothScanConfig();
+    private final BluetoothParseCache mParseCache = new BluetoothParseCache();
 
     public BluetoothScanner(Context context) {
         this.mContext = context;
+        this.mDeviceTable.setListener(mTableListener);
         this.initScanner();
     }
 
@@ -40,6 +61,74 @@ public class BluetoothScanner {
         this.mScanListener = listener;
     }
 
+    /**
+     * 设置设备监听，回调发现、更新和丢失
+     *
+     * @param listener
+     */
+    public void setDeviceListener(BluetoothDeviceListener listener) {
+        this.mDeviceListener = listener;
+    }
+
+    /**
+     * 设置 BLE 扫描失败监听
+     *
+     * @param listener
+     */
+    public void setScanFailureListener(BluetoothScanFailureListener listener) {
+        this.mScanFailureListener = listener;
+    }
+
+    /**
+     * 设置更新通知间隔和设备超时时间
+     *
+     * @param updateInterval 毫秒
+     * @param ttl            毫秒，超时未收到广播回调 {@link BluetoothDeviceListener#onDeviceLost}
+     */
+    public void setDeviceTiming(long updateInterval, long ttl) {
+        this.mDeviceTable.setUpdateInterval(updateInterval);
+        this.mDeviceTable.setTtl(ttl);
+    }
+
+    /**
+     * 设置更新通知间隔和设备超时时间
+     *
+     * @param updateInterval 毫秒
+     * @param ttl            毫秒，BLE 设备的超时时间
+     * @param classicTtl     毫秒，经典蓝牙发现的设备的超时时间，应不少于两轮发现（约 24 秒）
+     */
+    public void setDeviceTiming(long updateInterval, long ttl, long classicTtl) {
+        setDeviceTiming(updateInterval, ttl);
+        this.mDeviceTable.setClassicTtl(classicTtl);
+    }
+
+    /**
+     * 设置最大设备数，超出时淘汰最久未广播的设备并回调 {@link BluetoothDeviceListener#onDeviceLost}
+     *
+     * @param maxDevices
+     */
+    public void setMaxDevices(int maxDevices) {
+        this.mDeviceTable.setMaxSize(maxDevices);
+    }
+
+    /**
+     * 设置扫描配置，下次扫描生效
+     *
+     * @param config 为 null 时使用默认配置
+     */
+    public void setScanConfig(BluetoothScanConfig config) {
+        this.mScanConfig = config != null ? config : new BluetoothScanConfig();
+    }
+
+    /**
+     * 获取扫描到的设备
+     *
+     * @return
+     */
+    public List<BluetoothScanDevice> getDevices() {
+        return mDeviceTable.getDevices();
+    }
+
     /**
      * 设置蓝牙扫描过滤
      */
@@ -61,9 +150,23 @@ public class BluetoothScanner {
                     @Override
                     public void onScanResult(int callbackType, ScanResult result) {
                         super.onScanResult(callbackType, result);
-                        BluetoothDevice device = result.getDevice();
-                        if (mScanListener != null && mDeviceSet.add(device)) {
-                            mScanListener.onScanDevice(device);
+                        onLeScanResult(result);
+                    }
+
+                    @Override
+                    public void onBatchScanResults(List<ScanResult> results) {
+                        super.onBatchScanResults(results);
+                        for (ScanResult result : results) {
+                            onLeScanResult(result);
+                        }
+                    }
+
+                    @Override
+                    public void onScanFailed(int errorCode) {
+                        super.onScanFailed(errorCode);
+                        BluetoothScanFailureListener listener = mScanFailureListener;
+                        if (listener != null) {
+                            listener.onScanFailed(errorCode);
                         }
                     }
                 };
@@ -71,21 +174,181 @@ public class BluetoothScanner {
         }
     }
 
+    /**
+     * BLE 扫描结果
+     *
+     * @param result
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void onLeScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        byte[] record = result.getScanRecord() != null ? result.getScanRecord().getBytes() : null;
+        BluetoothScanConfig config = mScanConfig;
+        if (config.hasSoftwareFilter()) {
+            BluetoothData data = record != null ? mParseCache.parse(record) : null;
+            if (!config.matches(device.getName(), device.getAddress(), data)) {
+                return;
+            }
+        }
+        mDeviceTable.update(device.getAddress(), device, result.getRssi(), record, SystemClock.elapsedRealtime());
+    }
+
     /**
      * 开启蓝牙扫描
+     * <p>
+     * 扫描期间不做超时淘汰，结束时回调扫描窗口内发现的全部设备。
      */
     public void scan(long time) {
-        mDeviceSet.clear();
-        registerReceiver();
-        mHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                unregisterReceiver();
-                if (mScanListener != null) {
-                    mScanListener.onScanFinish(new ArrayList<>(mDeviceSet));
-                }
+        mDeviceTable.clear();
+        mHandler.removeCallbacks(mExpireRunnable);
+        mHandler.removeCallbacks(mScanFinishRunnable);
+        registerReceiver(mScanConfig.isClassicDiscovery());
+        mHandler.postDelayed(mScanFinishRunnable, time);
+    }
+
+    /**
+     * 定时扫描结束
+     */
+    private final Runnable mScanFinishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            unregisterReceiver();
+            if (mScanListener != null) {
+                mScanListener.onScanFinish(getBluetoothDevices());
             }
-        }, time);
+        }
+    };
+
+    /**
+     * 持续扫描，直到 {@link #stopScan()}
+     * <p>
+     * 经典蓝牙发现结束后自动重新开始，设备通过 {@link BluetoothDeviceListener} 回调，超时未广播的设备被移除。
+     */
+    public void startScan() {
+        mHandler.removeCallbacksAndMessages(null);
+        mDeviceTable.clear();
+        isContinuous = true;
+        mScheduler = null;
+        registerReceiver(mScanConfig.isClassicDiscovery());
+        mHandler.postDelayed(mExpireRunnable, BluetoothDeviceTable.EXPIRE_TICK);
+    }
+
+    /**
+     * 按调度间歇扫描，直到 {@link #stopScan()}
+     * <p>
+     * 扫描窗口和空闲窗口交替，窗口长度和是否进行经典蓝牙发现由 {@link ScanScheduler} 根据新设备发现速率决定，
+     * 空闲窗口内设备表保留，超时设备照常移除。
+     *
+     * @param scheduler
+     */
+    public void startScan(ScanScheduler scheduler) {
+        mHandler.removeCallbacksAndMessages(null);
+        mDeviceTable.clear();
+        isContinuous = true;
+        mScheduler = scheduler;
+        mHandler.post(mActiveStartRunnable);
+        mHandler.postDelayed(mExpireRunnable, BluetoothDeviceTable.EXPIRE_TICK);
+    }
+
+    /**
+     * 扫描窗口开始
+     */
+    private final Runnable mActiveStartRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ScanScheduler scheduler = mScheduler;
+            if (!isContinuous || scheduler == null) {
+                return;
+            }
+            scheduler.onActiveStart();
+            registerReceiver(mScanConfig.isClassicDiscovery() && scheduler.isClassicEnabled());
+            mHandler.postDelayed(mActiveEndRunnable, scheduler.getActiveWindow());
+        }
+    };
+
+    /**
+     * 扫描窗口结束
+     */
+    private final Runnable mActiveEndRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ScanScheduler scheduler = mScheduler;
+            if (!isContinuous || scheduler == null) {
+                return;
+            }
+            unregisterReceiver();
+            scheduler.onActiveEnd();
+            mHandler.postDelayed(mActiveStartRunnable, scheduler.getIdleWindow());
+        }
+    };
+
+    /**
+     * 停止持续扫描
+     */
+    public void stopScan() {
+        if (!isContinuous) {
+            return;
+        }
+        isContinuous = false;
+        mScheduler = null;
+        mHandler.removeCallbacks(mExpireRunnable);
+        mHandler.removeCallbacks(mActiveStartRunnable);
+        mHandler.removeCallbacks(mActiveEndRunnable);
+        unregisterReceiver();
+    }
+
+    /**
+     * 暂停扫描，如连接期间避免扫描拖慢连接，可嵌套，与 {@link #resume()} 成对调用
+     */
+    public void pause() {
+        if (mPauseCount++ > 0 || !isRegistered) {
+            return;
+        }
+        boolean classic = isClassicActive;
+        unregisterReceiver();
+        isResumeRegister = true;
+        isResumeClassic = classic;
+    }
+
+    /**
+     * 恢复暂停前的扫描
+     */
+    public void resume() {
+        if (mPauseCount == 0 || --mPauseCount > 0) {
+            return;
+        }
+        if (isResumeRegister) {
+            isResumeRegister = false;
+            registerReceiver(isResumeClassic);
+        }
+    }
+
+    /**
+     * 是否暂停
+     *
+     * @return
+     */
+    public boolean isPaused() {
+        return mPauseCount > 0;
+    }
+
+    /**
+     * 是否持续扫描
+     *
+     * @return
+     */
+    public boolean isContinuous() {
+        return isContinuous;
+    }
+
+    private List<BluetoothDevice> getBluetoothDevices() {
+        List<BluetoothDevice> devices = new ArrayList<>();
+        for (BluetoothScanDevice device : mDeviceTable.getDevices()) {
+            if (device.getDevice() != null) {
+                devices.add(device.getDevice());
+            }
+        }
+        return devices;
     }
 
     /**
@@ -93,27 +356,97 @@ public class BluetoothScanner {
      */
     public void clear() {
         setScanListener(null);
+        setDeviceListener(null);
+        isContinuous = false;
+        mScheduler = null;
         unregisterReceiver();
         mHandler.removeCallbacksAndMessages(null);
-        mDeviceSet.clear();
+        mDeviceTable.clear();
     }
 
     /**
      * 注册蓝牙扫描广播
+     *
+     * @param classic 是否进行经典蓝牙发现
      */
-    private void registerReceiver() {
+    private void registerReceiver(boolean classic) {
+        if (mPauseCount > 0) {
+            isResumeRegister = true;
+            isResumeClassic = classic;
+            return;
+        }
+        if (isRegistered) {
+            // 重复注册会收到两份广播，BLE 扫描也会因已在扫描而失败
+            unregisterReceiver();
+        }
+        isRegistered = true;
         mContext.registerReceiver(mBluetoothReceiver, mIntentFilter);
-        mAdapter.startDiscovery();
+        isClassicActive = classic;
+        if (classic) {
+            mAdapter.startDiscovery();
+        }
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            mScanner.startScan(mScanCallback);
+            startLeScan(mScanConfig);
+        }
+    }
+
+    /**
+     * 按配置开启 BLE 扫描，过滤条件交给系统
+     * <p>
+     * 芯片不支持批量上报时改为逐条上报，机会扫描模式在 6.0 以下改为低功耗模式，否则系统拒绝扫描。
+     *
+     * @param config
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void startLeScan(BluetoothScanConfig config) {
+        int scanMode = config.getScanMode();
+        if (scanMode == BluetoothScanConfig.SCAN_MODE_OPPORTUNISTIC && Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            scanMode = BluetoothScanConfig.SCAN_MODE_LOW_POWER;
+        }
+        long reportDelay = config.getReportDelay();
+        if (reportDelay > 0 && !mAdapter.isOffloadedScanBatchingSupported()) {
+            reportDelay = 0;
+        }
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(scanMode)
+                .setReportDelay(reportDelay)
+                .build();
+        List<ScanFilter> filters = null;
+        if (!config.getFilters().isEmpty()) {
+            filters = new ArrayList<>();
+            for (BluetoothScanConfig.Filter filter : config.getFilters()) {
+                ScanFilter.Builder builder = new ScanFilter.Builder();
+                if (filter.getName() != null) {
+                    builder.setDeviceName(filter.getName());
+                }
+                if (filter.getAddress() != null) {
+                    // 系统只接受大写地址
+                    builder.setDeviceAddress(filter.getAddress().toUpperCase(Locale.US));
+                }
+                if (filter.getServiceUuid() != null) {
+                    builder.setServiceUuid(new ParcelUuid(filter.getServiceUuid()));
+                }
+                if (filter.getManufacturerId() >= 0) {
+                    byte[] data = filter.getManufacturerData() != null ? filter.getManufacturerData() : new byte[0];
+                    builder.setManufacturerData(filter.getManufacturerId(), data, filter.getManufacturerMask());
+                }
+                filters.add(builder.build());
+            }
         }
+        mScanner.startScan(filters, settings, mScanCallback);
     }
 
     /**
      * 注销蓝牙扫描广播
      */
     private void unregisterReceiver() {
+        isResumeRegister = false;
+        isClassicActive = false;
         mAdapter.cancelDiscovery();
+        if (!isRegistered) {
+            return;
+        }
+        isRegistered = false;
         try {
             mContext.unregisterReceiver(mBluetoothReceiver);
         } catch (IllegalArgumentException e) {
@@ -124,25 +457,85 @@ public class BluetoothScanner {
         }
     }
 
+    /**
+     * 设备超时检查
+     */
+    private final Runnable mExpireRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mDeviceTable.expire(SystemClock.elapsedRealtime());
+            mHandler.postDelayed(this, BluetoothDeviceTable.EXPIRE_TICK);
+        }
+    };
+
+    /**
+     * 设备表事件转发
+     */
+    private final BluetoothDeviceListener mTableListener = new BluetoothDeviceListener() {
+        @Override
+        public void onDeviceFound(BluetoothScanDevice device) {
+            ScanScheduler scheduler = mScheduler;
+            if (scheduler != null) {
+                scheduler.onDeviceFound(device.getAddress(), device.isClassic());
+            }
+            ScanListener scanListener = mScanListener;
+            if (scanListener != null && device.getDevice() != null) {
+                scanListener.onScanDevice(device.getDevice());
+            }
+            BluetoothDeviceListener listener = mDeviceListener;
+            if (listener != null) {
+                listener.onDeviceFound(device);
+            }
+        }
+
+        @Override
+        public void onDeviceUpdated(BluetoothScanDevice device) {
+            BluetoothDeviceListener listener = mDeviceListener;
+            if (listener != null) {
+                listener.onDeviceUpdated(device);
+            }
+        }
+
+        @Override
+        public void onDeviceLost(BluetoothScanDevice device) {
+            BluetoothDeviceListener listener = mDeviceListener;
+            if (listener != null) {
+                listener.onDeviceLost(device);
+            }
+        }
+    };
+
     /**
      * 蓝牙广播接收
      */
     public BroadcastReceiver mBluetoothReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (mScanListener == null) {
-                return;
-            }
             String action = intent.getAction();
             if (BluetoothDevice.ACTION_FOUND.equals(action)) {
                 BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-                if (mDeviceSet.add(device)) {
-                    mScanListener.onScanDevice(device);
+                BluetoothScanConfig config = mScanConfig;
+                if (config.hasSoftwareFilter() && !config.matches(device.getName(), device.getAddress(), null)) {
+                    return;
                 }
-            } else if (BluetoothAdapter.ACTION_DISCOVERY_STARTED.equals(action)) {
+                short rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+                mDeviceTable.update(device.getAddress(), device, rssi != Short.MIN_VALUE ? rssi : BluetoothScanDevice.NO_RSSI,
+                        null, true, SystemClock.elapsedRealtime());
+                return;
+            }
+            if (isContinuous && BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(action)) {
+                if (isClassicActive) {
+                    mAdapter.startDiscovery();
+                }
+                return;
+            }
+            if (mScanListener == null) {
+                return;
+            }
+            if (BluetoothAdapter.ACTION_DISCOVERY_STARTED.equals(action)) {
                 mScanListener.onScanStart();
             } else if (BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(action)) {
-                mScanListener.onScanFinish(new ArrayList<>(mDeviceSet));
+                mScanListener.onScanFinish(getBluetoothDevices());
             }
         }
     };
@@ -2,44 +2,135 @@ package com.liuhanling.bluetooth;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothServerSocket;
 import android.bluetooth.BluetoothSocket;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
 
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
 import com.liuhanling.bluetooth.constant.Constants;
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+import com.liuhanling.bluetooth.frame.FrameDecoder;
+import com.liuhanling.bluetooth.frame.FrameDecoderFactory;
+import com.liuhanling.bluetooth.frame.FrameDecoders;
+import com.liuhanling.bluetooth.listener.BluetoothWritabilityListener;
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+import com.liuhanling.bluetooth.request.RequestCorrelator;
+import com.liuhanling.bluetooth.request.RequestPipeline;
+import com.liuhanling.bluetooth.request.ResponseFuture;
+import com.liuhanling.bluetooth.service.IoScheduler;
+import com.liuhanling.bluetooth.transport.RfcommTransportFactory;
+import com.liuhanling.bluetooth.transport.Transport;
+import com.liuhanling.bluetooth.transport.TransportFactory;
+import com.liuhanling.bluetooth.transport.TransportServer;
+import com.liuhanling.bluetooth.write.CreditParser;
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.StringEncoder;
+import com.liuhanling.bluetooth.write.WriteQueue;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BluetoothService {
 
     private final Handler mHandler;
-    private final BluetoothAdapter mAdapter;
+    private final IoScheduler mScheduler;
 
-    private AcceptThread mAcceptThread;
-    private ConnectThread mConnectThread;
-    private ReceiveThread mReceiveThread;
+    public static final int DEFAULT_MAX_CONNECTIONS = 7;
 
-    private boolean mIsAndroid = false;
-    private int mState = BluetoothState.STATE_NONE;
+    private AcceptTask mAcceptTask;
+    private final ConcurrentHashMap<String, ConnectTask> mConnectTasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ReceiveTask> mSessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FrameDecoderFactory> mSessionDecoders = new ConcurrentHashMap<>();
+    private volatile ReceiveTask mCurrentSession;
+    private volatile boolean isMultiConnection = false;
+    private volatile int mMaxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    // 连接配置，成组的配置在锁内设置，收发任务在锁内创建时读取，收发线程读取的配置为 volatile
+    private volatile FrameDecoderFactory mFrameDecoderFactory = FrameDecoders.crlf();
+    private volatile int mWriteCapacity = WriteQueue.DEFAULT_CAPACITY;
+    private volatile int mWriteMtu = WriteQueue.DEFAULT_MTU;
+    private volatile OverflowPolicy mOverflowPolicy = OverflowPolicy.FAIL_FAST;
+    private volatile int mLowWatermark = WriteQueue.DEFAULT_LOW_WATERMARK;
+    private volatile int mHighWatermark = WriteQueue.DEFAULT_HIGH_WATERMARK;
+    private volatile BluetoothWritabilityListener mWritabilityListener;
+    private volatile CreditParser mCreditParser;
+    private volatile int mInitialCredits;
+    private volatile ByteArrayPool mFramePool;
+    private volatile int mRequestWindow = RequestPipeline.DEFAULT_WINDOW;
+    private volatile RequestCorrelator mRequestCorrelator;
+    private volatile Charset mCharset = Charset.defaultCharset();
+    private volatile ReceiveDispatcher mReceiveDispatcher;
+    private volatile ConnectHook mConnectHook;
+    private volatile TransportFactory mTransportFactory;
+    private volatile BluetoothMetrics mMetrics;
+    private TransportFactory mRfcommFactory;
+    private volatile boolean mIsAndroid = false;
+    private volatile int mState = BluetoothState.STATE_NONE;
+    /** 锁内取消的会话，释放锁后关闭发送队列和请求管线，回调失败 */
+    private final ArrayList<ReceiveTask> mClosingTasks = new ArrayList<>();
+
+    /**
+     * 合法的状态转换，[from][to]，相同状态不算转换
+     * <p>
+     * 停止后只能重新监听或主动连接，不能直接进入已连接，避免停止前发起的连接在停止后落地。
+     */
+    private static final boolean[][] TRANSITIONS = {
+            /* NONE       */ {false, true, true, false},
+            /* LISTEN     */ {true, false, true, true},
+            /* CONNECTING */ {true, true, false, true},
+            /* CONNECTED  */ {true, true, true, false},
+    };
 
     public BluetoothService(Handler handler) {
+        this(handler, IoScheduler.getDefault());
+    }
+
+    public BluetoothService(Handler handler, IoScheduler scheduler) {
         this.mHandler = handler;
-        this.mAdapter = BluetoothAdapter.getDefaultAdapter();
+        this.mScheduler = scheduler;
     }
 
     /**
-     * 设置状态
+     * 设置状态，每次实际转换只发一次状态消息
+     * <p>
+     * 调用方持有 this 锁，转换由锁串行，状态消息的顺序与转换顺序一致；读状态不加锁。
+     * 状态消息经 Handler 投递，锁内不回调监听。
      *
      * @param state
+     * @return 是否转换，相同状态或非法转换时为 false
      */
-    private synchronized void setState(int state) {
+    private boolean setState(int state) {
+        if (!isLegalTransition(mState, state)) {
+            return false;
+        }
         mState = state;
-        mHandler.obtainMessage(BluetoothState.MESSAGE_STATE_CHANGE, state, -1).sendToTarget();
+        if (mHandler != null) {
+            mHandler.obtainMessage(BluetoothState.MESSAGE_STATE_CHANGE, state, -1).sendToTarget();
+        }
+        return true;
+    }
+
+    /**
+     * 是否合法的状态转换
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    static boolean isLegalTransition(int from, int to) {
+        return TRANSITIONS[from][to];
     }
 
     /**
@@ -47,7 +138,7 @@ public class BluetoothService {
      *
      * @return
      */
-    public synchronized int getState() {
+    public int getState() {
         return mState;
     }
 
@@ -56,7 +147,7 @@ public class BluetoothService {
      *
      * @return
      */
-    public synchronized boolean isConnected() {
+    public boolean isConnected() {
         return mState == BluetoothState.STATE_CONNECTED;
     }
 
@@ -65,7 +156,7 @@ public class BluetoothService {
      *
      * @return
      */
-    public synchronized boolean isConnecting() {
+    public boolean isConnecting() {
         return mState == BluetoothState.STATE_CONNECTING;
     }
 
@@ -74,7 +165,7 @@ public class BluetoothService {
      *
      * @return
      */
-    public synchronized boolean isStopped() {
+    public boolean isStopped() {
         return mState == BluetoothState.STATE_NONE;
     }
 
@@ -92,23 +183,248 @@ public class BluetoothService {
      *
      * @return
      */
-    public void setAndroid(boolean isAndroid) {
+    public synchronized void setAndroid(boolean isAndroid) {
+        if (mIsAndroid != isAndroid) {
+            mRfcommFactory = null;
+        }
         mIsAndroid = isAndroid;
     }
 
+    /**
+     * 设置传输方式，下次监听或连接生效
+     *
+     * @param factory 为 null 时使用蓝牙 RFCOMM
+     */
+    public void setTransportFactory(TransportFactory factory) {
+        mTransportFactory = factory;
+    }
+
+    /**
+     * 获取传输方式
+     *
+     * @return
+     */
+    public synchronized TransportFactory getTransportFactory() {
+        TransportFactory factory = mTransportFactory;
+        if (factory != null) {
+            return factory;
+        }
+        if (mRfcommFactory == null) {
+            UUID uuid = mIsAndroid ? Constants.UUID_ANDROID : Constants.UUID_OTHER;
+            UUID other = mIsAndroid ? Constants.UUID_OTHER : Constants.UUID_ANDROID;
+            mRfcommFactory = new RfcommTransportFactory(BluetoothAdapter.getDefaultAdapter(), Constants.NAME_SECURE, uuid, uuid, other);
+        }
+        return mRfcommFactory;
+    }
+
+    /**
+     * 获取分帧方式
+     *
+     * @return
+     */
+    public FrameDecoderFactory getFrameDecoderFactory() {
+        return mFrameDecoderFactory;
+    }
+
+    /**
+     * 设置分帧方式，下次连接生效
+     *
+     * @param factory
+     */
+    public void setFrameDecoderFactory(FrameDecoderFactory factory) {
+        mFrameDecoderFactory = factory != null ? factory : FrameDecoders.crlf();
+    }
+
+    /**
+     * 设置单个设备的分帧方式，下次连接该设备时生效
+     *
+     * @param address
+     * @param factory 为 null 时使用默认分帧方式
+     */
+    public void setFrameDecoderFactory(String address, FrameDecoderFactory factory) {
+        if (factory != null) {
+            mSessionDecoders.put(address, factory);
+        } else {
+            mSessionDecoders.remove(address);
+        }
+    }
+
+    /**
+     * 是否多连接模式
+     *
+     * @return
+     */
+    public boolean isMultiConnection() {
+        return isMultiConnection;
+    }
+
+    /**
+     * 设置多连接模式，同时保持多个设备的连接，每个设备独立分帧、发送队列和统计
+     *
+     * @param multiConnection
+     * @param maxConnections  最大连接数
+     */
+    public synchronized void setMultiConnection(boolean multiConnection, int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections: " + maxConnections);
+        }
+        isMultiConnection = multiConnection;
+        mMaxConnections = maxConnections;
+    }
+
+    /**
+     * 设置发送队列，下次连接生效
+     *
+     * @param capacity 队列容量
+     * @param mtu      合并写出的最大长度
+     * @param policy   队列满时的处理方式
+     */
+    public synchronized void setWriteQueue(int capacity, int mtu, OverflowPolicy policy) {
+        if (capacity <= 0 || mtu <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity + ", mtu: " + mtu);
+        }
+        mWriteCapacity = capacity;
+        mWriteMtu = mtu;
+        mOverflowPolicy = policy != null ? policy : OverflowPolicy.FAIL_FAST;
+    }
+
+    /**
+     * 设置发送水位，下次连接生效
+     *
+     * @param low  待发送字节数降到该值以下时恢复可写
+     * @param high 待发送字节数超过该值时不可写
+     */
+    public synchronized void setWriteWatermarks(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("low: " + low + ", high: " + high);
+        }
+        mLowWatermark = low;
+        mHighWatermark = high;
+    }
+
+    /**
+     * 设置可写状态监听
+     *
+     * @param listener
+     */
+    public void setWritabilityListener(BluetoothWritabilityListener listener) {
+        mWritabilityListener = listener;
+    }
+
+    /**
+     * 设置信用模式，下次连接生效
+     *
+     * @param parser         识别对端授予信用的控制帧，为 null 时关闭信用模式
+     * @param initialCredits 连接后的初始信用
+     */
+    public synchronized void setCreditMode(CreditParser parser, int initialCredits) {
+        if (initialCredits < 0) {
+            throw new IllegalArgumentException("initialCredits: " + initialCredits);
+        }
+        mCreditParser = parser;
+        mInitialCredits = initialCredits;
+    }
+
+    /**
+     * 设置请求应答，下次连接生效
+     *
+     * @param window     在途请求数上限
+     * @param correlator 为 null 时按发送顺序匹配应答
+     */
+    public synchronized void setRequestConfig(int window, RequestCorrelator correlator) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window: " + window);
+        }
+        mRequestWindow = window;
+        mRequestCorrelator = correlator;
+    }
+
+    /**
+     * 设置接收帧缓冲池，非 null 时以 {@link BluetoothFrame} 回传数据帧
+     *
+     * @param pool
+     */
+    public void setFramePool(ByteArrayPool pool) {
+        mFramePool = pool;
+    }
+
+    /**
+     * 设置接收字符集
+     *
+     * @param charset
+     */
+    public void setCharset(Charset charset) {
+        mCharset = charset != null ? charset : Charset.defaultCharset();
+    }
+
+    /**
+     * 设置接收分发，为 null 时经 Handler 回传
+     *
+     * @param dispatcher
+     */
+    void setReceiveDispatcher(ReceiveDispatcher dispatcher) {
+        mReceiveDispatcher = dispatcher;
+    }
+
+    /**
+     * 设置连接前后的回调，用于连接期间暂停扫描
+     *
+     * @param hook
+     */
+    void setConnectHook(ConnectHook hook) {
+        mConnectHook = hook;
+    }
+
+    /**
+     * 开关统计，关闭时收发路径不做任何统计
+     *
+     * @param enabled
+     */
+    public synchronized void setMetricsEnabled(boolean enabled) {
+        if (enabled == (mMetrics != null)) {
+            return;
+        }
+        mMetrics = enabled ? new BluetoothMetrics() : null;
+        for (ReceiveTask task : mSessions.values()) {
+            task.mWriteQueue.setLatencyHistogram(enabled ? mMetrics.mWriteLatency : null);
+        }
+    }
+
+    /**
+     * 获取统计
+     *
+     * @return 未开启时为 null
+     */
+    public BluetoothMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 获取统计快照，速率按上次快照以来计算
+     *
+     * @return 未开启时为 null
+     */
+    public BluetoothMetrics.Snapshot getMetricsSnapshot() {
+        BluetoothMetrics metrics = mMetrics;
+        return metrics != null ? metrics.snapshot(getSessions()) : null;
+    }
+
     /**
      * 开启服务
      *
      * @param isAndroid
      */
-    public synchronized void start(boolean isAndroid) {
-        closeConnect();
-        closeReceive();
-        setState(BluetoothState.STATE_LISTEN);
-        if (mAcceptThread == null) {
-            setAndroid(isAndroid);
-            startAccept();
+    public void start(boolean isAndroid) {
+        synchronized (this) {
+            closeConnect();
+            closeReceive();
+            setState(BluetoothState.STATE_LISTEN);
+            if (mAcceptTask == null) {
+                setAndroid(isAndroid);
+                startAccept();
+            }
         }
+        finishClosing();
     }
 
     /**
@@ -121,11 +437,14 @@ public class BluetoothService {
     /**
      * 停止服务
      */
-    public synchronized void stop() {
-        closeConnect();
-        closeReceive();
-        closeAccept();
-        setState(BluetoothState.STATE_NONE);
+    public void stop() {
+        synchronized (this) {
+            closeConnect();
+            closeReceive();
+            closeAccept();
+            setState(BluetoothState.STATE_NONE);
+        }
+        finishClosing();
     }
 
     /**
@@ -133,13 +452,33 @@ public class BluetoothService {
      *
      * @param device
      */
-    public synchronized void connect(BluetoothDevice device) {
-        if (isConnecting()) {
-            closeConnect();
+    public void connect(BluetoothDevice device) {
+        connect(device.getAddress());
+    }
+
+    /**
+     * 连接设备
+     *
+     * @param address
+     */
+    public void connect(String address) {
+        synchronized (this) {
+            if (isMultiConnection) {
+                closeConnect(address);
+                if (startConnect(address) && mSessions.isEmpty()) {
+                    setState(BluetoothState.STATE_CONNECTING);
+                }
+            } else {
+                if (isConnecting()) {
+                    closeConnect();
+                }
+                closeReceive();
+                if (startConnect(address)) {
+                    setState(BluetoothState.STATE_CONNECTING);
+                }
+            }
         }
-        closeReceive();
-        startConnect(device);
-        setState(BluetoothState.STATE_CONNECTING);
+        finishClosing();
     }
 
     /**
@@ -148,49 +487,240 @@ public class BluetoothService {
      * @param socket
      * @param device
      */
-    public synchronized void connected(BluetoothSocket socket, BluetoothDevice device) {
-        closeConnect();
-        closeReceive();
-        closeAccept();
+    public void connected(BluetoothSocket socket, BluetoothDevice device) {
+        connected(RfcommTransportFactory.wrap(socket));
+    }
+
+    /**
+     * 连接设备
+     *
+     * @param transport 已连接的通道
+     */
+    public void connected(Transport transport) {
+        connected(transport, null);
+        finishClosing();
+    }
+
+    /**
+     * 连接设备
+     *
+     * @param transport 已连接的通道
+     * @param task      主动连接的任务，被动连接时为 null
+     */
+    private synchronized void connected(Transport transport, ConnectTask task) {
+        String address = transport.getAddress();
+        if (isStopped()) {
+            try {
+                transport.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (isMultiConnection) {
+            closeConnect(address);
+            closeReceive(address);
+            if (mSessions.size() >= mMaxConnections) {
+                try {
+                    transport.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                sendMessage(BluetoothState.MESSAGE_CONNECT_FAILED, address);
+                return;
+            }
+        } else {
+            closeConnect();
+            closeReceive();
+            closeAccept();
+        }
 
-        startReceive(socket);
+        ReceiveTask receiveTask = startReceive(transport, task);
+        if (receiveTask == null) {
+            onConnectFailed(address);
+            return;
+        }
+        BluetoothMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onConnected(address, receiveTask.mSession);
+        }
 
-        Bundle bundle = new Bundle();
-        bundle.putString(Constants.DEVICE_NAME, device.getName());
-        bundle.putString(Constants.DEVICE_ADDR, device.getAddress());
-        Message message = mHandler.obtainMessage(BluetoothState.MESSAGE_CONNECTED);
-        message.setData(bundle);
-        mHandler.sendMessage(message);
+        if (mHandler != null) {
+            Bundle bundle = new Bundle();
+            bundle.putString(Constants.DEVICE_NAME, receiveTask.mSession.getName());
+            bundle.putString(Constants.DEVICE_ADDR, address);
+            Message message = mHandler.obtainMessage(BluetoothState.MESSAGE_CONNECTED);
+            message.setData(bundle);
+            mHandler.sendMessage(message);
+        }
 
         setState(BluetoothState.STATE_CONNECTED);
     }
 
     /**
-     * 开始监听线程
+     * 收到连接，已停止或单连接模式下已连接时关闭
+     *
+     * @param transport
+     */
+    private void accepted(Transport transport) {
+        synchronized (this) {
+            if (isStopped() || (isConnected() && !isMultiConnection)) {
+                try {
+                    transport.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            connected(transport, null);
+        }
+        finishClosing();
+    }
+
+    /**
+     * 连接失败
+     *
+     * @param task
+     */
+    private void connectFailed(ConnectTask task) {
+        synchronized (this) {
+            if (!mConnectTasks.remove(task.mAddress, task)) {
+                return;
+            }
+            onConnectFailed(task.mAddress);
+        }
+        finishClosing();
+    }
+
+    /**
+     * 回调连接失败，单连接模式下重新监听
+     *
+     * @param address
+     */
+    private void onConnectFailed(String address) {
+        BluetoothMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.mConnectFailures.incrementAndGet();
+        }
+        sendMessage(BluetoothState.MESSAGE_CONNECT_FAILED, address);
+        if (!isMultiConnection) {
+            restart();
+        } else if (mSessions.isEmpty() && mConnectTasks.isEmpty()) {
+            setState(BluetoothState.STATE_LISTEN);
+        }
+    }
+
+    /**
+     * 连接断开
+     *
+     * @param task
+     */
+    private void connectionLost(ReceiveTask task) {
+        synchronized (this) {
+            if (!mSessions.remove(task.mAddress, task)) {
+                return;
+            }
+            if (mCurrentSession == task) {
+                mCurrentSession = null;
+            }
+            BluetoothMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.mDisconnects.incrementAndGet();
+            }
+            sendMessage(BluetoothState.MESSAGE_DISCONNECTED, task.mAddress);
+            if (!isMultiConnection) {
+                restart();
+            } else if (mSessions.isEmpty()) {
+                setState(mConnectTasks.isEmpty() ? BluetoothState.STATE_LISTEN : BluetoothState.STATE_CONNECTING);
+            }
+        }
+        finishClosing();
+    }
+
+    /**
+     * 开始监听任务
      */
     public void startAccept() {
-        mAcceptThread = new AcceptThread();
-        mAcceptThread.start();
+        AcceptTask task = new AcceptTask();
+        mAcceptTask = task.start() ? task : null;
     }
 
     /**
-     * 开始连接线程
+     * 开始连接任务，线程池已满时回调连接失败
      *
-     * @param device
+     * @param address
+     * @return 是否开始
      */
-    public void startConnect(BluetoothDevice device) {
-        mConnectThread = new ConnectThread(device);
-        mConnectThread.start();
+    public boolean startConnect(String address) {
+        ConnectTask task = new ConnectTask(address);
+        ConnectTask previous = mConnectTasks.put(task.mAddress, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (!task.start()) {
+            connectFailed(task);
+            return false;
+        }
+        return true;
     }
 
     /**
-     * 开始读写线程
+     * 开始读写任务
      *
-     * @param socket
+     * @param transport
+     * @param connectTask 主动连接的任务，被动连接时为 null
+     * @return 线程池已满时关闭通道，返回 null
+     */
+    private ReceiveTask startReceive(Transport transport, ConnectTask connectTask) {
+        ReceiveTask task = new ReceiveTask(transport, connectTask);
+        ReceiveTask previous = mSessions.put(task.mAddress, task);
+        if (previous != null) {
+            cancelReceive(previous);
+        }
+        mCurrentSession = task;
+        if (!task.start()) {
+            mSessions.remove(task.mAddress, task);
+            if (mCurrentSession == task) {
+                mCurrentSession = null;
+            }
+            cancelReceive(task);
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * 获取最近连接的会话
+     *
+     * @return 未连接时为 null
+     */
+    public BluetoothSession getSession() {
+        ReceiveTask task = mCurrentSession;
+        return task != null ? task.mSession : null;
+    }
+
+    /**
+     * 获取会话
+     *
+     * @param address
+     * @return 未连接时为 null
      */
-    public void startReceive(BluetoothSocket socket) {
-        mReceiveThread = new ReceiveThread(socket);
-        mReceiveThread.start();
+    public BluetoothSession getSession(String address) {
+        ReceiveTask task = mSessions.get(address);
+        return task != null ? task.mSession : null;
+    }
+
+    /**
+     * 获取所有会话
+     *
+     * @return
+     */
+    public List<BluetoothSession> getSessions() {
+        List<BluetoothSession> sessions = new ArrayList<>(mSessions.size());
+        for (ReceiveTask task : mSessions.values()) {
+            sessions.add(task.mSession);
+        }
+        return sessions;
     }
 
     /**
@@ -199,13 +729,114 @@ public class BluetoothService {
      * @param buffer
      */
     public void write(byte[] buffer) {
-        synchronized (this) {
-            if (!isConnected()) {
-                sendMessage(BluetoothState.MESSAGE_TOAST, "发送失败！");
-                return;
+        write(buffer, null);
+    }
+
+    /**
+     * 发数据包，数据入队后立即返回，由发送线程写出
+     *
+     * @param buffer
+     * @param listener 发送结果，可为 null
+     * @return 是否入队
+     */
+    public boolean write(byte[] buffer, BluetoothWriteListener listener) {
+        return write(new ByteBuffer[]{ByteBuffer.wrap(buffer)}, null, listener);
+    }
+
+    /**
+     * 发分段数据包到最近连接的设备，各分段依次写出，不做拼接
+     *
+     * @param segments 写出前不可修改
+     * @param recycler 非 null 时，发送结束后把 segments[0] 的数组归还
+     * @param listener 发送结果，可为 null
+     * @return 是否入队
+     */
+    public boolean write(ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        return write(mCurrentSession, segments, recycler, listener);
+    }
+
+    /**
+     * 发分段数据包到指定设备
+     *
+     * @param address
+     * @param segments 写出前不可修改
+     * @param recycler 非 null 时，发送结束后把 segments[0] 的数组归还
+     * @param listener 发送结果，可为 null
+     * @return 是否入队
+     */
+    public boolean write(String address, ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        return write(mSessions.get(address), segments, recycler, listener);
+    }
+
+    /**
+     * 发字符串，编码到 encoder 的池化数组后入队
+     *
+     * @param address  为 null 时发到最近连接的设备
+     * @param data
+     * @param suffix   追加的后缀，可为 null
+     * @param encoder
+     * @param listener 发送结果，可为 null
+     * @return 是否入队
+     */
+    public boolean write(String address, CharSequence data, byte[] suffix, StringEncoder encoder, BluetoothWriteListener listener) {
+        ReceiveTask task = address != null ? mSessions.get(address) : mCurrentSession;
+        if (task == null || !isConnected()) {
+            sendMessage(BluetoothState.MESSAGE_TOAST, "发送失败！");
+            if (listener != null) {
+                listener.onWriteFailure(new IOException("Not connected"));
+            }
+            return false;
+        }
+        return task.mWriteQueue.offer(data, suffix, encoder, listener);
+    }
+
+    /**
+     * 发到调用时取得的会话，不加锁；会话随后断开时由发送队列回调失败
+     */
+    private boolean write(ReceiveTask task, ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        if (task == null || !isConnected()) {
+            sendMessage(BluetoothState.MESSAGE_TOAST, "发送失败！");
+            if (recycler != null && segments[0].hasArray()) {
+                recycler.release(segments[0].array());
             }
+            if (listener != null) {
+                listener.onWriteFailure(new IOException("Not connected"));
+            }
+            return false;
+        }
+        return task.write(segments, recycler, listener);
+    }
+
+    /**
+     * 发请求到最近连接的设备，应答帧不再按普通数据回调
+     *
+     * @param data     请求数据，用于取请求编号
+     * @param segments 实际写出的分段，写出前不可修改
+     * @param timeout  毫秒
+     * @return
+     */
+    public ResponseFuture request(byte[] data, ByteBuffer[] segments, long timeout) {
+        return request(mCurrentSession, data, segments, timeout);
+    }
+
+    /**
+     * 发请求到指定设备
+     *
+     * @param address
+     * @param data     请求数据，用于取请求编号
+     * @param segments 实际写出的分段，写出前不可修改
+     * @param timeout  毫秒
+     * @return
+     */
+    public ResponseFuture request(String address, byte[] data, ByteBuffer[] segments, long timeout) {
+        return request(mSessions.get(address), data, segments, timeout);
+    }
+
+    private ResponseFuture request(ReceiveTask task, byte[] data, ByteBuffer[] segments, long timeout) {
+        if (task == null || !isConnected()) {
+            return RequestPipeline.failed(new IOException("Not connected"));
         }
-        mReceiveThread.write(buffer);
+        return task.mRequests.request(data, segments, timeout);
     }
 
     /**
@@ -224,90 +855,147 @@ public class BluetoothService {
      * 停止监听
      */
     private void closeAccept() {
-        if (mAcceptThread != null) {
-            mAcceptThread.cancel();
-            mAcceptThread = null;
+        if (mAcceptTask != null) {
+            mAcceptTask.cancel();
+            mAcceptTask = null;
         }
     }
 
     /**
-     * 停止连接
+     * 停止所有连接
      */
     private void closeConnect() {
-        if (mConnectThread != null) {
-            mConnectThread.cancel();
-            mConnectThread = null;
+        for (ConnectTask task : mConnectTasks.values()) {
+            closeConnect(task.mAddress);
         }
     }
 
     /**
-     * 停止接收
+     * 停止连接
+     *
+     * @param address
+     */
+    private void closeConnect(String address) {
+        ConnectTask task = mConnectTasks.remove(address);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * 停止所有接收
      */
     private void closeReceive() {
-        if (mReceiveThread != null) {
-            mReceiveThread.cancel();
-            mReceiveThread = null;
+        for (ReceiveTask task : mSessions.values()) {
+            closeReceive(task.mAddress);
+        }
+    }
+
+    /**
+     * 停止接收
+     *
+     * @param address
+     */
+    private void closeReceive(String address) {
+        ReceiveTask task = mSessions.remove(address);
+        if (task != null) {
+            if (mCurrentSession == task) {
+                mCurrentSession = null;
+            }
+            cancelReceive(task);
+        }
+    }
+
+    /**
+     * 锁内取消会话，发送队列和请求管线留到释放锁后关闭，失败回调不在锁内执行
+     *
+     * @param task
+     */
+    private void cancelReceive(ReceiveTask task) {
+        if (task.cancel()) {
+            mClosingTasks.add(task);
+        }
+    }
+
+    /**
+     * 释放锁后关闭已取消会话的发送队列和请求管线，嵌套在锁内调用时由最外层处理
+     */
+    private void finishClosing() {
+        if (Thread.holdsLock(this)) {
+            return;
+        }
+        ArrayList<ReceiveTask> tasks;
+        synchronized (this) {
+            if (mClosingTasks.isEmpty()) {
+                return;
+            }
+            tasks = new ArrayList<>(mClosingTasks);
+            mClosingTasks.clear();
+        }
+        for (ReceiveTask task : tasks) {
+            task.closeQueues();
         }
     }
 
     /**
-     * 蓝牙SDP服务
+     * 蓝牙SDP服务任务
      */
-    private class AcceptThread extends Thread {
+    private class AcceptTask implements Runnable {
 
-        private BluetoothServerSocket mServerSocket;
-        private boolean isRunning = true;
+        private volatile TransportServer mServer;
+        private volatile Future<?> mFuture;
+        private volatile boolean isRunning = true;
 
-        public AcceptThread() {
-            BluetoothServerSocket serverSocket = null;
+        public AcceptTask() {
+            TransportServer server = null;
             try {
-                if (isAndroid()) {
-                    serverSocket = mAdapter.listenUsingRfcommWithServiceRecord(Constants.NAME_SECURE, Constants.UUID_ANDROID);
-                } else {
-                    serverSocket = mAdapter.listenUsingRfcommWithServiceRecord(Constants.NAME_SECURE, Constants.UUID_OTHER);
-                }
+                server = getTransportFactory().listen();
             } catch (IOException e) {
                 e.printStackTrace();
             }
-            mServerSocket = serverSocket;
+            mServer = server;
+        }
+
+        /**
+         * @return 线程池已满时关闭监听，返回 false
+         */
+        public boolean start() {
+            try {
+                mFuture = mScheduler.submit(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                e.printStackTrace();
+                cancel();
+                return false;
+            }
         }
 
+        @Override
         public void run() {
-            if (mServerSocket == null) return;
-            BluetoothSocket socket;
-            while (!isConnected() && isRunning) {
+            TransportServer server = mServer;
+            if (server == null) return;
+            Transport socket;
+            while ((isMultiConnection || !isConnected()) && isRunning) {
                 try {
-                    socket = mServerSocket.accept();
+                    socket = server.accept();
                 } catch (IOException e) {
                     //e.printStackTrace();
                     break;
                 }
                 if (socket != null) {
-                    synchronized (BluetoothService.class) {
-                        switch (BluetoothService.this.getState()) {
-                            case BluetoothState.STATE_LISTEN:
-                            case BluetoothState.STATE_CONNECTING:
-                                connected(socket, socket.getRemoteDevice());
-                                break;
-                            case BluetoothState.STATE_NONE:
-                            case BluetoothState.STATE_CONNECTED:
-                                try {
-                                    socket.close();
-                                } catch (IOException e) {
-                                    e.printStackTrace();
-                                }
-                                break;
-                        }
-                    }
+                    accepted(socket);
                 }
             }
         }
 
         public void cancel() {
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
             try {
-                if (mServerSocket != null) {
-                    mServerSocket.close();
-                    mServerSocket = null;
+                if (mServer != null) {
+                    mServer.close();
+                    mServer = null;
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -320,46 +1008,88 @@ public class BluetoothService {
     }
 
     /**
-     * 蓝牙连接线程
+     * 蓝牙连接任务，取消时关闭通道中断正在进行的连接
      */
-    private class ConnectThread extends Thread {
+    private class ConnectTask implements Runnable {
 
-        private final BluetoothSocket mSocket;
-        private final BluetoothDevice mDevice;
+        private final Transport mSocket;
+        private final String mAddress;
+        private volatile Future<?> mFuture;
+        private volatile boolean isCanceled = false;
+        private final long mStartTime = System.nanoTime();
+        private long mPrepareTime;
+        private long mConnectDuration;
 
-        public ConnectThread(BluetoothDevice device) {
-            this.mDevice = device;
-            BluetoothSocket socket = null;
+        public ConnectTask(String address) {
+            this.mAddress = address;
+            Transport socket = null;
             try {
-                if (isAndroid()) {
-                    socket = device.createRfcommSocketToServiceRecord(Constants.UUID_ANDROID);
-                } else {
-                    socket = device.createRfcommSocketToServiceRecord(Constants.UUID_OTHER);
-                }
-            } catch (IOException e) {
+                socket = getTransportFactory().createTransport(address);
+            } catch (IOException | IllegalArgumentException e) {
+                // 地址无效时按连接失败处理，不抛给调用线程
                 e.printStackTrace();
             }
             mSocket = socket;
         }
 
+        /**
+         * @return 线程池已满时关闭通道，返回 false
+         */
+        public boolean start() {
+            try {
+                mFuture = mScheduler.submit(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                e.printStackTrace();
+                cancel();
+                return false;
+            }
+        }
+
+        @Override
         public void run() {
-            if (mSocket == null) {
+            if (isCanceled) {
                 return;
             }
-            try {
-                mSocket.connect();
-            } catch (IOException e) {
-                e.printStackTrace();
-                restart();
+            if (mSocket == null) {
+                connectFailed(this);
                 return;
             }
-            synchronized (BluetoothService.this) {
-                mConnectThread = null;
+            ConnectHook hook = mConnectHook;
+            if (hook != null) {
+                hook.onConnectStart(mAddress);
+            }
+            try {
+                long connectStart = System.nanoTime();
+                mPrepareTime = (connectStart - mStartTime) / 1000000;
+                try {
+                    mSocket.connect();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    connectFailed(this);
+                    return;
+                }
+                mConnectDuration = (System.nanoTime() - connectStart) / 1000000;
+                synchronized (BluetoothService.this) {
+                    if (!mConnectTasks.remove(mAddress, this)) {
+                        cancel();
+                        return;
+                    }
+                    connected(mSocket, this);
+                }
+                finishClosing();
+            } finally {
+                if (hook != null) {
+                    hook.onConnectEnd(mAddress);
+                }
             }
-            connected(mSocket, mDevice);
         }
 
         public void cancel() {
+            isCanceled = true;
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
             try {
                 if (mSocket != null) {
                     mSocket.close();
@@ -371,16 +1101,30 @@ public class BluetoothService {
     }
 
     /**
-     * 蓝牙收发线程
+     * 蓝牙收发任务，一个连接会话一个
      */
-    private class ReceiveThread extends Thread {
+    private class ReceiveTask implements Runnable, FrameDecoder.FrameListener, WriteQueue.WritabilityListener {
 
-        private final BluetoothSocket mSocket;
+        private final String mAddress;
+        private final BluetoothSession mSession;
+        private final FrameDecoder mDecoder;
+        private final Transport mSocket;
         private final InputStream mInputStream;
         private final OutputStream mOutputStream;
+        private final WriteQueue mWriteQueue;
+        private final RequestPipeline mRequests;
+        private final CreditParser mCreditParser;
+        private volatile Future<?> mFuture;
+        private final AtomicBoolean isCanceled = new AtomicBoolean();
+        private long mLastFrameTime;
+        private final long mStartTime;
 
-        public ReceiveThread(BluetoothSocket socket) {
+        public ReceiveTask(Transport socket, ConnectTask connectTask) {
             this.mSocket = socket;
+            this.mStartTime = connectTask != null ? connectTask.mStartTime : System.nanoTime();
+            this.mAddress = socket.getAddress();
+            FrameDecoderFactory factory = mSessionDecoders.get(mAddress);
+            this.mDecoder = (factory != null ? factory : mFrameDecoderFactory).create();
             InputStream inputStream = null;
             OutputStream outputStream = null;
             try {
@@ -391,45 +1135,137 @@ public class BluetoothService {
             }
             mInputStream = inputStream;
             mOutputStream = outputStream;
+            mWriteQueue = new WriteQueue(outputStream, mWriteCapacity, mWriteMtu, mOverflowPolicy);
+            BluetoothMetrics metrics = mMetrics;
+            mWriteQueue.setLatencyHistogram(metrics != null ? metrics.mWriteLatency : null);
+            mWriteQueue.setWatermarks(mLowWatermark, mHighWatermark);
+            mWriteQueue.setWritabilityListener(this);
+            mCreditParser = BluetoothService.this.mCreditParser;
+            if (mCreditParser != null) {
+                mWriteQueue.enableCredits(mInitialCredits);
+            }
+            mSession = new BluetoothSession(socket.getName(), mAddress, mWriteQueue);
+            if (connectTask != null) {
+                mSession.mPrepareTime = connectTask.mPrepareTime;
+                mSession.mConnectDuration = connectTask.mConnectDuration;
+            }
+            mRequests = new RequestPipeline(mWriteQueue, mRequestWindow, mRequestCorrelator);
+        }
+
+        /**
+         * @return 线程池已满时返回 false
+         */
+        public boolean start() {
+            try {
+                mFuture = mScheduler.submit(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                e.printStackTrace();
+                return false;
+            }
         }
 
+        @Override
         public void run() {
-            if (mInputStream == null || mOutputStream == null) {
+            if (isCanceled.get() || mInputStream == null || mOutputStream == null) {
                 return;
             }
-            ArrayList<Integer> array = new ArrayList<>();
-            byte[] buffer;
+            mWriteQueue.start(mScheduler);
+            byte[] buffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
             while (true) {
                 try {
-                    int data = mInputStream.read();
-                    if (data == 0x0A) { // \n 换行
-                        // do nothing
-                    } else if (data == 0x0D) { // \r 回车
-                        buffer = new byte[array.size()];
-                        for (int i = 0; i < array.size(); i++) {
-                            buffer[i] = array.get(i).byteValue();
-                        }
-                        sendMessage(BluetoothState.MESSAGE_READ, buffer);
-                        array = new ArrayList<>();
-                    } else {
-                        array.add(data);
+                    int length = mInputStream.read(buffer, 0, buffer.length);
+                    if (length < 0) {
+                        break;
+                    }
+                    if (mSession.mFirstByteTime < 0) {
+                        onFirstByte();
                     }
+                    mSession.mReadBytes.addAndGet(length);
+                    BluetoothMetrics metrics = mMetrics;
+                    if (metrics != null) {
+                        metrics.mReadBytes.addAndGet(length);
+                    }
+                    mDecoder.decode(buffer, 0, length, this);
                 } catch (IOException e) {
-                    restart();
                     break;
                 }
             }
+            if (cancel()) {
+                closeQueues();
+                connectionLost(this);
+            }
         }
 
-        public void write(byte[] buffer) {
-            try {
-                mOutputStream.write(buffer);
-            } catch (IOException e) {
-                e.printStackTrace();
+        private void onFirstByte() {
+            long firstByteTime = (System.nanoTime() - mStartTime) / 1000000;
+            mSession.mFirstByteTime = firstByteTime;
+            BluetoothMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.mFirstByteTime.record(firstByteTime);
             }
         }
 
-        public void cancel() {
+        @Override
+        public void onFrame(byte[] buffer, int offset, int length) {
+            if (length <= 0) {
+                return;
+            }
+            mSession.mReadFrames.incrementAndGet();
+            BluetoothMetrics metrics = mMetrics;
+            if (metrics != null) {
+                long now = System.nanoTime();
+                if (mLastFrameTime != 0) {
+                    metrics.mFrameInterval.record((now - mLastFrameTime) / 1000);
+                }
+                mLastFrameTime = now;
+                metrics.mReadFrames.incrementAndGet();
+            }
+            if (mCreditParser != null) {
+                int credits = mCreditParser.parseCredits(buffer, offset, length);
+                if (credits >= 0) {
+                    mWriteQueue.grantCredits(credits);
+                    return;
+                }
+            }
+            if (mRequests.onFrame(buffer, offset, length)) {
+                return;
+            }
+            ByteArrayPool pool = mFramePool;
+            ReceiveDispatcher dispatcher = mReceiveDispatcher;
+            if (dispatcher != null) {
+                dispatcher.dispatch(BluetoothFrame.obtain(pool, mCharset, mAddress, buffer, offset, length));
+            } else if (pool != null || isMultiConnection) {
+                sendMessage(BluetoothState.MESSAGE_READ, BluetoothFrame.obtain(pool, mCharset, mAddress, buffer, offset, length));
+            } else {
+                sendMessage(BluetoothState.MESSAGE_READ, Arrays.copyOfRange(buffer, offset, offset + length));
+            }
+        }
+
+        public boolean write(ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+            return mWriteQueue.offer(segments, recycler, listener);
+        }
+
+        @Override
+        public void onWritabilityChanged(boolean writable) {
+            BluetoothWritabilityListener listener = mWritabilityListener;
+            if (listener != null) {
+                listener.onWritabilityChanged(mAddress, writable);
+            }
+        }
+
+        /**
+         * 取消收发，关闭通道，首次取消后须调用 {@link #closeQueues()}
+         *
+         * @return 是否首次取消
+         */
+        public boolean cancel() {
+            if (!isCanceled.compareAndSet(false, true)) {
+                return false;
+            }
+            if (mFuture != null) {
+                mFuture.cancel(false);
+            }
             try {
                 if (mSocket != null) {
                     mSocket.close();
@@ -437,6 +1273,28 @@ public class BluetoothService {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            return true;
+        }
+
+        /**
+         * 关闭发送队列和请求管线，未完成的写入和请求回调失败，不能在服务锁内调用
+         */
+        void closeQueues() {
+            mWriteQueue.close();
+            mRequests.close(new IOException("Connection closed"));
+            BluetoothMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.mClosedWrittenBytes.addAndGet(mWriteQueue.getWrittenBytes());
+            }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 主动连接前后回调，在连接线程执行，onConnectStart 返回后才开始连接
+     */
+    interface ConnectHook {
+        void onConnectStart(String address);
+
+        void onConnectEnd(String address);
+    }
+}
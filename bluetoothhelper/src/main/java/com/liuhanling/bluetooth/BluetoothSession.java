@@ -0,0 +1,143 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 蓝牙连接会话，每个已连接设备一个，记录收发统计
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothSession {
+
+    private final String mName;
+    private final String mAddress;
+    private final long mConnectTime;
+    private final WriteQueue mWriteQueue;
+
+    final AtomicLong mReadBytes = new AtomicLong();
+    final AtomicLong mReadFrames = new AtomicLong();
+    long mPrepareTime = -1;
+    long mConnectDuration = -1;
+    volatile long mFirstByteTime = -1;
+
+    BluetoothSession(String name, String address, WriteQueue writeQueue) {
+        this.mName = name;
+        this.mAddress = address;
+        this.mWriteQueue = writeQueue;
+        this.mConnectTime = System.currentTimeMillis();
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getAddress() {
+        return mAddress;
+    }
+
+    /**
+     * 连接时间
+     *
+     * @return
+     */
+    public long getConnectTime() {
+        return mConnectTime;
+    }
+
+    /**
+     * 连接准备耗时：排队和创建通道，毫秒
+     *
+     * @return 被动连接时为 -1
+     */
+    public long getPrepareTime() {
+        return mPrepareTime;
+    }
+
+    /**
+     * 建立连接耗时，含各候选 UUID 的尝试，毫秒
+     *
+     * @return 被动连接时为 -1
+     */
+    public long getConnectDuration() {
+        return mConnectDuration;
+    }
+
+    /**
+     * 从开始连接到收到首字节的耗时，被动连接从连上算起，毫秒
+     *
+     * @return 未收到数据时为 -1
+     */
+    public long getFirstByteTime() {
+        return mFirstByteTime;
+    }
+
+    /**
+     * 接收字节数
+     *
+     * @return
+     */
+    public long getReadBytes() {
+        return mReadBytes.get();
+    }
+
+    /**
+     * 接收帧数
+     *
+     * @return
+     */
+    public long getReadFrames() {
+        return mReadFrames.get();
+    }
+
+    /**
+     * 发送字节数
+     *
+     * @return
+     */
+    public long getWrittenBytes() {
+        return mWriteQueue.getWrittenBytes();
+    }
+
+    /**
+     * 待发送数据包数
+     *
+     * @return
+     */
+    public int getPendingWrites() {
+        return mWriteQueue.size();
+    }
+
+    /**
+     * 待发送字节数
+     *
+     * @return
+     */
+    public long getPendingBytes() {
+        return mWriteQueue.getPendingBytes();
+    }
+
+    /**
+     * 是否可写，待发送字节数未超过高水位
+     *
+     * @return
+     */
+    public boolean isWritable() {
+        return mWriteQueue.isWritable();
+    }
+
+    /**
+     * 剩余信用
+     *
+     * @return 未开启信用模式时为 -1
+     */
+    public int getCredits() {
+        return mWriteQueue.getCredits();
+    }
+
+    WriteQueue getWriteQueue() {
+        return mWriteQueue;
+    }
+}
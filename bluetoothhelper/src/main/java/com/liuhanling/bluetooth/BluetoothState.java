@@ -15,6 +15,8 @@ public class BluetoothState {
     public static final int MESSAGE_WRITE = 3;
     public static final int MESSAGE_CONNECTED = 4;
     public static final int MESSAGE_TOAST = 5;
+    public static final int MESSAGE_DISCONNECTED = 6;
+    public static final int MESSAGE_CONNECT_FAILED = 7;
 
     // Intent request codes
     public static final int REQUEST_ENABLE_BT = 101;
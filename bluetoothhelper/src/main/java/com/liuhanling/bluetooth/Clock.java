@@ -0,0 +1,27 @@
+package com.liuhanling.bluetooth;
+
+import android.os.SystemClock;
+
+/**
+ * 时钟，测试时可替换为虚拟时钟
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface Clock {
+
+    /** 开机时间，不受系统时间修改影响 */
+    Clock ELAPSED = new Clock() {
+        @Override
+        public long now() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    /**
+     * 当前时间
+     *
+     * @return 毫秒
+     */
+    long now();
+}
@@ -0,0 +1,106 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 接收分发
+ * <p>
+ * 读线程把数据帧放入待分发队列，同一时刻最多只有一个分发任务在执行器中排队，
+ * 分发任务一次取走所有积压的数据帧，消费方处理不及时时相邻帧自然合并为一批。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+class ReceiveDispatcher {
+
+    interface Receiver {
+        void onReceiveFrame(BluetoothFrame frame);
+
+        void onReceiveBatch(List<BluetoothFrame> frames);
+    }
+
+    private final Executor mExecutor;
+    private final Receiver mReceiver;
+    private final boolean isDirect;
+
+    private final ConcurrentLinkedQueue<BluetoothFrame> mPending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+    ReceiveDispatcher(Executor executor, Receiver receiver, boolean direct) {
+        this.mExecutor = executor;
+        this.mReceiver = receiver;
+        this.isDirect = direct;
+    }
+
+    /**
+     * 在读线程调用
+     *
+     * @param frame
+     */
+    void dispatch(BluetoothFrame frame) {
+        if (isDirect) {
+            mReceiver.onReceiveFrame(frame);
+            return;
+        }
+        mPending.offer(frame);
+        schedule();
+    }
+
+    private void schedule() {
+        if (isScheduled.compareAndSet(false, true)) {
+            try {
+                mExecutor.execute(mDrainRunnable);
+            } catch (RejectedExecutionException e) {
+                mDrainRunnable.run();
+            }
+        }
+    }
+
+    /**
+     * 分发任务
+     * <p>
+     * 回调抛出异常时，已交给回调的帧归回调方所有，不重发也不释放；异常照常抛给执行器，
+     * 分发状态复位，队列中剩余的帧另起任务分发。
+     */
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            boolean isCompleted = false;
+            try {
+                do {
+                    List<BluetoothFrame> frames = null;
+                    BluetoothFrame first = mPending.poll();
+                    BluetoothFrame frame;
+                    while (first != null && (frame = mPending.poll()) != null) {
+                        if (frames == null) {
+                            frames = new ArrayList<>();
+                            frames.add(first);
+                        }
+                        frames.add(frame);
+                    }
+                    if (frames != null) {
+                        mReceiver.onReceiveBatch(frames);
+                    } else if (first != null) {
+                        mReceiver.onReceiveFrame(first);
+                    }
+                    isScheduled.set(false);
+                } while (!mPending.isEmpty() && isScheduled.compareAndSet(false, true));
+                isCompleted = true;
+            } finally {
+                if (!isCompleted) {
+                    isScheduled.set(false);
+                    if (!mPending.isEmpty()) {
+                        schedule();
+                    }
+                }
+            }
+        }
+    };
+}
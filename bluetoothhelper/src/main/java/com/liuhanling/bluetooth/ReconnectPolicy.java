@@ -0,0 +1,282 @@
+package com.liuhanling.bluetooth;
+
+import java.util.Random;
+
+/**
+ * 断线重连策略，一个设备一个
+ * <p>
+ * 重连间隔按指数退避并加随机抖动，避免同时断开的设备同时重连；从断开算起超过最长重连时间后放弃。
+ * 连续失败达到阈值时熔断，熔断期间不重连，熔断结束后只试一次，成功才恢复正常退避。
+ * 连上后不足稳定时间又断开的视为抖动，退避不清零。
+ * 策略本身不发起连接，由 {@link BluetoothHelper} 按返回的间隔驱动。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ReconnectPolicy {
+
+    public static final long DEFAULT_INITIAL_DELAY = 1000;
+    public static final long DEFAULT_MAX_DELAY = 30000;
+    public static final double DEFAULT_MULTIPLIER = 2;
+    public static final double DEFAULT_JITTER = 0.5;
+    public static final long DEFAULT_MAX_ELAPSED = 5 * 60 * 1000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_TIME = 60000;
+    public static final long DEFAULT_STABLE_TIME = 10000;
+
+    /** 放弃重连 */
+    public static final long STOP = -1;
+
+    public static final int CIRCUIT_CLOSED = 0;
+    public static final int CIRCUIT_OPEN = 1;
+    public static final int CIRCUIT_HALF_OPEN = 2;
+
+    private final Clock mClock;
+    private final Random mRandom;
+
+    private long mInitialDelay = DEFAULT_INITIAL_DELAY;
+    private long mMaxDelay = DEFAULT_MAX_DELAY;
+    private double mMultiplier = DEFAULT_MULTIPLIER;
+    private double mJitter = DEFAULT_JITTER;
+    private long mMaxElapsed = DEFAULT_MAX_ELAPSED;
+    private int mFailureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long mOpenTime = DEFAULT_OPEN_TIME;
+    private long mStableTime = DEFAULT_STABLE_TIME;
+
+    private int mAttempts = 0;
+    private int mFailures = 0;
+    private int mCircuit = CIRCUIT_CLOSED;
+    private long mOpenUntil;
+    private long mOutageStart = -1;
+    private long mConnectedTime = -1;
+
+    public ReconnectPolicy() {
+        this(Clock.ELAPSED, new Random());
+    }
+
+    /**
+     * @param clock  测试时可传入虚拟时钟
+     * @param random 测试时可传入固定种子
+     */
+    public ReconnectPolicy(Clock clock, Random random) {
+        this.mClock = clock;
+        this.mRandom = random;
+    }
+
+    /**
+     * 按相同配置创建新策略，状态不复制
+     *
+     * @return
+     */
+    public synchronized ReconnectPolicy copy() {
+        return new ReconnectPolicy(mClock, new Random(mRandom.nextLong()))
+                .setBackoff(mInitialDelay, mMaxDelay, mMultiplier)
+                .setJitter(mJitter)
+                .setMaxElapsed(mMaxElapsed)
+                .setCircuitBreaker(mFailureThreshold, mOpenTime)
+                .setStableTime(mStableTime);
+    }
+
+    /**
+     * 设置退避
+     *
+     * @param initialDelay 首次重连间隔，毫秒
+     * @param maxDelay     最大间隔，毫秒
+     * @param multiplier   每次失败后间隔的倍数
+     * @return
+     */
+    public synchronized ReconnectPolicy setBackoff(long initialDelay, long maxDelay, double multiplier) {
+        if (initialDelay <= 0 || maxDelay < initialDelay || multiplier < 1) {
+            throw new IllegalArgumentException("delay: " + initialDelay + "-" + maxDelay + ", multiplier: " + multiplier);
+        }
+        mInitialDelay = initialDelay;
+        mMaxDelay = maxDelay;
+        mMultiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * 设置抖动，间隔在 [delay * (1 - jitter), delay] 内随机
+     *
+     * @param jitter 0 ~ 1，为 0 时不抖动
+     * @return
+     */
+    public synchronized ReconnectPolicy setJitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter: " + jitter);
+        }
+        mJitter = jitter;
+        return this;
+    }
+
+    /**
+     * 设置最长重连时间，从断开算起
+     *
+     * @param maxElapsed 毫秒
+     * @return
+     */
+    public synchronized ReconnectPolicy setMaxElapsed(long maxElapsed) {
+        if (maxElapsed <= 0) {
+            throw new IllegalArgumentException("maxElapsed: " + maxElapsed);
+        }
+        mMaxElapsed = maxElapsed;
+        return this;
+    }
+
+    /**
+     * 设置熔断
+     *
+     * @param failureThreshold 连续失败次数
+     * @param openTime         熔断时间，毫秒
+     * @return
+     */
+    public synchronized ReconnectPolicy setCircuitBreaker(int failureThreshold, long openTime) {
+        if (failureThreshold <= 0 || openTime < 0) {
+            throw new IllegalArgumentException("threshold: " + failureThreshold + ", openTime: " + openTime);
+        }
+        mFailureThreshold = failureThreshold;
+        mOpenTime = openTime;
+        return this;
+    }
+
+    /**
+     * 设置稳定时间，连接保持超过该时间后断开才清零退避
+     *
+     * @param stableTime 毫秒
+     * @return
+     */
+    public synchronized ReconnectPolicy setStableTime(long stableTime) {
+        if (stableTime < 0) {
+            throw new IllegalArgumentException("stableTime: " + stableTime);
+        }
+        mStableTime = stableTime;
+        return this;
+    }
+
+    /**
+     * 连接成功
+     */
+    public synchronized void onConnected() {
+        mConnectedTime = mClock.now();
+        mOutageStart = -1;
+        mFailures = 0;
+        mCircuit = CIRCUIT_CLOSED;
+    }
+
+    /**
+     * 连接断开
+     *
+     * @return 下次重连间隔，毫秒，{@link #STOP} 时放弃
+     */
+    public synchronized long onDisconnected() {
+        long now = mClock.now();
+        if (mConnectedTime >= 0 && now - mConnectedTime >= mStableTime) {
+            mAttempts = 0;
+        }
+        mConnectedTime = -1;
+        if (mOutageStart < 0) {
+            mOutageStart = now;
+        }
+        return nextDelay(now);
+    }
+
+    /**
+     * 重连失败
+     *
+     * @return 下次重连间隔，毫秒，{@link #STOP} 时放弃
+     */
+    public synchronized long onConnectFailed() {
+        long now = mClock.now();
+        if (mOutageStart < 0) {
+            mOutageStart = now;
+        }
+        mFailures++;
+        if (mCircuit == CIRCUIT_HALF_OPEN || mFailures >= mFailureThreshold) {
+            mCircuit = CIRCUIT_OPEN;
+            mOpenUntil = now + mOpenTime;
+        }
+        return nextDelay(now);
+    }
+
+    /**
+     * 开始重连，熔断中返回 false
+     *
+     * @return 是否允许重连
+     */
+    public synchronized boolean onAttempt() {
+        if (mCircuit == CIRCUIT_OPEN) {
+            if (mClock.now() < mOpenUntil) {
+                return false;
+            }
+            mCircuit = CIRCUIT_HALF_OPEN;
+        }
+        mAttempts++;
+        return true;
+    }
+
+    /**
+     * 熔断剩余时间，{@link #onAttempt()} 被拒绝后按该时间再试，不计入失败
+     *
+     * @return 毫秒，未熔断时为 0
+     */
+    public synchronized long getOpenRemaining() {
+        return mCircuit == CIRCUIT_OPEN ? Math.max(0, mOpenUntil - mClock.now()) : 0;
+    }
+
+    /**
+     * 放弃本轮重连，清零退避和熔断
+     */
+    public synchronized void reset() {
+        mAttempts = 0;
+        mFailures = 0;
+        mCircuit = CIRCUIT_CLOSED;
+        mOutageStart = -1;
+    }
+
+    private long nextDelay(long now) {
+        long delay;
+        if (mCircuit == CIRCUIT_OPEN) {
+            delay = Math.max(0, mOpenUntil - now);
+        } else {
+            double backoff = mInitialDelay * Math.pow(mMultiplier, mAttempts);
+            delay = (long) (Math.min(backoff, mMaxDelay) * (1 - mJitter * mRandom.nextDouble()));
+        }
+        if (now - mOutageStart + delay > mMaxElapsed) {
+            reset();
+            return STOP;
+        }
+        return delay;
+    }
+
+    /**
+     * 已重连次数
+     *
+     * @return
+     */
+    public synchronized int getAttempts() {
+        return mAttempts;
+    }
+
+    /**
+     * 熔断状态
+     *
+     * @return {@link #CIRCUIT_CLOSED}、{@link #CIRCUIT_OPEN} 或 {@link #CIRCUIT_HALF_OPEN}
+     */
+    public synchronized int getCircuitState() {
+        return mCircuit;
+    }
+
+    /**
+     * 是否在重连中
+     *
+     * @return
+     */
+    public synchronized boolean isReconnecting() {
+        return mOutageStart >= 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReconnectPolicy{attempts=" + mAttempts + ", failures=" + mFailures + ", circuit=" + mCircuit + "}";
+    }
+}
@@ -0,0 +1,226 @@
+package com.liuhanling.bluetooth;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 自适应扫描调度，扫描窗口与空闲窗口交替
+ * <p>
+ * 每个扫描窗口结束时按新设备发现速率调整：发现快时加长扫描、缩短空闲，没有新设备时反之。
+ * 经典蓝牙发现连续多个窗口没有新设备时只扫 BLE，每隔若干窗口再试一次经典蓝牙。
+ * 调度本身不启停扫描，由 {@link BluetoothScanner} 按 {@link #getActiveWindow()} 和 {@link #getIdleWindow()} 驱动。
+ * <p>
+ * 新设备只计从未见过的地址：空闲窗口内超时移除、下个窗口再次发现的设备不算新设备，否则空闲越长发现速率越高。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ScanScheduler {
+
+    public static final long DEFAULT_MIN_ACTIVE = 2000;
+    public static final long DEFAULT_MAX_ACTIVE = 12000;
+    public static final long DEFAULT_MIN_IDLE = 1000;
+    public static final long DEFAULT_MAX_IDLE = 30000;
+
+    /** 每秒发现新设备数不低于该值时视为繁忙 */
+    private static final double BUSY_RATE = 0.5;
+    /** 经典蓝牙连续无新设备的窗口数，达到后只扫 BLE */
+    private static final int CLASSIC_EMPTY_LIMIT = 3;
+    /** 只扫 BLE 时，每隔多少窗口再试一次经典蓝牙 */
+    private static final int CLASSIC_PROBE_INTERVAL = 10;
+    /** 记录的地址数上限，超过后清空重新记录 */
+    private static final int MAX_SEEN_ADDRESSES = 4096;
+
+    private final Clock mClock;
+    private final long mMinActive;
+    private final long mMaxActive;
+    private final long mMinIdle;
+    private final long mMaxIdle;
+
+    private long mActiveWindow;
+    private long mIdleWindow;
+    private long mActiveStart = -1;
+    private long mIdleStart;
+    private boolean isClassicEnabled = true;
+    private int mClassicEmptyWindows = 0;
+    private int mBleOnlyWindows = 0;
+    private final Set<String> mSeenAddresses = new HashSet<>();
+    private int mNewDevices = 0;
+    private int mNewClassicDevices = 0;
+
+    private long mWindowCount = 0;
+    private long mActiveTime = 0;
+    private long mIdleTime = 0;
+    private long mClassicSkipCount = 0;
+    private double mLastRate = 0;
+
+    public ScanScheduler() {
+        this(Clock.ELAPSED);
+    }
+
+    public ScanScheduler(Clock clock) {
+        this(clock, DEFAULT_MIN_ACTIVE, DEFAULT_MAX_ACTIVE, DEFAULT_MIN_IDLE, DEFAULT_MAX_IDLE);
+    }
+
+    public ScanScheduler(Clock clock, long minActive, long maxActive, long minIdle, long maxIdle) {
+        if (minActive <= 0 || maxActive < minActive || minIdle < 0 || maxIdle < minIdle) {
+            throw new IllegalArgumentException("active: " + minActive + "-" + maxActive + ", idle: " + minIdle + "-" + maxIdle);
+        }
+        this.mClock = clock;
+        this.mMinActive = minActive;
+        this.mMaxActive = maxActive;
+        this.mMinIdle = minIdle;
+        this.mMaxIdle = maxIdle;
+        this.mActiveWindow = maxActive;
+        this.mIdleWindow = minIdle;
+    }
+
+    /**
+     * 扫描窗口开始
+     */
+    public synchronized void onActiveStart() {
+        long now = mClock.now();
+        if (mWindowCount > 0) {
+            mIdleTime += Math.max(0, now - mIdleStart);
+        }
+        mActiveStart = now;
+        mNewDevices = 0;
+        mNewClassicDevices = 0;
+    }
+
+    /**
+     * 设备表中新增设备，地址从未见过时计入本窗口新设备数
+     *
+     * @param address
+     * @param classic 是否经典蓝牙发现
+     * @return 是否为新设备
+     */
+    public synchronized boolean onDeviceFound(String address, boolean classic) {
+        if (mSeenAddresses.size() >= MAX_SEEN_ADDRESSES) {
+            mSeenAddresses.clear();
+        }
+        if (!mSeenAddresses.add(address)) {
+            return false;
+        }
+        mNewDevices++;
+        if (classic) {
+            mNewClassicDevices++;
+        }
+        return true;
+    }
+
+    /**
+     * 扫描窗口结束，按 {@link #onDeviceFound(String, boolean)} 记录的新设备数计算下一轮窗口
+     */
+    public synchronized void onActiveEnd() {
+        onActiveEnd(mNewDevices, mNewClassicDevices);
+    }
+
+    /**
+     * 扫描窗口结束，计算下一轮窗口
+     *
+     * @param newDevices        本窗口新发现的设备数
+     * @param newClassicDevices 其中经典蓝牙发现的设备数
+     */
+    public synchronized void onActiveEnd(int newDevices, int newClassicDevices) {
+        long now = mClock.now();
+        long elapsed = mActiveStart >= 0 ? Math.max(1, now - mActiveStart) : mActiveWindow;
+        mActiveStart = -1;
+        mIdleStart = now;
+        mWindowCount++;
+        mActiveTime += elapsed;
+        mLastRate = newDevices * 1000.0 / elapsed;
+
+        if (mLastRate >= BUSY_RATE) {
+            mActiveWindow = Math.min(mActiveWindow * 2, mMaxActive);
+            mIdleWindow = Math.max(mIdleWindow / 2, mMinIdle);
+        } else if (newDevices == 0) {
+            mActiveWindow = Math.max(mActiveWindow / 2, mMinActive);
+            mIdleWindow = Math.min(Math.max(mIdleWindow * 2, 1), mMaxIdle);
+        }
+
+        if (isClassicEnabled) {
+            mClassicEmptyWindows = newClassicDevices > 0 ? 0 : mClassicEmptyWindows + 1;
+            if (mClassicEmptyWindows >= CLASSIC_EMPTY_LIMIT) {
+                isClassicEnabled = false;
+                mBleOnlyWindows = 0;
+            }
+        } else {
+            mClassicSkipCount++;
+            if (++mBleOnlyWindows >= CLASSIC_PROBE_INTERVAL) {
+                isClassicEnabled = true;
+                mClassicEmptyWindows = CLASSIC_EMPTY_LIMIT - 1;
+            }
+        }
+    }
+
+    /**
+     * 下一个扫描窗口
+     *
+     * @return 毫秒
+     */
+    public synchronized long getActiveWindow() {
+        return mActiveWindow;
+    }
+
+    /**
+     * 下一个空闲窗口
+     *
+     * @return 毫秒
+     */
+    public synchronized long getIdleWindow() {
+        return mIdleWindow;
+    }
+
+    /**
+     * 下一个扫描窗口是否进行经典蓝牙发现
+     *
+     * @return
+     */
+    public synchronized boolean isClassicEnabled() {
+        return isClassicEnabled;
+    }
+
+    /**
+     * 已结束的扫描窗口数
+     *
+     * @return
+     */
+    public synchronized long getWindowCount() {
+        return mWindowCount;
+    }
+
+    /**
+     * 扫描占空比，扫描时间 / (扫描时间 + 空闲时间)
+     *
+     * @return
+     */
+    public synchronized double getDutyCycle() {
+        long total = mActiveTime + mIdleTime;
+        return total > 0 ? (double) mActiveTime / total : 0;
+    }
+
+    /**
+     * 上个窗口每秒新设备数
+     *
+     * @return
+     */
+    public synchronized double getLastDiscoveryRate() {
+        return mLastRate;
+    }
+
+    /**
+     * 跳过经典蓝牙发现的窗口数
+     *
+     * @return
+     */
+    public synchronized long getClassicSkipCount() {
+        return mClassicSkipCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ScanScheduler{active=" + mActiveWindow + ", idle=" + mIdleWindow + ", classic=" + isClassicEnabled
+                + ", windows=" + mWindowCount + ", rate=" + mLastRate + ", duty=" + getDutyCycle() + "}";
+    }
+}
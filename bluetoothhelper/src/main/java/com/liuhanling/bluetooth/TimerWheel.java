@@ -0,0 +1,106 @@
+package com.liuhanling.bluetooth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 哈希时间轮，按到期时间分槽，推进时只处理经过的槽
+ * <p>
+ * 到期项由 {@link Expirer} 决定丢弃还是按新的到期时间重新入轮，
+ * 适合大量定时器到期前频繁刷新的场景，刷新时不必调整时间轮。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+class TimerWheel<T> {
+
+    interface Expirer<T> {
+
+        /**
+         * 到期
+         *
+         * @param item
+         * @param now
+         * @return 新的到期时间，小于 0 时丢弃
+         */
+        long onExpire(T item, long now);
+    }
+
+    private final long mTick;
+    private final List<List<T>> mSlots;
+    private long mCurrent = -1;
+    private int mSize = 0;
+
+    TimerWheel(long tick, int slots) {
+        if (tick <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("tick: " + tick + ", slots: " + slots);
+        }
+        this.mTick = tick;
+        this.mSlots = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            mSlots.add(new ArrayList<T>());
+        }
+    }
+
+    /**
+     * 加入定时
+     *
+     * @param item
+     * @param now
+     * @param deadline
+     */
+    synchronized void schedule(T item, long now, long deadline) {
+        if (mCurrent < 0) {
+            mCurrent = now / mTick;
+        }
+        long tick = Math.max(deadline / mTick, mCurrent + 1);
+        mSlots.get((int) (tick % mSlots.size())).add(item);
+        mSize++;
+    }
+
+    /**
+     * 推进到 now，处理经过槽中的到期项，超过一圈时每个槽只处理一次
+     *
+     * @param now
+     * @param expirer
+     */
+    void advance(long now, Expirer<T> expirer) {
+        List<T> expired;
+        synchronized (this) {
+            long target = now / mTick;
+            if (mCurrent < 0) {
+                mCurrent = target;
+                return;
+            }
+            if (target <= mCurrent) {
+                return;
+            }
+            expired = new ArrayList<>();
+            long from = Math.max(mCurrent + 1, target - mSlots.size() + 1);
+            for (long tick = from; tick <= target; tick++) {
+                List<T> slot = mSlots.get((int) (tick % mSlots.size()));
+                expired.addAll(slot);
+                slot.clear();
+            }
+            mSize -= expired.size();
+            mCurrent = target;
+        }
+        for (T item : expired) {
+            long deadline = expirer.onExpire(item, now);
+            if (deadline >= 0) {
+                schedule(item, now, deadline);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return mSize;
+    }
+
+    synchronized void clear() {
+        for (List<T> slot : mSlots) {
+            slot.clear();
+        }
+        mSize = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.liuhanling.bluetooth.buffer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分级字节数组池
+ * <p>
+ * 按 2 的幂分级，从 {@link #MIN_SIZE} 到 {@link #MAX_SIZE}，每级最多缓存 {@link #MAX_POOLED} 个数组。
+ * 超出最大级别的请求直接分配，不回收。线程安全。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ByteArrayPool {
+
+    public static final int MIN_SIZE = 64;
+    public static final int MAX_SIZE = 64 * 1024;
+    public static final int MAX_POOLED = 16;
+
+    private static final int MIN_SHIFT = 6;
+    private static final int CLASS_COUNT = 11;
+
+    private final ConcurrentLinkedQueue<byte[]>[] mQueues;
+    private final AtomicInteger[] mCounts;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ByteArrayPool() {
+        mQueues = new ConcurrentLinkedQueue[CLASS_COUNT];
+        mCounts = new AtomicInteger[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            mQueues[i] = new ConcurrentLinkedQueue<>();
+            mCounts[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * 获取长度不小于 size 的数组，内容未清零
+     *
+     * @param size
+     * @return
+     */
+    public byte[] acquire(int size) {
+        if (size > MAX_SIZE) {
+            return new byte[size];
+        }
+        int index = indexOf(size);
+        byte[] array = mQueues[index].poll();
+        if (array != null) {
+            mCounts[index].decrementAndGet();
+            return array;
+        }
+        return new byte[MIN_SIZE << index];
+    }
+
+    /**
+     * 取缓存中长度不小于 size 的数组，不分配
+     *
+     * @param size
+     * @return 没有缓存时返回 null
+     */
+    public byte[] poll(int size) {
+        if (size > MAX_SIZE) {
+            return null;
+        }
+        int index = indexOf(size);
+        byte[] array = mQueues[index].poll();
+        if (array != null) {
+            mCounts[index].decrementAndGet();
+        }
+        return array;
+    }
+
+    /**
+     * 归还数组，非分级长度的数组直接丢弃
+     *
+     * @param array
+     */
+    public void release(byte[] array) {
+        if (array == null || array.length < MIN_SIZE || array.length > MAX_SIZE
+                || Integer.bitCount(array.length) != 1) {
+            return;
+        }
+        int index = indexOf(array.length);
+        if (mCounts[index].incrementAndGet() <= MAX_POOLED) {
+            mQueues[index].offer(array);
+        } else {
+            mCounts[index].decrementAndGet();
+        }
+    }
+
+    private static int indexOf(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
@@ -15,4 +15,7 @@ public class Constants {
     public static final String DEVICE_NAME = "device_name";
     public static final String DEVICE_ADDR = "device_addr";
 
+    // Buffer
+    public static final int RECEIVE_BUFFER_SIZE = 1024;
+
 }
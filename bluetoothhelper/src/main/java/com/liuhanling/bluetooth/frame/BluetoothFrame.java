@@ -0,0 +1,166 @@
+package com.liuhanling.bluetooth.frame;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 接收数据帧
+ * <p>
+ * 池化模式下数据数组来自 {@link ByteArrayPool}，引用计数归零时归还，
+ * 收到帧的监听用完后必须调用 {@link #release()}，需要跨线程保留时先调用 {@link #retain()}。
+ * 字符串在首次调用 {@link #getString()} 时才解码。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public final class BluetoothFrame {
+
+    private final ByteArrayPool mPool;
+    private final Charset mCharset;
+    private final String mAddress;
+    private final AtomicInteger mRefCount = new AtomicInteger(1);
+    private final int mLength;
+
+    private volatile byte[] mArray;
+    private String mString;
+
+    private BluetoothFrame(ByteArrayPool pool, Charset charset, String address, byte[] array, int length) {
+        this.mPool = pool;
+        this.mCharset = charset;
+        this.mAddress = address;
+        this.mArray = array;
+        this.mLength = length;
+    }
+
+    /**
+     * 从池中取数组并复制数据
+     *
+     * @param pool 为 null 时直接分配
+     */
+    public static BluetoothFrame obtain(ByteArrayPool pool, Charset charset, String address,
+                                        byte[] buffer, int offset, int length) {
+        byte[] array = pool != null ? pool.acquire(length) : new byte[length];
+        System.arraycopy(buffer, offset, array, 0, length);
+        return new BluetoothFrame(pool, charset, address, array, length);
+    }
+
+    /**
+     * 包装已有数组，不池化
+     */
+    public static BluetoothFrame wrap(Charset charset, String address, byte[] data) {
+        return new BluetoothFrame(null, charset, address, data, data.length);
+    }
+
+    /**
+     * 来源设备地址
+     *
+     * @return
+     */
+    public String getAddress() {
+        return mAddress;
+    }
+
+    /**
+     * 数据数组，长度可能大于 {@link #length()}，仅在释放前有效
+     *
+     * @return
+     */
+    public byte[] array() {
+        byte[] array = mArray;
+        if (array == null) {
+            throw new IllegalStateException("Frame released");
+        }
+        return array;
+    }
+
+    /**
+     * 数据长度
+     *
+     * @return
+     */
+    public int length() {
+        return mLength;
+    }
+
+    /**
+     * 读取单个字节
+     *
+     * @param index
+     * @return
+     */
+    public byte get(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + mLength);
+        }
+        return array()[index];
+    }
+
+    /**
+     * 只读视图，仅在释放前有效
+     *
+     * @return
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array(), 0, mLength).asReadOnlyBuffer();
+    }
+
+    /**
+     * 复制数据
+     *
+     * @return
+     */
+    public byte[] toByteArray() {
+        byte[] array = array();
+        return array.length == mLength && mPool == null ? array : Arrays.copyOf(array, mLength);
+    }
+
+    /**
+     * 按接收字符集解码，结果缓存
+     *
+     * @return
+     */
+    public String getString() {
+        if (mString == null) {
+            mString = new String(array(), 0, mLength, mCharset);
+        }
+        return mString;
+    }
+
+    /**
+     * 增加引用
+     *
+     * @return
+     */
+    public BluetoothFrame retain() {
+        while (true) {
+            int count = mRefCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Frame released");
+            }
+            if (mRefCount.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * 释放引用，归零时归还数组
+     */
+    public void release() {
+        int count = mRefCount.decrementAndGet();
+        if (count == 0) {
+            byte[] array = mArray;
+            mArray = null;
+            if (mPool != null) {
+                mPool.release(array);
+            }
+        } else if (count < 0) {
+            mRefCount.incrementAndGet();
+            throw new IllegalStateException("Frame released");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.liuhanling.bluetooth.frame;
+
+import java.util.Arrays;
+
+/**
+ * 分帧解码器基类
+ * <p>
+ * 维护一个可复用的帧缓冲，跨块的帧在这里拼接，超过最大帧长时丢弃到下一帧。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public abstract class BufferedFrameDecoder implements FrameDecoder {
+
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024;
+
+    protected final int mMaxFrameLength;
+
+    protected byte[] mBuffer = new byte[256];
+    protected int mLength = 0;
+    protected boolean isDiscarding = false;
+
+    protected BufferedFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength: " + maxFrameLength);
+        }
+        this.mMaxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    public void reset() {
+        mLength = 0;
+        isDiscarding = false;
+    }
+
+    /**
+     * 回调一帧，超长帧直接丢弃
+     */
+    protected void emit(byte[] buffer, int offset, int length, FrameListener listener) {
+        if (length <= mMaxFrameLength) {
+            listener.onFrame(buffer, offset, length);
+        }
+    }
+
+    /**
+     * 回调缓冲中的帧并清空缓冲
+     */
+    protected void flush(FrameListener listener) {
+        if (!isDiscarding) {
+            listener.onFrame(mBuffer, 0, mLength);
+        }
+        reset();
+    }
+
+    /**
+     * 追加到帧缓冲
+     */
+    protected void append(byte[] data, int offset, int length) {
+        if (length <= 0 || isDiscarding) {
+            return;
+        }
+        if (!ensureCapacity(length)) {
+            return;
+        }
+        System.arraycopy(data, offset, mBuffer, mLength, length);
+        mLength += length;
+    }
+
+    /**
+     * 追加单个字节到帧缓冲
+     */
+    protected void append(byte b) {
+        if (isDiscarding || !ensureCapacity(1)) {
+            return;
+        }
+        mBuffer[mLength++] = b;
+    }
+
+    private boolean ensureCapacity(int length) {
+        if (mLength + length > mMaxFrameLength) {
+            mLength = 0;
+            isDiscarding = true;
+            return false;
+        }
+        if (mLength + length > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.min(mMaxFrameLength, Math.max(mBuffer.length << 1, mLength + length)));
+        }
+        return true;
+    }
+}
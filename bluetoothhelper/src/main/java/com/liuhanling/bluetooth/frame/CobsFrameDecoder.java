@@ -0,0 +1,61 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * COBS 分帧
+ * <p>
+ * 以 0x00 作为帧结束符，帧内数据按 COBS 编码，解码结果原地写入帧缓冲。
+ * 编码不完整的帧整帧丢弃。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class CobsFrameDecoder extends BufferedFrameDecoder {
+
+    private int mRemaining = 0;
+    private boolean isPendingZero = false;
+
+    public CobsFrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public CobsFrameDecoder(int maxFrameLength) {
+        super(maxFrameLength);
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, FrameListener listener) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (b == 0) {
+                if (mRemaining == 0 && mLength > 0) {
+                    flush(listener);
+                } else {
+                    reset();
+                }
+            } else if (mRemaining == 0) {
+                if (isPendingZero) {
+                    append((byte) 0);
+                }
+                int code = b & 0xFF;
+                mRemaining = code - 1;
+                isPendingZero = code < 0xFF;
+            } else {
+                int n = 1;
+                while (n < mRemaining && i + n < end && data[i + n] != 0) {
+                    n++;
+                }
+                append(data, i, n);
+                mRemaining -= n;
+                i += n - 1;
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        mRemaining = 0;
+        isPendingZero = false;
+    }
+}
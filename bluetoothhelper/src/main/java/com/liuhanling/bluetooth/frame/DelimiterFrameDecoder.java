@@ -0,0 +1,59 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * 分隔符分帧
+ * <p>
+ * 默认行为与原接收线程一致：丢弃 \n，遇到 \r 分包。
+ * 帧完整落在输入块内时直接回调输入块切片，跨块时才复制到内部缓冲。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class DelimiterFrameDecoder extends BufferedFrameDecoder {
+
+    private static final int NO_IGNORED = -1;
+
+    private final byte mDelimiter;
+    private final int mIgnored;
+
+    public DelimiterFrameDecoder() {
+        this((byte) 0x0D, 0x0A, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public DelimiterFrameDecoder(byte delimiter) {
+        this(delimiter, NO_IGNORED, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * @param delimiter      分隔符
+     * @param ignored        丢弃的字节，-1 表示不丢弃
+     * @param maxFrameLength 最大帧长，超出的帧整帧丢弃
+     */
+    public DelimiterFrameDecoder(byte delimiter, int ignored, int maxFrameLength) {
+        super(maxFrameLength);
+        this.mDelimiter = delimiter;
+        this.mIgnored = ignored < 0 ? NO_IGNORED : ignored & 0xFF;
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, FrameListener listener) {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (b == mDelimiter) {
+                if (mLength == 0 && !isDiscarding) {
+                    emit(data, start, i - start, listener);
+                } else {
+                    append(data, start, i - start);
+                    flush(listener);
+                }
+                start = i + 1;
+            } else if ((b & 0xFF) == mIgnored) {
+                append(data, start, i - start);
+                start = i + 1;
+            }
+        }
+        append(data, start, end - start);
+    }
+}
@@ -0,0 +1,36 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * 定长分帧
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class FixedLengthFrameDecoder extends BufferedFrameDecoder {
+
+    private final int mFrameLength;
+
+    public FixedLengthFrameDecoder(int frameLength) {
+        super(frameLength);
+        this.mFrameLength = frameLength;
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, FrameListener listener) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (mLength == 0 && end - i >= mFrameLength) {
+                listener.onFrame(data, i, mFrameLength);
+                i += mFrameLength;
+                continue;
+            }
+            int n = Math.min(mFrameLength - mLength, end - i);
+            append(data, i, n);
+            i += n;
+            if (mLength == mFrameLength) {
+                flush(listener);
+            }
+        }
+    }
+}
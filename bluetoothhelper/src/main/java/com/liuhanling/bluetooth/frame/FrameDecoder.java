@@ -0,0 +1,37 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * 分帧解码器
+ * <p>
+ * 按块输入原始字节，解出完整数据帧后回调。解码器有状态，每个连接独立一个实例，
+ * 且只在读线程中使用。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface FrameDecoder {
+
+    /**
+     * 解码数据块
+     *
+     * @param data     数据缓冲
+     * @param offset   起始位置
+     * @param length   数据长度
+     * @param listener 帧回调
+     */
+    void decode(byte[] data, int offset, int length, FrameListener listener);
+
+    /**
+     * 丢弃未完成的数据
+     */
+    void reset();
+
+    /**
+     * 分帧回调
+     * <p>
+     * buffer 为解码器或输入的共享缓冲，仅在回调内有效，需要保留时必须复制。
+     */
+    interface FrameListener {
+        void onFrame(byte[] buffer, int offset, int length);
+    }
+}
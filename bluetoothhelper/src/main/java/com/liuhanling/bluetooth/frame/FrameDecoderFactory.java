@@ -0,0 +1,11 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * 分帧解码器工厂，每个连接创建一个解码器
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface FrameDecoderFactory {
+    FrameDecoder create();
+}
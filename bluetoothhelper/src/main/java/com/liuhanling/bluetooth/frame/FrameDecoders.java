@@ -0,0 +1,160 @@
+package com.liuhanling.bluetooth.frame;
+
+import java.nio.ByteOrder;
+
+/**
+ * 常用分帧方式
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class FrameDecoders {
+
+    private FrameDecoders() {
+    }
+
+    /**
+     * 按描述创建分帧方式，描述即内置分帧方式的 toString()，用于持久化
+     * <p>
+     * 参数在这里校验，返回的分帧方式 create() 时不会再失败。
+     *
+     * @param spec 如 crlf、delimiter:10、fixed:20、length:2:BE、cobs、slip
+     * @return 无法识别时为 null
+     */
+    public static FrameDecoderFactory parse(String spec) {
+        if (spec == null) {
+            return null;
+        }
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "crlf":
+                    return crlf();
+                case "delimiter":
+                    return delimiter(Byte.parseByte(parts[1]));
+                case "fixed":
+                    return fixedLength(Integer.parseInt(parts[1]));
+                case "length":
+                    return lengthField(Integer.parseInt(parts[1]), "LE".equals(parts[2]) ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+                case "cobs":
+                    return cobs();
+                case "slip":
+                    return slip();
+                default:
+                    return null;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 分帧方式的描述
+     *
+     * @param factory
+     * @return 非内置分帧方式时为 null
+     */
+    public static String toSpec(FrameDecoderFactory factory) {
+        return factory instanceof SpecFactory ? factory.toString() : null;
+    }
+
+    /**
+     * 丢弃 \n，按 \r 分包（默认）
+     */
+    public static FrameDecoderFactory crlf() {
+        return new SpecFactory("crlf") {
+            @Override
+            public FrameDecoder create() {
+                return new DelimiterFrameDecoder();
+            }
+        };
+    }
+
+    /**
+     * 按分隔符分包
+     */
+    public static FrameDecoderFactory delimiter(final byte delimiter) {
+        return new SpecFactory("delimiter:" + delimiter) {
+            @Override
+            public FrameDecoder create() {
+                return new DelimiterFrameDecoder(delimiter);
+            }
+        };
+    }
+
+    /**
+     * 定长分包
+     *
+     * @param frameLength 帧长，须大于 0
+     */
+    public static FrameDecoderFactory fixedLength(final int frameLength) {
+        if (frameLength <= 0) {
+            throw new IllegalArgumentException("frameLength: " + frameLength);
+        }
+        return new SpecFactory("fixed:" + frameLength) {
+            @Override
+            public FrameDecoder create() {
+                return new FixedLengthFrameDecoder(frameLength);
+            }
+        };
+    }
+
+    /**
+     * 长度前缀分包
+     *
+     * @param fieldLength 长度字段字节数：1、2、4
+     * @param order       长度字段字节序
+     */
+    public static FrameDecoderFactory lengthField(final int fieldLength, final ByteOrder order) {
+        if (fieldLength != 1 && fieldLength != 2 && fieldLength != 4) {
+            throw new IllegalArgumentException("fieldLength must be 1, 2 or 4: " + fieldLength);
+        }
+        return new SpecFactory("length:" + fieldLength + (order == ByteOrder.LITTLE_ENDIAN ? ":LE" : ":BE")) {
+            @Override
+            public FrameDecoder create() {
+                return new LengthFieldFrameDecoder(fieldLength, order);
+            }
+        };
+    }
+
+    /**
+     * COBS 分包
+     */
+    public static FrameDecoderFactory cobs() {
+        return new SpecFactory("cobs") {
+            @Override
+            public FrameDecoder create() {
+                return new CobsFrameDecoder();
+            }
+        };
+    }
+
+    /**
+     * SLIP 分包
+     */
+    public static FrameDecoderFactory slip() {
+        return new SpecFactory("slip") {
+            @Override
+            public FrameDecoder create() {
+                return new SlipFrameDecoder();
+            }
+        };
+    }
+
+    /**
+     * 带描述的内置分帧方式
+     */
+    private abstract static class SpecFactory implements FrameDecoderFactory {
+
+        private final String mSpec;
+
+        SpecFactory(String spec) {
+            this.mSpec = spec;
+        }
+
+        @Override
+        public String toString() {
+            return mSpec;
+        }
+    }
+}
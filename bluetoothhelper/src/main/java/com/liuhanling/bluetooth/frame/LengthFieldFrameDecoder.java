@@ -0,0 +1,99 @@
+package com.liuhanling.bluetooth.frame;
+
+import java.nio.ByteOrder;
+
+/**
+ * 长度前缀分帧
+ * <p>
+ * 帧格式为 [长度][数据]，长度字段为 1、2 或 4 字节无符号数，只计数据部分，回调时不含长度字段。
+ * 长度超过最大帧长的帧会被跳过。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class LengthFieldFrameDecoder extends BufferedFrameDecoder {
+
+    private final int mFieldLength;
+    private final boolean isBigEndian;
+
+    private final byte[] mHeader = new byte[4];
+    private int mHeaderLength = 0;
+    private long mFrameLength = -1;
+    private long mSkipLength = 0;
+
+    public LengthFieldFrameDecoder(int fieldLength, ByteOrder order) {
+        this(fieldLength, order, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public LengthFieldFrameDecoder(int fieldLength, ByteOrder order, int maxFrameLength) {
+        super(maxFrameLength);
+        if (fieldLength != 1 && fieldLength != 2 && fieldLength != 4) {
+            throw new IllegalArgumentException("fieldLength must be 1, 2 or 4: " + fieldLength);
+        }
+        this.mFieldLength = fieldLength;
+        this.isBigEndian = order == ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, FrameListener listener) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (mSkipLength > 0) {
+                int n = (int) Math.min(mSkipLength, end - i);
+                i += n;
+                mSkipLength -= n;
+                continue;
+            }
+            if (mFrameLength < 0) {
+                if (mHeaderLength == 0 && end - i >= mFieldLength) {
+                    mFrameLength = readLength(data, i);
+                    i += mFieldLength;
+                } else {
+                    mHeader[mHeaderLength++] = data[i++];
+                    if (mHeaderLength < mFieldLength) {
+                        continue;
+                    }
+                    mFrameLength = readLength(mHeader, 0);
+                    mHeaderLength = 0;
+                }
+                if (mFrameLength > mMaxFrameLength) {
+                    mSkipLength = mFrameLength;
+                    mFrameLength = -1;
+                    continue;
+                }
+            }
+            int frameLength = (int) mFrameLength;
+            if (mLength == 0 && end - i >= frameLength) {
+                listener.onFrame(data, i, frameLength);
+                i += frameLength;
+                mFrameLength = -1;
+                continue;
+            }
+            int n = Math.min(frameLength - mLength, end - i);
+            append(data, i, n);
+            i += n;
+            if (mLength == frameLength) {
+                mFrameLength = -1;
+                flush(listener);
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        mHeaderLength = 0;
+        mFrameLength = -1;
+        mSkipLength = 0;
+    }
+
+    private long readLength(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < mFieldLength; i++) {
+            int index = isBigEndian ? offset + i : offset + mFieldLength - 1 - i;
+            value = (value << 8) | (data[index] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,66 @@
+package com.liuhanling.bluetooth.frame;
+
+/**
+ * SLIP 分帧 (RFC 1055)
+ * <p>
+ * 以 0xC0 作为帧结束符，0xDB 转义。无转义的帧完整落在输入块内时直接回调输入块切片。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class SlipFrameDecoder extends BufferedFrameDecoder {
+
+    private static final byte END = (byte) 0xC0;
+    private static final byte ESC = (byte) 0xDB;
+    private static final byte ESC_END = (byte) 0xDC;
+    private static final byte ESC_ESC = (byte) 0xDD;
+
+    private boolean isEscaping = false;
+
+    public SlipFrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public SlipFrameDecoder(int maxFrameLength) {
+        super(maxFrameLength);
+    }
+
+    @Override
+    public void decode(byte[] data, int offset, int length, FrameListener listener) {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (isEscaping) {
+                append(b == ESC_END ? END : b == ESC_ESC ? ESC : b);
+                isEscaping = false;
+                start = i + 1;
+            } else if (b == END) {
+                if (mLength == 0 && !isDiscarding) {
+                    if (i > start) {
+                        emit(data, start, i - start, listener);
+                    }
+                } else {
+                    append(data, start, i - start);
+                    if (mLength > 0) {
+                        flush(listener);
+                    } else {
+                        reset();
+                    }
+                }
+                start = i + 1;
+            } else if (b == ESC) {
+                append(data, start, i - start);
+                isEscaping = true;
+                start = i + 1;
+            }
+        }
+        append(data, start, end - start);
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        isEscaping = false;
+    }
+}
@@ -0,0 +1,16 @@
+package com.liuhanling.bluetooth.listener;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+
+import java.util.List;
+
+/**
+ * 蓝牙数据帧批量监听，回调线程处理不及时时相邻数据帧合并为一次回调，
+ * 每帧用完后须调用 {@link BluetoothFrame#release()}
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothBatchListener {
+    void onReceiveBatch(List<BluetoothFrame> frames);
+}
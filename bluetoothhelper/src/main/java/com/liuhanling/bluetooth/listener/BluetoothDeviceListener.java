@@ -0,0 +1,33 @@
+package com.liuhanling.bluetooth.listener;
+
+import com.liuhanling.bluetooth.BluetoothScanDevice;
+
+/**
+ * 扫描设备监听，在扫描回调线程回调
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothDeviceListener {
+
+    /**
+     * 首次发现
+     *
+     * @param device
+     */
+    void onDeviceFound(BluetoothScanDevice device);
+
+    /**
+     * 再次收到广播，同一设备在更新间隔内只回调一次
+     *
+     * @param device
+     */
+    void onDeviceUpdated(BluetoothScanDevice device);
+
+    /**
+     * 超时未收到广播
+     *
+     * @param device
+     */
+    void onDeviceLost(BluetoothScanDevice device);
+}
@@ -0,0 +1,13 @@
+package com.liuhanling.bluetooth.listener;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+
+/**
+ * 蓝牙数据帧监听，用完后须调用 {@link BluetoothFrame#release()}
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothFrameListener {
+    void onReceiveFrame(BluetoothFrame frame);
+}
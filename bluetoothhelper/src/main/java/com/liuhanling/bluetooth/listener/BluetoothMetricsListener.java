@@ -0,0 +1,14 @@
+package com.liuhanling.bluetooth.listener;
+
+import com.liuhanling.bluetooth.BluetoothMetrics;
+
+/**
+ * 统计定时回调，在主线程回调
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothMetricsListener {
+
+    void onMetrics(BluetoothMetrics.Snapshot snapshot);
+}
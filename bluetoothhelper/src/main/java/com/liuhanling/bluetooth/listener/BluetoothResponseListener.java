@@ -0,0 +1,19 @@
+package com.liuhanling.bluetooth.listener;
+
+/**
+ * 请求应答监听，在接收线程或超时线程回调，不能阻塞
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothResponseListener {
+
+    void onResponse(byte[] response);
+
+    /**
+     * 发送失败、超时、取消或连接断开
+     *
+     * @param e
+     */
+    void onFailure(Exception e);
+}
@@ -0,0 +1,17 @@
+package com.liuhanling.bluetooth.listener;
+
+/**
+ * BLE 扫描失败监听，在主线程回调
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothScanFailureListener {
+
+    /**
+     * 系统未能开启 BLE 扫描，经典蓝牙发现不受影响
+     *
+     * @param errorCode ScanCallback.SCAN_FAILED_* 取值
+     */
+    void onScanFailed(int errorCode);
+}
@@ -0,0 +1,17 @@
+package com.liuhanling.bluetooth.listener;
+
+/**
+ * 蓝牙会话监听，按设备地址区分，用于多连接模式
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothSessionListener {
+    void onSessionConnected(String name, String address);
+
+    void onSessionDisconnected(String address);
+
+    void onSessionFailed(String address);
+
+    void onSessionMessage(String address, byte[] data, String message);
+}
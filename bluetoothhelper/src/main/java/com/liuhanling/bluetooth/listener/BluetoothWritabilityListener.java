@@ -0,0 +1,18 @@
+package com.liuhanling.bluetooth.listener;
+
+/**
+ * 发送可写状态监听，在发送线程或调用发送的线程回调，不能阻塞
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothWritabilityListener {
+
+    /**
+     * 待发送字节数越过高水位时不可写，降到低水位以下时恢复可写
+     *
+     * @param address
+     * @param writable
+     */
+    void onWritabilityChanged(String address, boolean writable);
+}
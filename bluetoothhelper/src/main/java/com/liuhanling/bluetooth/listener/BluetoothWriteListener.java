@@ -0,0 +1,15 @@
+package com.liuhanling.bluetooth.listener;
+
+import java.io.IOException;
+
+/**
+ * 蓝牙发送监听，在发送线程回调
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface BluetoothWriteListener {
+    void onWriteSuccess();
+
+    void onWriteFailure(IOException e);
+}
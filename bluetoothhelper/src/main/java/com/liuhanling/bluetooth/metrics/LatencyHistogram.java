@@ -0,0 +1,135 @@
+package com.liuhanling.bluetooth.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延时直方图，对数分桶，每个 2 的幂区间再分 8 格，相对误差不超过 12.5%
+ * <p>
+ * 记录只做几次原子加，可在收发线程直接调用；读取不加锁，并发记录时各统计值可能相差几次记录。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_COUNT;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * 记录一个值
+     *
+     * @param value 小于 0 时按 0 记录
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets.incrementAndGet(index(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+            // 重试
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mCount.get();
+        return count > 0 ? (double) mSum.get() / count : 0;
+    }
+
+    /**
+     * 百分位
+     *
+     * @param percentile 0 - 100
+     * @return 所在桶的上界，无记录时为 0
+     */
+    public long getPercentile(double percentile) {
+        return getPercentiles(percentile)[0];
+    }
+
+    /**
+     * 多个百分位，只复制一次桶计数，结果彼此一致
+     *
+     * @param percentiles 0 - 100，升序时只扫描一遍
+     * @return 各百分位所在桶的上界，无记录时为 0
+     */
+    public long[] getPercentiles(double... percentiles) {
+        long[] values = new long[percentiles.length];
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = mBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return values;
+        }
+        long max = mMax.get();
+        int index = 0;
+        long seen = 0;
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max((long) Math.ceil(total * Math.min(Math.max(percentiles[p], 0), 100) / 100.0), 1);
+            if (p > 0 && percentiles[p] < percentiles[p - 1]) {
+                index = 0;
+                seen = 0;
+            }
+            while (index < BUCKETS && seen + counts[index] < rank) {
+                seen += counts[index++];
+            }
+            values[p] = index < BUCKETS ? Math.min(upperBound(index), max) : max;
+        }
+        return values;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return LINEAR + (exponent - 4) * SUB_COUNT + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_COUNT + 4;
+        int sub = (index - LINEAR) % SUB_COUNT;
+        long lower = (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        long[] percentiles = getPercentiles(50, 99);
+        return "count=" + getCount() + ", mean=" + Math.round(getMean()) + ", p50=" + percentiles[0]
+                + ", p99=" + percentiles[1] + ", max=" + getMax();
+    }
+}
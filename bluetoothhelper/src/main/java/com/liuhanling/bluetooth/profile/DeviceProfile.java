@@ -0,0 +1,151 @@
+package com.liuhanling.bluetooth.profile;
+
+import java.util.UUID;
+
+/**
+ * 设备档案，记录设备名称、连接成功的 UUID、偏好的分帧方式和连接统计
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class DeviceProfile {
+
+    private final String mAddress;
+    private String mName;
+    private UUID mUuid;
+    private String mFraming;
+    private int mConnectCount;
+    private int mFailureCount;
+    private long mLastConnectTime;
+    private long mConnectDuration = -1;
+
+    public DeviceProfile(String address) {
+        if (address == null) {
+            throw new IllegalArgumentException("address == null");
+        }
+        this.mAddress = address;
+    }
+
+    /**
+     * 复制
+     *
+     * @return
+     */
+    public DeviceProfile copy() {
+        DeviceProfile profile = new DeviceProfile(mAddress);
+        profile.mName = mName;
+        profile.mUuid = mUuid;
+        profile.mFraming = mFraming;
+        profile.mConnectCount = mConnectCount;
+        profile.mFailureCount = mFailureCount;
+        profile.mLastConnectTime = mLastConnectTime;
+        profile.mConnectDuration = mConnectDuration;
+        return profile;
+    }
+
+    public String getAddress() {
+        return mAddress;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public DeviceProfile setName(String name) {
+        mName = name;
+        return this;
+    }
+
+    /**
+     * 上次连接成功的服务 UUID
+     *
+     * @return
+     */
+    public UUID getUuid() {
+        return mUuid;
+    }
+
+    public DeviceProfile setUuid(UUID uuid) {
+        mUuid = uuid;
+        return this;
+    }
+
+    /**
+     * 偏好的分帧方式
+     *
+     * @return 见 {@link com.liuhanling.bluetooth.frame.FrameDecoders#parse(String)}
+     */
+    public String getFraming() {
+        return mFraming;
+    }
+
+    public DeviceProfile setFraming(String framing) {
+        mFraming = framing;
+        return this;
+    }
+
+    public int getConnectCount() {
+        return mConnectCount;
+    }
+
+    public int getFailureCount() {
+        return mFailureCount;
+    }
+
+    /**
+     * 上次连接成功的时间
+     *
+     * @return
+     */
+    public long getLastConnectTime() {
+        return mLastConnectTime;
+    }
+
+    /**
+     * 上次建立连接耗时，毫秒
+     *
+     * @return 未知时为 -1
+     */
+    public long getConnectDuration() {
+        return mConnectDuration;
+    }
+
+    /**
+     * 记录一次连接成功
+     *
+     * @param time     连接时间
+     * @param duration 建立连接耗时，毫秒，未知时为 -1
+     * @return
+     */
+    public DeviceProfile onConnected(long time, long duration) {
+        mConnectCount++;
+        mLastConnectTime = time;
+        if (duration >= 0) {
+            mConnectDuration = duration;
+        }
+        return this;
+    }
+
+    /**
+     * 记录一次连接失败
+     *
+     * @return
+     */
+    public DeviceProfile onConnectFailed() {
+        mFailureCount++;
+        return this;
+    }
+
+    void setStats(int connectCount, int failureCount, long lastConnectTime, long connectDuration) {
+        mConnectCount = connectCount;
+        mFailureCount = failureCount;
+        mLastConnectTime = lastConnectTime;
+        mConnectDuration = connectDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceProfile{address=" + mAddress + ", name=" + mName + ", uuid=" + mUuid + ", framing=" + mFraming
+                + ", connects=" + mConnectCount + ", failures=" + mFailureCount + "}";
+    }
+}
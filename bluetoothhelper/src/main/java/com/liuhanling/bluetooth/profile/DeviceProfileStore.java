@@ -0,0 +1,394 @@
+package com.liuhanling.bluetooth.profile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * 设备档案存储，按地址保存，重启后保留
+ * <p>
+ * 文件只追加，每次修改写一条带校验的记录，首次访问时读入内存；末尾不完整的记录在加载时截掉。
+ * 追加失败时截回上一条完整记录的末尾，截断也失败时下次修改改为整体压缩，不在残缺记录后继续追加。
+ * 废弃记录多于有效记录时写临时文件再改名，压缩成每个设备一条记录。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class DeviceProfileStore {
+
+    private static final int MAGIC = 0x42545046;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 5;
+    static final int MAX_RECORD_LENGTH = 4096;
+    /** 记录数不超过该值时不压缩 */
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final int FLAG_NAME = 1;
+    private static final int FLAG_UUID = 2;
+    private static final int FLAG_FRAMING = 4;
+
+    private final File mFile;
+    private final Map<String, DeviceProfile> mProfiles = new HashMap<>();
+    private DataOutputStream mOutput;
+    private boolean isLoaded = false;
+    private int mRecords = 0;
+    /** 文件中完整记录的末尾 */
+    private long mValidLength = 0;
+    /** 文件末尾可能有残缺记录，下次修改时整体重写 */
+    private boolean isCompactPending = false;
+
+    public DeviceProfileStore(File file) {
+        this.mFile = file;
+    }
+
+    /**
+     * 获取设备档案
+     *
+     * @param address
+     * @return 没有时为 null，返回副本
+     */
+    public synchronized DeviceProfile get(String address) {
+        load();
+        DeviceProfile profile = mProfiles.get(address);
+        return profile != null ? profile.copy() : null;
+    }
+
+    /**
+     * 获取所有设备档案
+     *
+     * @return 副本
+     */
+    public synchronized List<DeviceProfile> getAll() {
+        load();
+        List<DeviceProfile> profiles = new ArrayList<>(mProfiles.size());
+        for (DeviceProfile profile : mProfiles.values()) {
+            profiles.add(profile.copy());
+        }
+        return profiles;
+    }
+
+    /**
+     * 保存设备档案
+     *
+     * @param profile
+     * @throws IllegalArgumentException 编码后超过 {@link #MAX_RECORD_LENGTH}，不保存
+     */
+    public synchronized void put(DeviceProfile profile) {
+        load();
+        profile = profile.copy();
+        byte[] payload = encode(profile);
+        mProfiles.put(profile.getAddress(), profile);
+        append(OP_PUT, payload);
+    }
+
+    /**
+     * 删除设备档案
+     *
+     * @param address
+     */
+    public synchronized void remove(String address) {
+        load();
+        if (mProfiles.remove(address) != null) {
+            append(OP_REMOVE, encodeAddress(address));
+        }
+    }
+
+    /**
+     * 设备档案数
+     *
+     * @return
+     */
+    public synchronized int size() {
+        load();
+        return mProfiles.size();
+    }
+
+    /**
+     * 压缩文件，每个设备只留一条记录
+     */
+    public synchronized void compact() {
+        load();
+        closeOutput();
+        File temp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(temp);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fos));
+            writeHeader(output);
+            for (DeviceProfile profile : mProfiles.values()) {
+                writeRecord(output, OP_PUT, encode(profile));
+            }
+            output.flush();
+            fos.getFD().sync();
+            output.close();
+            fos = null;
+            if (!temp.renameTo(mFile)) {
+                throw new IOException("Rename failed: " + temp);
+            }
+            mRecords = mProfiles.size();
+            isCompactPending = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+        } finally {
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭文件，再次访问时重新打开
+     */
+    public synchronized void close() {
+        closeOutput();
+    }
+
+    /**
+     * 首次访问时从文件读入
+     */
+    private void load() {
+        if (isLoaded) {
+            return;
+        }
+        isLoaded = true;
+        if (!mFile.exists()) {
+            return;
+        }
+        long valid = 0;
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                throw new IOException("Bad header: " + mFile);
+            }
+            valid = HEADER_LENGTH;
+            while (true) {
+                byte op = input.readByte();
+                int length = input.readInt();
+                if (length < 0 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                if (input.readInt() != checksum(op, payload) || !apply(op, payload)) {
+                    break;
+                }
+                valid += 1 + 4 + length + 4;
+                mRecords++;
+            }
+        } catch (EOFException e) {
+            // 末尾记录不完整
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if (valid < HEADER_LENGTH) {
+            mFile.delete();
+        } else if (valid < mFile.length() && !truncate(valid)) {
+            isCompactPending = true;
+        }
+    }
+
+    private boolean apply(byte op, byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        String address = input.readUTF();
+        if (op == OP_REMOVE) {
+            mProfiles.remove(address);
+            return true;
+        }
+        if (op != OP_PUT) {
+            return false;
+        }
+        DeviceProfile profile = new DeviceProfile(address);
+        int flags = input.readByte();
+        if ((flags & FLAG_NAME) != 0) {
+            profile.setName(input.readUTF());
+        }
+        if ((flags & FLAG_UUID) != 0) {
+            profile.setUuid(new UUID(input.readLong(), input.readLong()));
+        }
+        if ((flags & FLAG_FRAMING) != 0) {
+            profile.setFraming(input.readUTF());
+        }
+        profile.setStats(input.readInt(), input.readInt(), input.readLong(), input.readLong());
+        mProfiles.put(address, profile);
+        return true;
+    }
+
+    /**
+     * @return 是否成功
+     */
+    private boolean truncate(long length) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "rw");
+            file.setLength(length);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void append(byte op, byte[] payload) {
+        if (isCompactPending) {
+            // 内存中已含本次修改
+            compact();
+            return;
+        }
+        try {
+            if (mOutput == null) {
+                mValidLength = mFile.exists() ? mFile.length() : 0;
+                mOutput = new DataOutputStream(new BufferedOutputStream(openAppend(mFile)));
+                if (mValidLength == 0) {
+                    writeHeader(mOutput);
+                    mOutput.flush();
+                    mValidLength = HEADER_LENGTH;
+                }
+            }
+            writeRecord(mOutput, op, payload);
+            mOutput.flush();
+            mValidLength += 1 + 4 + payload.length + 4;
+            mRecords++;
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeOutput();
+            // 截掉写了一半的记录，否则其后追加的记录加载时都会被当成损坏丢掉
+            boolean truncated = mValidLength >= HEADER_LENGTH ? truncate(mValidLength) : mFile.delete() || !mFile.exists();
+            if (!truncated) {
+                isCompactPending = true;
+            }
+            return;
+        }
+        if (mRecords > COMPACT_MIN_RECORDS && mRecords > mProfiles.size() * 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 以追加方式打开文件
+     */
+    OutputStream openAppend(File file) throws IOException {
+        return new FileOutputStream(file, true);
+    }
+
+    private void closeOutput() {
+        if (mOutput != null) {
+            try {
+                mOutput.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mOutput = null;
+        }
+    }
+
+    private static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    private static void writeRecord(DataOutputStream output, byte op, byte[] payload) throws IOException {
+        output.writeByte(op);
+        output.writeInt(payload.length);
+        output.write(payload);
+        output.writeInt(checksum(op, payload));
+    }
+
+    private static int checksum(byte op, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeAddress(String address) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try {
+            new DataOutputStream(bytes).writeUTF(address);
+        } catch (UTFDataFormatException e) {
+            throw new IllegalArgumentException("Address too long", e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return checkLength(bytes.toByteArray());
+    }
+
+    private static byte[] encode(DeviceProfile profile) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeUTF(profile.getAddress());
+            int flags = (profile.getName() != null ? FLAG_NAME : 0)
+                    | (profile.getUuid() != null ? FLAG_UUID : 0)
+                    | (profile.getFraming() != null ? FLAG_FRAMING : 0);
+            output.writeByte(flags);
+            if (profile.getName() != null) {
+                output.writeUTF(profile.getName());
+            }
+            if (profile.getUuid() != null) {
+                output.writeLong(profile.getUuid().getMostSignificantBits());
+                output.writeLong(profile.getUuid().getLeastSignificantBits());
+            }
+            if (profile.getFraming() != null) {
+                output.writeUTF(profile.getFraming());
+            }
+            output.writeInt(profile.getConnectCount());
+            output.writeInt(profile.getFailureCount());
+            output.writeLong(profile.getLastConnectTime());
+            output.writeLong(profile.getConnectDuration());
+        } catch (UTFDataFormatException e) {
+            throw new IllegalArgumentException("Profile too large: " + profile.getAddress(), e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return checkLength(bytes.toByteArray());
+    }
+
+    /**
+     * 超长的记录加载时会被当成损坏而截掉其后的所有记录，写入前拒绝
+     */
+    private static byte[] checkLength(byte[] payload) {
+        if (payload.length > MAX_RECORD_LENGTH) {
+            throw new IllegalArgumentException("Record too large: " + payload.length + " > " + MAX_RECORD_LENGTH);
+        }
+        return payload;
+    }
+}
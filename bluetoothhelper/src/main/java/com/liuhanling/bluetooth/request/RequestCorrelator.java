@@ -0,0 +1,28 @@
+package com.liuhanling.bluetooth.request;
+
+/**
+ * 请求应答匹配，按帧中的编号匹配，不设置时按发送顺序匹配
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface RequestCorrelator {
+
+    /**
+     * 请求编号
+     *
+     * @param data 请求数据，不含帧尾
+     * @return 不可为 null
+     */
+    Object getRequestId(byte[] data);
+
+    /**
+     * 应答编号
+     *
+     * @param data   帧缓冲，调用返回后失效
+     * @param offset
+     * @param length
+     * @return null 表示不是应答，按普通数据回调
+     */
+    Object getResponseId(byte[] data, int offset, int length);
+}
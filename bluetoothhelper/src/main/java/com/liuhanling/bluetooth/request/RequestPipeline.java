@@ -0,0 +1,328 @@
+package com.liuhanling.bluetooth.request;
+
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+import com.liuhanling.bluetooth.service.IoScheduler;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求应答管线，一个连接会话一个
+ * <p>
+ * 请求不等上一个应答即可发出，在途请求数受窗口限制，超出的请求排队，有应答、超时或取消后依次发出。
+ * 未设置 {@link RequestCorrelator} 时按发送顺序匹配应答，此时对端须按序应答，超时后迟到的应答会错配给下一个请求。
+ * 所有会话的超时共用 {@link IoScheduler#getTimer()} 的定时线程。
+ * <p>
+ * 请求在排队、在途、结束之间的切换都在管线锁内进行，结果回调在锁外。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class RequestPipeline {
+
+    public static final int DEFAULT_WINDOW = 8;
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    private static final int STATE_NEW = 0;
+    private static final int STATE_PENDING = 1;
+    private static final int STATE_IN_FLIGHT = 2;
+    private static final int STATE_DONE = 3;
+
+    private final WriteQueue mWriteQueue;
+    private final RequestCorrelator mCorrelator;
+    private final int mWindow;
+    private final ArrayDeque<Request> mPending = new ArrayDeque<>();
+    private final ArrayDeque<Request> mInFlight = new ArrayDeque<>();
+    private final HashMap<Object, Request> mInFlightById = new HashMap<>();
+    private final AtomicInteger mDrainCount = new AtomicInteger();
+    private boolean isClosed = false;
+
+    /**
+     * @param writeQueue 会话发送队列
+     * @param window     在途请求数上限
+     * @param correlator 为 null 时按发送顺序匹配
+     */
+    public RequestPipeline(WriteQueue writeQueue, int window, RequestCorrelator correlator) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window: " + window);
+        }
+        this.mWriteQueue = writeQueue;
+        this.mCorrelator = correlator;
+        this.mWindow = window;
+    }
+
+    /**
+     * 已创建的失败结果
+     *
+     * @param e
+     * @return
+     */
+    public static ResponseFuture failed(Exception e) {
+        ResponseFuture future = new ResponseFuture();
+        future.fail(e);
+        return future;
+    }
+
+    /**
+     * 发请求
+     *
+     * @param data     请求数据，用于取请求编号
+     * @param segments 实际写出的分段，写出前不可修改
+     * @param timeout  毫秒，从调用时算起，含排队时间
+     * @return 取消后让出窗口
+     */
+    public ResponseFuture request(byte[] data, ByteBuffer[] segments, long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout: " + timeout);
+        }
+        final Request request = new Request(mCorrelator != null ? mCorrelator.getRequestId(data) : null, segments);
+        boolean isQueued = false;
+        synchronized (this) {
+            if (!isClosed) {
+                request.state = STATE_PENDING;
+                mPending.offer(request);
+                isQueued = true;
+            }
+        }
+        if (!isQueued) {
+            request.future.fail(new IOException("Request pipeline closed"));
+            return request.future;
+        }
+        request.timer = IoScheduler.getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (remove(request)) {
+                    request.future.fail(new TimeoutException("Request timeout"));
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        if (request.state == STATE_DONE) {
+            // 定时前已结束
+            cancelTimer(request);
+        }
+        drain();
+        return request.future;
+    }
+
+    /**
+     * 接收帧，匹配在途请求
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return 是否为应答，否则按普通数据处理
+     */
+    public boolean onFrame(byte[] buffer, int offset, int length) {
+        Object id = null;
+        if (mCorrelator != null) {
+            id = mCorrelator.getResponseId(buffer, offset, length);
+            if (id == null) {
+                return false;
+            }
+        }
+        Request request;
+        synchronized (this) {
+            if (id != null) {
+                request = mInFlightById.remove(id);
+                if (request == null) {
+                    return true;
+                }
+                mInFlight.remove(request);
+            } else {
+                request = mInFlight.poll();
+                if (request == null) {
+                    return false;
+                }
+            }
+            request.state = STATE_DONE;
+        }
+        cancelTimer(request);
+        request.future.complete(Arrays.copyOfRange(buffer, offset, offset + length));
+        drain();
+        return true;
+    }
+
+    /**
+     * 在途请求数
+     *
+     * @return
+     */
+    public synchronized int getInFlight() {
+        return mInFlight.size();
+    }
+
+    /**
+     * 排队请求数
+     *
+     * @return
+     */
+    public synchronized int getPending() {
+        return mPending.size();
+    }
+
+    /**
+     * 关闭管线，排队和在途的请求失败
+     *
+     * @param e
+     */
+    public void close(IOException e) {
+        ArrayList<Request> requests;
+        synchronized (this) {
+            isClosed = true;
+            requests = new ArrayList<>(mPending.size() + mInFlight.size());
+            requests.addAll(mPending);
+            requests.addAll(mInFlight);
+            mPending.clear();
+            mInFlight.clear();
+            mInFlightById.clear();
+            for (Request request : requests) {
+                request.state = STATE_DONE;
+            }
+        }
+        for (Request request : requests) {
+            cancelTimer(request);
+            request.future.fail(e);
+        }
+    }
+
+    /**
+     * 窗口有空位时发出排队的请求
+     * <p>
+     * 同一时刻只有一个线程在发，其他线程的调用计数后由它继续处理，保证在途顺序与写出顺序一致，
+     * 且发送队列同步回调写失败时不会重入。
+     */
+    private void drain() {
+        if (mDrainCount.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Request request;
+            while ((request = next()) != null) {
+                if (request.isDuplicate) {
+                    cancelTimer(request);
+                    request.future.fail(new IllegalStateException("Duplicate request id: " + request.id));
+                    continue;
+                }
+                if (request.state == STATE_DONE) {
+                    // 取出后已超时或取消，不再写出
+                    continue;
+                }
+                mWriteQueue.offer(request.segments, null, request);
+            }
+            missed = mDrainCount.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 取下一个可发出的请求并转为在途，编号重复的请求转为结束后返回
+     */
+    private synchronized Request next() {
+        while (!isClosed && mInFlight.size() < mWindow) {
+            Request request = mPending.poll();
+            if (request == null) {
+                return null;
+            }
+            if (request.future.isDone()) {
+                request.state = STATE_DONE;
+                continue;
+            }
+            if (request.id != null && mInFlightById.containsKey(request.id)) {
+                request.state = STATE_DONE;
+                request.isDuplicate = true;
+                return request;
+            }
+            if (request.id != null) {
+                mInFlightById.put(request.id, request);
+            }
+            request.state = STATE_IN_FLIGHT;
+            mInFlight.offer(request);
+            return request;
+        }
+        return null;
+    }
+
+    /**
+     * 把未结束的请求移出排队或在途，在途的让出窗口并发出下一个
+     *
+     * @return 是否由本次调用结束，已结束时返回 false
+     */
+    private boolean remove(Request request) {
+        int state;
+        synchronized (this) {
+            state = request.state;
+            if (state == STATE_PENDING) {
+                mPending.remove(request);
+            } else if (state == STATE_IN_FLIGHT) {
+                mInFlight.remove(request);
+                if (request.id != null) {
+                    mInFlightById.remove(request.id);
+                }
+            } else {
+                return false;
+            }
+            request.state = STATE_DONE;
+        }
+        cancelTimer(request);
+        if (state == STATE_IN_FLIGHT) {
+            drain();
+        }
+        return true;
+    }
+
+    private static void cancelTimer(Request request) {
+        ScheduledFuture<?> timer = request.timer;
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    /**
+     * 请求，写出失败时从在途中移除
+     */
+    private class Request implements BluetoothWriteListener {
+
+        final Object id;
+        final ByteBuffer[] segments;
+        final ResponseFuture future = new ResponseFuture() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (!super.cancel(mayInterruptIfRunning)) {
+                    return false;
+                }
+                remove(Request.this);
+                cancelTimer(Request.this);
+                return true;
+            }
+        };
+        volatile ScheduledFuture<?> timer;
+        /** 管线锁内修改 */
+        volatile int state = STATE_NEW;
+        boolean isDuplicate = false;
+
+        Request(Object id, ByteBuffer[] segments) {
+            this.id = id;
+            this.segments = segments;
+        }
+
+        @Override
+        public void onWriteSuccess() {
+        }
+
+        @Override
+        public void onWriteFailure(IOException e) {
+            if (remove(this)) {
+                future.fail(e);
+            }
+        }
+    }
+}
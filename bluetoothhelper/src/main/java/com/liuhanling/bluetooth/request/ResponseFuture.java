@@ -0,0 +1,115 @@
+package com.liuhanling.bluetooth.request;
+
+import com.liuhanling.bluetooth.listener.BluetoothResponseListener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 请求应答结果，只完成一次
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ResponseFuture implements Future<byte[]> {
+
+    private final CountDownLatch mLatch = new CountDownLatch(1);
+    private final AtomicBoolean isDone = new AtomicBoolean();
+    private final AtomicReference<BluetoothResponseListener> mListener = new AtomicReference<>();
+    private volatile byte[] mResponse;
+    private volatile Exception mError;
+
+    /**
+     * 设置完成回调，已完成时立即回调
+     *
+     * @param listener
+     * @return
+     */
+    public ResponseFuture setListener(BluetoothResponseListener listener) {
+        mListener.set(listener);
+        if (listener != null && isDone() && mListener.compareAndSet(listener, null)) {
+            notify(listener);
+        }
+        return this;
+    }
+
+    boolean complete(byte[] response) {
+        if (!isDone.compareAndSet(false, true)) {
+            return false;
+        }
+        mResponse = response;
+        finish();
+        return true;
+    }
+
+    boolean fail(Exception error) {
+        if (!isDone.compareAndSet(false, true)) {
+            return false;
+        }
+        mError = error;
+        finish();
+        return true;
+    }
+
+    private void finish() {
+        mLatch.countDown();
+        BluetoothResponseListener listener = mListener.getAndSet(null);
+        if (listener != null) {
+            notify(listener);
+        }
+    }
+
+    private void notify(BluetoothResponseListener listener) {
+        if (mError != null) {
+            listener.onFailure(mError);
+        } else {
+            listener.onResponse(mResponse);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return fail(new CancellationException());
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mError instanceof CancellationException;
+    }
+
+    @Override
+    public boolean isDone() {
+        return mLatch.getCount() == 0;
+    }
+
+    @Override
+    public byte[] get() throws InterruptedException, ExecutionException {
+        mLatch.await();
+        return result();
+    }
+
+    @Override
+    public byte[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!mLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private byte[] result() throws ExecutionException {
+        Exception error = mError;
+        if (error instanceof CancellationException) {
+            throw (CancellationException) error;
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return mResponse;
+    }
+}
@@ -0,0 +1,122 @@
+package com.liuhanling.bluetooth.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 蓝牙 I/O 调度
+ * <p>
+ * 监听、连接、接收、发送都作为任务提交到同一个线程池，空闲线程保留一段时间后回收，
+ * 频繁重连时复用已有线程，不再每次新建线程。
+ * <p>
+ * 监听、连接和接收任务在整个连接期间占用线程，任务不排队：没有空闲线程时新建，
+ * 达到线程数上限时抛出 {@link RejectedExecutionException}，由提交方按连接失败处理。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class IoScheduler implements Executor {
+
+    public static final int DEFAULT_MAX_THREADS = 32;
+    public static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile IoScheduler sDefault;
+    private static ScheduledExecutorService sTimer;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    public IoScheduler(int maxThreads) {
+        mExecutor = new ThreadPoolExecutor(0, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "BluetoothIO-" + mCount.incrementAndGet());
+            }
+        });
+    }
+
+    /**
+     * 默认共享调度
+     *
+     * @return
+     */
+    public static IoScheduler getDefault() {
+        if (sDefault == null) {
+            synchronized (IoScheduler.class) {
+                if (sDefault == null) {
+                    sDefault = new IoScheduler(DEFAULT_MAX_THREADS);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 共用的定时线程，用于请求超时、连接尝试超时等短任务
+     *
+     * @return
+     */
+    public static synchronized ScheduledExecutorService getTimer() {
+        if (sTimer == null) {
+            sTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "BluetoothTimer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sTimer;
+    }
+
+    /**
+     * 执行任务
+     *
+     * @param command
+     * @throws RejectedExecutionException 线程数已达上限
+     */
+    @Override
+    public void execute(Runnable command) {
+        mExecutor.execute(command);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param task
+     * @return 可用于取消尚未开始的任务
+     * @throws RejectedExecutionException 线程数已达上限
+     */
+    public Future<?> submit(Runnable task) {
+        return mExecutor.submit(task);
+    }
+
+    /**
+     * 当前线程数
+     *
+     * @return
+     */
+    public int getPoolSize() {
+        return mExecutor.getPoolSize();
+    }
+
+    /**
+     * 正在执行任务的线程数
+     *
+     * @return
+     */
+    public int getActiveCount() {
+        return mExecutor.getActiveCount();
+    }
+}
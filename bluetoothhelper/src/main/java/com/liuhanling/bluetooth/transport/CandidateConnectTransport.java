@@ -0,0 +1,153 @@
+package com.liuhanling.bluetooth.transport;
+
+import com.liuhanling.bluetooth.service.IoScheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 依次尝试多个候选通道的主动连接
+ * <p>
+ * 前一个候选失败或超时后换下一个。限时的尝试到时关闭当前通道，使阻塞中的 {@link Transport#connect()} 抛出异常，
+ * 不限时的尝试等通道自身超时。连接成功后收发都使用成功的候选通道。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+abstract class CandidateConnectTransport implements Transport {
+
+    private final int mCount;
+    private final long mAttemptTimeout;
+    private volatile Transport mTransport;
+    private volatile boolean isClosed = false;
+
+    /**
+     * @param first          第一个候选通道，预先创建
+     * @param count          候选数
+     * @param attemptTimeout 限时尝试的超时，毫秒，0 为不限时
+     */
+    CandidateConnectTransport(Transport first, int count, long attemptTimeout) {
+        this.mTransport = first;
+        this.mCount = count;
+        this.mAttemptTimeout = attemptTimeout;
+    }
+
+    /**
+     * 创建第 index 个候选通道，index 从 1 开始
+     */
+    protected abstract Transport open(int index) throws IOException;
+
+    /**
+     * 第 index 个候选连接成功
+     */
+    protected abstract void onConnected(int index);
+
+    /**
+     * 第 index 个候选开始连接前
+     */
+    protected void onAttempt(int index) {
+    }
+
+    /**
+     * 第 index 个候选是否限时
+     */
+    protected boolean isTimed(int index) {
+        return true;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        IOException error = null;
+        for (int i = 0; i < mCount && !isClosed; i++) {
+            Transport transport = i == 0 ? mTransport : open(i);
+            mTransport = transport;
+            if (isClosed) {
+                closeQuietly(transport);
+                break;
+            }
+            onAttempt(i);
+            Watchdog watchdog = mAttemptTimeout > 0 && isTimed(i) ? new Watchdog(transport, mAttemptTimeout) : null;
+            try {
+                transport.connect();
+                if (watchdog == null || watchdog.finish()) {
+                    onConnected(i);
+                    return;
+                }
+                // 连上的同时超时，通道已被关闭
+                error = new IOException("Connect timeout after " + mAttemptTimeout + "ms");
+            } catch (IOException e) {
+                error = watchdog != null && !watchdog.finish()
+                        ? new IOException("Connect timeout after " + mAttemptTimeout + "ms", e) : e;
+                closeQuietly(transport);
+            }
+        }
+        throw error != null ? error : new IOException("Connect canceled");
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return mTransport.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return mTransport.getOutputStream();
+    }
+
+    @Override
+    public String getName() {
+        return mTransport.getName();
+    }
+
+    @Override
+    public String getAddress() {
+        return mTransport.getAddress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        isClosed = true;
+        mTransport.close();
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 单次尝试的超时，到时关闭通道
+     */
+    private static class Watchdog implements Runnable {
+
+        private final Transport mTransport;
+        private final AtomicBoolean isDone = new AtomicBoolean();
+        private final ScheduledFuture<?> mFuture;
+
+        Watchdog(Transport transport, long timeout) {
+            this.mTransport = transport;
+            this.mFuture = IoScheduler.getTimer().schedule(this, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (isDone.compareAndSet(false, true)) {
+                closeQuietly(mTransport);
+            }
+        }
+
+        /**
+         * @return 是否在超时前结束，超时后为 false
+         */
+        boolean finish() {
+            mFuture.cancel(false);
+            return isDone.compareAndSet(false, true);
+        }
+    }
+}
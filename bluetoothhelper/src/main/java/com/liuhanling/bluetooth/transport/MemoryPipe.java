@@ -0,0 +1,117 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * 内存管道，单向环形缓冲，写满时阻塞写方，空时阻塞读方
+ * <p>
+ * 与 PipedInputStream 不同，不绑定读写线程，可在线程池中使用。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+class MemoryPipe {
+
+    private final byte[] mBuffer;
+    private int mReadIndex = 0;
+    private int mCount = 0;
+    private boolean isClosed = false;
+
+    MemoryPipe(int capacity) {
+        this.mBuffer = new byte[capacity];
+    }
+
+    synchronized void close() {
+        isClosed = true;
+        notifyAll();
+    }
+
+    synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (mCount == 0) {
+            if (isClosed) {
+                return -1;
+            }
+            await();
+        }
+        int n = Math.min(len, mCount);
+        int first = Math.min(n, mBuffer.length - mReadIndex);
+        System.arraycopy(mBuffer, mReadIndex, b, off, first);
+        System.arraycopy(mBuffer, 0, b, off + first, n - first);
+        mReadIndex = (mReadIndex + n) % mBuffer.length;
+        mCount -= n;
+        notifyAll();
+        return n;
+    }
+
+    synchronized void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            while (mCount == mBuffer.length && !isClosed) {
+                await();
+            }
+            if (isClosed) {
+                throw new IOException("Pipe closed");
+            }
+            int writeIndex = (mReadIndex + mCount) % mBuffer.length;
+            int n = Math.min(len, Math.min(mBuffer.length - mCount, mBuffer.length - writeIndex));
+            System.arraycopy(b, off, mBuffer, writeIndex, n);
+            mCount += n;
+            off += n;
+            len -= n;
+            notifyAll();
+        }
+    }
+
+    private void await() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    InputStream inputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return MemoryPipe.this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return MemoryPipe.this.read(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                MemoryPipe.this.close();
+            }
+        };
+    }
+
+    OutputStream outputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                MemoryPipe.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                MemoryPipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                MemoryPipe.this.close();
+            }
+        };
+    }
+}
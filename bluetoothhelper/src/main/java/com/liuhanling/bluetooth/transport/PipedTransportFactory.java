@@ -0,0 +1,176 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存传输，用于在 JVM 中模拟对端设备
+ * <p>
+ * 本端主动连接时，对端通道通过 {@link #acceptRemote(long)} 取得；
+ * 对端主动连接时调用 {@link #connectRemote(String, String)}，本端通道交给 {@link #listen()} 的监听。
+ * 每次监听有自己的接入队列，关闭的监听不会影响之后的监听。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class PipedTransportFactory implements TransportFactory {
+
+    public static final int DEFAULT_PIPE_SIZE = 64 * 1024;
+
+    private static final PipedTransport CLOSED = new PipedTransport("", "", new MemoryPipe(1), new MemoryPipe(1));
+
+    private final int mPipeSize;
+    private final BlockingQueue<Transport> mRemotes = new LinkedBlockingQueue<>();
+    private volatile BlockingQueue<PipedTransport> mIncoming;
+
+    public PipedTransportFactory() {
+        this(DEFAULT_PIPE_SIZE);
+    }
+
+    public PipedTransportFactory(int pipeSize) {
+        this.mPipeSize = pipeSize;
+    }
+
+    @Override
+    public Transport createTransport(final String address) {
+        final MemoryPipe up = new MemoryPipe(mPipeSize);
+        final MemoryPipe down = new MemoryPipe(mPipeSize);
+        return new PipedTransport(address, address, down, up) {
+            @Override
+            public void connect() throws IOException {
+                if (isClosed()) {
+                    throw new IOException("Transport closed");
+                }
+                mRemotes.offer(new PipedTransport("local", "local", up, down));
+            }
+        };
+    }
+
+    @Override
+    public TransportServer listen() {
+        final BlockingQueue<PipedTransport> incoming = new LinkedBlockingQueue<>();
+        synchronized (this) {
+            mIncoming = incoming;
+        }
+        return new TransportServer() {
+            @Override
+            public Transport accept() throws IOException {
+                Transport transport;
+                try {
+                    transport = incoming.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                if (transport == CLOSED) {
+                    // 留给同一监听上的其他 accept
+                    incoming.offer(CLOSED);
+                    throw new IOException("Server closed");
+                }
+                return transport;
+            }
+
+            @Override
+            public void close() {
+                synchronized (PipedTransportFactory.this) {
+                    if (mIncoming == incoming) {
+                        mIncoming = null;
+                    }
+                }
+                // 未接受的接入随监听一起关闭
+                PipedTransport transport;
+                while ((transport = incoming.poll()) != null) {
+                    if (transport != CLOSED) {
+                        transport.close();
+                    }
+                }
+                incoming.offer(CLOSED);
+            }
+        };
+    }
+
+    /**
+     * 取得本端主动连接的对端通道
+     *
+     * @param timeout 毫秒
+     * @return 超时返回 null
+     */
+    public Transport acceptRemote(long timeout) throws InterruptedException {
+        return mRemotes.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 对端主动连接本端
+     *
+     * @param name    对端名称
+     * @param address 对端地址
+     * @return 对端通道
+     */
+    public Transport connectRemote(String name, String address) throws IOException {
+        MemoryPipe up = new MemoryPipe(mPipeSize);
+        MemoryPipe down = new MemoryPipe(mPipeSize);
+        synchronized (this) {
+            if (mIncoming == null) {
+                throw new IOException("Connection refused");
+            }
+            mIncoming.offer(new PipedTransport(name, address, down, up));
+        }
+        return new PipedTransport("local", "local", up, down);
+    }
+
+    private static class PipedTransport implements Transport {
+
+        private final String mName;
+        private final String mAddress;
+        private final MemoryPipe mInput;
+        private final MemoryPipe mOutput;
+        private volatile boolean isClosed = false;
+
+        PipedTransport(String name, String address, MemoryPipe input, MemoryPipe output) {
+            this.mName = name;
+            this.mAddress = address;
+            this.mInput = input;
+            this.mOutput = output;
+        }
+
+        @Override
+        public void connect() throws IOException {
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return mInput.inputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return mOutput.outputStream();
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public String getAddress() {
+            return mAddress;
+        }
+
+        boolean isClosed() {
+            return isClosed;
+        }
+
+        @Override
+        public void close() {
+            isClosed = true;
+            mInput.close();
+            mOutput.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.liuhanling.bluetooth.transport;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothServerSocket;
+import android.bluetooth.BluetoothSocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 蓝牙 RFCOMM 传输
+ * <p>
+ * 连接前取消经典蓝牙发现，依次尝试候选服务 UUID，每个设备记住上次连接成功的 UUID 并优先尝试。
+ * 同一设备的多个 RFCOMM 连接共用一条链路，并行尝试会相互干扰，所以逐个尝试。
+ * 上次成功的 UUID 之外的尝试限时，对端不应答某个 UUID 时不必等 socket 自身超时再换下一个。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class RfcommTransportFactory implements TransportFactory {
+
+    /** 单个 UUID 的连接超时，覆盖寻呼、SDP 查询和 RFCOMM 建立 */
+    public static final long DEFAULT_ATTEMPT_TIMEOUT = 8000;
+
+    private static final ConcurrentHashMap<String, UUID> sLastUuids = new ConcurrentHashMap<>();
+
+    private final BluetoothAdapter mAdapter;
+    private final String mServiceName;
+    private final UUID mUuid;
+    private final UUID[] mCandidates;
+    private volatile long mAttemptTimeout = DEFAULT_ATTEMPT_TIMEOUT;
+
+    public RfcommTransportFactory(BluetoothAdapter adapter, String serviceName, UUID uuid) {
+        this(adapter, serviceName, uuid, uuid);
+    }
+
+    /**
+     * @param adapter
+     * @param serviceName
+     * @param uuid        监听使用的 UUID
+     * @param candidates  连接时依次尝试的 UUID
+     */
+    public RfcommTransportFactory(BluetoothAdapter adapter, String serviceName, UUID uuid, UUID... candidates) {
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("No candidate uuid");
+        }
+        this.mAdapter = adapter;
+        this.mServiceName = serviceName;
+        this.mUuid = uuid;
+        this.mCandidates = candidates;
+    }
+
+    /**
+     * 设置单个 UUID 的连接超时，不作用于上次连接成功的 UUID
+     *
+     * @param timeout 毫秒，0 为等 socket 自身超时
+     */
+    public void setAttemptTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout: " + timeout);
+        }
+        mAttemptTimeout = timeout;
+    }
+
+    public long getAttemptTimeout() {
+        return mAttemptTimeout;
+    }
+
+    /**
+     * 获取设备上次连接成功的 UUID
+     *
+     * @param address
+     * @return 未连接成功过时为 null
+     */
+    public static UUID getLastUuid(String address) {
+        return sLastUuids.get(address);
+    }
+
+    /**
+     * 设置设备上次连接成功的 UUID，如从持久化记录恢复
+     *
+     * @param address
+     * @param uuid    为 null 时清除
+     */
+    public static void setLastUuid(String address, UUID uuid) {
+        if (uuid != null) {
+            sLastUuids.put(address, uuid);
+        } else {
+            sLastUuids.remove(address);
+        }
+    }
+
+    @Override
+    public Transport createTransport(String address) throws IOException {
+        BluetoothDevice device = mAdapter.getRemoteDevice(address);
+        List<UUID> uuids = new ArrayList<>(mCandidates.length + 1);
+        UUID last = sLastUuids.get(address);
+        if (last != null) {
+            uuids.add(last);
+        }
+        for (UUID uuid : mCandidates) {
+            if (!uuids.contains(uuid)) {
+                uuids.add(uuid);
+            }
+        }
+        return new RfcommConnectTransport(mAdapter, device, uuids, last != null, mAttemptTimeout);
+    }
+
+    @Override
+    public TransportServer listen() throws IOException {
+        final BluetoothServerSocket serverSocket = mAdapter.listenUsingRfcommWithServiceRecord(mServiceName, mUuid);
+        return new TransportServer() {
+            @Override
+            public Transport accept() throws IOException {
+                BluetoothSocket socket = serverSocket.accept();
+                if (socket == null) {
+                    throw new IOException("Accept failed");
+                }
+                return new RfcommTransport(socket);
+            }
+
+            @Override
+            public void close() throws IOException {
+                serverSocket.close();
+            }
+        };
+    }
+
+    /**
+     * 包装已建立的 socket
+     *
+     * @param socket
+     * @return
+     */
+    public static Transport wrap(BluetoothSocket socket) {
+        return new RfcommTransport(socket);
+    }
+
+    private static class RfcommTransport implements Transport {
+
+        private final BluetoothSocket mSocket;
+
+        RfcommTransport(BluetoothSocket socket) {
+            this.mSocket = socket;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            mSocket.connect();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return mSocket.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return mSocket.getOutputStream();
+        }
+
+        @Override
+        public String getName() {
+            return mSocket.getRemoteDevice().getName();
+        }
+
+        @Override
+        public String getAddress() {
+            return mSocket.getRemoteDevice().getAddress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mSocket.close();
+        }
+    }
+
+    /**
+     * 主动连接的通道，首个 socket 在创建时预先建好，失败或超时后换下一个 UUID 重建
+     */
+    private static class RfcommConnectTransport extends CandidateConnectTransport {
+
+        private final BluetoothAdapter mAdapter;
+        private final BluetoothDevice mDevice;
+        private final List<UUID> mUuids;
+        private final boolean isCached;
+
+        RfcommConnectTransport(BluetoothAdapter adapter, BluetoothDevice device, List<UUID> uuids, boolean cached,
+                               long attemptTimeout) throws IOException {
+            super(new RfcommTransport(device.createRfcommSocketToServiceRecord(uuids.get(0))), uuids.size(), attemptTimeout);
+            this.mAdapter = adapter;
+            this.mDevice = device;
+            this.mUuids = uuids;
+            this.isCached = cached;
+        }
+
+        @Override
+        protected Transport open(int index) throws IOException {
+            return new RfcommTransport(mDevice.createRfcommSocketToServiceRecord(mUuids.get(index)));
+        }
+
+        @Override
+        protected void onAttempt(int index) {
+            mAdapter.cancelDiscovery();
+        }
+
+        @Override
+        protected boolean isTimed(int index) {
+            // 上次成功的 UUID 等 socket 自身超时，其余限时
+            return index > 0 || !isCached;
+        }
+
+        @Override
+        protected void onConnected(int index) {
+            sLastUuids.put(mDevice.getAddress(), mUuids.get(index));
+        }
+    }
+}
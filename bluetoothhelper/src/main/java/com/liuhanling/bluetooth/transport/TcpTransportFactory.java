@@ -0,0 +1,127 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * TCP 传输，用于在 JVM 中通过本地回环端口模拟对端设备
+ * <p>
+ * 连接地址为 "host:port"，不含端口时使用构造时指定的主机和端口。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class TcpTransportFactory implements TransportFactory {
+
+    private final InetAddress mHost;
+    private final int mPort;
+
+    public TcpTransportFactory(int port) {
+        this(loopback(), port);
+    }
+
+    public TcpTransportFactory(InetAddress host, int port) {
+        this.mHost = host;
+        this.mPort = port;
+    }
+
+    /**
+     * @param address "host:port"
+     * @return
+     * @throws IOException 端口不是 0 ~ 65535 的数字时抛出，按连接失败处理
+     */
+    @Override
+    public Transport createTransport(String address) throws IOException {
+        InetSocketAddress remote;
+        int index = address != null ? address.lastIndexOf(':') : -1;
+        if (index > 0 && index < address.length() - 1 && address.indexOf(':') == index) {
+            try {
+                remote = new InetSocketAddress(address.substring(0, index), Integer.parseInt(address.substring(index + 1)));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException 或端口越界
+                throw new IOException("Invalid address: " + address, e);
+            }
+        } else {
+            remote = new InetSocketAddress(mHost, mPort);
+        }
+        return new TcpTransport(new Socket(), remote, address);
+    }
+
+    @Override
+    public TransportServer listen() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(mPort, 50, mHost);
+        return new TransportServer() {
+            @Override
+            public Transport accept() throws IOException {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                String address = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+                return new TcpTransport(socket, null, address);
+            }
+
+            @Override
+            public void close() throws IOException {
+                serverSocket.close();
+            }
+        };
+    }
+
+    private static InetAddress loopback() {
+        try {
+            return InetAddress.getByName("127.0.0.1");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class TcpTransport implements Transport {
+
+        private final Socket mSocket;
+        private final InetSocketAddress mRemote;
+        private final String mAddress;
+
+        TcpTransport(Socket socket, InetSocketAddress remote, String address) {
+            this.mSocket = socket;
+            this.mRemote = remote;
+            this.mAddress = address;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            if (mRemote != null) {
+                mSocket.connect(mRemote);
+                mSocket.setTcpNoDelay(true);
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return mSocket.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return mSocket.getOutputStream();
+        }
+
+        @Override
+        public String getName() {
+            return mAddress;
+        }
+
+        @Override
+        public String getAddress() {
+            return mAddress;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mSocket.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 传输通道，一个连接一个
+ * <p>
+ * 主动连接的通道由 {@link TransportFactory#createTransport(String)} 创建后调用 {@link #connect()}，
+ * 被动接受的通道由 {@link TransportServer#accept()} 返回，已处于连接状态。
+ * {@link #close()} 可在任意线程调用，用于中断阻塞中的连接和读写。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * 建立连接，阻塞直到成功或失败
+     *
+     * @throws IOException
+     */
+    void connect() throws IOException;
+
+    InputStream getInputStream() throws IOException;
+
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * 对端名称
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * 对端地址
+     *
+     * @return
+     */
+    String getAddress();
+}
@@ -0,0 +1,29 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.IOException;
+
+/**
+ * 传输提供者
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface TransportFactory {
+
+    /**
+     * 创建到指定地址的通道，尚未连接
+     *
+     * @param address
+     * @return
+     * @throws IOException
+     */
+    Transport createTransport(String address) throws IOException;
+
+    /**
+     * 开始监听
+     *
+     * @return
+     * @throws IOException
+     */
+    TransportServer listen() throws IOException;
+}
@@ -0,0 +1,21 @@
+package com.liuhanling.bluetooth.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 传输监听，{@link #close()} 可中断阻塞中的 {@link #accept()}
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface TransportServer extends Closeable {
+
+    /**
+     * 等待对端连接
+     *
+     * @return 已连接的通道
+     * @throws IOException
+     */
+    Transport accept() throws IOException;
+}
@@ -0,0 +1,20 @@
+package com.liuhanling.bluetooth.write;
+
+/**
+ * 信用控制帧解析，信用模式下识别对端授予信用的控制帧
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public interface CreditParser {
+
+    /**
+     * 解析控制帧
+     *
+     * @param data   帧缓冲，调用返回后失效
+     * @param offset
+     * @param length
+     * @return 授予的信用数，不是控制帧时小于 0，按普通数据处理
+     */
+    int parseCredits(byte[] data, int offset, int length);
+}
@@ -0,0 +1,22 @@
+package com.liuhanling.bluetooth.write;
+
+/**
+ * 发送队列满时的处理方式
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public enum OverflowPolicy {
+    /**
+     * 阻塞调用线程直到队列有空位
+     */
+    BLOCK,
+    /**
+     * 丢弃最早的数据包
+     */
+    DROP_OLDEST,
+    /**
+     * 直接失败
+     */
+    FAIL_FAST
+}
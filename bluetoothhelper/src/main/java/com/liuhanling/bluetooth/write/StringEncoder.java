@@ -0,0 +1,247 @@
+package com.liuhanling.bluetooth.write;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * 字符串编码器
+ * <p>
+ * 使用指定字符集把字符串直接编码到池化数组中，避免 String 拼接和 getBytes() 的中间分配。
+ * UTF-8 先算出编码长度再逐字符编码，只分配一个数组；其他兼容 ASCII 的字符集下 ASCII 字符串逐字符复制，
+ * 不经过 CharsetEncoder；
+ * 其余按平均字节数申请数组，不够时换更大的数组继续编码。池中没有缓存的数组时按实际长度分配，
+ * 不按分级长度分配，连续发送超过池容量时分配量与 getBytes() 相当。每个线程持有自己的 CharsetEncoder。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class StringEncoder {
+
+    private final Charset mCharset;
+    private final ByteArrayPool mPool;
+    private final boolean isAsciiCompatible;
+    private final boolean isUtf8;
+    private final ThreadLocal<State> mState = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(mCharset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        }
+    };
+
+    public StringEncoder(Charset charset, ByteArrayPool pool) {
+        this.mCharset = charset;
+        this.mPool = pool;
+        this.isAsciiCompatible = isAsciiCompatible(charset);
+        this.isUtf8 = "UTF-8".equals(charset.name());
+    }
+
+    public Charset getCharset() {
+        return mCharset;
+    }
+
+    public ByteArrayPool getPool() {
+        return mPool;
+    }
+
+    /**
+     * 编码字符串并追加后缀
+     *
+     * @param data
+     * @param suffix 可为 null
+     * @return 包装池化数组的缓冲，用完后把 array() 归还到 {@link #getPool()}
+     */
+    public ByteBuffer encode(CharSequence data, byte[] suffix) {
+        State state = mState.get();
+        byte[] array = encode(state, data, suffix);
+        return ByteBuffer.wrap(array, 0, state.mLength);
+    }
+
+    /**
+     * 编码到发送队列的数据包
+     */
+    void encodeTo(CharSequence data, byte[] suffix, WriteRequest request) {
+        State state = mState.get();
+        byte[] array = encode(state, data, suffix);
+        request.set(array, state.mLength, mPool, null);
+    }
+
+    /**
+     * 编码到池化数组，长度存到 state
+     */
+    private byte[] encode(State state, CharSequence data, byte[] suffix) {
+        int suffixLength = suffix != null ? suffix.length : 0;
+        int length = data.length();
+        byte[] array = null;
+        if (isUtf8) {
+            int encodedLength = utf8Length(data);
+            array = allocate(encodedLength + suffixLength);
+            encodeUtf8(data, array);
+            length = encodedLength;
+        } else if (isAsciiCompatible) {
+            array = allocate(length + suffixLength);
+            for (int i = 0; i < length; i++) {
+                char c = data.charAt(i);
+                if (c >= 0x80) {
+                    mPool.release(array);
+                    array = null;
+                    break;
+                }
+                array[i] = (byte) c;
+            }
+        }
+        if (array == null) {
+            array = encodeChars(state, data, suffixLength);
+            length = state.mLength;
+        }
+        if (suffixLength > 0) {
+            System.arraycopy(suffix, 0, array, length, suffixLength);
+            length += suffixLength;
+        }
+        state.mLength = length;
+        return array;
+    }
+
+    /**
+     * 按平均字节数申请数组编码，溢出时换成两倍大小的数组，末尾留出后缀的位置
+     */
+    private byte[] encodeChars(State state, CharSequence data, int suffixLength) {
+        CharsetEncoder encoder = state.mEncoder;
+        int capacity = (int) Math.ceil(data.length() * (double) encoder.averageBytesPerChar()) + suffixLength;
+        byte[] array = allocate(Math.max(capacity, suffixLength + (int) Math.ceil(encoder.maxBytesPerChar())));
+        ByteBuffer out = ByteBuffer.wrap(array, 0, array.length - suffixLength);
+        CharBuffer in = CharBuffer.wrap(data);
+        try {
+            encoder.reset();
+            boolean isFlushing = false;
+            while (true) {
+                CoderResult result = isFlushing ? encoder.flush(out) : encoder.encode(in, out, true);
+                if (result.isUnderflow()) {
+                    if (isFlushing) {
+                        break;
+                    }
+                    isFlushing = true;
+                } else if (result.isOverflow()) {
+                    byte[] larger = allocate(array.length * 2);
+                    System.arraycopy(array, 0, larger, 0, out.position());
+                    int position = out.position();
+                    mPool.release(array);
+                    array = larger;
+                    out = ByteBuffer.wrap(array, position, array.length - suffixLength - position);
+                } else {
+                    result.throwException();
+                }
+            }
+        } catch (CharacterCodingException e) {
+            mPool.release(array);
+            throw new IllegalArgumentException(e);
+        }
+        state.mLength = out.position();
+        return array;
+    }
+
+    /**
+     * UTF-8 编码长度，不成对的代理字符按替换字符 '?' 计
+     */
+    private static int utf8Length(CharSequence data) {
+        int length = data.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                result += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(data.charAt(i + 1))) {
+                result += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                result += 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * UTF-8 编码到数组开头，与 CharsetEncoder 的 REPLACE 模式结果一致
+     */
+    private static void encodeUtf8(CharSequence data, byte[] array) {
+        int length = data.length();
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) {
+                array[j++] = (byte) c;
+            } else if (c < 0x800) {
+                array[j++] = (byte) (0xC0 | (c >> 6));
+                array[j++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(data.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, data.charAt(++i));
+                    array[j++] = (byte) (0xF0 | (codePoint >> 18));
+                    array[j++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    array[j++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    array[j++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    array[j++] = '?';
+                }
+            } else {
+                array[j++] = (byte) (0xE0 | (c >> 12));
+                array[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                array[j++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * 优先取池中的数组，没有时按所需长度分配，归还时非分级长度的数组由池丢弃
+     */
+    private byte[] allocate(int size) {
+        byte[] array = mPool.poll(size);
+        return array != null ? array : new byte[size];
+    }
+
+    /**
+     * 字符集对 0x00 ~ 0x7F 是否按单字节原样编码，如 UTF-8、ISO-8859-1、GBK
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.canEncode()) {
+            return false;
+        }
+        char[] chars = new char[0x80];
+        byte[] expected = new byte[0x80];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) i;
+            expected[i] = (byte) i;
+        }
+        ByteBuffer encoded = charset.encode(CharBuffer.wrap(chars));
+        byte[] actual = new byte[encoded.remaining()];
+        encoded.get(actual);
+        return Arrays.equals(expected, actual);
+    }
+
+    /**
+     * 线程的编码器和上次编码的长度
+     */
+    private static class State {
+
+        final CharsetEncoder mEncoder;
+        int mLength;
+
+        State(CharsetEncoder encoder) {
+            this.mEncoder = encoder;
+        }
+    }
+}
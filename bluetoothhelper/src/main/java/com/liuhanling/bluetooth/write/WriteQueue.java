@@ -0,0 +1,591 @@
+package com.liuhanling.bluetooth.write;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+import com.liuhanling.bluetooth.metrics.LatencyHistogram;
+import com.liuhanling.bluetooth.service.IoScheduler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 蓝牙发送队列
+ * <p>
+ * 多线程入队，单个发送任务出队。发送任务把队列中的小包合并到不超过 MTU 的缓冲后一次写出，
+ * 调用线程不会被输出流阻塞。队列有界，满时按 {@link OverflowPolicy} 处理。
+ * <p>
+ * 发送任务只在有数据可发时提交到执行器，队列排空或信用用完后即结束，空闲连接不占用线程。
+ * <p>
+ * 待发送字节数超过高水位时变为不可写，降到低水位以下恢复可写，生产者据此控制发送速度。
+ * 开启信用模式后每发出一个数据包消耗一个信用，信用用完时暂停发送，直到对端授予新的信用。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class WriteQueue {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_MTU = 1024;
+    public static final int DEFAULT_LOW_WATERMARK = 32 * 1024;
+    public static final int DEFAULT_HIGH_WATERMARK = 64 * 1024;
+
+    private final OutputStream mOutputStream;
+    private final int mCapacity;
+    private final int mMtu;
+    private final OverflowPolicy mPolicy;
+
+    private final ConcurrentLinkedQueue<WriteRequest> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mSize = new AtomicInteger();
+    private final AtomicInteger mBlocked = new AtomicInteger();
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+    private final Object mFullLock = new Object();
+    private final byte[] mBatch;
+    private final ArrayList<WriteRequest> mBatchRequests = new ArrayList<>();
+    private final WriteRequest[] mFreeRequests;
+    private int mFreeCount = 0;
+
+    private final AtomicLong mPendingBytes = new AtomicLong();
+    private final AtomicBoolean isWritable = new AtomicBoolean(true);
+    private final Object mWritabilityLock = new Object();
+    private volatile int mLowWatermark = DEFAULT_LOW_WATERMARK;
+    private volatile int mHighWatermark = DEFAULT_HIGH_WATERMARK;
+    private volatile WritabilityListener mWritabilityListener;
+    private volatile boolean isCreditMode = false;
+    private final AtomicInteger mCredits = new AtomicInteger();
+
+    private volatile long mWrittenBytes = 0;
+    private volatile LatencyHistogram mLatency;
+    private volatile boolean isClosed = false;
+    private volatile Executor mExecutor;
+
+    public WriteQueue(OutputStream outputStream) {
+        this(outputStream, DEFAULT_CAPACITY, DEFAULT_MTU, OverflowPolicy.FAIL_FAST);
+    }
+
+    public WriteQueue(OutputStream outputStream, int capacity, int mtu, OverflowPolicy policy) {
+        if (capacity <= 0 || mtu <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity + ", mtu: " + mtu);
+        }
+        this.mOutputStream = outputStream;
+        this.mCapacity = capacity;
+        this.mMtu = mtu;
+        this.mPolicy = policy != null ? policy : OverflowPolicy.FAIL_FAST;
+        this.mBatch = new byte[mtu];
+        this.mFreeRequests = new WriteRequest[capacity];
+    }
+
+    /**
+     * 开始发送，发送任务提交到共享的 {@link IoScheduler#getDefault()}
+     */
+    public void start() {
+        start(IoScheduler.getDefault());
+    }
+
+    /**
+     * 开始发送，有数据可发时把发送任务提交到执行器
+     * <p>
+     * 执行器拒绝时队列中的数据包回调失败，下次入队时重新提交。
+     *
+     * @param executor
+     */
+    public synchronized void start(Executor executor) {
+        if (mExecutor != null) {
+            return;
+        }
+        mExecutor = executor;
+        schedule();
+    }
+
+    /**
+     * 关闭队列，未发送的数据包回调失败
+     */
+    public void close() {
+        isClosed = true;
+        drain(new IOException("Write queue closed"));
+        wakeBlocked();
+    }
+
+    /**
+     * 队列中待发送的数据包数
+     *
+     * @return
+     */
+    public int size() {
+        return mSize.get();
+    }
+
+    /**
+     * 已写出的字节数
+     *
+     * @return
+     */
+    public long getWrittenBytes() {
+        return mWrittenBytes;
+    }
+
+    /**
+     * 设置写延时统计，记录入队到写出的微秒数
+     *
+     * @param latency 为 null 时不统计
+     */
+    public void setLatencyHistogram(LatencyHistogram latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * 设置水位
+     *
+     * @param low  待发送字节数降到该值以下时恢复可写
+     * @param high 待发送字节数超过该值时不可写
+     */
+    public void setWatermarks(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("low: " + low + ", high: " + high);
+        }
+        mLowWatermark = low;
+        mHighWatermark = high;
+        updateWritability();
+    }
+
+    /**
+     * 设置可写状态监听，在入队线程或发送线程回调，不能阻塞
+     *
+     * @param listener
+     */
+    public void setWritabilityListener(WritabilityListener listener) {
+        mWritabilityListener = listener;
+    }
+
+    /**
+     * 是否可写，待发送字节数未超过高水位
+     *
+     * @return
+     */
+    public boolean isWritable() {
+        return isWritable.get();
+    }
+
+    /**
+     * 已入队未写出的字节数
+     *
+     * @return
+     */
+    public long getPendingBytes() {
+        return mPendingBytes.get();
+    }
+
+    /**
+     * 开启信用模式，每发出一个数据包消耗一个信用
+     *
+     * @param initialCredits 初始信用
+     */
+    public void enableCredits(int initialCredits) {
+        if (initialCredits < 0) {
+            throw new IllegalArgumentException("initialCredits: " + initialCredits);
+        }
+        mCredits.set(initialCredits);
+        isCreditMode = true;
+        schedule();
+    }
+
+    /**
+     * 授予信用，信用模式下由对端的控制帧触发
+     *
+     * @param credits
+     */
+    public void grantCredits(int credits) {
+        if (credits <= 0) {
+            return;
+        }
+        mCredits.addAndGet(credits);
+        schedule();
+    }
+
+    /**
+     * 剩余信用
+     *
+     * @return 未开启信用模式时为 -1
+     */
+    public int getCredits() {
+        return isCreditMode ? mCredits.get() : -1;
+    }
+
+    /**
+     * 数据包入队
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @param listener 可为 null
+     * @return 是否入队
+     */
+    public boolean offer(byte[] data, int offset, int length, BluetoothWriteListener listener) {
+        return offer(new ByteBuffer[]{ByteBuffer.wrap(data, offset, length)}, null, listener);
+    }
+
+    /**
+     * 分段数据包入队，发送时依次写出各分段的剩余数据，不做拼接
+     *
+     * @param segments 写出前不可修改
+     * @param recycler 非 null 时，发送结束后把 segments[0] 的数组归还
+     * @param listener 可为 null
+     * @return 是否入队
+     */
+    public boolean offer(ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        return enqueue(obtain().set(segments, recycler, listener));
+    }
+
+    /**
+     * 字符串编码后入队，编码到 encoder 的池化数组，不经过 ByteBuffer
+     *
+     * @param data
+     * @param suffix   追加的后缀，可为 null
+     * @param encoder
+     * @param listener 可为 null
+     * @return 是否入队
+     */
+    public boolean offer(CharSequence data, byte[] suffix, StringEncoder encoder, BluetoothWriteListener listener) {
+        WriteRequest request = obtain();
+        try {
+            encoder.encodeTo(data, suffix, request);
+        } catch (RuntimeException e) {
+            recycle(request);
+            throw e;
+        }
+        request.listener = listener;
+        return enqueue(request);
+    }
+
+    private boolean enqueue(WriteRequest request) {
+        // 复用的请求须清掉上次的时间，统计中途开启时不记录
+        request.enqueueTime = mLatency != null ? System.nanoTime() : 0;
+        if (isClosed) {
+            fail(request, new IOException("Write queue closed"));
+            return false;
+        }
+        if (!reserve(request)) {
+            return false;
+        }
+        addPending(request.length);
+        mQueue.offer(request);
+        if (isClosed) {
+            // 关闭时可能已排空队列，入队晚于排空的数据包在这里回调失败
+            drain(new IOException("Write queue closed"));
+            return true;
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * 占用一个队列位置
+     */
+    private boolean reserve(WriteRequest request) {
+        while (true) {
+            int size = mSize.get();
+            if (size < mCapacity) {
+                if (mSize.compareAndSet(size, size + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            switch (mPolicy) {
+                case DROP_OLDEST:
+                    WriteRequest oldest = mQueue.poll();
+                    if (oldest != null) {
+                        mSize.decrementAndGet();
+                        addPending(-oldest.length);
+                        fail(oldest, new IOException("Write dropped"));
+                    }
+                    break;
+                case BLOCK:
+                    if (!awaitSpace()) {
+                        fail(request, new IOException(isClosed ? "Write queue closed" : "Write interrupted"));
+                        return false;
+                    }
+                    break;
+                default:
+                    fail(request, new IOException("Write queue full"));
+                    return false;
+            }
+        }
+    }
+
+    private boolean awaitSpace() {
+        mBlocked.incrementAndGet();
+        try {
+            synchronized (mFullLock) {
+                while (mSize.get() >= mCapacity && !isClosed) {
+                    mFullLock.wait();
+                }
+            }
+            return !isClosed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            mBlocked.decrementAndGet();
+        }
+    }
+
+    private void wakeBlocked() {
+        if (mBlocked.get() > 0) {
+            synchronized (mFullLock) {
+                mFullLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 更新待发送字节数，越过水位时切换可写状态
+     */
+    private void addPending(long delta) {
+        mPendingBytes.addAndGet(delta);
+        updateWritability();
+    }
+
+    /**
+     * 可写状态与待发送字节数不符时切换，切换在锁内进行并重新读取字节数，直到两者一致
+     * <p>
+     * 读取字节数后其他线程可能已越过另一侧水位，只比较一次会让队列排空后仍停在不可写。
+     * 回调也在锁内，保证监听收到的最后一个状态就是当前状态。
+     */
+    private void updateWritability() {
+        boolean current = isWritable.get();
+        if (current == targetWritability(current)) {
+            return;
+        }
+        synchronized (mWritabilityLock) {
+            while (true) {
+                boolean writable = isWritable.get();
+                boolean target = targetWritability(writable);
+                if (writable == target) {
+                    return;
+                }
+                isWritable.set(target);
+                WritabilityListener listener = mWritabilityListener;
+                if (listener != null) {
+                    listener.onWritabilityChanged(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按当前待发送字节数应处的可写状态，在两个水位之间时保持不变
+     */
+    private boolean targetWritability(boolean writable) {
+        long pending = mPendingBytes.get();
+        if (pending > mHighWatermark) {
+            return false;
+        }
+        if (pending <= mLowWatermark) {
+            return true;
+        }
+        return writable;
+    }
+
+    /**
+     * 信用模式下信用用完时暂停出队
+     */
+    private boolean hasCredit() {
+        return !isCreditMode || mCredits.get() > 0;
+    }
+
+    /**
+     * 有数据可发且没有发送任务时提交发送任务
+     */
+    private void schedule() {
+        Executor executor = mExecutor;
+        if (executor == null || isClosed || mQueue.isEmpty() || !hasCredit()
+                || !isScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(mWriteTask);
+        } catch (RejectedExecutionException e) {
+            isScheduled.set(false);
+            drain(new IOException("Write rejected", e));
+        }
+    }
+
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    private WriteRequest poll() {
+        WriteRequest request = mQueue.poll();
+        if (request != null) {
+            mSize.decrementAndGet();
+            wakeBlocked();
+        }
+        return request;
+    }
+
+    /**
+     * 发送任务：合并小包，按 MTU 写出，没有可发的数据时结束
+     * <p>
+     * 同一时刻只有一个发送任务，批量缓冲在任务之间复用。写出失败时关闭队列。
+     */
+    private void write() {
+        byte[] batch = mBatch;
+        ArrayList<WriteRequest> pending = mBatchRequests;
+        int length = 0;
+        boolean isIdle = false;
+        IOException error = null;
+        try {
+            while (!isClosed) {
+                WriteRequest request = hasCredit() ? poll() : null;
+                if (request != null && isCreditMode) {
+                    mCredits.decrementAndGet();
+                }
+                if (request == null) {
+                    if (length > 0) {
+                        flush(batch, length, pending);
+                        length = 0;
+                    }
+                    isScheduled.set(false);
+                    // 入队或授信可能发生在置位之前，此时由本任务继续发送
+                    if (mQueue.isEmpty() || !hasCredit() || !isScheduled.compareAndSet(false, true)) {
+                        isIdle = true;
+                        return;
+                    }
+                    continue;
+                }
+                if (request.length > mMtu - length && length > 0) {
+                    flush(batch, length, pending);
+                    length = 0;
+                }
+                if (request.length >= mMtu) {
+                    pending.add(request);
+                    writeDirect(request, batch);
+                    mOutputStream.flush();
+                    mWrittenBytes += request.length;
+                    complete(pending);
+                    continue;
+                }
+                length = request.copyTo(batch, length);
+                pending.add(request);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            if (!isIdle) {
+                isClosed = true;
+                if (error == null) {
+                    error = new IOException("Write queue closed");
+                }
+                for (int i = 0; i < pending.size(); i++) {
+                    WriteRequest request = pending.get(i);
+                    addPending(-request.length);
+                    fail(request, error);
+                }
+                pending.clear();
+                drain(error);
+                wakeBlocked();
+            }
+        }
+    }
+
+    private void flush(byte[] batch, int length, ArrayList<WriteRequest> pending) throws IOException {
+        mOutputStream.write(batch, 0, length);
+        mOutputStream.flush();
+        mWrittenBytes += length;
+        complete(pending);
+    }
+
+    /**
+     * 大包逐段写出，堆内分段直接写数组，其余经批量缓冲中转
+     */
+    private void writeDirect(WriteRequest request, byte[] batch) throws IOException {
+        if (request.segments == null) {
+            mOutputStream.write(request.array, 0, request.length);
+            return;
+        }
+        for (ByteBuffer segment : request.segments) {
+            if (segment.hasArray()) {
+                mOutputStream.write(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+                continue;
+            }
+            ByteBuffer source = segment.duplicate();
+            while (source.hasRemaining()) {
+                int n = Math.min(source.remaining(), batch.length);
+                source.get(batch, 0, n);
+                mOutputStream.write(batch, 0, n);
+            }
+        }
+    }
+
+    private void complete(ArrayList<WriteRequest> pending) {
+        LatencyHistogram latency = mLatency;
+        long now = latency != null ? System.nanoTime() : 0;
+        long bytes = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            bytes += pending.get(i).length;
+        }
+        addPending(-bytes);
+        for (int i = 0; i < pending.size(); i++) {
+            WriteRequest request = pending.get(i);
+            if (latency != null && request.enqueueTime != 0) {
+                latency.record((now - request.enqueueTime) / 1000);
+            }
+            request.success();
+            recycle(request);
+        }
+        pending.clear();
+    }
+
+    private void drain(IOException error) {
+        WriteRequest request;
+        while ((request = poll()) != null) {
+            addPending(-request.length);
+            fail(request, error);
+        }
+    }
+
+    private void fail(WriteRequest request, IOException error) {
+        request.failure(error);
+        recycle(request);
+    }
+
+    /**
+     * 取空闲的数据包对象，回调结束的数据包在这里复用，入队不再分配
+     */
+    private WriteRequest obtain() {
+        synchronized (mFreeRequests) {
+            if (mFreeCount > 0) {
+                WriteRequest request = mFreeRequests[--mFreeCount];
+                mFreeRequests[mFreeCount] = null;
+                return request;
+            }
+        }
+        return new WriteRequest();
+    }
+
+    private void recycle(WriteRequest request) {
+        request.clear();
+        synchronized (mFreeRequests) {
+            if (mFreeCount < mFreeRequests.length) {
+                mFreeRequests[mFreeCount++] = request;
+            }
+        }
+    }
+
+    /**
+     * 可写状态监听
+     */
+    public interface WritabilityListener {
+        void onWritabilityChanged(boolean writable);
+    }
+}
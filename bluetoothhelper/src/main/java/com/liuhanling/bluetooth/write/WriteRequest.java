@@ -0,0 +1,106 @@
+package com.liuhanling.bluetooth.write;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 待发送数据包，由若干分段或一个数组组成，写出时依次读取，不修改分段的 position
+ * <p>
+ * 由 {@link WriteQueue} 复用，回调结束后即回收，队列外不能持有。
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+final class WriteRequest {
+
+    ByteBuffer[] segments;
+    /** 数组形式的数据，从 0 开始，segments 为 null 时有效 */
+    byte[] array;
+    int length;
+    BluetoothWriteListener listener;
+    ByteArrayPool recycler;
+    /** 入队时间，开启写延时统计时记录 */
+    long enqueueTime;
+
+    WriteRequest set(ByteBuffer[] segments, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        int length = 0;
+        for (ByteBuffer segment : segments) {
+            length += segment.remaining();
+        }
+        this.segments = segments;
+        this.array = null;
+        this.length = length;
+        this.recycler = recycler;
+        this.listener = listener;
+        this.enqueueTime = 0;
+        return this;
+    }
+
+    WriteRequest set(byte[] array, int length, ByteArrayPool recycler, BluetoothWriteListener listener) {
+        this.segments = null;
+        this.array = array;
+        this.length = length;
+        this.recycler = recycler;
+        this.listener = listener;
+        this.enqueueTime = 0;
+        return this;
+    }
+
+    /**
+     * 复制到目标数组
+     */
+    int copyTo(byte[] target, int offset) {
+        if (segments == null) {
+            System.arraycopy(array, 0, target, offset, length);
+            return offset + length;
+        }
+        for (ByteBuffer segment : segments) {
+            int n = segment.remaining();
+            if (segment.hasArray()) {
+                System.arraycopy(segment.array(), segment.arrayOffset() + segment.position(), target, offset, n);
+            } else {
+                segment.duplicate().get(target, offset, n);
+            }
+            offset += n;
+        }
+        return offset;
+    }
+
+    void success() {
+        recycle();
+        if (listener != null) {
+            listener.onWriteSuccess();
+        }
+    }
+
+    void failure(IOException e) {
+        recycle();
+        if (listener != null) {
+            listener.onWriteFailure(e);
+        }
+    }
+
+    private void recycle() {
+        if (recycler == null) {
+            return;
+        }
+        if (segments == null) {
+            recycler.release(array);
+        } else if (segments[0].hasArray()) {
+            recycler.release(segments[0].array());
+        }
+    }
+
+    /**
+     * 回收前清空引用
+     */
+    void clear() {
+        segments = null;
+        array = null;
+        recycler = null;
+        listener = null;
+    }
+}
@@ -0,0 +1,176 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.listener.BluetoothDeviceListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 扫描设备表测试，用合成广播事件驱动，时间由测试推进
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothDeviceTableTest {
+
+    private static final int EVENTS_PER_SECOND = 10000;
+    private static final int SECONDS = 60;
+    private static final int DEVICES = 2000;
+    private static final int WRITERS = 4;
+
+    private final BluetoothDeviceTable mTable = new BluetoothDeviceTable();
+    private final AtomicInteger mFound = new AtomicInteger();
+    private final AtomicInteger mUpdated = new AtomicInteger();
+    private final ConcurrentHashMap<String, Long> mLost = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        mTable.setMaxSize(DEVICES);
+        mTable.setListener(new BluetoothDeviceListener() {
+            @Override
+            public void onDeviceFound(BluetoothScanDevice device) {
+                mFound.incrementAndGet();
+            }
+
+            @Override
+            public void onDeviceUpdated(BluetoothScanDevice device) {
+                mUpdated.incrementAndGet();
+            }
+
+            @Override
+            public void onDeviceLost(BluetoothScanDevice device) {
+                assertNull(device.getAddress(), mLost.put(device.getAddress(), device.getLastSeen()));
+            }
+        });
+    }
+
+    @Test
+    public void tenThousandEventsPerSecond() throws Exception {
+        // 前一半设备在 30 秒后停止广播，其余持续广播；4 个线程按时间片并发写入
+        final long[] now = new long[1];
+        long start = System.nanoTime();
+        for (int second = 0; second < SECONDS; second++) {
+            for (int tick = 0; tick < 1000 / BluetoothDeviceTable.EXPIRE_TICK; tick++) {
+                final long time = second * 1000L + tick * BluetoothDeviceTable.EXPIRE_TICK;
+                final int events = (int) (EVENTS_PER_SECOND * BluetoothDeviceTable.EXPIRE_TICK / 1000);
+                final boolean isHalf = second >= SECONDS / 2;
+                Thread[] writers = new Thread[WRITERS];
+                for (int w = 0; w < WRITERS; w++) {
+                    final Random random = new Random(time * WRITERS + w);
+                    writers[w] = new Thread() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < events / WRITERS; i++) {
+                                int index = isHalf ? DEVICES / 2 + random.nextInt(DEVICES / 2) : random.nextInt(DEVICES);
+                                long at = time + random.nextInt((int) BluetoothDeviceTable.EXPIRE_TICK);
+                                mTable.update(address(index), null, -40 - random.nextInt(50), null, at);
+                            }
+                        }
+                    };
+                    writers[w].start();
+                }
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+                now[0] = time + BluetoothDeviceTable.EXPIRE_TICK;
+                mTable.expire(now[0]);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d events in %.2f s: %.0f events/s",
+                EVENTS_PER_SECOND * SECONDS, seconds, EVENTS_PER_SECOND * SECONDS / seconds));
+
+        assertEquals(DEVICES, mFound.get());
+        assertEquals(DEVICES / 2, mLost.size());
+        assertEquals(DEVICES / 2, mTable.size());
+        for (int i = 0; i < DEVICES / 2; i++) {
+            Long lastSeen = mLost.get(address(i));
+            assertNotNull(address(i), lastSeen);
+            assertTrue(lastSeen < SECONDS / 2 * 1000L);
+        }
+        for (int i = DEVICES / 2; i < DEVICES; i++) {
+            BluetoothScanDevice device = mTable.get(address(i));
+            assertNotNull(address(i), device);
+            assertTrue(device.getLastSeen() > now[0] - BluetoothDeviceTable.DEFAULT_TTL);
+        }
+        // 默认 1 秒更新间隔限制通知次数
+        assertTrue(String.valueOf(mUpdated.get()), mUpdated.get() <= DEVICES * SECONDS);
+        // 处理速度远高于实时速率
+        assertTrue(seconds + " s", seconds < SECONDS / 4);
+    }
+
+    @Test
+    public void deviceExpiresAfterTtl() {
+        mTable.setTtl(2000);
+        mTable.update("A", null, -50, null, 0);
+        mTable.update("A", null, -50, null, 1500);
+        mTable.expire(3000);
+        assertNotNull(mTable.get("A"));
+        mTable.expire(3500);
+        assertNull(mTable.get("A"));
+        assertEquals(Long.valueOf(1500), mLost.get("A"));
+    }
+
+    @Test
+    public void classicDeviceOutlivesInquiryInterval() {
+        // 经典蓝牙每轮约 12 秒才再次发现同一设备
+        mTable.update("C", null, -60, null, true, 0);
+        mTable.update("B", null, -60, null, 0);
+        mTable.expire(12000);
+        assertNull(mTable.get("B"));
+        assertNotNull(mTable.get("C"));
+        mTable.update("C", null, -60, null, true, 12000);
+        mTable.expire(12000 + BluetoothDeviceTable.DEFAULT_CLASSIC_TTL - BluetoothDeviceTable.EXPIRE_TICK);
+        assertNotNull(mTable.get("C"));
+        mTable.expire(12000 + BluetoothDeviceTable.DEFAULT_CLASSIC_TTL + BluetoothDeviceTable.EXPIRE_TICK);
+        assertNull(mTable.get("C"));
+    }
+
+    @Test
+    public void dualModeDeviceKeepsClassicTtl() {
+        mTable.update("D", null, -60, null, true, 0);
+        mTable.update("D", null, -60, null, 5000);
+        mTable.expire(20000);
+        assertNotNull(mTable.get("D"));
+        assertTrue(mTable.get("D").isClassic());
+        mTable.expire(BluetoothDeviceTable.DEFAULT_CLASSIC_TTL + BluetoothDeviceTable.EXPIRE_TICK);
+        assertNull(mTable.get("D"));
+    }
+
+    @Test
+    public void fullTableEvictsStalest() {
+        mTable.setMaxSize(2);
+        mTable.update("A", null, -50, null, 0);
+        mTable.update("B", null, -50, null, 10);
+        mTable.update("A", null, -50, null, 20);
+        mTable.update("C", null, -50, null, 30);
+        assertEquals(2, mTable.size());
+        assertNull(mTable.get("B"));
+        assertTrue(mLost.containsKey("B"));
+    }
+
+    @Test
+    public void snapshotIsRebuiltOnlyOnChange() {
+        mTable.update("A", null, -50, null, 0);
+        assertSame(mTable.getDevices(), mTable.getDevices());
+        mTable.update("A", null, -40, null, 2000);
+        assertSame(mTable.getDevices(), mTable.getDevices());
+        int size = mTable.getDevices().size();
+        mTable.update("B", null, -40, null, 2000);
+        assertEquals(size + 1, mTable.getDevices().size());
+    }
+
+    private static String address(int index) {
+        return String.format("00:11:22:33:%02X:%02X", index >> 8, index & 0xFF);
+    }
+}
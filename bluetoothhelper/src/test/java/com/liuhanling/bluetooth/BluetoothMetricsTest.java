@@ -0,0 +1,103 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 连接统计测试，速率按两次快照的间隔计算
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothMetricsTest {
+
+    @Test
+    public void ratesAreMeasuredSinceLastSnapshot() throws Exception {
+        BluetoothMetrics metrics = new BluetoothMetrics();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Runnable[] task = new Runnable[1];
+        WriteQueue queue = new WriteQueue(output, 16, 64, OverflowPolicy.FAIL_FAST);
+        queue.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                task[0] = command;
+            }
+        });
+        BluetoothSession session = new BluetoothSession("A", "00:11", queue);
+        metrics.snapshot(Collections.singletonList(session));
+
+        queue.offer(new ByteBuffer[]{ByteBuffer.wrap(new byte[2000])}, null, null);
+        queue.offer(new ByteBuffer[]{ByteBuffer.wrap(new byte[2000])}, null, null);
+        long start = System.nanoTime();
+        BluetoothMetrics.Snapshot pending = metrics.snapshot(Collections.singletonList(session));
+        assertEquals(1, pending.getSessions());
+        assertEquals(2, pending.getPendingWrites());
+        assertEquals(0, pending.getWrittenBytes());
+
+        metrics.mReadBytes.addAndGet(4000);
+        metrics.mReadFrames.addAndGet(40);
+        task[0].run();
+        Thread.sleep(100);
+        // 会话关闭，写出字节转入已关闭会话的总数
+        metrics.mClosedWrittenBytes.addAndGet(queue.getWrittenBytes());
+        BluetoothMetrics.Snapshot snapshot = metrics.snapshot(Collections.<BluetoothSession>emptyList());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(0, snapshot.getSessions());
+        assertEquals(4000, snapshot.getReadBytes());
+        assertEquals(40, snapshot.getReadFrames());
+        assertEquals(4000, snapshot.getWrittenBytes());
+        // 间隔不短于 sleep，不长于外部计时
+        assertBetween(4000 / seconds, 4000 / 0.1, snapshot.getReadBytesRate());
+        assertBetween(40 / seconds, 40 / 0.1, snapshot.getReadFramesRate());
+        assertBetween(4000 / seconds, 4000 / 0.1, snapshot.getWrittenBytesRate());
+
+        // 无新数据时速率为 0
+        BluetoothMetrics.Snapshot idle = metrics.snapshot(Collections.<BluetoothSession>emptyList());
+        assertEquals(0, idle.getReadBytesRate(), 0);
+        assertEquals(0, idle.getReadFramesRate(), 0);
+    }
+
+    @Test
+    public void snapshotCarriesPercentiles() {
+        BluetoothMetrics metrics = new BluetoothMetrics();
+        for (int value = 1; value <= 100; value++) {
+            metrics.mWriteLatency.record(value);
+            metrics.mFrameInterval.record(value * 10);
+        }
+        metrics.mFirstByteTime.record(7);
+        BluetoothSession session = new BluetoothSession("A", "00:11", new WriteQueue(new ByteArrayOutputStream()));
+        session.mPrepareTime = 3;
+        session.mConnectDuration = 12;
+        metrics.onConnected("00:11", session);
+        metrics.onConnected("00:11", session);
+        BluetoothMetrics.Snapshot snapshot = metrics.snapshot(Arrays.asList(session));
+        assertEquals(2, snapshot.getConnects());
+        assertEquals(1, snapshot.getReconnects());
+        assertEquals(3, snapshot.getPrepareTimeP50());
+        assertEquals(12, snapshot.getConnectTimeP50());
+        assertEquals(12, snapshot.getConnectTimeP99());
+        assertEquals(7, snapshot.getFirstByteTimeP50());
+        assertEquals(metrics.mWriteLatency.getPercentile(50), snapshot.getWriteLatencyP50());
+        assertEquals(metrics.mWriteLatency.getPercentile(99), snapshot.getWriteLatencyP99());
+        assertEquals(metrics.mFrameInterval.getPercentile(50), snapshot.getFrameIntervalP50());
+        assertEquals(metrics.mFrameInterval.getPercentile(99), snapshot.getFrameIntervalP99());
+        assertEquals(100, snapshot.getWriteLatencyMax());
+        assertTrue(snapshot.getWriteLatencyP50() >= 50 && snapshot.getWriteLatencyP50() <= 56);
+    }
+
+    private static void assertBetween(double min, double max, double actual) {
+        assertTrue(min + " <= " + actual + " <= " + max, actual >= min && actual <= max);
+    }
+}
@@ -0,0 +1,171 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.BluetoothParser.BluetoothData;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 广播解析缓存测试，记录为名称加 16 位 UUID
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothParseCacheTest {
+
+    @Test
+    public void repeatedRecordHitsCache() {
+        BluetoothParseCache cache = new BluetoothParseCache();
+        byte[] record = record("A", 0x180D);
+        BluetoothData first = cache.parse(record);
+        BluetoothData second = cache.parse(record.clone());
+        assertSame(first, second);
+        assertEquals("A", second.getName());
+        assertEquals(Arrays.asList(BluetoothParser.uuid16(0x180D)), second.getUuids());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void callerMayReuseRecordArray() {
+        BluetoothParseCache cache = new BluetoothParseCache();
+        byte[] record = record("A", 0x180D);
+        BluetoothData first = cache.parse(record);
+        // 扫描回调复用同一数组
+        byte[] other = record("B", 0x180F);
+        System.arraycopy(other, 0, record, 0, record.length);
+        BluetoothData second = cache.parse(record);
+        assertNotSame(first, second);
+        assertEquals("A", first.getName());
+        assertEquals("B", second.getName());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void cachedUuidListIsUnmodifiable() {
+        BluetoothParseCache cache = new BluetoothParseCache();
+        byte[] record = record("A", 0x180D);
+        assertUnmodifiable(cache.parse(record));
+        assertUnmodifiable(cache.parse(record));
+        assertUnmodifiable(cache.parse(record("B", -1)));
+        assertEquals(Arrays.asList(BluetoothParser.uuid16(0x180D)), cache.parse(record).getUuids());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        BluetoothParseCache cache = new BluetoothParseCache(2);
+        byte[] a = record("A", 1);
+        byte[] b = record("B", 2);
+        byte[] c = record("C", 3);
+        BluetoothData dataA = cache.parse(a);
+        cache.parse(b);
+        // 访问 A 后 B 最久未用
+        assertSame(dataA, cache.parse(a));
+        cache.parse(c);
+        assertEquals(2, cache.size());
+        assertSame(dataA, cache.parse(a));
+        long misses = cache.getMissCount();
+        cache.parse(b);
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void disableClearsAndBypassesCache() {
+        BluetoothParseCache cache = new BluetoothParseCache();
+        byte[] record = record("A", 0x180D);
+        cache.parse(record);
+        cache.parse(record);
+        cache.setEnabled(false);
+        assertFalse(cache.isEnabled());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        BluetoothData first = cache.parse(record);
+        BluetoothData second = cache.parse(record);
+        assertNotSame(first, second);
+        assertEquals("A", second.getName());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount() + cache.getMissCount());
+        cache.setEnabled(true);
+        cache.parse(record);
+        assertSame(cache.parse(record), cache.parse(record));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void clearResetsEntriesAndCounts() {
+        BluetoothParseCache cache = new BluetoothParseCache();
+        byte[] record = record("A", 0x180D);
+        BluetoothData first = cache.parse(record);
+        cache.parse(record);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertNotSame(first, cache.parse(record));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void hashCollisionIsVerifiedByContent() {
+        // 所有记录哈希相同
+        BluetoothParseCache cache = new BluetoothParseCache() {
+            @Override
+            long hash(byte[] record) {
+                return 42;
+            }
+        };
+        byte[] a = record("A", 1);
+        byte[] b = record("B", 2);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("A", cache.parse(a).getName());
+            assertEquals("B", cache.parse(b).getName());
+        }
+        assertEquals(0, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertEquals("B", cache.parse(b).getName());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void nullRecordIsNull() {
+        assertEquals(null, new BluetoothParseCache().parse(null));
+    }
+
+    private static void assertUnmodifiable(BluetoothData data) {
+        try {
+            data.getUuids().add(UUID.randomUUID());
+            fail("UUID list is modifiable");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    /**
+     * 完整名称，uuid 为负时不带 UUID 结构
+     */
+    private static byte[] record(String name, int uuid) {
+        byte[] bytes = name.getBytes();
+        byte[] record = new byte[2 + bytes.length + (uuid >= 0 ? 4 : 0)];
+        record[0] = (byte) (1 + bytes.length);
+        record[1] = (byte) BluetoothParser.TYPE_NAME_COMPLETE;
+        System.arraycopy(bytes, 0, record, 2, bytes.length);
+        if (uuid >= 0) {
+            int index = 2 + bytes.length;
+            record[index] = 3;
+            record[index + 1] = (byte) BluetoothParser.TYPE_UUID16_COMPLETE;
+            record[index + 2] = (byte) uuid;
+            record[index + 3] = (byte) (uuid >> 8);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,161 @@
+package com.liuhanling.bluetooth;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 广播数据解析测试，随机和长度错乱的记录不抛异常，损坏的结构计入解析错误
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothParserTest {
+
+    private static final int FUZZ_RECORDS = 200000;
+
+    private final Random mRandom = new Random(0x5EED);
+
+    @Before
+    public void setUp() {
+        BluetoothParser.resetParseErrors();
+    }
+
+    @Test
+    public void randomRecordsNeverThrow() {
+        for (int i = 0; i < FUZZ_RECORDS; i++) {
+            byte[] record = new byte[mRandom.nextInt(80)];
+            mRandom.nextBytes(record);
+            readAll(record);
+        }
+    }
+
+    @Test
+    public void lengthSkewedRecordsNeverThrow() {
+        int[] types = {
+                BluetoothParser.TYPE_FLAGS, BluetoothParser.TYPE_UUID16_COMPLETE, BluetoothParser.TYPE_UUID32_COMPLETE,
+                BluetoothParser.TYPE_UUID128_COMPLETE, BluetoothParser.TYPE_NAME_SHORT, BluetoothParser.TYPE_NAME_COMPLETE,
+                BluetoothParser.TYPE_TX_POWER, BluetoothParser.TYPE_SERVICE_DATA16, BluetoothParser.TYPE_APPEARANCE,
+                BluetoothParser.TYPE_SERVICE_DATA32, BluetoothParser.TYPE_SERVICE_DATA128,
+                BluetoothParser.TYPE_MANUFACTURER_DATA};
+        for (int i = 0; i < FUZZ_RECORDS; i++) {
+            // 结构合法，再随机改写长度字节或截断
+            byte[] record = new byte[62];
+            int index = 0;
+            while (index + 2 < record.length) {
+                int length = 1 + mRandom.nextInt(Math.min(20, record.length - index - 1));
+                record[index] = (byte) length;
+                record[index + 1] = (byte) types[mRandom.nextInt(types.length)];
+                for (int j = index + 2; j <= index + length; j++) {
+                    record[j] = (byte) mRandom.nextInt(256);
+                }
+                if (mRandom.nextInt(4) == 0) {
+                    record[index] = (byte) mRandom.nextInt(256);
+                }
+                index += 1 + length;
+            }
+            readAll(mRandom.nextBoolean() ? record : Arrays.copyOf(record, mRandom.nextInt(record.length)));
+        }
+    }
+
+    @Test
+    public void parseWorkIsBoundedByRecordLength() {
+        // 每个结构两字节，超出最大长度的部分不解析
+        byte[] record = new byte[BluetoothParser.MAX_RECORD_LENGTH * 4];
+        for (int i = 0; i < record.length; i += 2) {
+            record[i] = 1;
+            record[i + 1] = (byte) BluetoothParser.TYPE_FLAGS;
+        }
+        final int[] structures = new int[1];
+        BluetoothParser.parse(record, new BluetoothParser.RecordVisitor() {
+            @Override
+            public boolean onRecord(int type, byte[] data, int offset, int length) {
+                structures[0]++;
+                return true;
+            }
+        });
+        assertEquals(BluetoothParser.MAX_RECORD_LENGTH / 2, structures[0]);
+        assertEquals(1, BluetoothParser.getParseErrors());
+    }
+
+    @Test
+    public void overrunningStructureIsCounted() {
+        byte[] record = {
+                2, (byte) BluetoothParser.TYPE_FLAGS, 0x06,
+                9, (byte) BluetoothParser.TYPE_NAME_COMPLETE, 'a', 'b'};
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+        assertEquals(0x06, data.getFlags());
+        assertNull(data.getName());
+        assertEquals(1, BluetoothParser.getParseErrors());
+    }
+
+    @Test
+    public void damagedUuidListKeepsRestOfRecord() {
+        byte[] record = {
+                4, (byte) BluetoothParser.TYPE_UUID16_COMPLETE, 0x0D, 0x18, 0x0F,
+                3, (byte) BluetoothParser.TYPE_NAME_COMPLETE, 'h', 'r'};
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+        assertEquals(1, data.getUuids().size());
+        assertEquals(UUID.fromString("0000180d-0000-1000-8000-00805f9b34fb"), data.getUuids().get(0));
+        assertEquals("hr", data.getName());
+        assertEquals(1, BluetoothParser.getParseErrors());
+    }
+
+    @Test
+    public void shortManufacturerDataIsCounted() {
+        byte[] record = {
+                2, (byte) BluetoothParser.TYPE_MANUFACTURER_DATA, 0x4C,
+                4, (byte) BluetoothParser.TYPE_MANUFACTURER_DATA, 0x4C, 0x00, 0x01};
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+        assertEquals(1, data.getManufacturerData().size());
+        assertEquals(0x01, data.getManufacturerData(0x004C).get(0));
+        assertEquals(1, BluetoothParser.getParseErrors());
+    }
+
+    @Test
+    public void uuidsExpandFromBaseUuid() {
+        byte[] record = {
+                5, (byte) BluetoothParser.TYPE_UUID16_COMPLETE, (byte) 0xFF, (byte) 0xFF, 0x0D, 0x18,
+                5, (byte) BluetoothParser.TYPE_UUID32_COMPLETE, 0x78, 0x56, 0x34, 0x12};
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+        assertEquals(UUID.fromString("0000ffff-0000-1000-8000-00805f9b34fb"), data.getUuids().get(0));
+        assertEquals(UUID.fromString("0000180d-0000-1000-8000-00805f9b34fb"), data.getUuids().get(1));
+        assertEquals(UUID.fromString("12345678-0000-1000-8000-00805f9b34fb"), data.getUuids().get(2));
+        assertEquals(0, BluetoothParser.getParseErrors());
+    }
+
+    @Test
+    public void recordWithoutUuidsHasMutableList() {
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(new byte[]{
+                2, (byte) BluetoothParser.TYPE_FLAGS, 0x06});
+        assertTrue(data.getUuids().isEmpty());
+        data.getUuids().add(UUID.randomUUID());
+    }
+
+    /**
+     * 调用全部读取方法
+     */
+    private static void readAll(byte[] record) {
+        BluetoothParser.BluetoothData data = BluetoothParser.parseBluetoothName(record);
+        data.getUuids();
+        data.getName();
+        data.getFlags();
+        data.getTxPowerLevel();
+        data.getAppearance();
+        for (ByteBuffer buffer : data.getManufacturerData().values()) {
+            assertTrue(buffer.limit() <= record.length);
+        }
+        for (ByteBuffer buffer : data.getServiceData().values()) {
+            assertTrue(buffer.limit() <= record.length);
+        }
+        BluetoothParser.parseName(record);
+    }
+}
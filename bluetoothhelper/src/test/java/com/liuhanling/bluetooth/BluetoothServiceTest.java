@@ -0,0 +1,424 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+import com.liuhanling.bluetooth.listener.BluetoothResponseListener;
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+import com.liuhanling.bluetooth.service.IoScheduler;
+import com.liuhanling.bluetooth.transport.PipedTransportFactory;
+import com.liuhanling.bluetooth.transport.TcpTransportFactory;
+import com.liuhanling.bluetooth.transport.Transport;
+import com.liuhanling.bluetooth.transport.TransportServer;
+import com.liuhanling.bluetooth.write.CreditParser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 蓝牙服务测试，用内存管道模拟对端
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothServiceTest {
+
+    private static final long TIMEOUT = 5000;
+    private static final long STRESS_TIME = 2000;
+    private static final String[] ADDRESSES = {"A", "B", "C", "D"};
+
+    private final PipedTransportFactory mFactory = new PipedTransportFactory();
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private BluetoothService mService;
+    private IoScheduler mScheduler;
+
+    private void start(int maxThreads, boolean multiConnection) {
+        mScheduler = new IoScheduler(maxThreads);
+        mService = new BluetoothService(null, mScheduler);
+        mService.setTransportFactory(mFactory);
+        mService.setMultiConnection(multiConnection, BluetoothService.DEFAULT_MAX_CONNECTIONS);
+        mService.setMetricsEnabled(true);
+        mService.start(false);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        if (mService != null) {
+            mService.stop();
+        }
+    }
+
+    @Test
+    public void connectIsRejectedWhenPoolIsFull() throws Exception {
+        // 监听 + 其他任务占满线程池，连接任务被拒绝
+        start(2, true);
+        occupy(1);
+        mService.connect("A");
+        assertEquals(1, mService.getMetrics().mConnectFailures.get());
+        assertNull(mFactory.acceptRemote(100));
+        assertNull(mService.getSession("A"));
+        assertEquals(BluetoothState.STATE_LISTEN, mService.getState());
+    }
+
+    @Test
+    public void receiveIsRejectedWhenPoolIsFull() throws Exception {
+        // 连接任务占用最后一个线程，连接成功后接收任务被拒绝
+        start(3, true);
+        occupy(1);
+        mService.connect("A");
+        Transport remote = mFactory.acceptRemote(TIMEOUT);
+        assertNotNull(remote);
+        awaitFailures(1);
+        assertNull(mService.getSession("A"));
+        assertEquals(-1, remote.getInputStream().read());
+        assertEquals(BluetoothState.STATE_LISTEN, mService.getState());
+    }
+
+    @Test
+    public void singleConnectionRelistensAfterRejection() throws Exception {
+        start(2, false);
+        occupy(1);
+        mService.connect("A");
+        awaitFailures(1);
+        assertEquals(BluetoothState.STATE_LISTEN, mService.getState());
+    }
+
+    @Test
+    public void idleWriterDoesNotHoldThread() throws Exception {
+        start(8, true);
+        Transport[] remotes = {connect("A"), connect("B")};
+        awaitActive(3);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < remotes.length; i++) {
+                assertTrue(mService.write(String.valueOf((char) ('A' + i)),
+                        new ByteBuffer[]{ByteBuffer.wrap(new byte[]{'x', '\r'})}, null, null));
+            }
+        }
+        for (Transport remote : remotes) {
+            read(remote.getInputStream(), 100);
+        }
+        // 只剩监听和两个接收任务
+        awaitActive(3);
+        assertEquals(0, mService.getSession("A").getPendingWrites());
+    }
+
+    @Test
+    public void closeCallbacksRunOutsideServiceLock() throws Exception {
+        start(8, true);
+        // 初始信用为 0，写入和请求都停在队列中，停止时回调失败
+        mService.setCreditMode(new CreditParser() {
+            @Override
+            public int parseCredits(byte[] data, int offset, int length) {
+                return -1;
+            }
+        }, 0);
+        connect("A");
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger locked = new AtomicInteger();
+        assertTrue(mService.write("A", new ByteBuffer[]{ByteBuffer.wrap(new byte[]{'x', '\r'})}, null,
+                new BluetoothWriteListener() {
+                    @Override
+                    public void onWriteSuccess() {
+                    }
+
+                    @Override
+                    public void onWriteFailure(IOException e) {
+                        failures.incrementAndGet();
+                        if (Thread.holdsLock(mService)) {
+                            locked.incrementAndGet();
+                        }
+                    }
+                }));
+        byte[] data = {'q', '\r'};
+        mService.request("A", data, new ByteBuffer[]{ByteBuffer.wrap(data)}, TIMEOUT)
+                .setListener(new BluetoothResponseListener() {
+                    @Override
+                    public void onResponse(byte[] response) {
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failures.incrementAndGet();
+                        if (Thread.holdsLock(mService)) {
+                            locked.incrementAndGet();
+                        }
+                    }
+                });
+        mService.stop();
+        assertEquals(2, failures.get());
+        assertEquals(0, locked.get());
+    }
+
+    @Test
+    public void connectReceiveWriteOverTcp() throws Exception {
+        int port = freePort();
+        TransportServer peer = new TcpTransportFactory(port).listen();
+        final LinkedBlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        mScheduler = new IoScheduler(8);
+        mService = new BluetoothService(null, mScheduler);
+        mService.setTransportFactory(new TcpTransportFactory(freePort()));
+        mService.setMetricsEnabled(true);
+        mService.setReceiveDispatcher(new ReceiveDispatcher(null, new ReceiveDispatcher.Receiver() {
+            @Override
+            public void onReceiveFrame(BluetoothFrame frame) {
+                frames.add(frame.getString());
+                frame.release();
+            }
+
+            @Override
+            public void onReceiveBatch(List<BluetoothFrame> batch) {
+                for (BluetoothFrame frame : batch) {
+                    onReceiveFrame(frame);
+                }
+            }
+        }, true));
+        mService.start(false);
+        String address = "127.0.0.1:" + port;
+        mService.connect(address);
+        Transport remote = peer.accept();
+        try {
+            remote.getOutputStream().write("hello\r\nworld\r\n".getBytes("US-ASCII"));
+            remote.getOutputStream().flush();
+            assertEquals("hello", frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertEquals("world", frames.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertTrue(mService.isConnected());
+            assertTrue(mService.getSession(address).getFirstByteTime() >= 0);
+            assertTrue(mService.write(address, new ByteBuffer[]{ByteBuffer.wrap("ping\r\n".getBytes("US-ASCII"))}, null, null));
+            read(remote.getInputStream(), 6);
+        } finally {
+            remote.close();
+            peer.close();
+        }
+    }
+
+    @Test
+    public void invalidTcpAddressIsConnectFailure() throws Exception {
+        mScheduler = new IoScheduler(4);
+        mService = new BluetoothService(null, mScheduler);
+        mService.setTransportFactory(new TcpTransportFactory(freePort()));
+        mService.setMetricsEnabled(true);
+        mService.setMultiConnection(true, BluetoothService.DEFAULT_MAX_CONNECTIONS);
+        mService.start(false);
+        mService.connect("127.0.0.1:abc");
+        mService.connect("127.0.0.1:70000");
+        awaitFailures(2);
+        assertEquals(BluetoothState.STATE_LISTEN, mService.getState());
+    }
+
+    @Test
+    public void concurrentConnectStopWriteSingle() throws Exception {
+        stress(false);
+    }
+
+    @Test
+    public void concurrentConnectStopWriteMulti() throws Exception {
+        stress(true);
+    }
+
+    /**
+     * 连接、停止/启动、发送、对端接入和对端断开并发执行，任何线程不抛异常，
+     * 状态始终有效，停止后所有任务退出，服务可再次连接收发
+     */
+    private void stress(boolean multiConnection) throws Exception {
+        start(BluetoothService.DEFAULT_MAX_CONNECTIONS * 4, multiConnection);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final long deadline = System.currentTimeMillis() + STRESS_TIME;
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new StressThread(error, deadline, 1) {
+            @Override
+            void step(Random random) throws Exception {
+                mService.connect(ADDRESSES[random.nextInt(ADDRESSES.length)]);
+                // 不限速时连接任务排队等锁，线程池很快占满，只剩拒绝路径
+                Thread.sleep(random.nextInt(2));
+            }
+        });
+        threads.add(new StressThread(error, deadline, 2) {
+            @Override
+            void step(Random random) throws Exception {
+                if (random.nextBoolean()) {
+                    mService.stop();
+                } else {
+                    mService.start(false);
+                }
+                Thread.sleep(random.nextInt(5));
+            }
+        });
+        for (int i = 0; i < 2; i++) {
+            threads.add(new StressThread(error, deadline, 3 + i) {
+                @Override
+                void step(Random random) {
+                    mService.write(ADDRESSES[random.nextInt(ADDRESSES.length)],
+                            new ByteBuffer[]{ByteBuffer.wrap(new byte[]{'x', '\r'})}, null, null);
+                }
+            });
+        }
+        threads.add(new StressThread(error, deadline, 5) {
+            @Override
+            void step(Random random) throws Exception {
+                // 本端连出的对端随机断开
+                Transport remote = mFactory.acceptRemote(1);
+                if (remote != null && random.nextBoolean()) {
+                    remote.close();
+                }
+                try {
+                    Transport inbound = mFactory.connectRemote("remote", "R" + random.nextInt(2));
+                    if (random.nextBoolean()) {
+                        inbound.close();
+                    }
+                } catch (IOException ignored) {
+                    // 未在监听
+                }
+            }
+        });
+        threads.add(new StressThread(error, deadline, 6) {
+            @Override
+            void step(Random random) {
+                int state = mService.getState();
+                if (state < BluetoothState.STATE_NONE || state > BluetoothState.STATE_CONNECTED) {
+                    throw new AssertionError("state: " + state);
+                }
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(STRESS_TIME + TIMEOUT);
+            assertFalse(thread.isAlive());
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertTrue(mService.getMetrics().mConnects.get() > 0);
+
+        mService.stop();
+        assertTrue(mService.isStopped());
+        assertTrue(mService.getSessions().isEmpty());
+        assertFalse(mService.write("A", new ByteBuffer[]{ByteBuffer.wrap(new byte[]{'x', '\r'})}, null, null));
+        awaitActive(0);
+
+        // 并发结束后服务仍可正常使用
+        while (mFactory.acceptRemote(0) != null) {
+            // 丢弃残留的对端
+        }
+        mService.start(false);
+        Transport remote = connect("Z");
+        assertTrue(mService.write("Z", new ByteBuffer[]{ByteBuffer.wrap(new byte[]{'x', '\r'})}, null, null));
+        read(remote.getInputStream(), 2);
+    }
+
+    /**
+     * 压测线程，循环执行到截止时间，异常记录到 error
+     */
+    private abstract static class StressThread extends Thread {
+
+        private final AtomicReference<Throwable> mError;
+        private final long mDeadline;
+        private final Random mRandom;
+
+        StressThread(AtomicReference<Throwable> error, long deadline, long seed) {
+            this.mError = error;
+            this.mDeadline = deadline;
+            this.mRandom = new Random(seed);
+        }
+
+        abstract void step(Random random) throws Exception;
+
+        @Override
+        public void run() {
+            try {
+                while (System.currentTimeMillis() < mDeadline && mError.get() == null) {
+                    step(mRandom);
+                }
+            } catch (Throwable e) {
+                mError.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private Transport connect(String address) throws Exception {
+        mService.connect(address);
+        Transport remote = mFactory.acceptRemote(TIMEOUT);
+        assertNotNull(remote);
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((mService.getSession(address) == null || !mService.isConnected()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertNotNull(mService.getSession(address));
+        return remote;
+    }
+
+    /**
+     * 提交一直阻塞的任务占用线程，测试结束时释放
+     */
+    private void occupy(int threads) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            mScheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        mRelease.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    private void awaitActive(int threads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (mScheduler.getActiveCount() != threads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(threads, mScheduler.getActiveCount());
+    }
+
+    private void awaitFailures(long failures) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (mService.getMetrics().mConnectFailures.get() < failures && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(failures, mService.getMetrics().mConnectFailures.get());
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void read(InputStream input, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int n = 0;
+        while (n < length) {
+            int read = input.read(buffer, n, length - n);
+            assertFalse(read < 0);
+            n += read;
+        }
+    }
+}
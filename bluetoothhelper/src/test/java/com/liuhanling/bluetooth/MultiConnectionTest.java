@@ -0,0 +1,207 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+import com.liuhanling.bluetooth.service.IoScheduler;
+import com.liuhanling.bluetooth.transport.PipedTransportFactory;
+import com.liuhanling.bluetooth.transport.Transport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多连接测试，用内存管道模拟 1、4、7 个对端同时收发
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class MultiConnectionTest {
+
+    private static final int FRAME_LENGTH = 64;
+    private static final int FRAMES_PER_PEER = 20000;
+    private static final long TIMEOUT = 30000;
+
+    private final ConcurrentHashMap<String, AtomicLong> mFrames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> mCorrupted = new ConcurrentHashMap<>();
+    private PipedTransportFactory mFactory;
+    private BluetoothService mService;
+
+    @Before
+    public void setUp() {
+        mFactory = new PipedTransportFactory();
+        mService = new BluetoothService(null, new IoScheduler(IoScheduler.DEFAULT_MAX_THREADS));
+        mService.setTransportFactory(mFactory);
+        mService.setMultiConnection(true, BluetoothService.DEFAULT_MAX_CONNECTIONS);
+        mService.setReceiveDispatcher(new ReceiveDispatcher(null, new ReceiveDispatcher.Receiver() {
+            @Override
+            public void onReceiveFrame(BluetoothFrame frame) {
+                count(frame);
+            }
+
+            @Override
+            public void onReceiveBatch(List<BluetoothFrame> frames) {
+                for (BluetoothFrame frame : frames) {
+                    count(frame);
+                }
+            }
+        }, true));
+        mService.start(false);
+    }
+
+    @After
+    public void tearDown() {
+        mService.stop();
+    }
+
+    @Test
+    public void throughputWithOnePeer() throws Exception {
+        run(1);
+    }
+
+    @Test
+    public void throughputWithFourPeers() throws Exception {
+        run(4);
+    }
+
+    @Test
+    public void throughputWithSevenPeers() throws Exception {
+        run(7);
+    }
+
+    @Test
+    public void aggregateThroughputDoesNotCollapse() throws Exception {
+        double single = run(1);
+        tearDown();
+        mFrames.clear();
+        mCorrupted.clear();
+        setUp();
+        double seven = run(7);
+        assertTrue("1 peer: " + single + " frames/s, 7 peers: " + seven + " frames/s", seven > single * 0.5);
+    }
+
+    @Test
+    public void sendsAreRoutedByAddress() throws Exception {
+        Transport[] remotes = connect(4);
+        for (int i = 0; i < remotes.length; i++) {
+            byte[] data = ("to-" + i + "\r").getBytes("US-ASCII");
+            assertTrue(mService.write(address(i), new ByteBuffer[]{ByteBuffer.wrap(data)}, null, null));
+        }
+        for (int i = 0; i < remotes.length; i++) {
+            InputStream input = remotes[i].getInputStream();
+            byte[] buffer = new byte[16];
+            int length = 0;
+            while (length == 0 || buffer[length - 1] != '\r') {
+                length += input.read(buffer, length, buffer.length - length);
+            }
+            assertEquals("to-" + i + "\r", new String(buffer, 0, length, "US-ASCII"));
+        }
+        assertEquals(4, mService.getSessions().size());
+    }
+
+    /**
+     * 各对端同时发送，等待全部数据帧到达
+     *
+     * @return 合计每秒帧数
+     */
+    private double run(int peers) throws Exception {
+        final Transport[] remotes = connect(peers);
+        Thread[] senders = new Thread[peers];
+        long start = System.nanoTime();
+        for (int i = 0; i < peers; i++) {
+            final OutputStream output = remotes[i].getOutputStream();
+            final byte tag = (byte) ('A' + i);
+            senders[i] = new Thread("peer-" + i) {
+                @Override
+                public void run() {
+                    byte[] frame = new byte[FRAME_LENGTH + 1];
+                    Arrays.fill(frame, tag);
+                    frame[FRAME_LENGTH] = '\r';
+                    byte[] chunk = new byte[frame.length * 16];
+                    for (int j = 0; j < 16; j++) {
+                        System.arraycopy(frame, 0, chunk, j * frame.length, frame.length);
+                    }
+                    try {
+                        for (int j = 0; j < FRAMES_PER_PEER / 16; j++) {
+                            output.write(chunk);
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            senders[i].start();
+        }
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(TIMEOUT);
+        for (int i = 0; i < peers; i++) {
+            AtomicLong frames = counter(mFrames, address(i));
+            while (frames.get() < FRAMES_PER_PEER && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (int i = 0; i < peers; i++) {
+            senders[i].join();
+            assertEquals(address(i), FRAMES_PER_PEER, counter(mFrames, address(i)).get());
+            assertEquals(address(i), 0, counter(mCorrupted, address(i)).get());
+            assertEquals(FRAMES_PER_PEER * (long) (FRAME_LENGTH + 1), mService.getSession(address(i)).getReadBytes());
+        }
+        double rate = peers * FRAMES_PER_PEER / seconds;
+        System.out.println(String.format("%d peer(s): %.0f frames/s, %.1f MB/s", peers, rate,
+                rate * (FRAME_LENGTH + 1) / 1e6));
+        return rate;
+    }
+
+    private Transport[] connect(int peers) throws Exception {
+        Transport[] remotes = new Transport[peers];
+        for (int i = 0; i < peers; i++) {
+            mService.connect(address(i));
+            remotes[i] = mFactory.acceptRemote(TIMEOUT);
+            assertNotNull(remotes[i]);
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((mService.getSessions().size() < peers || !mService.isConnected()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(peers, mService.getSessions().size());
+        assertTrue(mService.isConnected());
+        return remotes;
+    }
+
+    private void count(BluetoothFrame frame) {
+        String address = frame.getAddress();
+        byte tag = (byte) ('A' + Integer.parseInt(address.substring(address.length() - 1)));
+        boolean valid = frame.length() == FRAME_LENGTH;
+        for (int i = 0; valid && i < frame.length(); i++) {
+            valid = frame.get(i) == tag;
+        }
+        counter(valid ? mFrames : mCorrupted, address).incrementAndGet();
+        frame.release();
+    }
+
+    private static AtomicLong counter(ConcurrentHashMap<String, AtomicLong> counters, String address) {
+        AtomicLong counter = counters.get(address);
+        if (counter == null) {
+            counters.putIfAbsent(address, new AtomicLong());
+            counter = counters.get(address);
+        }
+        return counter;
+    }
+
+    private static String address(int index) {
+        return "00:11:22:33:44:0" + index;
+    }
+}
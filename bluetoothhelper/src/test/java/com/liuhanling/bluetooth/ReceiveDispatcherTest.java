@@ -0,0 +1,137 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.frame.BluetoothFrame;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 接收分发测试，执行器任务手动执行，回调抛出的异常由执行器吞掉
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ReceiveDispatcherTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ManualExecutor mExecutor = new ManualExecutor();
+    private final List<String> mReceived = new ArrayList<>();
+    private int mThrows = 0;
+    private ReceiveDispatcher mDispatcher;
+
+    private final ReceiveDispatcher.Receiver mReceiver = new ReceiveDispatcher.Receiver() {
+        @Override
+        public void onReceiveFrame(BluetoothFrame frame) {
+            receive(frame);
+        }
+
+        @Override
+        public void onReceiveBatch(List<BluetoothFrame> frames) {
+            for (BluetoothFrame frame : frames) {
+                receive(frame);
+            }
+        }
+    };
+
+    @Test
+    public void backlogIsDeliveredAsOneBatch() {
+        mDispatcher = new ReceiveDispatcher(mExecutor, mReceiver, false);
+        dispatch("a");
+        dispatch("b");
+        dispatch("c");
+        assertEquals(1, mExecutor.mTasks.size());
+        mExecutor.runAll();
+        assertEquals("[a, b, c]", mReceived.toString());
+    }
+
+    @Test
+    public void throwingReceiverDoesNotStallDispatch() {
+        mDispatcher = new ReceiveDispatcher(mExecutor, mReceiver, false);
+        mThrows = 1;
+        dispatch("a");
+        assertEquals(1, mExecutor.runAll());
+        assertEquals("[a]", mReceived.toString());
+        // 异常后仍能再次调度
+        dispatch("b");
+        assertEquals(1, mExecutor.mTasks.size());
+        mExecutor.runAll();
+        assertEquals("[a, b]", mReceived.toString());
+    }
+
+    @Test
+    public void framesQueuedDuringFailedCallbackAreDeliveredOnce() {
+        mDispatcher = new ReceiveDispatcher(mExecutor, new ReceiveDispatcher.Receiver() {
+            @Override
+            public void onReceiveFrame(BluetoothFrame frame) {
+                receive(frame);
+                if ("a".equals(frame.getString())) {
+                    // 回调期间读线程继续入队，随后回调抛出异常
+                    dispatch("b");
+                    dispatch("c");
+                    throw new IllegalStateException("receiver failed");
+                }
+            }
+
+            @Override
+            public void onReceiveBatch(List<BluetoothFrame> frames) {
+                for (BluetoothFrame frame : frames) {
+                    receive(frame);
+                }
+            }
+        }, false);
+        dispatch("a");
+        assertEquals(1, mExecutor.runAll());
+        // 已交给回调的 a 不重发，剩余的 b、c 由新任务送达
+        assertEquals("[a, b, c]", mReceived.toString());
+    }
+
+    private void dispatch(String data) {
+        mDispatcher.dispatch(BluetoothFrame.wrap(UTF_8, "A", data.getBytes(UTF_8)));
+    }
+
+    private void receive(BluetoothFrame frame) {
+        mReceived.add(frame.getString());
+        frame.release();
+        if (mThrows > 0) {
+            mThrows--;
+            throw new IllegalStateException("receiver failed");
+        }
+    }
+
+    /**
+     * 任务排队到手动执行，记录抛出的异常数
+     */
+    private static class ManualExecutor implements Executor {
+
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.offer(command);
+        }
+
+        /**
+         * @return 抛出异常的任务数
+         */
+        int runAll() {
+            int failures = 0;
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.liuhanling.bluetooth;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 断线重连策略测试，用虚拟时钟推进时间
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ReconnectPolicyTest {
+
+    private long mNow = 1000;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long now() {
+            return mNow;
+        }
+    };
+
+    private final ReconnectPolicy mPolicy = new ReconnectPolicy(mClock, new Random(42))
+            .setBackoff(1000, 8000, 2)
+            .setJitter(0)
+            .setMaxElapsed(10 * 60 * 1000)
+            .setCircuitBreaker(3, 60000)
+            .setStableTime(10000);
+
+    @Test
+    public void delayGrowsExponentiallyUpToMax() {
+        mPolicy.onConnected();
+        long[] expected = {1000, 2000, 4000, 8000, 8000};
+        long delay = mPolicy.onDisconnected();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], delay);
+            mNow += delay;
+            assertTrue(mPolicy.onAttempt());
+            mPolicy.onConnected();
+            mNow += 1000;
+            delay = mPolicy.onDisconnected();
+        }
+    }
+
+    @Test
+    public void jitterStaysWithinRange() {
+        ReconnectPolicy policy = new ReconnectPolicy(mClock, new Random(7)).setBackoff(1000, 1000, 2).setJitter(0.5);
+        policy.onConnected();
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.onDisconnected();
+            assertTrue(String.valueOf(delay), delay >= 500 && delay <= 1000);
+            policy.onConnected();
+        }
+    }
+
+    @Test
+    public void stableConnectionResetsBackoff() {
+        mPolicy.onConnected();
+        mPolicy.onDisconnected();
+        assertTrue(mPolicy.onAttempt());
+        mPolicy.onConnectFailed();
+        assertTrue(mPolicy.onAttempt());
+        mPolicy.onConnected();
+        mNow += 10000;
+        assertEquals(1000, mPolicy.onDisconnected());
+    }
+
+    @Test
+    public void breakerOpensAfterThresholdAndProbesOnce() {
+        mPolicy.onConnected();
+        mPolicy.onDisconnected();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(mPolicy.onAttempt());
+            mNow += 100;
+            mPolicy.onConnectFailed();
+        }
+        assertEquals(ReconnectPolicy.CIRCUIT_OPEN, mPolicy.getCircuitState());
+        assertEquals(60000, mPolicy.getOpenRemaining());
+
+        // 熔断中的拒绝不计入失败，熔断结束时间不变
+        mNow += 20000;
+        assertFalse(mPolicy.onAttempt());
+        assertFalse(mPolicy.onAttempt());
+        assertEquals(40000, mPolicy.getOpenRemaining());
+
+        mNow += 40000;
+        assertTrue(mPolicy.onAttempt());
+        assertEquals(ReconnectPolicy.CIRCUIT_HALF_OPEN, mPolicy.getCircuitState());
+        assertEquals(0, mPolicy.getOpenRemaining());
+        // 试探失败立即熔断
+        assertEquals(60000, mPolicy.onConnectFailed());
+        assertEquals(ReconnectPolicy.CIRCUIT_OPEN, mPolicy.getCircuitState());
+
+        mNow += 60000;
+        assertTrue(mPolicy.onAttempt());
+        mPolicy.onConnected();
+        assertEquals(ReconnectPolicy.CIRCUIT_CLOSED, mPolicy.getCircuitState());
+        assertFalse(mPolicy.isReconnecting());
+    }
+
+    @Test
+    public void givesUpAfterMaxElapsed() {
+        mPolicy.setMaxElapsed(10000).setCircuitBreaker(100, 60000);
+        mPolicy.onConnected();
+        long delay = mPolicy.onDisconnected();
+        int attempts = 0;
+        while (delay != ReconnectPolicy.STOP) {
+            mNow += delay;
+            assertTrue(mPolicy.onAttempt());
+            attempts++;
+            delay = mPolicy.onConnectFailed();
+        }
+        // 1 + 2 + 4 秒后下次 8 秒超过 10 秒
+        assertEquals(3, attempts);
+        assertFalse(mPolicy.isReconnecting());
+        assertEquals(0, mPolicy.getAttempts());
+    }
+
+    @Test
+    public void copyKeepsConfigNotState() {
+        mPolicy.onConnected();
+        mPolicy.onDisconnected();
+        mPolicy.onAttempt();
+        ReconnectPolicy copy = mPolicy.copy();
+        assertEquals(0, copy.getAttempts());
+        assertFalse(copy.isReconnecting());
+        copy.onConnected();
+        assertEquals(1000, copy.onDisconnected());
+    }
+}
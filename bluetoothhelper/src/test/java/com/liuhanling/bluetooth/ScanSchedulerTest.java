@@ -0,0 +1,166 @@
+package com.liuhanling.bluetooth;
+
+import com.liuhanling.bluetooth.listener.BluetoothDeviceListener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 扫描调度测试，用虚拟时钟推进窗口
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ScanSchedulerTest {
+
+    private final VirtualClock mClock = new VirtualClock();
+    private final ScanScheduler mScheduler = new ScanScheduler(mClock);
+
+    @Test
+    public void busyWindowsGrowActiveAndShrinkIdle() {
+        quietWindow();
+        quietWindow();
+        assertEquals(ScanScheduler.DEFAULT_MAX_ACTIVE / 4, mScheduler.getActiveWindow());
+        assertEquals(ScanScheduler.DEFAULT_MIN_IDLE * 4, mScheduler.getIdleWindow());
+        window(10, false);
+        assertEquals(ScanScheduler.DEFAULT_MAX_ACTIVE / 2, mScheduler.getActiveWindow());
+        assertEquals(ScanScheduler.DEFAULT_MIN_IDLE * 2, mScheduler.getIdleWindow());
+        assertTrue(mScheduler.getLastDiscoveryRate() >= 0.5);
+    }
+
+    @Test
+    public void quietWindowsBackOffToLimits() {
+        for (int i = 0; i < 10; i++) {
+            quietWindow();
+        }
+        assertEquals(ScanScheduler.DEFAULT_MIN_ACTIVE, mScheduler.getActiveWindow());
+        assertEquals(ScanScheduler.DEFAULT_MAX_IDLE, mScheduler.getIdleWindow());
+        assertEquals(10, mScheduler.getWindowCount());
+        assertTrue(mScheduler.getDutyCycle() < 0.2);
+    }
+
+    @Test
+    public void classicIsSkippedWhileEmptyAndProbedAgain() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(mScheduler.isClassicEnabled());
+            window(1, false);
+        }
+        assertFalse(mScheduler.isClassicEnabled());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(mScheduler.isClassicEnabled());
+            window(1, false);
+        }
+        assertTrue(mScheduler.isClassicEnabled());
+        assertEquals(10, mScheduler.getClassicSkipCount());
+        // 试探窗口仍无经典蓝牙新设备，立即回到只扫 BLE
+        window(1, false);
+        assertFalse(mScheduler.isClassicEnabled());
+    }
+
+    @Test
+    public void classicDevicesKeepClassicEnabled() {
+        for (int i = 0; i < 5; i++) {
+            window(1, true);
+            assertTrue(mScheduler.isClassicEnabled());
+        }
+    }
+
+    @Test
+    public void refoundAddressesAreNotNew() {
+        mScheduler.onActiveStart();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(mScheduler.onDeviceFound("A" + i, false));
+        }
+        mClock.advance(mScheduler.getActiveWindow());
+        mScheduler.onActiveEnd();
+        long idle = mScheduler.getIdleWindow();
+        mClock.advance(idle);
+        mScheduler.onActiveStart();
+        for (int i = 0; i < 10; i++) {
+            assertFalse(mScheduler.onDeviceFound("A" + i, false));
+        }
+        mClock.advance(mScheduler.getActiveWindow());
+        mScheduler.onActiveEnd();
+        assertEquals(0, mScheduler.getLastDiscoveryRate(), 0);
+        assertEquals(idle * 2, mScheduler.getIdleWindow());
+    }
+
+    @Test
+    public void idleExpiryDoesNotInflateDiscoveryRate() {
+        // 20 个设备持续广播，空闲窗口长于超时时间，设备在空闲时被移除、下个窗口再次加入设备表
+        BluetoothDeviceTable table = new BluetoothDeviceTable();
+        table.setListener(new BluetoothDeviceListener() {
+            @Override
+            public void onDeviceFound(BluetoothScanDevice device) {
+                mScheduler.onDeviceFound(device.getAddress(), device.isClassic());
+            }
+
+            @Override
+            public void onDeviceUpdated(BluetoothScanDevice device) {
+            }
+
+            @Override
+            public void onDeviceLost(BluetoothScanDevice device) {
+            }
+        });
+        int refound = 0;
+        for (int window = 0; window < 30; window++) {
+            mScheduler.onActiveStart();
+            int before = table.size();
+            long end = mClock.now() + mScheduler.getActiveWindow();
+            while (mClock.now() < end) {
+                for (int i = 0; i < 20; i++) {
+                    table.update("B" + i, null, -50, null, mClock.now());
+                }
+                mClock.advance(BluetoothDeviceTable.EXPIRE_TICK);
+                table.expire(mClock.now());
+            }
+            if (window > 0) {
+                refound += table.size() - before;
+            }
+            mScheduler.onActiveEnd();
+            end = mClock.now() + mScheduler.getIdleWindow();
+            while (mClock.now() < end) {
+                mClock.advance(BluetoothDeviceTable.EXPIRE_TICK);
+                table.expire(mClock.now());
+            }
+        }
+        assertTrue("devices were not expired while idle", refound > 0);
+        assertEquals(ScanScheduler.DEFAULT_MAX_IDLE, mScheduler.getIdleWindow());
+        assertEquals(ScanScheduler.DEFAULT_MIN_ACTIVE, mScheduler.getActiveWindow());
+    }
+
+    /**
+     * 一个扫描窗口，发现 newDevices 个从未见过的设备
+     */
+    private void window(int newDevices, boolean classic) {
+        mScheduler.onActiveStart();
+        for (int i = 0; i < newDevices; i++) {
+            mScheduler.onDeviceFound("W" + mScheduler.getWindowCount() + "-" + i, classic);
+        }
+        mClock.advance(mScheduler.getActiveWindow());
+        mScheduler.onActiveEnd();
+        mClock.advance(mScheduler.getIdleWindow());
+    }
+
+    private void quietWindow() {
+        window(0, false);
+    }
+
+    private static class VirtualClock implements Clock {
+
+        private long mNow = 1000;
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+        }
+    }
+}
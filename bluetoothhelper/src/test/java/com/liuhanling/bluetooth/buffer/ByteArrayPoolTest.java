@@ -0,0 +1,89 @@
+package com.liuhanling.bluetooth.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 字节数组池测试，分级、归还级别和每级缓存上限
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class ByteArrayPoolTest {
+
+    @Test
+    public void acquireRoundsUpToSizeClass() {
+        ByteArrayPool pool = new ByteArrayPool();
+        assertEquals(ByteArrayPool.MIN_SIZE, pool.acquire(0).length);
+        assertEquals(ByteArrayPool.MIN_SIZE, pool.acquire(1).length);
+        assertEquals(64, pool.acquire(64).length);
+        assertEquals(128, pool.acquire(65).length);
+        assertEquals(ByteArrayPool.MAX_SIZE, pool.acquire(ByteArrayPool.MAX_SIZE).length);
+        // 超出最大级别直接按请求长度分配
+        assertEquals(ByteArrayPool.MAX_SIZE + 1, pool.acquire(ByteArrayPool.MAX_SIZE + 1).length);
+    }
+
+    @Test
+    public void releasedArrayIsReused() {
+        ByteArrayPool pool = new ByteArrayPool();
+        byte[] array = pool.acquire(100);
+        pool.release(array);
+        assertSame(array, pool.acquire(120));
+        assertNotSame(array, pool.acquire(120));
+    }
+
+    @Test
+    public void releaseGoesToOwnSizeClass() {
+        ByteArrayPool pool = new ByteArrayPool();
+        byte[] array = new byte[256];
+        pool.release(array);
+        // 其他级别取不到
+        assertNull(pool.poll(64));
+        assertNull(pool.poll(128));
+        assertNull(pool.poll(512));
+        assertSame(array, pool.poll(200));
+        assertNull(pool.poll(200));
+    }
+
+    @Test
+    public void nonClassArraysAreDropped() {
+        ByteArrayPool pool = new ByteArrayPool();
+        pool.release(null);
+        pool.release(new byte[100]);
+        pool.release(new byte[32]);
+        pool.release(new byte[ByteArrayPool.MAX_SIZE * 2]);
+        assertNull(pool.poll(64));
+        assertNull(pool.poll(100));
+        assertNull(pool.poll(ByteArrayPool.MAX_SIZE));
+        assertNull(pool.poll(ByteArrayPool.MAX_SIZE * 2));
+    }
+
+    @Test
+    public void eachClassIsCapped() {
+        ByteArrayPool pool = new ByteArrayPool();
+        for (int i = 0; i < ByteArrayPool.MAX_POOLED + 5; i++) {
+            pool.release(new byte[128]);
+        }
+        pool.release(new byte[64]);
+        for (int i = 0; i < ByteArrayPool.MAX_POOLED; i++) {
+            assertNotNull(pool.poll(128));
+        }
+        assertNull(pool.poll(128));
+        // 其他级别不受影响
+        assertNotNull(pool.poll(64));
+
+        // 取空后可再次缓存到上限
+        for (int i = 0; i < ByteArrayPool.MAX_POOLED; i++) {
+            pool.release(new byte[128]);
+        }
+        for (int i = 0; i < ByteArrayPool.MAX_POOLED; i++) {
+            assertNotNull(pool.poll(128));
+        }
+        assertNull(pool.poll(128));
+    }
+}
@@ -0,0 +1,120 @@
+package com.liuhanling.bluetooth.frame;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 接收数据帧测试，引用计数归零时归还数组，多余的释放报错
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class BluetoothFrameTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] DATA = "hello".getBytes(UTF_8);
+
+    @Test
+    public void obtainCopiesData() {
+        ByteArrayPool pool = new ByteArrayPool();
+        byte[] buffer = "xxhelloxx".getBytes(UTF_8);
+        BluetoothFrame frame = BluetoothFrame.obtain(pool, UTF_8, "00:11", buffer, 2, 5);
+        buffer[2] = 'j';
+        assertEquals(5, frame.length());
+        assertEquals(ByteArrayPool.MIN_SIZE, frame.array().length);
+        assertEquals("hello", frame.getString());
+        assertArrayEquals(DATA, frame.toByteArray());
+        assertEquals('o', frame.get(4));
+        assertEquals(5, frame.asByteBuffer().remaining());
+        frame.release();
+    }
+
+    @Test
+    public void arrayIsReturnedWhenCountReachesZero() {
+        ByteArrayPool pool = new ByteArrayPool();
+        BluetoothFrame frame = BluetoothFrame.obtain(pool, UTF_8, "00:11", DATA, 0, DATA.length);
+        byte[] array = frame.array();
+        frame.retain().retain();
+        frame.release();
+        frame.release();
+        // 仍有一个引用，数组未归还
+        assertNull(pool.poll(DATA.length));
+        assertSame(array, frame.array());
+        frame.release();
+        assertSame(array, pool.poll(DATA.length));
+    }
+
+    @Test
+    public void doubleReleaseThrows() {
+        ByteArrayPool pool = new ByteArrayPool();
+        BluetoothFrame frame = BluetoothFrame.obtain(pool, UTF_8, "00:11", DATA, 0, DATA.length);
+        frame.release();
+        try {
+            frame.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // 数组只归还一次
+        pool.poll(DATA.length);
+        assertNull(pool.poll(DATA.length));
+        // 计数保持在零，再次释放仍报错
+        try {
+            frame.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void releasedFrameRejectsAccess() {
+        BluetoothFrame frame = BluetoothFrame.obtain(new ByteArrayPool(), UTF_8, "00:11", DATA, 0, DATA.length);
+        frame.release();
+        try {
+            frame.array();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            frame.retain();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void pooledArrayGoesBackToItsSizeClass() {
+        ByteArrayPool pool = new ByteArrayPool();
+        byte[] buffer = new byte[300];
+        BluetoothFrame frame = BluetoothFrame.obtain(pool, UTF_8, "00:11", buffer, 0, buffer.length);
+        assertEquals(512, frame.array().length);
+        frame.release();
+        assertNull(pool.poll(256));
+        assertNull(pool.poll(1024));
+        assertEquals(512, pool.poll(300).length);
+    }
+
+    @Test
+    public void wrappedFrameSharesArray() {
+        byte[] data = new byte[ByteArrayPool.MIN_SIZE];
+        BluetoothFrame frame = BluetoothFrame.wrap(UTF_8, "00:11", data);
+        assertSame(data, frame.toByteArray());
+        frame.release();
+    }
+
+    @Test
+    public void frameWithoutPoolAllocatesExactLength() {
+        BluetoothFrame frame = BluetoothFrame.obtain(null, UTF_8, "00:11", DATA, 0, DATA.length);
+        assertEquals(DATA.length, frame.array().length);
+        assertSame(frame.array(), frame.toByteArray());
+        frame.release();
+    }
+}
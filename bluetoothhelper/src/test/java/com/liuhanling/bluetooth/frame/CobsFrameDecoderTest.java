@@ -0,0 +1,128 @@
+package com.liuhanling.bluetooth.frame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.liuhanling.bluetooth.frame.FrameCollector.assertFrames;
+import static com.liuhanling.bluetooth.frame.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * COBS 分帧测试，数据流由测试内的编码器生成
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class CobsFrameDecoderTest {
+
+    @Test
+    public void zeroRunsAreRestored() {
+        List<byte[]> frames = Arrays.asList(
+                new byte[]{0},
+                new byte[]{0, 0, 0},
+                new byte[]{1, 0, 0, 2},
+                new byte[]{0, 5},
+                new byte[]{5, 0},
+                new byte[]{1, 2, 3});
+        for (int chunk = 1; chunk <= 8; chunk++) {
+            assertFrames(frames, decode(new CobsFrameDecoder(), encode(frames), chunk));
+        }
+    }
+
+    @Test
+    public void fullBlocksOf254BytesHaveNoImpliedZero() {
+        List<byte[]> frames = new ArrayList<>();
+        for (int length : new int[]{253, 254, 255, 508, 509, 1000}) {
+            frames.add(nonZero(length));
+        }
+        byte[] tail = Arrays.copyOf(nonZero(254), 255);
+        frames.add(tail);
+        for (int chunk : new int[]{1, 3, 254, 255, 256, 4096}) {
+            assertFrames(frames, decode(new CobsFrameDecoder(), encode(frames), chunk));
+        }
+    }
+
+    @Test
+    public void trailingCodeAfterFullBlockIsAccepted() {
+        // 254 个非零字节后可带或不带 0x01
+        byte[] data = nonZero(254);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(0xFF);
+        stream.write(data, 0, data.length);
+        stream.write(0);
+        stream.write(0xFF);
+        stream.write(data, 0, data.length);
+        stream.write(0x01);
+        stream.write(0);
+        List<byte[]> frames = decode(new CobsFrameDecoder(), stream.toByteArray(), 100);
+        assertFrames(Arrays.asList(data, data), frames);
+    }
+
+    @Test
+    public void truncatedFrameIsDropped() {
+        // 编码声明 4 个字节，第 3 个字节处遇到结束符
+        byte[] stream = {0x05, 1, 2, 0x00, 0x03, 7, 8, 0x00};
+        List<byte[]> frames = decode(new CobsFrameDecoder(), stream, 2);
+        assertEquals(1, frames.size());
+        assertArrayEquals(new byte[]{7, 8}, frames.get(0));
+    }
+
+    @Test
+    public void oversizedFrameIsDroppedAndNextFrameKept() {
+        List<byte[]> frames = Arrays.asList(nonZero(40), new byte[]{1, 0, 2}, new byte[40], new byte[]{3});
+        for (int chunk = 1; chunk <= 8; chunk++) {
+            List<byte[]> decoded = decode(new CobsFrameDecoder(16), encode(frames), chunk);
+            assertFrames(Arrays.asList(frames.get(1), frames.get(3)), decoded);
+        }
+    }
+
+    @Test
+    public void randomChunkingMatchesFrames() {
+        Random random = new Random(3);
+        List<byte[]> frames = FrameCollector.randomFrames(random, 2000, 600, 0.05, (byte) 0);
+        assertFrames(frames, decode(new CobsFrameDecoder(), encode(frames), random));
+    }
+
+    private static byte[] nonZero(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (1 + i % 255);
+        }
+        return data;
+    }
+
+    /**
+     * COBS 编码，每帧以 0x00 结束
+     */
+    static byte[] encode(List<byte[]> frames) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        byte[] block = new byte[254];
+        for (byte[] frame : frames) {
+            int length = 0;
+            for (byte b : frame) {
+                if (b == 0) {
+                    stream.write(length + 1);
+                    stream.write(block, 0, length);
+                    length = 0;
+                    continue;
+                }
+                block[length++] = b;
+                if (length == 254) {
+                    stream.write(0xFF);
+                    stream.write(block, 0, length);
+                    length = 0;
+                }
+            }
+            stream.write(length + 1);
+            stream.write(block, 0, length);
+            stream.write(0);
+        }
+        return stream.toByteArray();
+    }
+}
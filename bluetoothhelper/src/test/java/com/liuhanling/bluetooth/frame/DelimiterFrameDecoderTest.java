@@ -0,0 +1,189 @@
+package com.liuhanling.bluetooth.frame;
+
+import com.liuhanling.bluetooth.constant.Constants;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 分隔符分帧测试，用分块返回数据的输入流模拟蓝牙读
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class DelimiterFrameDecoderTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void splitsOnCrAndDropsLf() throws IOException {
+        List<String> frames = receive(new DelimiterFrameDecoder(), "AT+OK\r\nHELLO\r\n\r\nX\r", 1024);
+        assertEquals(Arrays.asList("AT+OK", "HELLO", "", "X"), frames);
+    }
+
+    @Test
+    public void framesSpanningReadsAreJoined() throws IOException {
+        String stream = "temperature=21.5\r\nhumidity=40\r\npressure=1013\r\n";
+        List<String> expected = Arrays.asList("temperature=21.5", "humidity=40", "pressure=1013");
+        for (int chunk = 1; chunk <= 8; chunk++) {
+            assertEquals("chunk " + chunk, expected, receive(new DelimiterFrameDecoder(), stream, chunk));
+        }
+    }
+
+    @Test
+    public void incompleteTailIsKeptUntilDelimiter() throws IOException {
+        DelimiterFrameDecoder decoder = new DelimiterFrameDecoder();
+        Collector collector = new Collector();
+        byte[] first = "PART".getBytes(ASCII);
+        decoder.decode(first, 0, first.length, collector);
+        assertEquals(0, collector.mFrames.size());
+        byte[] second = "IAL\r".getBytes(ASCII);
+        decoder.decode(second, 0, second.length, collector);
+        assertEquals(Arrays.asList("PARTIAL"), collector.strings());
+    }
+
+    @Test
+    public void frameInsideReadIsSliceOfReadBuffer() {
+        final byte[] data = "abc\rdef\r".getBytes(ASCII);
+        final List<byte[]> buffers = new ArrayList<>();
+        new DelimiterFrameDecoder().decode(data, 0, data.length, new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                buffers.add(buffer);
+            }
+        });
+        assertEquals(2, buffers.size());
+        assertSame(data, buffers.get(0));
+        assertSame(data, buffers.get(1));
+    }
+
+    @Test
+    public void oversizedFrameIsDroppedAndNextFrameKept() throws IOException {
+        StringBuilder stream = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            stream.append('x');
+        }
+        stream.append("\rOK\r");
+        List<String> frames = receive(new DelimiterFrameDecoder((byte) 0x0D, 0x0A, 16), stream.toString(), 7);
+        assertEquals(Arrays.asList("OK"), frames);
+    }
+
+    @Test
+    public void customDelimiterKeepsLineFeeds() throws IOException {
+        byte[] stream = {0x0A, 0x0D, 0x01, 0x00, 0x0A, 0x02, 0x00};
+        Collector collector = new Collector();
+        read(new ChunkedInputStream(stream, 3), new DelimiterFrameDecoder((byte) 0x00), collector);
+        assertEquals(2, collector.mFrames.size());
+        assertArrayEquals(new byte[]{0x0A, 0x0D, 0x01}, collector.mFrames.get(0));
+        assertArrayEquals(new byte[]{0x0A, 0x02}, collector.mFrames.get(1));
+    }
+
+    @Test
+    public void randomChunkingMatchesFrames() throws IOException {
+        Random random = new Random(1);
+        List<String> expected = new ArrayList<>();
+        StringBuilder stream = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder frame = new StringBuilder();
+            int length = random.nextInt(80);
+            for (int j = 0; j < length; j++) {
+                frame.append((char) ('0' + random.nextInt(75)));
+            }
+            expected.add(frame.toString());
+            stream.append(frame).append("\r\n");
+        }
+        ChunkedInputStream input = new ChunkedInputStream(stream.toString().getBytes(ASCII), random);
+        Collector collector = new Collector();
+        read(input, new DelimiterFrameDecoder(), collector);
+        assertEquals(expected, collector.strings());
+    }
+
+    private static List<String> receive(FrameDecoder decoder, String stream, int chunk) throws IOException {
+        Collector collector = new Collector();
+        read(new ChunkedInputStream(stream.getBytes(ASCII), chunk), decoder, collector);
+        return collector.strings();
+    }
+
+    /**
+     * 与接收线程相同的读循环
+     */
+    private static void read(InputStream input, FrameDecoder decoder, FrameDecoder.FrameListener listener) throws IOException {
+        byte[] buffer = new byte[Constants.RECEIVE_BUFFER_SIZE];
+        int length;
+        while ((length = input.read(buffer, 0, buffer.length)) >= 0) {
+            decoder.decode(buffer, 0, length, listener);
+        }
+    }
+
+    /**
+     * 收集数据帧，回调内复制
+     */
+    private static class Collector implements FrameDecoder.FrameListener {
+
+        private final List<byte[]> mFrames = new ArrayList<>();
+
+        @Override
+        public void onFrame(byte[] buffer, int offset, int length) {
+            mFrames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+        }
+
+        List<String> strings() {
+            List<String> strings = new ArrayList<>(mFrames.size());
+            for (byte[] frame : mFrames) {
+                strings.add(new String(frame, ASCII));
+            }
+            return strings;
+        }
+    }
+
+    /**
+     * 每次 read 最多返回 chunk 个字节，模拟蓝牙输入流的分块
+     */
+    private static class ChunkedInputStream extends InputStream {
+
+        private final byte[] mData;
+        private final int mChunk;
+        private final Random mRandom;
+        private int mPosition = 0;
+
+        ChunkedInputStream(byte[] data, int chunk) {
+            this.mData = data;
+            this.mChunk = chunk;
+            this.mRandom = null;
+        }
+
+        ChunkedInputStream(byte[] data, Random random) {
+            this.mData = data;
+            this.mChunk = 0;
+            this.mRandom = random;
+        }
+
+        @Override
+        public int read() {
+            return mPosition < mData.length ? mData[mPosition++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (mPosition >= mData.length) {
+                return -1;
+            }
+            int chunk = mRandom != null ? 1 + mRandom.nextInt(300) : mChunk;
+            int n = Math.min(Math.min(length, chunk), mData.length - mPosition);
+            System.arraycopy(mData, mPosition, buffer, offset, n);
+            mPosition += n;
+            return n;
+        }
+    }
+}
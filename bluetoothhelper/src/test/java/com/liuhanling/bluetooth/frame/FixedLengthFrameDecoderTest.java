@@ -0,0 +1,74 @@
+package com.liuhanling.bluetooth.frame;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.liuhanling.bluetooth.frame.FrameCollector.assertFrames;
+import static com.liuhanling.bluetooth.frame.FrameCollector.decode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 定长分帧测试
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class FixedLengthFrameDecoderTest {
+
+    @Test
+    public void framesSpanningReadsAreJoined() {
+        byte[] stream = new byte[5 * 20];
+        new Random(2).nextBytes(stream);
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < stream.length; i += 20) {
+            expected.add(Arrays.copyOfRange(stream, i, i + 20));
+        }
+        for (int chunk = 1; chunk <= 45; chunk++) {
+            assertFrames(expected, decode(new FixedLengthFrameDecoder(20), stream, chunk));
+        }
+        assertFrames(expected, decode(new FixedLengthFrameDecoder(20), stream, new Random(4)));
+    }
+
+    @Test
+    public void incompleteTailIsKeptUntilComplete() {
+        FixedLengthFrameDecoder decoder = new FixedLengthFrameDecoder(4);
+        FrameCollector collector = new FrameCollector();
+        decoder.decode(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6, collector);
+        assertEquals(1, collector.mFrames.size());
+        decoder.decode(new byte[]{7}, 0, 1, collector);
+        assertEquals(1, collector.mFrames.size());
+        decoder.decode(new byte[]{8, 9}, 0, 2, collector);
+        assertEquals(2, collector.mFrames.size());
+        assertArrayEquals(new byte[]{5, 6, 7, 8}, collector.mFrames.get(1));
+        // reset 丢弃未完成的 9
+        decoder.reset();
+        decoder.decode(new byte[]{10, 11, 12, 13}, 0, 4, collector);
+        assertArrayEquals(new byte[]{10, 11, 12, 13}, collector.mFrames.get(2));
+    }
+
+    @Test
+    public void frameInsideReadIsSliceOfReadBuffer() {
+        final byte[] stream = {1, 2, 3, 4, 5, 6};
+        final List<byte[]> buffers = new ArrayList<>();
+        new FixedLengthFrameDecoder(3).decode(stream, 0, stream.length, new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                buffers.add(buffer);
+            }
+        });
+        assertEquals(2, buffers.size());
+        assertSame(stream, buffers.get(0));
+        assertSame(stream, buffers.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveLengthIsRejected() {
+        new FixedLengthFrameDecoder(0);
+    }
+}
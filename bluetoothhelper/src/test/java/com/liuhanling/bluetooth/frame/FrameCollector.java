@@ -0,0 +1,84 @@
+package com.liuhanling.bluetooth.frame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 分帧测试工具，按块输入数据并收集数据帧，回调内复制
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+class FrameCollector implements FrameDecoder.FrameListener {
+
+    final List<byte[]> mFrames = new ArrayList<>();
+
+    @Override
+    public void onFrame(byte[] buffer, int offset, int length) {
+        mFrames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+    }
+
+    /**
+     * 每块 chunk 个字节
+     */
+    static List<byte[]> decode(FrameDecoder decoder, byte[] stream, int chunk) {
+        FrameCollector collector = new FrameCollector();
+        for (int i = 0; i < stream.length; i += chunk) {
+            byte[] block = Arrays.copyOfRange(stream, i, Math.min(stream.length, i + chunk));
+            decoder.decode(block, 0, block.length, collector);
+        }
+        return collector.mFrames;
+    }
+
+    /**
+     * 每块 1 到 300 个随机字节，块前后留有无关数据
+     */
+    static List<byte[]> decode(FrameDecoder decoder, byte[] stream, Random random) {
+        FrameCollector collector = new FrameCollector();
+        byte[] block = new byte[310];
+        int i = 0;
+        while (i < stream.length) {
+            int n = Math.min(stream.length - i, 1 + random.nextInt(300));
+            int offset = random.nextInt(5);
+            random.nextBytes(block);
+            System.arraycopy(stream, i, block, offset, n);
+            decoder.decode(block, offset, n, collector);
+            i += n;
+        }
+        return collector.mFrames;
+    }
+
+    /**
+     * 逐帧比较
+     */
+    static void assertFrames(List<byte[]> expected, List<byte[]> actual) {
+        if (expected.size() != actual.size()) {
+            throw new AssertionError("frames: expected " + expected.size() + " but was " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (!Arrays.equals(expected.get(i), actual.get(i))) {
+                throw new AssertionError("frame " + i + ": expected " + Arrays.toString(expected.get(i)) + " but was " + Arrays.toString(actual.get(i)));
+            }
+        }
+    }
+
+    /**
+     * 随机帧，special 中的字节按 density 概率出现
+     */
+    static List<byte[]> randomFrames(Random random, int count, int maxLength, double density, byte... special) {
+        List<byte[]> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] frame = new byte[1 + random.nextInt(maxLength)];
+            random.nextBytes(frame);
+            for (int j = 0; j < frame.length; j++) {
+                if (random.nextDouble() < density) {
+                    frame[j] = special[random.nextInt(special.length)];
+                }
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
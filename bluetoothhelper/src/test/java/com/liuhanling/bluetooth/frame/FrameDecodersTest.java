@@ -0,0 +1,74 @@
+package com.liuhanling.bluetooth.frame;
+
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static com.liuhanling.bluetooth.frame.FrameCollector.assertFrames;
+import static com.liuhanling.bluetooth.frame.FrameCollector.decode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 分帧方式描述测试，描述解析后得到同样的分帧方式
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class FrameDecodersTest {
+
+    @Test
+    public void specRoundTrips() {
+        FrameDecoderFactory[] factories = {
+                FrameDecoders.crlf(),
+                FrameDecoders.delimiter((byte) 10),
+                FrameDecoders.delimiter((byte) -64),
+                FrameDecoders.fixedLength(20),
+                FrameDecoders.lengthField(1, ByteOrder.BIG_ENDIAN),
+                FrameDecoders.lengthField(2, ByteOrder.LITTLE_ENDIAN),
+                FrameDecoders.lengthField(4, ByteOrder.BIG_ENDIAN),
+                FrameDecoders.cobs(),
+                FrameDecoders.slip()
+        };
+        for (FrameDecoderFactory factory : factories) {
+            String spec = FrameDecoders.toSpec(factory);
+            assertNotNull(spec);
+            FrameDecoderFactory parsed = FrameDecoders.parse(spec);
+            assertNotNull(spec, parsed);
+            assertEquals(spec, FrameDecoders.toSpec(parsed));
+            assertSame(spec, factory.create().getClass(), parsed.create().getClass());
+        }
+    }
+
+    @Test
+    public void parsedDecoderKeepsParameters() {
+        byte[] frame = {1, 2, 3};
+        byte[] little = LengthFieldFrameDecoderTest.encode(Arrays.asList(frame), 2, ByteOrder.LITTLE_ENDIAN);
+        FrameDecoder decoder = FrameDecoders.parse("length:2:LE").create();
+        assertFrames(Arrays.asList(frame), decode(decoder, little, 1));
+        assertFrames(Arrays.asList(frame, frame), decode(FrameDecoders.parse("fixed:3").create(), new byte[]{1, 2, 3, 1, 2, 3}, 2));
+        assertFrames(Arrays.asList(frame), decode(FrameDecoders.parse("delimiter:0").create(), new byte[]{1, 2, 3, 0}, 3));
+    }
+
+    @Test
+    public void invalidSpecIsNull() {
+        String[] specs = {null, "", "unknown", "delimiter", "delimiter:x", "delimiter:300", "fixed:", "fixed:0",
+                "length:2", "length:3:BE", "length:x:LE"};
+        for (String spec : specs) {
+            assertNull(spec, FrameDecoders.parse(spec));
+        }
+    }
+
+    @Test
+    public void customFactoryHasNoSpec() {
+        assertNull(FrameDecoders.toSpec(new FrameDecoderFactory() {
+            @Override
+            public FrameDecoder create() {
+                return new DelimiterFrameDecoder();
+            }
+        }));
+    }
+}
@@ -0,0 +1,112 @@
+package com.liuhanling.bluetooth.frame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.liuhanling.bluetooth.frame.FrameCollector.assertFrames;
+import static com.liuhanling.bluetooth.frame.FrameCollector.decode;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 长度前缀分帧测试，覆盖 1、2、4 字节长度字段和两种字节序
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class LengthFieldFrameDecoderTest {
+
+    private static final int[] FIELD_LENGTHS = {1, 2, 4};
+    private static final ByteOrder[] ORDERS = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+
+    @Test
+    public void lengthFieldIsReadInByteOrder() {
+        for (int fieldLength : FIELD_LENGTHS) {
+            for (ByteOrder order : ORDERS) {
+                List<byte[]> frames = new ArrayList<>();
+                for (int length : new int[]{0, 1, 2, 127, 128, 255}) {
+                    frames.add(payload(length));
+                }
+                if (fieldLength > 1) {
+                    frames.add(payload(256));
+                    frames.add(payload(0x1234));
+                }
+                byte[] stream = encode(frames, fieldLength, order);
+                for (int chunk : new int[]{1, 2, 3, 5, 256, stream.length}) {
+                    List<byte[]> decoded = decode(new LengthFieldFrameDecoder(fieldLength, order), stream, chunk);
+                    assertFrames(frames, decoded);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void headerBytesAreExplicit() {
+        // 2 字节长度 0x0102 = 258，小端时为 0x0201 = 513
+        byte[] stream = new byte[2 + 513];
+        stream[0] = 0x01;
+        stream[1] = 0x02;
+        assertEquals(258, decode(new LengthFieldFrameDecoder(2, ByteOrder.BIG_ENDIAN), stream, 600).get(0).length);
+        assertEquals(513, decode(new LengthFieldFrameDecoder(2, ByteOrder.LITTLE_ENDIAN), stream, 600).get(0).length);
+    }
+
+    @Test
+    public void oversizedFrameIsSkippedAndNextFrameKept() {
+        for (int fieldLength : FIELD_LENGTHS) {
+            for (ByteOrder order : ORDERS) {
+                List<byte[]> frames = Arrays.asList(payload(3), payload(200), payload(16), payload(17), payload(0), payload(5));
+                byte[] stream = encode(frames, fieldLength, order);
+                for (int chunk = 1; chunk <= 9; chunk++) {
+                    List<byte[]> decoded = decode(new LengthFieldFrameDecoder(fieldLength, order, 16), stream, chunk);
+                    assertFrames(Arrays.asList(frames.get(0), frames.get(2), frames.get(4), frames.get(5)), decoded);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unsignedFourByteLengthIsSkipped() {
+        byte[] stream = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 2, 3};
+        assertEquals(0, decode(new LengthFieldFrameDecoder(4, ByteOrder.BIG_ENDIAN), stream, 3).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFieldLengthIsRejected() {
+        new LengthFieldFrameDecoder(3, ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    public void randomChunkingMatchesFrames() {
+        Random random = new Random(9);
+        for (ByteOrder order : ORDERS) {
+            List<byte[]> frames = FrameCollector.randomFrames(random, 2000, 600, 0);
+            byte[] stream = encode(frames, 2, order);
+            assertFrames(frames, decode(new LengthFieldFrameDecoder(2, order), stream, random));
+        }
+    }
+
+    private static byte[] payload(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + length);
+        }
+        return data;
+    }
+
+    static byte[] encode(List<byte[]> frames, int fieldLength, ByteOrder order) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            for (int i = 0; i < fieldLength; i++) {
+                int shift = order == ByteOrder.BIG_ENDIAN ? (fieldLength - 1 - i) * 8 : i * 8;
+                stream.write(frame.length >>> shift);
+            }
+            stream.write(frame, 0, frame.length);
+        }
+        return stream.toByteArray();
+    }
+}
@@ -0,0 +1,103 @@
+package com.liuhanling.bluetooth.frame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.liuhanling.bluetooth.frame.FrameCollector.assertFrames;
+import static com.liuhanling.bluetooth.frame.FrameCollector.decode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * SLIP 分帧测试，数据流由测试内的编码器生成
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class SlipFrameDecoderTest {
+
+    private static final byte END = (byte) 0xC0;
+    private static final byte ESC = (byte) 0xDB;
+    private static final byte ESC_END = (byte) 0xDC;
+    private static final byte ESC_ESC = (byte) 0xDD;
+
+    @Test
+    public void escapedEndAndEscAreRestored() {
+        List<byte[]> frames = Arrays.asList(
+                new byte[]{END},
+                new byte[]{ESC},
+                new byte[]{ESC_END, ESC_ESC},
+                new byte[]{1, END, ESC, 2},
+                new byte[]{ESC, ESC, END, END},
+                new byte[]{3});
+        for (int chunk = 1; chunk <= 8; chunk++) {
+            assertFrames(frames, decode(new SlipFrameDecoder(), encode(frames), chunk));
+        }
+    }
+
+    @Test
+    public void emptyFramesAreSkipped() {
+        byte[] stream = {END, END, 1, 2, END, END, END, 3, END};
+        assertFrames(Arrays.asList(new byte[]{1, 2}, new byte[]{3}), decode(new SlipFrameDecoder(), stream, 4));
+    }
+
+    @Test
+    public void frameWithoutEscapeIsSliceOfInput() {
+        final byte[] stream = {1, 2, END, 3, END};
+        final List<byte[]> buffers = new ArrayList<>();
+        new SlipFrameDecoder().decode(stream, 0, stream.length, new FrameDecoder.FrameListener() {
+            @Override
+            public void onFrame(byte[] buffer, int offset, int length) {
+                buffers.add(buffer);
+            }
+        });
+        assertEquals(2, buffers.size());
+        assertSame(stream, buffers.get(0));
+        assertSame(stream, buffers.get(1));
+    }
+
+    @Test
+    public void oversizedFrameIsDroppedAndNextFrameKept() {
+        byte[] big = new byte[40];
+        Arrays.fill(big, END);
+        List<byte[]> frames = Arrays.asList(new byte[40], new byte[]{1, END}, big, new byte[]{ESC});
+        for (int chunk = 1; chunk <= 100; chunk++) {
+            List<byte[]> decoded = decode(new SlipFrameDecoder(16), encode(frames), chunk);
+            assertFrames(Arrays.asList(frames.get(1), frames.get(3)), decoded);
+        }
+    }
+
+    @Test
+    public void randomChunkingMatchesFrames() {
+        Random random = new Random(5);
+        List<byte[]> frames = FrameCollector.randomFrames(random, 2000, 600, 0.05, END, ESC);
+        assertFrames(frames, decode(new SlipFrameDecoder(), encode(frames), random));
+    }
+
+    /**
+     * SLIP 编码，每帧以 END 结束
+     */
+    static byte[] encode(List<byte[]> frames) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            for (byte b : frame) {
+                if (b == END) {
+                    stream.write(ESC);
+                    stream.write(ESC_END);
+                } else if (b == ESC) {
+                    stream.write(ESC);
+                    stream.write(ESC_ESC);
+                } else {
+                    stream.write(b);
+                }
+            }
+            stream.write(END);
+        }
+        return stream.toByteArray();
+    }
+}
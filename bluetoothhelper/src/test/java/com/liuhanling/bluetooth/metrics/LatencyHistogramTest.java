@@ -0,0 +1,116 @@
+package com.liuhanling.bluetooth.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 延时直方图测试，分桶边界与百分位误差
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveExactBuckets() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.upperBound(value));
+        }
+        assertEquals(16, LatencyHistogram.index(16));
+        assertEquals(17, LatencyHistogram.upperBound(16));
+    }
+
+    @Test
+    public void bucketsAreContiguousAndBoundValues() {
+        long previous = -1;
+        for (int index = 0; LatencyHistogram.upperBound(index) > previous && index < 600; index++) {
+            long upper = LatencyHistogram.upperBound(index);
+            assertEquals(index, LatencyHistogram.index(previous + 1));
+            assertEquals(index, LatencyHistogram.index(upper));
+            if (upper == Long.MAX_VALUE) {
+                return;
+            }
+            previous = upper;
+        }
+        throw new AssertionError("last bucket does not end at Long.MAX_VALUE");
+    }
+
+    @Test
+    public void relativeErrorIsBounded() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long upper = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+            assertTrue(value + " -> " + upper, upper >= value);
+            assertTrue(value + " -> " + upper, upper - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        long[] percentiles = histogram.getPercentiles(0, 50, 90, 99, 100);
+        assertEquals(1, percentiles[0]);
+        assertWithin(500, percentiles[1]);
+        assertWithin(900, percentiles[2]);
+        assertWithin(990, percentiles[3]);
+        assertEquals(1000, percentiles[4]);
+        for (int i = 0; i < percentiles.length; i++) {
+            assertEquals(percentiles[i], histogram.getPercentile(new double[]{0, 50, 90, 99, 100}[i]));
+        }
+    }
+
+    @Test
+    public void unorderedPercentilesMatchSingleCalls() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(2);
+        for (int i = 0; i < 10000; i++) {
+            histogram.record(random.nextInt(1000000));
+        }
+        double[] requested = {99, 50, 99.9, 10, 100, 0};
+        long[] percentiles = histogram.getPercentiles(requested);
+        for (int i = 0; i < requested.length; i++) {
+            assertEquals(histogram.getPercentile(requested[i]), percentiles[i]);
+        }
+    }
+
+    @Test
+    public void percentilesAreCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        // 1000 所在桶上界为 1023
+        assertArrayEquals(new long[]{1000, 1000}, histogram.getPercentiles(50, 99));
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertArrayEquals(new long[]{0, 0}, histogram.getPercentiles(50, 99));
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(100));
+        histogram.record(40);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals("count=0, mean=0, p50=0, p99=0, max=0", histogram.toString());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, actual >= expected && actual - expected <= expected / 8);
+    }
+}
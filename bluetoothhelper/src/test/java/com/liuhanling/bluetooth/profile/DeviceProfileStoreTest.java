@@ -0,0 +1,227 @@
+package com.liuhanling.bluetooth.profile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 设备档案存储测试，读写临时文件，每次重新打开存储验证重启后的状态
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class DeviceProfileStoreTest {
+
+    private static final UUID SPP = UUID.fromString("00001101-0000-1000-8000-00805f9b34fb");
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "bluetooth.profiles");
+    }
+
+    @Test
+    public void profilesSurviveReopen() {
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        store.put(new DeviceProfile("A").setName("printer").setUuid(SPP).setFraming("crlf").onConnected(1000, 250));
+        store.put(new DeviceProfile("B").onConnectFailed());
+        store.put(store.get("A").onConnected(2000, -1));
+        store.close();
+
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertEquals(2, reopened.size());
+        DeviceProfile a = reopened.get("A");
+        assertEquals("printer", a.getName());
+        assertEquals(SPP, a.getUuid());
+        assertEquals("crlf", a.getFraming());
+        assertEquals(2, a.getConnectCount());
+        assertEquals(2000, a.getLastConnectTime());
+        assertEquals(250, a.getConnectDuration());
+        DeviceProfile b = reopened.get("B");
+        assertNull(b.getName());
+        assertNull(b.getUuid());
+        assertEquals(1, b.getFailureCount());
+        assertEquals(-1, b.getConnectDuration());
+    }
+
+    @Test
+    public void removeIsPersisted() {
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        store.put(new DeviceProfile("A"));
+        store.put(new DeviceProfile("B"));
+        store.remove("A");
+        store.close();
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertNull(reopened.get("A"));
+        assertNotNull(reopened.get("B"));
+    }
+
+    @Test
+    public void tornTailIsTruncatedAndAppendsContinue() throws IOException {
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        store.put(new DeviceProfile("A").setName("a"));
+        store.put(new DeviceProfile("B").setName("b"));
+        store.close();
+        // 模拟写最后一条记录时断电
+        long length = mFile.length();
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(length - 3);
+        file.close();
+
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertNotNull(reopened.get("A"));
+        assertNull(reopened.get("B"));
+        assertTrue(mFile.length() < length - 3);
+        reopened.put(new DeviceProfile("C").setName("c"));
+        reopened.close();
+
+        DeviceProfileStore again = new DeviceProfileStore(mFile);
+        assertEquals(2, again.size());
+        assertEquals("c", again.get("C").getName());
+    }
+
+    @Test
+    public void failedAppendIsTruncated() {
+        FailingStore store = new FailingStore(mFile);
+        store.put(new DeviceProfile("A").setName("a"));
+        long length = mFile.length();
+        // 写到一半失败，文件末尾留下残缺记录
+        store.isFailing = true;
+        store.put(new DeviceProfile("B").setName("b"));
+        assertEquals(length, mFile.length());
+        store.isFailing = false;
+        store.put(new DeviceProfile("C").setName("c"));
+        store.close();
+
+        // 失败之后追加的记录加载时不会被截掉
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertEquals("a", reopened.get("A").getName());
+        assertNull(reopened.get("B"));
+        assertEquals("c", reopened.get("C").getName());
+    }
+
+    @Test
+    public void failedHeaderLeavesNoFile() {
+        FailingStore store = new FailingStore(mFile);
+        store.isFailing = true;
+        store.put(new DeviceProfile("A").setName("a"));
+        assertTrue(!mFile.exists());
+        store.isFailing = false;
+        store.put(new DeviceProfile("B").setName("b"));
+        store.close();
+
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertEquals(1, reopened.size());
+        assertEquals("b", reopened.get("B").getName());
+    }
+
+    @Test
+    public void oversizedProfileIsRejectedAtWrite() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < DeviceProfileStore.MAX_RECORD_LENGTH; i++) {
+            name.append('n');
+        }
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        store.put(new DeviceProfile("A").setName("a"));
+        try {
+            store.put(new DeviceProfile("B").setName(name.toString()));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(store.get("B"));
+        store.put(new DeviceProfile("C").setName("c"));
+        store.close();
+
+        // 拒绝的记录没有写入，其后的记录不会在加载时被截掉
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertEquals(2, reopened.size());
+        assertNotNull(reopened.get("C"));
+    }
+
+    @Test
+    public void hugeStringIsRejectedAtWrite() {
+        char[] name = new char[70000];
+        Arrays.fill(name, 'n');
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        try {
+            store.put(new DeviceProfile("A").setName(new String(name)));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void compactionKeepsLatestProfile() {
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        for (int i = 0; i < 200; i++) {
+            store.put(new DeviceProfile("A").setName("a" + i));
+        }
+        long compacted = mFile.length();
+        store.compact();
+        assertTrue(mFile.length() <= compacted);
+        store.put(new DeviceProfile("B"));
+        store.close();
+        DeviceProfileStore reopened = new DeviceProfileStore(mFile);
+        assertEquals(2, reopened.size());
+        assertEquals("a199", reopened.get("A").getName());
+    }
+
+    @Test
+    public void badHeaderStartsEmpty() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        file.close();
+        DeviceProfileStore store = new DeviceProfileStore(mFile);
+        assertEquals(0, store.size());
+        store.put(new DeviceProfile("A"));
+        store.close();
+        assertEquals(1, new DeviceProfileStore(mFile).size());
+    }
+
+    /**
+     * 失败时只写出一半数据再抛出异常的存储
+     */
+    private static class FailingStore extends DeviceProfileStore {
+
+        boolean isFailing = false;
+
+        FailingStore(File file) {
+            super(file);
+        }
+
+        @Override
+        OutputStream openAppend(File file) throws IOException {
+            return new FilterOutputStream(super.openAppend(file)) {
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    if (isFailing) {
+                        out.write(buffer, offset, length / 2);
+                        out.flush();
+                        throw new IOException("Disk full");
+                    }
+                    out.write(buffer, offset, length);
+                }
+            };
+        }
+    }
+}
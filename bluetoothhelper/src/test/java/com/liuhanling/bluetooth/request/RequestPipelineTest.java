@@ -0,0 +1,232 @@
+package com.liuhanling.bluetooth.request;
+
+import com.liuhanling.bluetooth.write.OverflowPolicy;
+import com.liuhanling.bluetooth.write.WriteQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 请求应答管线测试，发送队列在调用线程中写出，每个请求写出一个字节
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class RequestPipelineTest {
+
+    private static final long LONG_TIMEOUT = 10000;
+
+    private final ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
+    private WriteQueue mWriteQueue;
+
+    @Before
+    public void setUp() {
+        mWriteQueue = new WriteQueue(mOutput, 1024, 64, OverflowPolicy.FAIL_FAST);
+        mWriteQueue.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void responsesMatchInSendOrderWithoutCorrelator() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 8, null);
+        assertFalse(pipeline.onFrame(new byte[]{9}, 0, 1));
+        ResponseFuture first = request(pipeline, 1, LONG_TIMEOUT);
+        ResponseFuture second = request(pipeline, 2, LONG_TIMEOUT);
+        assertArrayEquals(new byte[]{1, 2}, mOutput.toByteArray());
+        assertTrue(pipeline.onFrame(new byte[]{0, 11, 0}, 1, 1));
+        assertTrue(pipeline.onFrame(new byte[]{12}, 0, 1));
+        assertArrayEquals(new byte[]{11}, first.get(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{12}, second.get(1, TimeUnit.SECONDS));
+        assertFalse(pipeline.onFrame(new byte[]{13}, 0, 1));
+    }
+
+    @Test
+    public void correlatorMatchesResponsesById() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 8, new FirstByteCorrelator());
+        ResponseFuture[] futures = new ResponseFuture[3];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = request(pipeline, i + 1, LONG_TIMEOUT);
+        }
+        assertTrue(pipeline.onFrame(new byte[]{3, 30}, 0, 2));
+        assertTrue(pipeline.onFrame(new byte[]{1, 10}, 0, 2));
+        // 未知编号按应答吞掉，0 不是应答
+        assertTrue(pipeline.onFrame(new byte[]{7, 70}, 0, 2));
+        assertFalse(pipeline.onFrame(new byte[]{0, 1}, 0, 2));
+        assertTrue(pipeline.onFrame(new byte[]{2, 20}, 0, 2));
+        assertArrayEquals(new byte[]{1, 10}, futures[0].get(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{2, 20}, futures[1].get(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{3, 30}, futures[2].get(1, TimeUnit.SECONDS));
+        assertEquals(0, pipeline.getInFlight());
+    }
+
+    @Test
+    public void duplicateIdFailsWithoutTakingWindow() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 8, new FirstByteCorrelator());
+        ResponseFuture first = request(pipeline, 1, LONG_TIMEOUT);
+        ResponseFuture duplicate = request(pipeline, 1, LONG_TIMEOUT);
+        assertFailure(duplicate, IllegalStateException.class);
+        assertEquals(1, pipeline.getInFlight());
+        assertTrue(pipeline.onFrame(new byte[]{1}, 0, 1));
+        assertTrue(first.isDone());
+    }
+
+    @Test
+    public void windowLimitsInFlightRequests() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 2, null);
+        ResponseFuture[] futures = new ResponseFuture[5];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = request(pipeline, i, LONG_TIMEOUT);
+        }
+        assertEquals(2, pipeline.getInFlight());
+        assertEquals(3, pipeline.getPending());
+        assertArrayEquals(new byte[]{0, 1}, mOutput.toByteArray());
+        pipeline.onFrame(new byte[]{0}, 0, 1);
+        assertArrayEquals(new byte[]{0, 1, 2}, mOutput.toByteArray());
+        for (int i = 1; i < futures.length; i++) {
+            pipeline.onFrame(new byte[]{(byte) i}, 0, 1);
+        }
+        for (int i = 0; i < futures.length; i++) {
+            assertArrayEquals(new byte[]{(byte) i}, futures[i].get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(0, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+    }
+
+    @Test
+    public void timeoutReleasesWindow() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 1, null);
+        ResponseFuture expired = request(pipeline, 1, 50);
+        ResponseFuture next = request(pipeline, 2, LONG_TIMEOUT);
+        assertEquals(1, pipeline.getPending());
+        assertFailure(expired, TimeoutException.class);
+        assertArrayEquals(new byte[]{1, 2}, mOutput.toByteArray());
+        assertEquals(1, pipeline.getInFlight());
+        assertTrue(pipeline.onFrame(new byte[]{20}, 0, 1));
+        assertArrayEquals(new byte[]{20}, next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelReleasesWindow() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 1, null);
+        ResponseFuture inFlight = request(pipeline, 1, LONG_TIMEOUT);
+        ResponseFuture queued = request(pipeline, 2, LONG_TIMEOUT);
+        ResponseFuture last = request(pipeline, 3, LONG_TIMEOUT);
+        assertTrue(queued.cancel(false));
+        assertEquals(1, pipeline.getPending());
+        assertTrue(inFlight.cancel(true));
+        assertTrue(inFlight.isCancelled());
+        assertFalse(inFlight.cancel(true));
+        // 取消的排队请求不写出，窗口直接让给下一个
+        assertArrayEquals(new byte[]{1, 3}, mOutput.toByteArray());
+        assertEquals(1, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+        assertTrue(pipeline.onFrame(new byte[]{30}, 0, 1));
+        assertArrayEquals(new byte[]{30}, last.get(1, TimeUnit.SECONDS));
+        try {
+            queued.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void closeFailsQueuedAndInFlightRequests() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 1, null);
+        ResponseFuture inFlight = request(pipeline, 1, LONG_TIMEOUT);
+        ResponseFuture queued = request(pipeline, 2, LONG_TIMEOUT);
+        pipeline.close(new IOException("closed"));
+        assertFailure(inFlight, IOException.class);
+        assertFailure(queued, IOException.class);
+        assertFailure(request(pipeline, 3, LONG_TIMEOUT), IOException.class);
+        assertEquals(0, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+        assertFalse(pipeline.onFrame(new byte[]{1}, 0, 1));
+    }
+
+    @Test
+    public void writeFailureReleasesWindow() throws Exception {
+        WriteQueue closed = new WriteQueue(new ByteArrayOutputStream());
+        closed.close();
+        RequestPipeline pipeline = new RequestPipeline(closed, 1, null);
+        for (int i = 0; i < 3; i++) {
+            assertFailure(request(pipeline, i, LONG_TIMEOUT), IOException.class);
+        }
+        assertEquals(0, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+    }
+
+    @Test
+    public void expiringWhileDrainingNeverLeaksWindow() throws Exception {
+        RequestPipeline pipeline = new RequestPipeline(mWriteQueue, 2, null);
+        ResponseFuture[] futures = new ResponseFuture[2000];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = request(pipeline, i, 1 + i % 3);
+            if (i % 7 == 0) {
+                futures[i].cancel(false);
+            }
+        }
+        for (ResponseFuture future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException | CancellationException expected) {
+            }
+        }
+        assertEquals(0, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+        // 窗口全部归还
+        request(pipeline, 1, LONG_TIMEOUT);
+        request(pipeline, 2, LONG_TIMEOUT);
+        assertEquals(2, pipeline.getInFlight());
+        assertEquals(0, pipeline.getPending());
+    }
+
+    private static ResponseFuture request(RequestPipeline pipeline, int value, long timeout) {
+        byte[] data = {(byte) value};
+        return pipeline.request(data, new ByteBuffer[]{ByteBuffer.wrap(data)}, timeout);
+    }
+
+    private static void assertFailure(ResponseFuture future, Class<? extends Exception> type) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), type.isInstance(e.getCause()));
+        }
+    }
+
+    /**
+     * 首字节为编号，0 不是应答
+     */
+    private static class FirstByteCorrelator implements RequestCorrelator {
+
+        @Override
+        public Object getRequestId(byte[] data) {
+            return data[0];
+        }
+
+        @Override
+        public Object getResponseId(byte[] data, int offset, int length) {
+            return data[offset] != 0 ? Byte.valueOf(data[offset]) : null;
+        }
+    }
+}
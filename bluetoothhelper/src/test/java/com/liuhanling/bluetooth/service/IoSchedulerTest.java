@@ -0,0 +1,86 @@
+package com.liuhanling.bluetooth.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * I/O 调度测试
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class IoSchedulerTest {
+
+    @Test
+    public void longRunningTasksGetTheirOwnThreads() throws Exception {
+        IoScheduler scheduler = new IoScheduler(4);
+        CountDownLatch started = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            scheduler.execute(block(started, release));
+        }
+        assertTrue("tasks queued behind each other", started.await(5, TimeUnit.SECONDS));
+        assertEquals(4, scheduler.getActiveCount());
+        release.countDown();
+    }
+
+    @Test
+    public void rejectsAtMaxThreads() throws Exception {
+        IoScheduler scheduler = new IoScheduler(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(block(started, release));
+        scheduler.submit(block(started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            scheduler.submit(block(started, release));
+            fail("third task accepted");
+        } catch (RejectedExecutionException expected) {
+        }
+        release.countDown();
+    }
+
+    @Test
+    public void idleThreadsAreReused() throws Exception {
+        IoScheduler scheduler = new IoScheduler(2);
+        for (int i = 0; i < 100; i++) {
+            final CountDownLatch done = new CountDownLatch(1);
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitIdle(scheduler);
+        }
+        assertTrue("threads: " + scheduler.getPoolSize(), scheduler.getPoolSize() <= 2);
+    }
+
+    private static void waitIdle(IoScheduler scheduler) throws InterruptedException {
+        while (scheduler.getActiveCount() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,197 @@
+package com.liuhanling.bluetooth.transport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 候选通道连接测试，候选通道立即失败、立即成功或一直阻塞到关闭
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class CandidateConnectTransportTest {
+
+    private static final int FAIL = 0;
+    private static final int SUCCEED = 1;
+    private static final int STALL = 2;
+
+    @Test
+    public void failedCandidateFallsThroughToNext() throws Exception {
+        Candidates transport = new Candidates(0, FAIL, FAIL, SUCCEED);
+        transport.connect();
+        assertEquals(2, transport.mConnected);
+        assertEquals("[0, 1, 2]", transport.mAttempts.toString());
+        assertEquals(2, transport.getInputStream().read());
+        assertTrue(transport.mTransports.get(0).isClosed);
+        assertTrue(transport.mTransports.get(1).isClosed);
+    }
+
+    @Test
+    public void stalledCandidateTimesOut() throws Exception {
+        Candidates transport = new Candidates(200, STALL, SUCCEED);
+        long start = System.nanoTime();
+        transport.connect();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        assertEquals(1, transport.mConnected);
+        assertTrue(transport.mTransports.get(0).isClosed);
+        assertTrue(String.valueOf(elapsed), elapsed >= 200 && elapsed < 5000);
+    }
+
+    @Test
+    public void lastErrorReportsTimeout() throws Exception {
+        Candidates transport = new Candidates(100, FAIL, STALL);
+        try {
+            transport.connect();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Connect timeout"));
+        }
+        assertEquals(-1, transport.mConnected);
+    }
+
+    @Test
+    public void untimedCandidateWaitsForClose() throws Exception {
+        final Candidates transport = new Candidates(50, STALL, SUCCEED);
+        transport.mUntimed = 0;
+        final CountDownLatch failed = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transport.connect();
+                } catch (IOException e) {
+                    failed.countDown();
+                }
+            }
+        }).start();
+        // 超过超时仍在等待
+        assertTrue(transport.mTransports.get(0).mStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(!failed.await(300, TimeUnit.MILLISECONDS));
+        // 关闭后不再尝试下一个
+        transport.close();
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals("[0]", transport.mAttempts.toString());
+        assertEquals(-1, transport.mConnected);
+    }
+
+    @Test
+    public void zeroTimeoutNeverCloses() throws Exception {
+        Candidates transport = new Candidates(0, SUCCEED);
+        transport.connect();
+        Thread.sleep(50);
+        assertTrue(!transport.mTransports.get(0).isClosed);
+    }
+
+    /**
+     * 按给定行为依次创建候选通道，第 i 个候选读出 i
+     */
+    private static class Candidates extends CandidateConnectTransport {
+
+        private final int[] mBehaviors;
+        final List<FakeTransport> mTransports = new ArrayList<>();
+        final List<Integer> mAttempts = new ArrayList<>();
+        volatile int mConnected = -1;
+        int mUntimed = -1;
+
+        Candidates(long timeout, int... behaviors) {
+            this(new FakeTransport(0, behaviors[0]), timeout, behaviors);
+        }
+
+        private Candidates(FakeTransport first, long timeout, int[] behaviors) {
+            super(first, behaviors.length, timeout);
+            this.mBehaviors = behaviors;
+            mTransports.add(first);
+        }
+
+        @Override
+        protected Transport open(int index) {
+            FakeTransport transport = new FakeTransport(index, mBehaviors[index]);
+            mTransports.add(transport);
+            return transport;
+        }
+
+        @Override
+        protected void onAttempt(int index) {
+            mAttempts.add(index);
+        }
+
+        @Override
+        protected boolean isTimed(int index) {
+            return index != mUntimed;
+        }
+
+        @Override
+        protected void onConnected(int index) {
+            mConnected = index;
+        }
+    }
+
+    private static class FakeTransport implements Transport {
+
+        private final int mIndex;
+        private final int mBehavior;
+        private final CountDownLatch mClosed = new CountDownLatch(1);
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        volatile boolean isClosed = false;
+
+        FakeTransport(int index, int behavior) {
+            this.mIndex = index;
+            this.mBehavior = behavior;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            mStarted.countDown();
+            if (mBehavior == SUCCEED) {
+                return;
+            }
+            if (mBehavior == STALL) {
+                try {
+                    mClosed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            throw new IOException("Connect failed: " + mIndex);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[]{(byte) mIndex});
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public String getName() {
+            return "fake";
+        }
+
+        @Override
+        public String getAddress() {
+            return String.valueOf(mIndex);
+        }
+
+        @Override
+        public void close() {
+            isClosed = true;
+            mClosed.countDown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.liuhanling.bluetooth.transport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * TCP 传输测试，走本地回环端口
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class TcpTransportFactoryTest {
+
+    private int mPort;
+    private TcpTransportFactory mFactory;
+    private TransportServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mPort = freePort();
+        mFactory = new TcpTransportFactory(mPort);
+        mServer = mFactory.listen();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void loopbackTransportsExchangeBytes() throws Exception {
+        Transport client = mFactory.createTransport("127.0.0.1:" + mPort);
+        client.connect();
+        Transport server = mServer.accept();
+        try {
+            assertEquals("127.0.0.1:" + mPort, client.getAddress());
+            client.getOutputStream().write(new byte[]{1, 2, 3});
+            client.getOutputStream().flush();
+            assertArrayEquals(new byte[]{1, 2, 3}, read(server.getInputStream(), 3));
+            server.getOutputStream().write(new byte[]{4, 5});
+            server.getOutputStream().flush();
+            assertArrayEquals(new byte[]{4, 5}, read(client.getInputStream(), 2));
+            client.close();
+            assertEquals(-1, server.getInputStream().read());
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void addressWithoutPortUsesFactoryPort() throws Exception {
+        Transport client = mFactory.createTransport("device");
+        client.connect();
+        Transport server = mServer.accept();
+        assertEquals("device", client.getAddress());
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void invalidPortIsIOException() {
+        String[] addresses = {"127.0.0.1:abc", "127.0.0.1:70000", "127.0.0.1:-1"};
+        for (String address : addresses) {
+            try {
+                mFactory.createTransport(address);
+                fail(address);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static byte[] read(InputStream input, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        int n = 0;
+        while (n < length) {
+            int read = input.read(buffer, n, length - n);
+            if (read < 0) {
+                throw new IOException("EOF");
+            }
+            n += read;
+        }
+        return buffer;
+    }
+}
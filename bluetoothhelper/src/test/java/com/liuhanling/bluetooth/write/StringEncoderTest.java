@@ -0,0 +1,113 @@
+package com.liuhanling.bluetooth.write;
+
+import com.liuhanling.bluetooth.buffer.ByteArrayPool;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 字符串编码测试，结果与 String.getBytes() 后追加后缀一致
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class StringEncoderTest {
+
+    private static final byte[] CR_LF = {0x0D, 0x0A};
+    private static final String[] CHARSETS = {"UTF-8", "GBK", "ISO-8859-1", "UTF-16"};
+
+    private final ByteArrayPool mPool = new ByteArrayPool();
+
+    @Test
+    public void randomStringsMatchGetBytes() throws Exception {
+        Random random = new Random(7);
+        for (String name : CHARSETS) {
+            Charset charset = Charset.forName(name);
+            StringEncoder encoder = new StringEncoder(charset, mPool);
+            for (int i = 0; i < 500; i++) {
+                String data = randomString(random, random.nextInt(300));
+                assertEncoded(encoder, data, CR_LF);
+                assertEncoded(encoder, data, null);
+            }
+        }
+    }
+
+    @Test
+    public void surrogatesAreEncodedOrReplaced() throws Exception {
+        StringEncoder encoder = new StringEncoder(Charset.forName("UTF-8"), mPool);
+        String[] samples = {"\uD83D\uDE00", "a\uD83Db", "\uDE00", "x\uD83D", "\u00E9\u4E2D\uD83D\uDE00"};
+        for (String sample : samples) {
+            assertEncoded(encoder, sample, null);
+        }
+    }
+
+    @Test
+    public void stringOfferWritesEncodedBytes() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriteQueue queue = new WriteQueue(output, 16, 64, OverflowPolicy.FAIL_FAST);
+        StringEncoder encoder = new StringEncoder(Charset.forName("UTF-8"), mPool);
+        final Runnable[] task = new Runnable[1];
+        queue.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                task[0] = command;
+            }
+        });
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 16; i++) {
+                String data = randomString(random, random.nextInt(100));
+                expected.write((data + "\r\n").getBytes("UTF-8"));
+                queue.offer(data, CR_LF, encoder, null);
+            }
+            task[0].run();
+        }
+        assertArrayEquals(expected.toByteArray(), output.toByteArray());
+        assertEquals(0, queue.getPendingBytes());
+    }
+
+    private void assertEncoded(StringEncoder encoder, String data, byte[] suffix) throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(data.getBytes(encoder.getCharset()));
+        if (suffix != null) {
+            expected.write(suffix);
+        }
+        ByteBuffer buffer = encoder.encode(data, suffix);
+        byte[] actual = Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.limit());
+        assertArrayEquals(encoder.getCharset() + ": " + data, expected.toByteArray(), actual);
+        mPool.release(buffer.array());
+    }
+
+    /**
+     * ASCII、拉丁、汉字、代理对和不成对的代理字符混合
+     */
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        boolean ascii = random.nextBoolean();
+        for (int i = 0; i < length; i++) {
+            int kind = ascii ? 0 : random.nextInt(10);
+            if (kind < 5) {
+                builder.append((char) (0x20 + random.nextInt(0x5F)));
+            } else if (kind < 7) {
+                builder.append((char) (0xA0 + random.nextInt(0x60)));
+            } else if (kind < 9) {
+                builder.append((char) (0x4E00 + random.nextInt(0x100)));
+            } else if (random.nextBoolean()) {
+                builder.appendCodePoint(0x1F600 + random.nextInt(0x40));
+            } else {
+                builder.append((char) (0xD800 + random.nextInt(0x800)));
+            }
+        }
+        return builder.toString();
+    }
+}
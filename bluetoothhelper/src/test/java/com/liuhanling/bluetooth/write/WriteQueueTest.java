@@ -0,0 +1,254 @@
+package com.liuhanling.bluetooth.write;
+
+import com.liuhanling.bluetooth.listener.BluetoothWriteListener;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 发送队列测试
+ *
+ * @author liuhanling
+ * @date 2026/10/18
+ */
+public class WriteQueueTest {
+
+    @Test
+    public void smallPacketsAreWrittenInOrder() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriteQueue queue = new WriteQueue(output, 1024, 16, OverflowPolicy.BLOCK);
+        Counter counter = new Counter();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        queue.start();
+        for (int i = 0; i < 1000; i++) {
+            byte[] data = ("packet-" + i + ";").getBytes("US-ASCII");
+            expected.write(data);
+            queue.offer(data, 0, data.length, counter);
+        }
+        assertTrue(counter.await(1000, 5000));
+        assertEquals(1000, counter.mSuccess.get());
+        queue.close();
+        assertArrayEquals(expected.toByteArray(), output.toByteArray());
+        assertEquals(0, queue.getPendingBytes());
+    }
+
+    @Test
+    public void everyOfferCompletesWhenClosedConcurrently() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            final WriteQueue queue = new WriteQueue(new SlowOutputStream(), 64, 32, OverflowPolicy.FAIL_FAST);
+            final Counter counter = new Counter();
+            final int writers = 4;
+            final int perWriter = 50;
+            final CountDownLatch ready = new CountDownLatch(writers);
+            Thread[] threads = new Thread[writers];
+            for (int i = 0; i < writers; i++) {
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        ready.countDown();
+                        for (int j = 0; j < perWriter; j++) {
+                            queue.offer(new byte[8], 0, 8, counter);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            queue.start();
+            ready.await();
+            queue.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue("round " + round, counter.await(writers * perWriter, 5000));
+            assertEquals(0, queue.size());
+            assertEquals(0, queue.getPendingBytes());
+        }
+    }
+
+    @Test
+    public void writerRunsOnlyWhileThereIsData() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        WriteQueue queue = new WriteQueue(new ByteArrayOutputStream());
+        Counter counter = new Counter();
+        queue.start(executor);
+        assertEquals(0, executor.mTasks.get());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new byte[4], 0, 4, counter);
+            assertTrue(counter.await(i + 1, 5000));
+        }
+        // 每次排空后发送任务结束，下次入队重新提交
+        assertTrue(executor.mTasks.get() > 1);
+        assertTrue(executor.mTasks.get() <= 10);
+        queue.close();
+    }
+
+    @Test
+    public void creditsPauseAndResumeWriter() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriteQueue queue = new WriteQueue(output, 64, 1, OverflowPolicy.FAIL_FAST);
+        Counter counter = new Counter();
+        queue.enableCredits(2);
+        queue.start();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new byte[]{(byte) i}, 0, 1, counter);
+        }
+        assertTrue(counter.await(2, 5000));
+        Thread.sleep(50);
+        assertEquals(2, counter.mTotal.get());
+        assertEquals(3, queue.size());
+        queue.grantCredits(3);
+        assertTrue(counter.await(5, 5000));
+        assertEquals(0, queue.getCredits());
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4}, output.toByteArray());
+        queue.close();
+    }
+
+    @Test
+    public void rejectedWriterFailsQueuedPacketsAndRetries() throws Exception {
+        final AtomicInteger rejections = new AtomicInteger(1);
+        final CountingExecutor delegate = new CountingExecutor();
+        WriteQueue queue = new WriteQueue(new ByteArrayOutputStream());
+        queue.start(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                if (rejections.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException();
+                }
+                delegate.execute(command);
+            }
+        });
+        Counter counter = new Counter();
+        queue.offer(new byte[4], 0, 4, counter);
+        assertTrue(counter.await(1, 5000));
+        assertEquals(0, counter.mSuccess.get());
+        queue.offer(new byte[4], 0, 4, counter);
+        assertTrue(counter.await(2, 5000));
+        assertEquals(1, counter.mSuccess.get());
+        assertEquals(0, queue.getPendingBytes());
+        queue.close();
+    }
+
+    @Test
+    public void writabilitySettlesWritableAfterConcurrentOfferAndDrain() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int round = 0; round < 50; round++) {
+                final WriteQueue queue = new WriteQueue(new SlowOutputStream(), 64, 32, OverflowPolicy.BLOCK);
+                final Counter counter = new Counter();
+                final StringBuffer events = new StringBuffer();
+                final int writers = 4;
+                final int perWriter = 1000;
+                queue.setWatermarks(0, 16);
+                queue.setWritabilityListener(new WriteQueue.WritabilityListener() {
+                    @Override
+                    public void onWritabilityChanged(boolean writable) {
+                        events.append(writable ? 'W' : 'U');
+                        Thread.yield();
+                    }
+                });
+                queue.start(executor);
+                Thread[] threads = new Thread[writers];
+                for (int i = 0; i < writers; i++) {
+                    threads[i] = new Thread() {
+                        @Override
+                        public void run() {
+                            for (int j = 0; j < perWriter; j++) {
+                                queue.offer(new byte[16], 0, 16, counter);
+                            }
+                        }
+                    };
+                    threads[i].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                assertTrue("round " + round, counter.await(writers * perWriter, 10000));
+                assertEquals(writers * perWriter, counter.mSuccess.get());
+                assertEquals(0, queue.getPendingBytes());
+                assertTrue("round " + round + " stuck unwritable", queue.isWritable());
+                // 事件交替出现，最后一个为可写
+                for (int i = 1; i < events.length(); i++) {
+                    assertTrue("round " + round + ": " + events, events.charAt(i) != events.charAt(i - 1));
+                }
+                assertTrue(events.length() == 0 || events.charAt(events.length() - 1) == 'W');
+                queue.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 统计提交次数，每个任务新建线程
+     */
+    private static class CountingExecutor implements Executor {
+
+        private final AtomicInteger mTasks = new AtomicInteger();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.incrementAndGet();
+            new Thread(command).start();
+        }
+    }
+
+    /**
+     * 统计回调次数
+     */
+    private static class Counter implements BluetoothWriteListener {
+
+        private final AtomicInteger mSuccess = new AtomicInteger();
+        private final AtomicInteger mTotal = new AtomicInteger();
+
+        @Override
+        public void onWriteSuccess() {
+            mSuccess.incrementAndGet();
+            mTotal.incrementAndGet();
+        }
+
+        @Override
+        public void onWriteFailure(IOException e) {
+            mTotal.incrementAndGet();
+        }
+
+        boolean await(int count, long timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (mTotal.get() < count) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+            return mTotal.get() == count;
+        }
+    }
+
+    /**
+     * 每次写出都稍作等待，让关闭落在发送过程中
+     */
+    private static class SlowOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            Thread.yield();
+        }
+    }
+}